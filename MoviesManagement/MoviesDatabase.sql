@@ -3,6 +3,13 @@ CREATE DATABASE IF NOT EXISTS movie_reviews_db;
 USE movie_reviews_db;
 
 -- Drop tables in reverse order to avoid foreign key constraints
+DROP TABLE IF EXISTS review_dictionaries;
+DROP TABLE IF EXISTS review_id_sequence;
+DROP TABLE IF EXISTS movie_neighbors;
+DROP TABLE IF EXISTS follows;
+DROP TABLE IF EXISTS shares_archive;
+DROP TABLE IF EXISTS reviews_archive;
+DROP TABLE IF EXISTS review_fingerprints;
 DROP TABLE IF EXISTS shares;
 DROP TABLE IF EXISTS reviews;
 DROP TABLE IF EXISTS movies;
@@ -18,7 +25,11 @@ CREATE TABLE users (
     birth_date DATE NOT NULL,
     password VARCHAR(255) NOT NULL, -- Store plain text passwords
     account_type ENUM('Admin', 'Regular') NOT NULL,
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    deleted_at TIMESTAMP NULL DEFAULT NULL, -- Set while the user's reviews and shares are purged
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, -- Read by EmailFilter catch-ups
+    INDEX idx_users_deleted (deleted_at),
+    INDEX idx_users_updated (updated_at)
 );
 
 -- Insert sample users with plain text passwords
@@ -40,14 +51,26 @@ CREATE TABLE movies (
 CREATE TABLE reviews (
     id INT PRIMARY KEY AUTO_INCREMENT,
     movie_id INT NOT NULL,
-    review VARCHAR(1024) NOT NULL,
+    review VARCHAR(1024) NULL, -- Plain text; NULL when the text is stored compressed
+    review_deflated VARBINARY(4100) NULL, -- Compressed text (see ReviewText); NULL when stored plain
+    preview VARCHAR(60) NOT NULL DEFAULT '', -- Start of the text, shown in listings
     rating INT NOT NULL CHECK (rating BETWEEN 1 AND 5),
     user_id INT NOT NULL,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     modified_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    deleted_at TIMESTAMP NULL DEFAULT NULL, -- Tombstone: set when deleted, purged later by compaction
+    deleted_by_admin BOOLEAN NOT NULL DEFAULT FALSE, -- Whether an admin (not the author) made the tombstone
+    share_count INT NOT NULL DEFAULT 0, -- Shares made of the review
+    feed_score DOUBLE NOT NULL DEFAULT 0, -- Ranking score in the movie's feed (see ReviewRanking)
+    duplicate_of INT NULL DEFAULT NULL, -- Review this one nearly duplicated when written (see ReviewFingerprint)
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
     FOREIGN KEY (movie_id) REFERENCES movies(id) ON DELETE CASCADE,
-    UNIQUE (user_id, movie_id)
+    UNIQUE (user_id, movie_id),
+    CHECK (review IS NOT NULL OR review_deflated IS NOT NULL),
+    INDEX idx_reviews_movie (movie_id, rating),
+    INDEX idx_reviews_feed (movie_id, feed_score, id),
+    INDEX idx_reviews_modified (modified_at),
+    INDEX idx_reviews_deleted (deleted_at)
 );
 
 -- Create shares table
@@ -60,6 +83,90 @@ CREATE TABLE shares (
     PRIMARY KEY (review_id, user_id)
 );
 
+-- Create review_fingerprints table (band keys of each review's text fingerprint, see
+-- ReviewFingerprint; reviews sharing a band key are near-duplicate candidates). Rows are written
+-- with their review; BatchTool reviews duplicates fills them in for reviews written without.
+CREATE TABLE review_fingerprints (
+    band_key INT NOT NULL,
+    review_id INT NOT NULL,
+    FOREIGN KEY (review_id) REFERENCES reviews(id) ON DELETE CASCADE,
+    PRIMARY KEY (band_key, review_id)
+);
+
+-- Create reviews_archive table (cold tier: reviews not modified for
+-- -Dmoviereviews.archive.afterDays are moved here by ReviewCompactor, so the hot reviews table and
+-- its indexes only cover recent history; rows are read-only and stored compressed)
+CREATE TABLE reviews_archive (
+    id INT PRIMARY KEY,
+    movie_id INT NOT NULL,
+    review VARCHAR(1024) NULL, -- Plain text; NULL when the text is stored compressed
+    review_deflated VARBINARY(4100) NULL, -- Compressed text (see ReviewText); NULL when stored plain
+    preview VARCHAR(60) NOT NULL DEFAULT '', -- Start of the text, shown in listings
+    rating INT NOT NULL CHECK (rating BETWEEN 1 AND 5),
+    user_id INT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    modified_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    share_count INT NOT NULL DEFAULT 0,
+    feed_score DOUBLE NOT NULL DEFAULT 0,
+    duplicate_of INT NULL DEFAULT NULL,
+    archived_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    FOREIGN KEY (movie_id) REFERENCES movies(id) ON DELETE CASCADE,
+    UNIQUE (user_id, movie_id),
+    INDEX idx_reviews_archive_movie (movie_id, rating),
+    INDEX idx_reviews_archive_modified (modified_at)
+) ROW_FORMAT=COMPRESSED;
+
+-- Create shares_archive table (shares of archived reviews, moved with them)
+CREATE TABLE shares_archive (
+    review_id INT NOT NULL,
+    user_id INT NOT NULL,
+    share_date TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (review_id) REFERENCES reviews_archive(id) ON DELETE CASCADE,
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    PRIMARY KEY (review_id, user_id),
+    INDEX idx_shares_archive_user (user_id, share_date)
+) ROW_FORMAT=COMPRESSED;
+
+-- Create follows table (who follows whom; a review can be shared with all of its author's
+-- followers at once, listed in follower order from the primary key)
+CREATE TABLE follows (
+    followee_id INT NOT NULL,
+    follower_id INT NOT NULL,
+    followed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (followee_id) REFERENCES users(id) ON DELETE CASCADE,
+    FOREIGN KEY (follower_id) REFERENCES users(id) ON DELETE CASCADE,
+    PRIMARY KEY (followee_id, follower_id),
+    INDEX idx_follows_follower (follower_id)
+);
+
+-- Create movie_neighbors table (precomputed item-item similarities used for recommendations)
+CREATE TABLE movie_neighbors (
+    movie_id INT NOT NULL,
+    neighbor_id INT NOT NULL,
+    similarity DOUBLE NOT NULL,
+    FOREIGN KEY (movie_id) REFERENCES movies(id) ON DELETE CASCADE,
+    FOREIGN KEY (neighbor_id) REFERENCES movies(id) ON DELETE CASCADE,
+    PRIMARY KEY (movie_id, neighbor_id)
+);
+
+-- Create review_id_sequence table (allocates review IDs that are unique across shards when
+-- reviews are sharded with -Dmoviereviews.db.shards; unused otherwise). Row 1 ends the IDs
+-- assigned before sharding; rows 2 to 65 are created on first use, one per ID slot (see
+-- DatabaseConnection.allocateReviewId)
+CREATE TABLE review_id_sequence (
+    id TINYINT PRIMARY KEY,
+    next_id BIGINT NOT NULL
+);
+
+-- Create review_dictionaries table (Deflate dictionaries for compressed review text, trained
+-- from existing reviews by ReviewTextTool; the newest is used for new text)
+CREATE TABLE review_dictionaries (
+    id INT PRIMARY KEY AUTO_INCREMENT,
+    dictionary VARBINARY(32768) NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
 -- Insert 10 movies
 INSERT INTO movies (title, rel_date, genre) VALUES
 ('Inception', '2010-07-16', 'Sci-Fi'),
@@ -86,9 +193,27 @@ INSERT INTO reviews (movie_id, review, rating, user_id) VALUES
 (8, 'Epic journey through space and time.', 5, 1),
 (9, 'Russell Crowe delivers a powerful performance.', 4, 2);
 
+-- Fill in the previews (every sample review is shorter than a preview)
+UPDATE reviews SET preview = review, modified_at = modified_at;
+
 -- Insert sample shares
 INSERT INTO shares (review_id, user_id) VALUES
 (1, 2),
 (2, 3),
 (3, 4),
-(4, 1);
\ No newline at end of file
+(4, 1);
+
+-- Insert sample follows
+INSERT INTO follows (followee_id, follower_id) VALUES
+(1, 2),
+(1, 3),
+(1, 4);
+
+-- Rank the sample reviews (ReviewRanking.score: half-life of 30 days, so tau = 30 * 86400 / LN(2))
+UPDATE reviews SET share_count = (SELECT COUNT(*) FROM shares WHERE shares.review_id = reviews.id),
+    feed_score = LN(rating) + 0.5 * LN(1 + LEAST(CHAR_LENGTH(review), 1000) / 100) + LN(1 + share_count)
+        + UNIX_TIMESTAMP(modified_at) / (30 * 86400 / LN(2)),
+    modified_at = modified_at;
+
+-- Start the review ID sequence after the sample reviews
+INSERT INTO review_id_sequence (id, next_id) VALUES (1, 11);
\ No newline at end of file
@@ -0,0 +1,96 @@
+-- Schema for one review shard (used with -Dmoviereviews.db.shards)
+-- Run on every shard database; ReshardTool then fills movies and moves reviews and shares.
+-- Users, the master movies table and movie_neighbors stay on the primary (MoviesDatabase.sql).
+CREATE DATABASE IF NOT EXISTS movie_reviews_shard;
+USE movie_reviews_shard;
+
+-- Drop tables in reverse order to avoid foreign key constraints
+DROP TABLE IF EXISTS shares_archive;
+DROP TABLE IF EXISTS reviews_archive;
+DROP TABLE IF EXISTS review_fingerprints;
+DROP TABLE IF EXISTS shares;
+DROP TABLE IF EXISTS reviews;
+DROP TABLE IF EXISTS movies;
+
+-- Create movies table (reference copy of the primary's movies, kept in sync by ReshardTool)
+CREATE TABLE movies (
+    id INT PRIMARY KEY,
+    title VARCHAR(100) UNIQUE NOT NULL,
+    rel_date DATE NOT NULL,
+    genre VARCHAR(50) NOT NULL
+);
+
+-- Create reviews table (IDs are allocated from review_id_sequence on the primary; there is
+-- no foreign key to users, which live on the primary, so user deletion cleans up explicitly)
+CREATE TABLE reviews (
+    id INT PRIMARY KEY,
+    movie_id INT NOT NULL,
+    review VARCHAR(1024) NULL, -- Plain text; NULL when the text is stored compressed
+    review_deflated VARBINARY(4100) NULL, -- Compressed text (see ReviewText); NULL when stored plain
+    preview VARCHAR(60) NOT NULL DEFAULT '', -- Start of the text, shown in listings
+    rating INT NOT NULL CHECK (rating BETWEEN 1 AND 5),
+    user_id INT NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    modified_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    deleted_at TIMESTAMP NULL DEFAULT NULL, -- Tombstone: set when deleted, purged later by compaction
+    deleted_by_admin BOOLEAN NOT NULL DEFAULT FALSE, -- Whether an admin (not the author) made the tombstone
+    share_count INT NOT NULL DEFAULT 0, -- Shares made of the review
+    feed_score DOUBLE NOT NULL DEFAULT 0, -- Ranking score in the movie's feed (see ReviewRanking)
+    duplicate_of INT NULL DEFAULT NULL, -- Review this one nearly duplicated when written (see ReviewFingerprint)
+    FOREIGN KEY (movie_id) REFERENCES movies(id) ON DELETE CASCADE,
+    UNIQUE (user_id, movie_id),
+    CHECK (review IS NOT NULL OR review_deflated IS NOT NULL),
+    INDEX idx_reviews_movie (movie_id, rating),
+    INDEX idx_reviews_feed (movie_id, feed_score, id),
+    INDEX idx_reviews_modified (modified_at),
+    INDEX idx_reviews_deleted (deleted_at)
+);
+
+-- Create shares table (a share lives on the same shard as its review)
+CREATE TABLE shares (
+    review_id INT NOT NULL,
+    user_id INT NOT NULL,
+    share_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (review_id) REFERENCES reviews(id) ON DELETE CASCADE,
+    PRIMARY KEY (review_id, user_id),
+    INDEX idx_shares_user (user_id, share_date)
+);
+
+-- Create review_fingerprints table (fingerprint band keys of this shard's reviews, see MoviesDatabase.sql)
+CREATE TABLE review_fingerprints (
+    band_key INT NOT NULL,
+    review_id INT NOT NULL,
+    FOREIGN KEY (review_id) REFERENCES reviews(id) ON DELETE CASCADE,
+    PRIMARY KEY (band_key, review_id)
+);
+
+-- Create reviews_archive table (cold tier of this shard's reviews, see MoviesDatabase.sql)
+CREATE TABLE reviews_archive (
+    id INT PRIMARY KEY,
+    movie_id INT NOT NULL,
+    review VARCHAR(1024) NULL, -- Plain text; NULL when the text is stored compressed
+    review_deflated VARBINARY(4100) NULL, -- Compressed text (see ReviewText); NULL when stored plain
+    preview VARCHAR(60) NOT NULL DEFAULT '', -- Start of the text, shown in listings
+    rating INT NOT NULL CHECK (rating BETWEEN 1 AND 5),
+    user_id INT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    modified_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    share_count INT NOT NULL DEFAULT 0,
+    feed_score DOUBLE NOT NULL DEFAULT 0,
+    duplicate_of INT NULL DEFAULT NULL,
+    archived_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (movie_id) REFERENCES movies(id) ON DELETE CASCADE,
+    UNIQUE (user_id, movie_id),
+    INDEX idx_reviews_archive_movie (movie_id, rating),
+    INDEX idx_reviews_archive_modified (modified_at)
+) ROW_FORMAT=COMPRESSED;
+
+-- Create shares_archive table (shares of archived reviews, moved with them)
+CREATE TABLE shares_archive (
+    review_id INT NOT NULL,
+    user_id INT NOT NULL,
+    share_date TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (review_id) REFERENCES reviews_archive(id) ON DELETE CASCADE,
+    PRIMARY KEY (review_id, user_id),
+    INDEX idx_shares_archive_user (user_id, share_date)
+) ROW_FORMAT=COMPRESSED;
\ No newline at end of file
@@ -1,19 +1,62 @@
 
 // Copyright (c) 2025. Created By Yash Somani
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 // Manages user authentication, registration, and profile operations for the Movie Review Application.
 public class AuthService {
+    // Operational metrics: login outcomes and latency, registrations and deletions.
+    private static final Metrics.Counter LOGIN_SUCCESSES = Metrics.counter("auth_logins_total",
+            "Login attempts by result.", "result", "success");
+    private static final Metrics.Counter LOGIN_FAILURES = Metrics.counter("auth_logins_total",
+            "Login attempts by result.", "result", "failure");
+    private static final Metrics.Counter LOGIN_THROTTLED = Metrics.counter("auth_logins_total",
+            "Login attempts by result.", "result", "throttled");
+    private static final LatencyHistogram LOGIN_LATENCY = Metrics.histogram("auth_login_duration_seconds",
+            "Time taken by login attempts.");
+    private static final Metrics.Counter REGISTRATIONS = Metrics.counter("auth_registrations_total",
+            "Users registered.");
+    private static final Metrics.Counter USER_DELETIONS = Metrics.counter("auth_user_deletions_total",
+            "Users deleted by admins.");
+    // Login rate limits, shared by all sessions: token buckets per email and per source (e.g. a
+    // client address), checked before any database access. Sources default to the console's.
+    private static final int THROTTLE_KEYS = Integer.getInteger("moviereviews.login.trackedKeys", 100000);
+    private static final LoginThrottle EMAIL_THROTTLE = new LoginThrottle("email",
+            Integer.getInteger("moviereviews.login.perEmailPerMinute", 10),
+            Integer.getInteger("moviereviews.login.perEmailBurst", 5), THROTTLE_KEYS);
+    private static final LoginThrottle SOURCE_THROTTLE = new LoginThrottle("source",
+            Integer.getInteger("moviereviews.login.perSourcePerMinute", 60),
+            Integer.getInteger("moviereviews.login.perSourceBurst", 20), THROTTLE_KEYS);
+    private static final String CONSOLE_SOURCE = "console";
+
+    // Storage for user accounts.
+    private final UserRepository users;
+    // Removes the reviews and shares of deleted users in the background.
+    private final UserPurger purger;
     // Stores the currently logged-in user; null if no user is logged in.
+    // One instance per session: the console has one, StressTool one per simulated user.
     private User currentUser;
 
+    // Creates the service over the storage backend selected at startup.
+    public AuthService() {
+        this(Repositories.users());
+    }
+
+    // Creates the service over the given user storage.
+    public AuthService(UserRepository users) {
+        this(users, new UserPurger(users));
+    }
+
+    // Creates a session over the given user storage that shares its purger with other sessions.
+    public AuthService(UserRepository users, UserPurger purger) {
+        this.users = users;
+        this.purger = purger;
+    }
+
     // Registers a new user and stores their details in the users table.
     // Returns true if registration succeeds, false otherwise.
     public boolean register(String firstName, String lastName, String email, String mobile, String birthDate,
@@ -59,28 +102,23 @@ public class AuthService {
             return false;
         }
 
-        // Establish database connection and perform registration.
-        try (Connection conn = DatabaseConnection.getConnection()) {
+        try {
             // Check if email already exists to prevent duplicates.
-            if (emailExists(conn, email)) {
+            if (users.emailExists(email.trim().toLowerCase())) {
                 System.out.println("Email already exists.");
                 return false;
             }
 
-            // SQL query to insert new user into the users table.
-            String sql = "INSERT INTO users (first_name, last_name, email, mobile, birth_date, password, account_type) VALUES (?, ?, ?, ?, ?, ?, ?)";
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                // Set prepared statement parameters with trimmed inputs.
-                stmt.setString(1, firstName.trim());
-                stmt.setString(2, lastName.trim());
-                stmt.setString(3, email.trim().toLowerCase());
-                stmt.setString(4, mobile.trim());
-                stmt.setDate(5, java.sql.Date.valueOf(parsedBirthDate));
-                stmt.setString(6, password); // Store password in plain text (insecure).
-                stmt.setString(7, accountType);
-                // Execute update and return true if at least one row is affected.
-                return stmt.executeUpdate() > 0;
+            // Store the new user with trimmed inputs.
+            boolean registered = users.insert(firstName.trim(), lastName.trim(), email.trim().toLowerCase(),
+                    mobile.trim(), parsedBirthDate, password, accountType);
+            if (registered) {
+                REGISTRATIONS.increment();
+            } else {
+                // Another registration took the email since the check above.
+                System.out.println("Email already exists.");
             }
+            return registered;
         } catch (SQLException e) {
             // Handle database errors and inform user.
             System.out.println("Registration failed: " + e.getMessage());
@@ -88,46 +126,53 @@ public class AuthService {
         }
     }
 
-    // Authenticates a user and sets currentUser if successful.
+    // Authenticates a user at the console and sets currentUser if successful.
     // Returns true if login succeeds, false otherwise.
     public boolean login(String email, String password) {
+        return login(email, password, CONSOLE_SOURCE);
+    }
+
+    // Authenticates a user connecting from the given source and sets currentUser if successful.
+    // Returns true if login succeeds, false otherwise (also when the attempt is rate limited).
+    public boolean login(String email, String password, String source) {
+        // Reject bursts in memory before they cost a database query.
+        long waitNanos = SOURCE_THROTTLE.acquire(source);
+        if (waitNanos == 0 && email != null && !email.trim().isEmpty()) {
+            waitNanos = EMAIL_THROTTLE.acquire(email.trim().toLowerCase());
+        }
+        if (waitNanos > 0) {
+            LOGIN_THROTTLED.increment();
+            System.out.println("Too many login attempts. Please try again in "
+                    + TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) + " seconds.");
+            return false;
+        }
+        // Time the attempt and count its outcome.
+        long start = System.nanoTime();
+        boolean success = attemptLogin(email, password);
+        LOGIN_LATENCY.record(System.nanoTime() - start);
+        (success ? LOGIN_SUCCESSES : LOGIN_FAILURES).increment();
+        return success;
+    }
+
+    // Checks the credentials against the stored users and sets currentUser on success.
+    private boolean attemptLogin(String email, String password) {
         // Ensure email and password are provided.
         if (isEmpty(email, password)) {
             System.out.println("Email and password are required.");
             return false;
         }
 
-        // Connect to the database to verify credentials.
-        try (Connection conn = DatabaseConnection.getConnection()) {
-            // SQL query to retrieve user details by email.
-            String sql = "SELECT id, first_name, last_name, email, mobile, birth_date, password, account_type FROM users WHERE email = ?";
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setString(1, email.trim().toLowerCase());
-                try (ResultSet rs = stmt.executeQuery()) {
-                    if (rs.next()) {
-                        // Compare provided password with stored password.
-                        String storedPassword = rs.getString("password");
-                        if (password.equals(storedPassword)) { // Plain-text comparison (insecure).
-                            // Create User object and set as currentUser.
-                            currentUser = new User(
-                                    rs.getInt("id"),
-                                    rs.getString("first_name"),
-                                    rs.getString("last_name"),
-                                    rs.getString("email"),
-                                    rs.getString("mobile"),
-                                    rs.getDate("birth_date").toString(),
-                                    rs.getString("account_type"));
-                            return true;
-                        } else {
-                            System.out.println("Invalid password.");
-                            return false;
-                        }
-                    } else {
-                        System.out.println("Email not found.");
-                        return false;
-                    }
-                }
+        try {
+            // Retrieve user details and stored password by email.
+            UserRepository.Credentials credentials = users.findCredentials(email.trim().toLowerCase());
+            // Compare provided password with stored password.
+            if (credentials != null && password.equals(credentials.getPassword())) { // Plain-text comparison (insecure).
+                currentUser = credentials.getUser();
+                return true;
             }
+            // One message for both cases, so failed logins do not reveal which emails are registered.
+            System.out.println("Invalid email or password.");
+            return false;
         } catch (SQLException e) {
             // Handle database errors during login.
             System.out.println("Login failed due to a database error: " + e.getMessage());
@@ -138,19 +183,12 @@ public class AuthService {
     // Allows an admin to delete a user, with restrictions on deleting other admins.
     // Returns true if deletion succeeds, false otherwise.
     public boolean deleteUser(int adminId, int userIdToDelete) {
-        try (Connection conn = DatabaseConnection.getConnection()) {
+        try {
             // Check the account type of the user to be deleted.
-            String checkSql = "SELECT account_type FROM users WHERE id = ?";
-            String accountType;
-            try (PreparedStatement checkStmt = conn.prepareStatement(checkSql)) {
-                checkStmt.setInt(1, userIdToDelete);
-                try (ResultSet rs = checkStmt.executeQuery()) {
-                    if (!rs.next()) {
-                        System.out.println("User not found.");
-                        return false;
-                    }
-                    accountType = rs.getString("account_type");
-                }
+            String accountType = users.findAccountType(userIdToDelete);
+            if (accountType == null) {
+                System.out.println("User not found.");
+                return false;
             }
 
             // Prevent admins from deleting other admins unless it's themselves.
@@ -159,13 +197,14 @@ public class AuthService {
                 return false;
             }
 
-            // SQL query to delete the user by ID.
-            String sql = "DELETE FROM users WHERE id = ?";
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setInt(1, userIdToDelete);
-                // Deletion cascades to related tables (e.g., reviews, shares).
-                return stmt.executeUpdate() > 0;
+            // Hide the user at once; their reviews and shares are purged in the background in small
+            // chunks, so a prolific user's deletion does not lock those tables for long.
+            boolean deleted = users.markDeleted(userIdToDelete);
+            if (deleted) {
+                USER_DELETIONS.increment();
+                purger.schedule(userIdToDelete);
             }
+            return deleted;
         } catch (SQLException e) {
             // Handle database errors during deletion.
             System.out.println("Failed to delete user: " + e.getMessage());
@@ -173,31 +212,33 @@ public class AuthService {
         }
     }
 
-    // Retrieves a list of all users from the users table.
+    // Resumes the background purges of users marked deleted but not yet removed, e.g. after a restart.
+    public void resumeUserDeletions() {
+        try {
+            int pending = purger.resumePending();
+            if (pending > 0) {
+                System.out.println("Resuming deletion of " + pending + " user(s) in the background.");
+            }
+        } catch (SQLException e) {
+            System.out.println("Failed to resume user deletions: " + e.getMessage());
+        }
+    }
+
+    // Returns the progress of the user deletions requested since startup.
+    public List<UserPurger.Progress> getDeletionProgress() {
+        return purger.progress();
+    }
+
+    // Retrieves a list of all stored users.
     // Returns a List<User> containing all user objects.
     public List<User> listAllUsers() {
-        // Initialize an empty list to store users.
-        List<User> users = new ArrayList<>();
-        try (Connection conn = DatabaseConnection.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(
-                        "SELECT id, first_name, last_name, email, mobile, birth_date, account_type FROM users");
-                ResultSet rs = stmt.executeQuery()) {
-            // Iterate through result set and create User objects.
-            while (rs.next()) {
-                users.add(new User(
-                        rs.getInt("id"),
-                        rs.getString("first_name"),
-                        rs.getString("last_name"),
-                        rs.getString("email"),
-                        rs.getString("mobile"),
-                        rs.getDate("birth_date").toString(),
-                        rs.getString("account_type")));
-            }
+        try {
+            return users.findAll();
         } catch (SQLException e) {
             // Print error but return empty list to avoid null returns.
             System.out.println("Failed to list users: " + e.getMessage());
+            return new ArrayList<>();
         }
-        return users;
     }
 
     // Updates the profile of the specified user.
@@ -241,34 +282,14 @@ public class AuthService {
             return false;
         }
 
-        // Connect to database to update user profile.
-        try (Connection conn = DatabaseConnection.getConnection()) {
-            // Check if the new email is already used by another user.
-            String checkEmailSql = "SELECT email FROM users WHERE email = ? AND id != ?";
-            try (PreparedStatement checkStmt = conn.prepareStatement(checkEmailSql)) {
-                checkStmt.setString(1, email);
-                checkStmt.setInt(2, userId);
-                try (ResultSet rs = checkStmt.executeQuery()) {
-                    if (rs.next()) {
-                        System.out.println("Email already in use by another user.");
-                        return false;
-                    }
-                }
-            }
-
-            // SQL query to update user details.
-            String sql = "UPDATE users SET first_name = ?, last_name = ?, email = ?, mobile = ?, birth_date = ? WHERE id = ?";
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                // Set prepared statement parameters.
-                stmt.setString(1, firstName);
-                stmt.setString(2, lastName);
-                stmt.setString(3, email);
-                stmt.setString(4, mobile);
-                stmt.setDate(5, java.sql.Date.valueOf(parsedBirthDate));
-                stmt.setInt(6, userId);
-                // Execute update and return true if successful.
-                return stmt.executeUpdate() > 0;
+        try {
+            // Check if the new email is already used by another user; an unchanged email cannot be.
+            if (!email.equals(user.getEmail()) && users.emailInUse(email, userId)) {
+                System.out.println("Email already in use by another user.");
+                return false;
             }
+            // Update user details and return true if successful.
+            return users.updateProfile(userId, firstName, lastName, email, mobile, parsedBirthDate);
         } catch (SQLException e) {
             // Handle database errors during profile update.
             System.out.println("Profile update failed: " + e.getMessage());
@@ -291,16 +312,9 @@ public class AuthService {
             return false;
         }
 
-        // Connect to database to update password.
-        try (Connection conn = DatabaseConnection.getConnection()) {
-            // SQL query to update password for the user.
-            String sql = "UPDATE users SET password = ? WHERE id = ?";
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setString(1, newPassword); // Store password in plain text (insecure).
-                stmt.setInt(2, userId);
-                // Execute update and return true if successful.
-                return stmt.executeUpdate() > 0;
-            }
+        try {
+            // Update the password and return true if successful.
+            return users.updatePassword(userId, newPassword);
         } catch (SQLException e) {
             // Handle database errors during password change.
             System.out.println("Password change failed: " + e.getMessage());
@@ -308,6 +322,41 @@ public class AuthService {
         }
     }
 
+    // Makes the user follow the user with the given email, or stop following them if they already do.
+    // Followers can be sent a review all at once (see ReviewService.shareReviewWithFollowers).
+    // Returns true if the change succeeds, false otherwise.
+    public boolean toggleFollow(int userId, String email) {
+        if (email == null || email.trim().isEmpty()) {
+            System.out.println("Email cannot be empty.");
+            return false;
+        }
+        try {
+            int followeeId = users.findIdByEmail(email.trim().toLowerCase());
+            if (followeeId < 0) {
+                System.out.println("User with that email not found.");
+                return false;
+            }
+            if (followeeId == userId) {
+                System.out.println("You cannot follow yourself.");
+                return false;
+            }
+            if (users.follow(userId, followeeId)) {
+                System.out.println("You now follow " + email.trim() + ".");
+                return true;
+            }
+            if (users.unfollow(userId, followeeId)) {
+                System.out.println("You no longer follow " + email.trim() + ".");
+                return true;
+            }
+            // The other user was deleted in the meantime.
+            System.out.println("User with that email not found.");
+            return false;
+        } catch (SQLException e) {
+            System.out.println("Failed to update follow: " + e.getMessage());
+            return false;
+        }
+    }
+
     // Returns the currently logged-in user.
     // Returns null if no user is logged in.
     public User getCurrentUser() {
@@ -330,18 +379,6 @@ public class AuthService {
         return false;
     }
 
-    // Checks if the given email already exists in the database.
-    // Returns true if the email is found, false otherwise.
-    private boolean emailExists(Connection conn, String email) throws SQLException {
-        String checkEmailSql = "SELECT email FROM users WHERE email = ?";
-        try (PreparedStatement checkStmt = conn.prepareStatement(checkEmailSql)) {
-            checkStmt.setString(1, email.trim().toLowerCase());
-            try (ResultSet rs = checkStmt.executeQuery()) {
-                return rs.next();
-            }
-        }
-    }
-
     // Validates email format using a regex pattern.
     // Returns true if valid, false otherwise.
     private boolean isValidEmail(String email) {
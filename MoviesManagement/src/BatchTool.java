@@ -0,0 +1,444 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Non-interactive commands for scripted operations (nightly moderation, bulk cleanups), run against
+// the configured storage through the same services as the menus.
+// Usage: java [-D...] BatchTool <command> [options], or java -jar movies-management.jar <command> [options]
+//   reviews delete --ids-file <file|-> [--workers <n>] [--batch <n>]
+//     Deletes the reviews whose IDs are listed one per line (blank lines and # comments skipped;
+//     - reads standard input), as an admin would, in set-based batches of --batch IDs (default
+//     500) run by --workers threads (default 4). Prints "<id>,deleted" or "<id>,not_found" per ID
+//     as its batch completes, so lines are grouped by batch rather than in file order; IDs of a
+//     failed batch are printed as "<id>,failed". Deleted reviews can be restored during the undo
+//     window, as from the menu.
+//   reviews moderate [--user <email>] [--movie <id>] [--from <yyyy-MM-dd>] [--to <yyyy-MM-dd>]
+//                    [--text <text>] [--flagged] [--dry-run]
+//     Deletes the live reviews matching every given criterion, as the admin menu's bulk
+//     moderation does, a chunk at a time with progress on standard error; --dry-run only counts
+//     them. --flagged matches reviews flagged as near-duplicates when written. Prints the number
+//     of reviews matched or deleted.
+//   reviews duplicates [--workers <n>] [--batch <n>]
+//     Scans every live review for near-copies of earlier ones (see ReviewFingerprint). A first
+//     pass indexes the fingerprints of reviews written without one (or moved back from the
+//     archive); a second prints "<id>,<original id>" for each review nearly duplicating a review
+//     with a lower ID. Both read --batch reviews (default 500) at a time in ID order and hand them
+//     to --workers threads (default 4), so lines are grouped by batch. The first column can be fed
+//     to reviews delete.
+//   users list [--format csv|tsv] [--batch <n>]
+//     Prints every user (without passwords) with a header line, reading --batch users (default
+//     1000) at a time in ID order.
+// Records go to standard output as they are produced; messages, including the services' own, go to
+// standard error. Exits with status 1 on a usage error, an unreadable input line or a failure.
+public class BatchTool {
+	private static final String USAGE = "Usage: BatchTool reviews delete --ids-file <file|-> [--workers <n>] [--batch <n>]\n"
+			+ "       BatchTool reviews moderate [--user <email>] [--movie <id>] [--from <yyyy-MM-dd>] "
+			+ "[--to <yyyy-MM-dd>] [--text <text>] [--flagged] [--dry-run]\n"
+			+ "       BatchTool reviews duplicates [--workers <n>] [--batch <n>]\n"
+			+ "       BatchTool users list [--format csv|tsv] [--batch <n>]";
+	private static final int DEFAULT_WORKERS = 4;
+	private static final int DEFAULT_DELETE_BATCH = 500;
+	private static final int DEFAULT_LIST_BATCH = 1000;
+	private static final String[] USER_COLUMNS = { "id", "first_name", "last_name", "email", "mobile", "birth_date",
+			"account_type" };
+
+	// Where records are written: standard output, buffered.
+	private final Writer out;
+	// Input lines that held no valid ID, and batches that failed.
+	private long invalidLines;
+	private final AtomicLong failedBatches = new AtomicLong();
+
+	// Creates a tool writing records to the given writer.
+	public BatchTool(Writer out) {
+		this.out = out;
+	}
+
+	// Entry point; exits with status 0 if the command succeeded, 1 otherwise.
+	public static void main(String[] args) {
+		Writer out = new BufferedWriter(
+				new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8), 1 << 16);
+		// Services report errors on System.out; keep them out of the records.
+		System.setOut(System.err);
+		boolean succeeded = false;
+		try {
+			succeeded = new BatchTool(out).run(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+		} catch (IOException | SQLException e) {
+			System.err.println("Batch command failed: " + e.getMessage());
+		} finally {
+			try {
+				out.flush();
+			} catch (IOException e) {
+				System.err.println("Failed to write the output: " + e.getMessage());
+				succeeded = false;
+			}
+			Repositories.shutdown();
+		}
+		System.exit(succeeded ? 0 : 1);
+	}
+
+	// Runs one command; returns true if it succeeded.
+	// Throws IllegalArgumentException for an unknown command or option.
+	public boolean run(String[] args) throws IOException, SQLException {
+		if (args.length < 2) {
+			throw new IllegalArgumentException("Missing command.");
+		}
+		Map<String, String> options = parseOptions(args);
+		String command = args[0] + " " + args[1];
+		switch (command) {
+			case "reviews delete":
+				allowOnly(options, "ids-file", "workers", "batch");
+				return deleteReviews(required(options, "ids-file"), intOption(options, "workers", DEFAULT_WORKERS),
+						intOption(options, "batch", DEFAULT_DELETE_BATCH));
+			case "reviews moderate":
+				allowOnly(options, "user", "movie", "from", "to", "text", "flagged", "dry-run");
+				return moderateReviews(options);
+			case "reviews duplicates":
+				allowOnly(options, "workers", "batch");
+				return findDuplicates(intOption(options, "workers", DEFAULT_WORKERS),
+						intOption(options, "batch", DEFAULT_DELETE_BATCH));
+			case "users list":
+				allowOnly(options, "format", "batch");
+				return listUsers(options.getOrDefault("format", "csv"), intOption(options, "batch", DEFAULT_LIST_BATCH));
+			default:
+				throw new IllegalArgumentException("Unknown command: " + command);
+		}
+	}
+
+	// Deletes the reviews listed in the file in batches run by parallel workers. At most two
+	// batches per worker are read ahead, so the file is streamed rather than loaded.
+	private boolean deleteReviews(String idsFile, int workers, int batchSize) throws IOException {
+		ReviewService reviewService = new ReviewService();
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		Semaphore inFlight = new Semaphore(workers * 2);
+		AtomicLong deleted = new AtomicLong();
+		long requested = 0;
+		long start = System.nanoTime();
+		try (BufferedReader reader = idsFile.equals("-")
+				? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+				: Files.newBufferedReader(Paths.get(idsFile), StandardCharsets.UTF_8)) {
+			List<Integer> batch = new ArrayList<>(batchSize);
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				Integer id = parseId(line, lineNumber);
+				if (id == null) {
+					continue;
+				}
+				batch.add(id);
+				requested++;
+				if (batch.size() == batchSize) {
+					submitDelete(pool, inFlight, reviewService, batch, deleted);
+					batch = new ArrayList<>(batchSize);
+				}
+			}
+			if (!batch.isEmpty()) {
+				submitDelete(pool, inFlight, reviewService, batch, deleted);
+			}
+		} finally {
+			pool.shutdown();
+			awaitTermination(pool);
+		}
+		System.err.printf("Deleted %d of %d reviews in %.1f s (%d failed batches, %d invalid lines)%n", deleted.get(),
+				requested, (System.nanoTime() - start) / 1e9, failedBatches.get(), invalidLines);
+		return failedBatches.get() == 0 && invalidLines == 0;
+	}
+
+	// Hands a batch to a worker once fewer than the read-ahead limit are in flight.
+	private void submitDelete(ExecutorService pool, Semaphore inFlight, ReviewService reviewService, List<Integer> batch,
+			AtomicLong deleted) {
+		inFlight.acquireUninterruptibly();
+		pool.execute(() -> {
+			try {
+				List<Integer> done = reviewService.deleteReviewsByAdmin(batch);
+				StringBuilder lines = new StringBuilder();
+				if (done == null) {
+					failedBatches.incrementAndGet();
+					for (int id : batch) {
+						lines.append(id).append(",failed\n");
+					}
+				} else {
+					deleted.addAndGet(done.size());
+					Set<Integer> deletedIds = new HashSet<>(done);
+					for (int id : batch) {
+						// A repeated ID is reported deleted once.
+						lines.append(id).append(deletedIds.remove(id) ? ",deleted\n" : ",not_found\n");
+					}
+				}
+				write(lines);
+			} catch (RuntimeException e) {
+				System.err.println("Failed to delete reviews: " + e);
+				failedBatches.incrementAndGet();
+			} finally {
+				inFlight.release();
+			}
+		});
+	}
+
+	// Deletes or counts the reviews matching the criteria given as options.
+	private boolean moderateReviews(Map<String, String> options) throws IOException {
+		ReviewService reviewService = new ReviewService();
+		ReviewRepository.ModerationCriteria criteria = reviewService.moderationCriteria(options.get("user"),
+				options.containsKey("movie") ? intOption(options, "movie", 0) : 0, options.get("from"), options.get("to"),
+				options.get("text"), options.containsKey("flagged"));
+		if (criteria == null) {
+			return false;
+		}
+		boolean dryRun = options.containsKey("dry-run");
+		int count = reviewService.moderateReviews(criteria, dryRun);
+		if (count < 0) {
+			return false;
+		}
+		write((dryRun ? "matched," : "deleted,") + count + "\n");
+		return true;
+	}
+
+	// Indexes missing fingerprints, then prints each review nearly duplicating an earlier one. The
+	// second pass relies on the first, as a review is only found from the index.
+	private boolean findDuplicates(int workers, int batchSize) throws SQLException {
+		ReviewService reviewService = new ReviewService();
+		long start = System.nanoTime();
+		AtomicLong indexed = new AtomicLong();
+		scanReviews(workers, batchSize, page -> {
+			int count = reviewService.indexFingerprints(page);
+			if (count < 0) {
+				failedBatches.incrementAndGet();
+			} else {
+				indexed.addAndGet(count);
+			}
+		});
+		AtomicLong found = new AtomicLong();
+		long scanned = scanReviews(workers, batchSize, page -> {
+			Map<Integer, Integer> duplicates = reviewService.findDuplicateReviews(page);
+			if (duplicates == null) {
+				failedBatches.incrementAndGet();
+				return;
+			}
+			StringBuilder lines = new StringBuilder();
+			for (Review review : page) {
+				Integer original = duplicates.get(review.getId());
+				if (original != null) {
+					lines.append(review.getId()).append(',').append(original).append('\n');
+				}
+			}
+			found.addAndGet(duplicates.size());
+			write(lines);
+		});
+		System.err.printf("Found %d near-duplicates among %d reviews in %.1f s (%d fingerprints indexed, %d failed batches)%n",
+				found.get(), scanned, (System.nanoTime() - start) / 1e9, indexed.get(), failedBatches.get());
+		return failedBatches.get() == 0;
+	}
+
+	// Reads every live review in pages of batchSize by ID and runs the task on each page in one of
+	// the workers, reading at most two pages per worker ahead. Returns the number of reviews read,
+	// once every task has finished.
+	private long scanReviews(int workers, int batchSize, Consumer<List<Review>> task) throws SQLException {
+		ReviewRepository reviews = Repositories.reviews();
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		Semaphore inFlight = new Semaphore(workers * 2);
+		long count = 0;
+		try {
+			int afterId = 0;
+			while (true) {
+				List<Review> page = reviews.findPage(afterId, batchSize);
+				if (page.isEmpty()) {
+					break;
+				}
+				count += page.size();
+				afterId = page.get(page.size() - 1).getId();
+				inFlight.acquireUninterruptibly();
+				pool.execute(() -> {
+					try {
+						task.accept(page);
+					} catch (RuntimeException e) {
+						System.err.println("Failed to scan reviews: " + e);
+						failedBatches.incrementAndGet();
+					} finally {
+						inFlight.release();
+					}
+				});
+				if (page.size() < batchSize) {
+					break;
+				}
+			}
+		} finally {
+			pool.shutdown();
+			awaitTermination(pool);
+		}
+		return count;
+	}
+
+	// Prints every user, reading them in pages by ID.
+	private boolean listUsers(String format, int batchSize) throws IOException, SQLException {
+		char separator;
+		switch (format) {
+			case "csv":
+				separator = ',';
+				break;
+			case "tsv":
+				separator = '\t';
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown format: " + format + " (expected csv or tsv)");
+		}
+		// Reads the repository directly rather than through AuthService.listAllUsers, so a failed
+		// page fails the job instead of ending the listing early.
+		UserRepository users = Repositories.users();
+		StringBuilder lines = new StringBuilder();
+		appendRecord(lines, separator, (Object[]) USER_COLUMNS);
+		long count = 0;
+		int afterId = 0;
+		while (true) {
+			List<User> page = users.findPage(afterId, batchSize);
+			for (User user : page) {
+				appendRecord(lines, separator, user.getId(), user.getFirstName(), user.getLastName(), user.getEmail(),
+						user.getMobile(), user.getBirthDate(), user.getAccountType());
+				afterId = user.getId();
+			}
+			count += page.size();
+			write(lines);
+			lines.setLength(0);
+			if (page.size() < batchSize) {
+				break;
+			}
+		}
+		System.err.printf("Listed %d users%n", count);
+		return true;
+	}
+
+	// Writes records, whole, to the output; called by several workers.
+	private synchronized void write(CharSequence lines) {
+		try {
+			out.append(lines);
+		} catch (IOException e) {
+			// Without an output the job cannot report; count it as failed.
+			System.err.println("Failed to write the output: " + e.getMessage());
+			failedBatches.incrementAndGet();
+		}
+	}
+
+	// Appends one record, quoting CSV fields that need it and flattening TSV fields.
+	private static void appendRecord(StringBuilder lines, char separator, Object... fields) {
+		for (int i = 0; i < fields.length; i++) {
+			if (i > 0) {
+				lines.append(separator);
+			}
+			String field = fields[i] != null ? fields[i].toString() : "";
+			if (separator == '\t') {
+				lines.append(field.replace('\t', ' ').replace('\n', ' ').replace('\r', ' '));
+			} else if (field.indexOf(',') >= 0 || field.indexOf('"') >= 0 || field.indexOf('\n') >= 0
+					|| field.indexOf('\r') >= 0) {
+				lines.append('"').append(field.replace("\"", "\"\"")).append('"');
+			} else {
+				lines.append(field);
+			}
+		}
+		lines.append('\n');
+	}
+
+	// Returns the review ID on an input line, or null for a blank line, a comment or an invalid ID
+	// (reported).
+	private Integer parseId(String line, int lineNumber) {
+		String trimmed = line.trim();
+		if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+			return null;
+		}
+		try {
+			int id = Integer.parseInt(trimmed);
+			if (id > 0) {
+				return id;
+			}
+		} catch (NumberFormatException e) {
+			// Reported below.
+		}
+		System.err.println("Line " + lineNumber + ": not a review ID: " + trimmed);
+		invalidLines++;
+		return null;
+	}
+
+	// Parses the "--name value" options following the command; an option followed by another
+	// option or by nothing is a flag, with the value "true".
+	private static Map<String, String> parseOptions(String[] args) {
+		Map<String, String> options = new HashMap<>();
+		for (int i = 2; i < args.length; i++) {
+			if (!args[i].startsWith("--")) {
+				throw new IllegalArgumentException("Invalid option: " + args[i]);
+			}
+			boolean flag = i + 1 >= args.length || args[i + 1].startsWith("--");
+			options.put(args[i].substring(2), flag ? "true" : args[++i]);
+		}
+		return options;
+	}
+
+	// Rejects options the command does not take.
+	private static void allowOnly(Map<String, String> options, String... names) {
+		Set<String> unknown = new HashSet<>(options.keySet());
+		unknown.removeAll(Arrays.asList(names));
+		if (!unknown.isEmpty()) {
+			throw new IllegalArgumentException("Unknown option --" + unknown.iterator().next());
+		}
+	}
+
+	// Returns a required option's value.
+	private static String required(Map<String, String> options, String name) {
+		String value = options.get(name);
+		if (value == null) {
+			throw new IllegalArgumentException("Missing option --" + name);
+		}
+		return value;
+	}
+
+	// Returns a positive integer option, or the default when absent.
+	private static int intOption(Map<String, String> options, String name, int defaultValue) {
+		String value = options.get(name);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			int parsed = Integer.parseInt(value);
+			if (parsed > 0) {
+				return parsed;
+			}
+		} catch (NumberFormatException e) {
+			// Reported below.
+		}
+		throw new IllegalArgumentException("--" + name + " must be a positive integer: " + value);
+	}
+
+	// Waits for the workers to finish the submitted batches.
+	private static void awaitTermination(ExecutorService pool) {
+		try {
+			while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+				System.err.println("Waiting for the workers to finish...");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
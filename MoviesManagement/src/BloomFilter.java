@@ -0,0 +1,96 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Lock-free Bloom filter over strings: answers "definitely absent" or "possibly present" from a
+// fixed bit array, so lookups of keys that do not exist can skip the database. Bits are only ever
+// set (with atomic ORs), so concurrent adds and lookups need no locking; keys cannot be removed,
+// which makes a removed key a false positive until the filter is rebuilt.
+public class BloomFilter {
+	// Keys the filter was sized for.
+	private final int capacity;
+	// Bit array, 64 bits per word.
+	private final AtomicLongArray words;
+	private final long bitCount;
+	// Number of bit positions per key.
+	private final int hashCount;
+	// Keys added that set at least one new bit, an estimate of the distinct keys; once it exceeds
+	// capacity, false positives become more frequent.
+	private final LongAdder added = new LongAdder();
+
+	// Creates a filter for about capacity keys with the given false positive rate at that size.
+	public BloomFilter(int capacity, double falsePositiveRate) {
+		this.capacity = Math.max(1, capacity);
+		double ln2 = Math.log(2);
+		long bits = (long) Math.ceil(-this.capacity * Math.log(falsePositiveRate) / (ln2 * ln2));
+		int wordCount = (int) Math.max(1, (bits + 63) / 64);
+		this.words = new AtomicLongArray(wordCount);
+		this.bitCount = wordCount * 64L;
+		this.hashCount = Math.max(1, (int) Math.round((double) bitCount / this.capacity * ln2));
+	}
+
+	// Adds a key. Returns true if the key was new to the filter (it set at least one bit).
+	public boolean put(String key) {
+		long hash = hash(key);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32) | 1;
+		boolean changed = false;
+		for (int i = 0; i < hashCount; i++) {
+			long bit = Integer.toUnsignedLong(h1 + i * h2) % bitCount;
+			int word = (int) (bit >>> 6);
+			long mask = 1L << bit;
+			long current = words.get(word);
+			while ((current & mask) == 0) {
+				if (words.compareAndSet(word, current, current | mask)) {
+					changed = true;
+					break;
+				}
+				current = words.get(word);
+			}
+		}
+		if (changed) {
+			added.increment();
+		}
+		return changed;
+	}
+
+	// Returns false if the key was definitely never added, true if it may have been.
+	public boolean mightContain(String key) {
+		long hash = hash(key);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32) | 1;
+		for (int i = 0; i < hashCount; i++) {
+			long bit = Integer.toUnsignedLong(h1 + i * h2) % bitCount;
+			if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// Returns the number of keys the filter was sized for.
+	public int getCapacity() {
+		return capacity;
+	}
+
+	// Returns the estimated number of distinct keys added.
+	public long getAdded() {
+		return added.sum();
+	}
+
+	// 64-bit FNV-1a over the key's characters, finished with the MurmurHash3 mixer so both halves
+	// are well distributed for double hashing.
+	private static long hash(String key) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < key.length(); i++) {
+			hash ^= key.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
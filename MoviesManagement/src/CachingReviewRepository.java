@@ -0,0 +1,366 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// ReviewRepository that caches each user's own reviews (findByUser) and shared-with-me inbox
+// (findSharedWith) in front of another repository, so the signed-in menu's "list my reviews,
+// then edit one" flows do not rerun the same joins. Writes through this repository invalidate
+// exactly the listings they change: the author's own listing, and the listings that contain the
+// review (found through an index of cached review IDs), or the recipient's inbox for a share.
+// Restores and archiving, whose affected users are not known here, clear the whole cache.
+// Listings are kept for -Dmoviereviews.reviewCache.ttlSeconds (default 60), for at most
+// -Dmoviereviews.reviewCache.maxUsers users each (default 10000, least recently used first out);
+// the TTL bounds how long changes made elsewhere (other application instances, user deletions,
+// renamed reviewers) can go unseen.
+public class CachingReviewRepository implements ReviewRepository {
+	private static final long TTL_NANOS = TimeUnit.SECONDS
+			.toNanos(Math.max(0, Long.getLong("moviereviews.reviewCache.ttlSeconds", 60)));
+	private static final int MAX_USERS = Math.max(1, Integer.getInteger("moviereviews.reviewCache.maxUsers", 10000));
+
+	// Listings of one kind, by user, with an index of the users whose listing holds a review.
+	private static class ListingCache {
+		// A cached listing, or a reservation while it loads (reviews null).
+		private static class Listing {
+			final Object token = new Object();
+			final List<Review> reviews;
+			final long expiresAt;
+
+			Listing(List<Review> reviews, long expiresAt) {
+				this.reviews = reviews;
+				this.expiresAt = expiresAt;
+			}
+		}
+
+		private final Metrics.Counter hits;
+		private final Metrics.Counter misses;
+		private final Metrics.Counter evictions;
+		// Listings by user ID, least recently used first.
+		private final LinkedHashMap<Integer, Listing> listings = new LinkedHashMap<Integer, Listing>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, Listing> eldest) {
+				if (size() <= MAX_USERS) {
+					return false;
+				}
+				unindex(eldest.getKey(), eldest.getValue());
+				evictions.increment();
+				return true;
+			}
+		};
+		// Users whose cached listing contains a review, by review ID.
+		private final Map<Integer, Set<Integer>> usersByReview = new HashMap<>();
+
+		ListingCache(String name) {
+			hits = Metrics.counter("cache_requests_total", "Cache lookups by cache and result.", "cache", name,
+					"result", "hit");
+			misses = Metrics.counter("cache_requests_total", "Cache lookups by cache and result.", "cache", name,
+					"result", "miss");
+			evictions = Metrics.counter("cache_evictions_total", "Entries evicted from caches.", "cache", name);
+		}
+
+		// Returns a copy of the user's cached listing, or null if it is not cached or has expired.
+		synchronized List<Review> get(int userId) {
+			Listing listing = listings.get(userId);
+			if (listing == null || listing.reviews == null || System.nanoTime() - listing.expiresAt > 0) {
+				misses.increment();
+				return null;
+			}
+			hits.increment();
+			return new ArrayList<>(listing.reviews);
+		}
+
+		// Returns true if the user's cached listing holds the review; false if not or not cached.
+		synchronized boolean contains(int userId, int reviewId) {
+			Listing listing = listings.get(userId);
+			Set<Integer> users = usersByReview.get(reviewId);
+			return listing != null && listing.reviews != null && System.nanoTime() - listing.expiresAt <= 0
+					&& users != null && users.contains(userId);
+		}
+
+		// Reserves the user's entry before loading the listing; returns the reservation's token.
+		synchronized Object reserve(int userId) {
+			invalidate(userId);
+			Listing reservation = new Listing(null, 0);
+			listings.put(userId, reservation);
+			return reservation.token;
+		}
+
+		// Stores a loaded listing, unless it was invalidated since reserve (it may then be stale).
+		synchronized void fill(int userId, Object token, List<Review> reviews) {
+			Listing current = listings.get(userId);
+			if (current == null || current.token != token) {
+				return;
+			}
+			Listing listing = new Listing(new ArrayList<>(reviews), System.nanoTime() + TTL_NANOS);
+			listings.put(userId, listing);
+			for (Review review : reviews) {
+				usersByReview.computeIfAbsent(review.getId(), id -> new HashSet<>()).add(userId);
+			}
+		}
+
+		// Drops the user's listing.
+		synchronized void invalidate(int userId) {
+			Listing listing = listings.remove(userId);
+			if (listing != null) {
+				unindex(userId, listing);
+			}
+		}
+
+		// Drops every listing that contains the review.
+		synchronized void invalidateReview(int reviewId) {
+			Set<Integer> users = usersByReview.get(reviewId);
+			if (users != null) {
+				for (int userId : new ArrayList<>(users)) {
+					invalidate(userId);
+				}
+			}
+		}
+
+		// Drops every listing.
+		synchronized void clear() {
+			listings.clear();
+			usersByReview.clear();
+		}
+
+		// Removes a listing's reviews from the index.
+		private void unindex(int userId, Listing listing) {
+			if (listing.reviews == null) {
+				return;
+			}
+			for (Review review : listing.reviews) {
+				Set<Integer> users = usersByReview.get(review.getId());
+				if (users != null && users.remove(userId) && users.isEmpty()) {
+					usersByReview.remove(review.getId());
+				}
+			}
+		}
+	}
+
+	// Repository that stores the reviews.
+	private final ReviewRepository delegate;
+	private final ListingCache own = new ListingCache("user_reviews");
+	private final ListingCache inbox = new ListingCache("shared_reviews");
+
+	// Creates a cache in front of the given repository.
+	public CachingReviewRepository(ReviewRepository delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public Outcome create(int userId, int movieId, String text, int rating, int undoSeconds, Integer duplicateOf)
+			throws SQLException {
+		try {
+			return delegate.create(userId, movieId, text, rating, undoSeconds, duplicateOf);
+		} finally {
+			own.invalidate(userId);
+		}
+	}
+
+	@Override
+	public Outcome update(int reviewId, int userId, String text, int rating, Integer duplicateOf)
+			throws SQLException {
+		try {
+			return delegate.update(reviewId, userId, text, rating, duplicateOf);
+		} finally {
+			own.invalidate(userId);
+			inbox.invalidateReview(reviewId);
+		}
+	}
+
+	@Override
+	public Outcome delete(int reviewId, int userId) throws SQLException {
+		try {
+			return delegate.delete(reviewId, userId);
+		} finally {
+			own.invalidate(userId);
+			inbox.invalidateReview(reviewId);
+		}
+	}
+
+	@Override
+	public Outcome deleteAny(int reviewId) throws SQLException {
+		try {
+			return delegate.deleteAny(reviewId);
+		} finally {
+			own.invalidateReview(reviewId);
+			inbox.invalidateReview(reviewId);
+		}
+	}
+
+	@Override
+	public List<Integer> deleteAll(List<Integer> reviewIds) throws SQLException {
+		try {
+			return delegate.deleteAll(reviewIds);
+		} finally {
+			for (int reviewId : reviewIds) {
+				own.invalidateReview(reviewId);
+				inbox.invalidateReview(reviewId);
+			}
+		}
+	}
+
+	@Override
+	public int findMatchingIds(ModerationCriteria criteria, int afterId, int limit, List<Integer> matches)
+			throws SQLException {
+		return delegate.findMatchingIds(criteria, afterId, limit, matches);
+	}
+
+	@Override
+	public List<Review> findPage(int afterId, int limit) throws SQLException {
+		return delegate.findPage(afterId, limit);
+	}
+
+	@Override
+	public List<Review> findByIds(List<Integer> reviewIds) throws SQLException {
+		return delegate.findByIds(reviewIds);
+	}
+
+	@Override
+	public Map<Integer, List<Integer>> findIdsByFingerprint(Collection<Integer> bandKeys, int limit)
+			throws SQLException {
+		return delegate.findIdsByFingerprint(bandKeys, limit);
+	}
+
+	@Override
+	public int storeFingerprints(List<Review> reviews) throws SQLException {
+		// Fingerprints are in no listing.
+		return delegate.storeFingerprints(reviews);
+	}
+
+	@Override
+	public Outcome restore(int reviewId, int withinSeconds) throws SQLException {
+		try {
+			return delegate.restore(reviewId, withinSeconds);
+		} finally {
+			// The author and the recipients are not known here.
+			own.clear();
+			inbox.clear();
+		}
+	}
+
+	@Override
+	public List<Review> findDeleted(int withinSeconds) throws SQLException {
+		return delegate.findDeleted(withinSeconds);
+	}
+
+	@Override
+	public int purgeDeleted(int olderThanSeconds, int maxRows) throws SQLException {
+		// Tombstones are in no listing.
+		return delegate.purgeDeleted(olderThanSeconds, maxRows);
+	}
+
+	@Override
+	public boolean isOwner(int reviewId, int userId) throws SQLException {
+		// The user's cached listing answers for their live reviews; archived ones need the database.
+		return own.contains(userId, reviewId) || delegate.isOwner(reviewId, userId);
+	}
+
+	@Override
+	public Outcome share(int reviewId, int recipientId) throws SQLException {
+		try {
+			return delegate.share(reviewId, recipientId);
+		} finally {
+			inbox.invalidate(recipientId);
+		}
+	}
+
+	@Override
+	public int shareAll(int reviewId, List<Integer> recipientIds) throws SQLException {
+		try {
+			return delegate.shareAll(reviewId, recipientIds);
+		} finally {
+			for (int recipientId : recipientIds) {
+				inbox.invalidate(recipientId);
+			}
+		}
+	}
+
+	@Override
+	public List<Review> findByUser(int userId) throws SQLException {
+		List<Review> cached = own.get(userId);
+		if (cached != null) {
+			return cached;
+		}
+		Object token = own.reserve(userId);
+		List<Review> reviews = delegate.findByUser(userId);
+		own.fill(userId, token, reviews);
+		return reviews;
+	}
+
+	@Override
+	public List<Review> findAll() throws SQLException {
+		return delegate.findAll();
+	}
+
+	@Override
+	public List<Review> findSharedWith(int userId) throws SQLException {
+		List<Review> cached = inbox.get(userId);
+		if (cached != null) {
+			return cached;
+		}
+		Object token = inbox.reserve(userId);
+		List<Review> reviews = delegate.findSharedWith(userId);
+		inbox.fill(userId, token, reviews);
+		return reviews;
+	}
+
+	@Override
+	public List<Review> findByMovie(int movieId) throws SQLException {
+		return delegate.findByMovie(movieId);
+	}
+
+	@Override
+	public List<Review> findFeed(int movieId, FeedCursor after, int limit) throws SQLException {
+		return delegate.findFeed(movieId, after, limit);
+	}
+
+	@Override
+	public RatingTotals findRatings(int movieId) throws SQLException {
+		return delegate.findRatings(movieId);
+	}
+
+	@Override
+	public Review findById(int reviewId) throws SQLException {
+		return delegate.findById(reviewId);
+	}
+
+	@Override
+	public int archive(int olderThanDays, int maxRows) throws SQLException {
+		int moved = delegate.archive(olderThanDays, maxRows);
+		if (moved > 0) {
+			// Archived reviews leave the listings; which ones is not known here.
+			own.clear();
+			inbox.clear();
+		}
+		return moved;
+	}
+
+	@Override
+	public List<Review> findArchivedByUser(int userId) throws SQLException {
+		return delegate.findArchivedByUser(userId);
+	}
+
+	@Override
+	public List<Review> findAllArchived() throws SQLException {
+		return delegate.findAllArchived();
+	}
+
+	@Override
+	public List<Review> findArchivedSharedWith(int userId) throws SQLException {
+		return delegate.findArchivedSharedWith(userId);
+	}
+
+	@Override
+	public RatingTotals findArchivedRatings(int movieId) throws SQLException {
+		return delegate.findArchivedRatings(movieId);
+	}
+}
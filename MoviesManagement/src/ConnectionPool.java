@@ -0,0 +1,570 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+// Bounded pool of physical connections to one database. Connections handed out are proxies:
+// close() returns them to the pool, and prepareStatement(sql) is served from a per-connection
+// LRU cache so hot statements are parsed once per connection instead of once per call. A
+// returned connection gets back the session state it was opened with (transaction, read-only
+// flag, isolation level and catalog), and cached statements its caller left open are discarded;
+// a closed cached statement gets back its settings (max rows, fetch size and query timeout) and
+// its proxy stops working, so nothing one caller did leaks into the next checkout.
+public class ConnectionPool {
+	// How long an idle connection may sit before it is validated on checkout.
+	private static final long VALIDATE_AFTER_MILLIS = 30_000L;
+	// How long a caller waits for a free connection before giving up.
+	private static final long CHECKOUT_TIMEOUT_MILLIS = 30_000L;
+
+	// Statement cache lookups across all pools.
+	private static final Metrics.Counter STATEMENT_HITS = Metrics.counter("cache_requests_total",
+			"Cache lookups by cache and result.", "cache", "statement", "result", "hit");
+	private static final Metrics.Counter STATEMENT_MISSES = Metrics.counter("cache_requests_total",
+			"Cache lookups by cache and result.", "cache", "statement", "result", "miss");
+	private static final Metrics.Counter STATEMENT_EVICTIONS = Metrics.counter("cache_evictions_total",
+			"Entries evicted from caches.", "cache", "statement");
+	// JDBC drivers on the class path, found when the first connection is opened.
+	private static volatile List<Driver> drivers;
+	// Connection methods that change session state restored when the connection is returned.
+	private static final Set<String> SESSION_SETTERS = Set.of("setReadOnly", "setTransactionIsolation",
+			"setCatalog", "setSchema");
+	// Statement methods that change settings restored when a cached statement is closed.
+	private static final Set<String> STATEMENT_SETTERS = Set.of("setMaxRows", "setLargeMaxRows", "setFetchSize",
+			"setQueryTimeout");
+
+	// Connection settings for this pool.
+	private final String name;
+	private final String url;
+	private final String user;
+	private final String password;
+	private final int maxSize;
+	private final int statementCacheSize;
+
+	// Idle connections, most recently returned first so warm connections are reused.
+	private final ArrayDeque<PooledConnection> idle = new ArrayDeque<>();
+	// Number of physical connections currently open (idle plus checked out).
+	private int open;
+	// Number of callers currently blocked waiting for a connection.
+	private int waiting;
+	// Set once the pool is shut down; returned connections are then closed.
+	private boolean shutDown;
+	// Times a caller found the pool exhausted and had to wait.
+	private final Metrics.Counter exhausted;
+
+	// Creates a pool; physical connections are opened lazily on demand.
+	public ConnectionPool(String name, String url, String user, String password, int maxSize,
+			int statementCacheSize) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("Pool size must be at least 1.");
+		}
+		this.name = name;
+		this.url = url;
+		this.user = user;
+		this.password = password;
+		this.maxSize = maxSize;
+		this.statementCacheSize = statementCacheSize;
+		// Saturation gauges: active versus maximum connections, and blocked callers.
+		Metrics.gauge("db_pool_connections", "Pooled connections by state.", () -> active(), "pool", name,
+				"state", "active");
+		Metrics.gauge("db_pool_connections", "Pooled connections by state.", () -> idleCount(), "pool", name,
+				"state", "idle");
+		Metrics.gauge("db_pool_max_connections", "Maximum connections per pool.", () -> maxSize, "pool", name);
+		Metrics.gauge("db_pool_waiting_callers", "Callers blocked waiting for a connection.", () -> waitingCount(),
+				"pool", name);
+		exhausted = Metrics.counter("db_pool_exhausted_total", "Checkouts that had to wait for a free connection.",
+				"pool", name);
+	}
+
+	// Returns the name of the pool, used to label metrics.
+	public String getName() {
+		return name;
+	}
+
+	// Returns the JDBC URL this pool connects to.
+	public String getUrl() {
+		return url;
+	}
+
+	// Checks out a connection, opening a new one if the pool is below its limit.
+	// Throws SQLException if no connection becomes available within the checkout timeout.
+	public Connection getConnection() throws SQLException {
+		PooledConnection pooled = checkout();
+		if (pooled == null) {
+			// Open outside the lock so slow connects do not block other callers.
+			try {
+				pooled = openPooled();
+			} catch (SQLException e) {
+				release(null);
+				throw e;
+			}
+		}
+		return pooled.lease();
+	}
+
+	// Opens physical connections in parallel on the executor until the pool holds count of them
+	// (at most its size), so the first callers find them idle. Returns the number opened.
+	// Throws SQLException if none could be opened.
+	public int prewarm(int count, Executor executor) throws SQLException {
+		int wanted;
+		synchronized (this) {
+			wanted = Math.max(0, Math.min(count, maxSize) - open);
+			// Reserve the slots, as checkout does for a single connection.
+			open += wanted;
+		}
+		List<CompletableFuture<Void>> opening = new ArrayList<>();
+		for (int i = 0; i < wanted; i++) {
+			opening.add(CompletableFuture.runAsync(() -> {
+				try {
+					release(openPooled());
+				} catch (SQLException e) {
+					release(null);
+					throw new CompletionException(e);
+				}
+			}, executor));
+		}
+		int opened = 0;
+		SQLException failure = null;
+		for (CompletableFuture<Void> future : opening) {
+			try {
+				future.join();
+				opened++;
+			} catch (CompletionException e) {
+				failure = e.getCause() instanceof SQLException ? (SQLException) e.getCause()
+						: new SQLException(e.getCause());
+			}
+		}
+		if (opened == 0 && failure != null) {
+			throw failure;
+		}
+		return opened;
+	}
+
+	// Opens an unpooled physical connection with the first JDBC driver on the class path that
+	// accepts the URL. Drivers are found through ServiceLoader (META-INF/services/java.sql.Driver)
+	// when the first connection is opened rather than when the application starts, and a missing
+	// driver fails that connection instead of the application.
+	// Throws SQLException if no driver accepts the URL or the connection cannot be established.
+	public static Connection connect(String url, String user, String password) throws SQLException {
+		Properties info = new Properties();
+		if (user != null) {
+			info.setProperty("user", user);
+		}
+		if (password != null) {
+			info.setProperty("password", password);
+		}
+		for (Driver driver : drivers()) {
+			if (driver.acceptsURL(url)) {
+				return driver.connect(url, info);
+			}
+		}
+		throw new SQLException("No JDBC driver on the class path accepts " + url + ".", "08001");
+	}
+
+	// Opens a physical connection and records its session state.
+	// Throws SQLException if it cannot be opened or its state read (it is then closed).
+	private PooledConnection openPooled() throws SQLException {
+		Connection physical = connect(url, user, password);
+		try {
+			return new PooledConnection(physical);
+		} catch (SQLException e) {
+			try {
+				physical.close();
+			} catch (SQLException suppressed) {
+				e.addSuppressed(suppressed);
+			}
+			throw e;
+		}
+	}
+
+	// Returns the JDBC drivers on the class path, loading them on first use.
+	private static List<Driver> drivers() {
+		List<Driver> loaded = drivers;
+		if (loaded == null) {
+			synchronized (ConnectionPool.class) {
+				loaded = drivers;
+				if (loaded == null) {
+					loaded = Startup.time("jdbc_driver", ConnectionPool::loadDrivers);
+					drivers = loaded;
+				}
+			}
+		}
+		return loaded;
+	}
+
+	// Instantiates the JDBC drivers listed on the class path, up to the first that fails to load.
+	private static List<Driver> loadDrivers() {
+		List<Driver> found = new ArrayList<>();
+		try {
+			for (Driver driver : ServiceLoader.load(Driver.class)) {
+				found.add(driver);
+			}
+		} catch (ServiceConfigurationError e) {
+			System.out.println("Failed to load a JDBC driver: " + e.getMessage());
+		}
+		return Collections.unmodifiableList(found);
+	}
+
+	// Returns the number of connections currently checked out.
+	public synchronized int active() {
+		return open - idle.size();
+	}
+
+	// Returns the number of idle connections.
+	public synchronized int idleCount() {
+		return idle.size();
+	}
+
+	// Returns the number of callers waiting for a connection.
+	public synchronized int waitingCount() {
+		return waiting;
+	}
+
+	// Closes every idle connection; checked-out connections are closed when returned.
+	public void shutdown() {
+		ArrayDeque<PooledConnection> toClose;
+		synchronized (this) {
+			shutDown = true;
+			toClose = new ArrayDeque<>(idle);
+			open -= idle.size();
+			idle.clear();
+		}
+		for (PooledConnection pooled : toClose) {
+			pooled.closePhysical();
+		}
+	}
+
+	// Takes a validated idle connection, reserves a slot for a new one (returns null),
+	// or waits until a connection is returned.
+	private PooledConnection checkout() throws SQLException {
+		long deadline = System.currentTimeMillis() + CHECKOUT_TIMEOUT_MILLIS;
+		boolean counted = false;
+		while (true) {
+			PooledConnection candidate;
+			synchronized (this) {
+				while (idle.isEmpty() && open >= maxSize) {
+					long remaining = deadline - System.currentTimeMillis();
+					if (remaining <= 0) {
+						throw new SQLException("Timed out waiting for a database connection from pool " + name + ".");
+					}
+					if (!counted) {
+						exhausted.increment();
+						counted = true;
+					}
+					waiting++;
+					try {
+						wait(remaining);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new SQLException("Interrupted while waiting for a database connection.", e);
+					} finally {
+						waiting--;
+					}
+				}
+				if (idle.isEmpty()) {
+					// Reserve a slot; the caller opens the physical connection.
+					open++;
+					return null;
+				}
+				candidate = idle.pollFirst();
+			}
+			// Validate connections that have been idle long enough to be dropped by the server.
+			if (System.currentTimeMillis() - candidate.returnedAt < VALIDATE_AFTER_MILLIS
+					|| candidate.isValid()) {
+				return candidate;
+			}
+			candidate.closePhysical();
+			release(null);
+		}
+	}
+
+	// Puts a connection back in the idle list, or frees its slot if it is null or broken.
+	private synchronized void release(PooledConnection pooled) {
+		if (pooled == null) {
+			open--;
+		} else if (shutDown) {
+			open--;
+			pooled.closePhysical();
+		} else {
+			pooled.returnedAt = System.currentTimeMillis();
+			idle.addFirst(pooled);
+		}
+		notifyAll();
+	}
+
+	// One physical connection plus its statement cache.
+	private class PooledConnection {
+		private final Connection physical;
+		// Session state the connection was opened with, restored when a caller changed it.
+		private final boolean defaultReadOnly;
+		private final int defaultIsolation;
+		private final String defaultCatalog;
+		// LRU cache of prepared statements keyed by SQL text.
+		private final LinkedHashMap<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+		private long returnedAt = System.currentTimeMillis();
+		// Set when the current caller changed session state (see SESSION_SETTERS).
+		private boolean sessionChanged;
+
+		PooledConnection(Connection physical) throws SQLException {
+			this.physical = physical;
+			defaultReadOnly = physical.isReadOnly();
+			defaultIsolation = physical.getTransactionIsolation();
+			defaultCatalog = physical.getCatalog();
+		}
+
+		// Creates the proxy handed to a caller for one checkout.
+		Connection lease() {
+			return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+					new Class<?>[] { Connection.class }, new Lease(this));
+		}
+
+		// Returns a cached statement for the SQL, preparing and caching it on a miss; its
+		// getConnection() returns the caller's lease.
+		PreparedStatement prepareCached(String sql, Connection lease) throws SQLException {
+			CachedStatement cached = statements.get(sql);
+			if (cached != null && !cached.inUse) {
+				STATEMENT_HITS.increment();
+				return cached.checkout(lease);
+			}
+			STATEMENT_MISSES.increment();
+			if (cached != null) {
+				// The same SQL is already open on this connection; hand out an uncached statement.
+				return physical.prepareStatement(sql);
+			}
+			PreparedStatement prepared = physical.prepareStatement(sql);
+			try {
+				cached = new CachedStatement(prepared);
+			} catch (SQLException e) {
+				prepared.close();
+				throw e;
+			}
+			statements.put(sql, cached);
+			// Evict the least recently used statements beyond the cache size.
+			Iterator<Map.Entry<String, CachedStatement>> it = statements.entrySet().iterator();
+			while (statements.size() > statementCacheSize && it.hasNext()) {
+				CachedStatement eldest = it.next().getValue();
+				if (!eldest.inUse) {
+					it.remove();
+					eldest.closePhysical();
+					STATEMENT_EVICTIONS.increment();
+				}
+			}
+			return cached.checkout(lease);
+		}
+
+		// Resets session state and returns the connection to the pool, or drops it if broken.
+		void returnToPool() {
+			try {
+				reclaimStatements();
+				if (!physical.getAutoCommit()) {
+					// Discard any unfinished transaction left by the caller.
+					physical.rollback();
+					physical.setAutoCommit(true);
+				}
+				if (sessionChanged) {
+					// Restored outside a transaction, where the driver accepts every setting.
+					physical.setReadOnly(defaultReadOnly);
+					physical.setTransactionIsolation(defaultIsolation);
+					if (defaultCatalog != null) {
+						physical.setCatalog(defaultCatalog);
+					}
+					sessionChanged = false;
+				}
+				physical.clearWarnings();
+				release(this);
+			} catch (SQLException e) {
+				closePhysical();
+				release(null);
+			}
+		}
+
+		// Closes and evicts the cached statements the caller did not close. Their proxies may still
+		// be held, so they are not reset for reuse: the next caller must not share them, and a late
+		// call through one fails as on a closed statement.
+		private void reclaimStatements() {
+			Iterator<CachedStatement> it = statements.values().iterator();
+			while (it.hasNext()) {
+				CachedStatement cached = it.next();
+				if (cached.inUse) {
+					it.remove();
+					cached.closePhysical();
+					// A late close() through the proxy is then a no-op.
+					cached.inUse = false;
+					STATEMENT_EVICTIONS.increment();
+				}
+			}
+		}
+
+		// Returns true if the server still answers on this connection.
+		boolean isValid() {
+			try {
+				return physical.isValid(2);
+			} catch (SQLException e) {
+				return false;
+			}
+		}
+
+		// Closes the physical connection and all cached statements.
+		void closePhysical() {
+			for (CachedStatement cached : statements.values()) {
+				cached.closePhysical();
+			}
+			statements.clear();
+			try {
+				physical.close();
+			} catch (SQLException e) {
+				// The connection is being discarded; nothing more to do.
+			}
+		}
+	}
+
+	// Connection proxy for a single checkout; stops working once the caller closes it.
+	private class Lease implements InvocationHandler {
+		private final PooledConnection pooled;
+		private boolean closed;
+
+		Lease(PooledConnection pooled) {
+			this.pooled = pooled;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+				case "close":
+					if (!closed) {
+						closed = true;
+						pooled.returnToPool();
+					}
+					return null;
+				case "isClosed":
+					return closed || pooled.physical.isClosed();
+				default:
+					break;
+			}
+			if (closed) {
+				throw new SQLException("Connection has been returned to the pool.");
+			}
+			if (method.getName().equals("prepareStatement") && args.length == 1 && statementCacheSize > 0) {
+				return pooled.prepareCached((String) args[0], (Connection) proxy);
+			}
+			if (SESSION_SETTERS.contains(method.getName())) {
+				pooled.sessionChanged = true;
+			}
+			try {
+				return method.invoke(pooled.physical, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+	}
+
+	// A prepared statement kept open across checkouts. Each checkout gets its own proxy, which
+	// stops working once closed; close() only resets the statement for the next caller.
+	private static class CachedStatement {
+		private final PreparedStatement physical;
+		// Settings the statement was prepared with, restored when a caller changed them.
+		private final int defaultMaxRows;
+		private final int defaultFetchSize;
+		private final int defaultQueryTimeout;
+		private volatile boolean inUse;
+		// Set when the current caller changed settings (see STATEMENT_SETTERS).
+		private boolean settingsChanged;
+
+		CachedStatement(PreparedStatement physical) throws SQLException {
+			this.physical = physical;
+			defaultMaxRows = physical.getMaxRows();
+			defaultFetchSize = physical.getFetchSize();
+			defaultQueryTimeout = physical.getQueryTimeout();
+		}
+
+		// Hands the statement to a caller holding the given connection proxy.
+		PreparedStatement checkout(Connection lease) {
+			inUse = true;
+			return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+					new Class<?>[] { PreparedStatement.class }, new Checkout(lease));
+		}
+
+		// Leaves the statement prepared, with its original settings, for the next caller.
+		private void reset() throws SQLException {
+			physical.clearParameters();
+			physical.clearBatch();
+			if (settingsChanged) {
+				physical.setMaxRows(defaultMaxRows);
+				physical.setFetchSize(defaultFetchSize);
+				physical.setQueryTimeout(defaultQueryTimeout);
+				settingsChanged = false;
+			}
+			inUse = false;
+		}
+
+		// Statement proxy for a single checkout.
+		private class Checkout implements InvocationHandler {
+			private final Connection lease;
+			private boolean closed;
+
+			Checkout(Connection lease) {
+				this.lease = lease;
+			}
+
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				switch (method.getName()) {
+					case "close":
+						if (!closed) {
+							closed = true;
+							// Reclaimed statements are no longer in use and are not reset.
+							if (inUse) {
+								reset();
+							}
+						}
+						return null;
+					case "isClosed":
+						return closed || !inUse || physical.isClosed();
+					default:
+						break;
+				}
+				if (closed || !inUse) {
+					throw new SQLException("Statement has been closed.");
+				}
+				if (method.getName().equals("getConnection")) {
+					return lease;
+				}
+				if (STATEMENT_SETTERS.contains(method.getName())) {
+					settingsChanged = true;
+				}
+				try {
+					return method.invoke(physical, args);
+				} catch (InvocationTargetException e) {
+					throw e.getCause();
+				}
+			}
+		}
+
+		// Really closes the underlying statement.
+		void closePhysical() {
+			try {
+				physical.close();
+			} catch (SQLException e) {
+				// The statement is being discarded; nothing more to do.
+			}
+		}
+	}
+}
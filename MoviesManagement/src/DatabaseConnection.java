@@ -1,38 +1,447 @@
-
 // Copyright (c) 2025. Created By Yash Somani
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 // Utility class for establishing a connection to the MySQL database
 public class DatabaseConnection {
 	// Database connection URL for the MySQL movie_reviews_db database
-	private static final String URL = "jdbc:mysql://localhost:3306/movie_reviews_db";
+	// (override with -Dmoviereviews.db.url, e.g. to point at a test instance)
+	private static final String URL = System.getProperty("moviereviews.db.url",
+			"jdbc:mysql://localhost:3306/movie_reviews_db");
 	// Database username (Note: Hardcoded for simplicity; should be replaced with
 	// secure credentials in production)
-	private static final String USER = "root";
+	private static final String USER = System.getProperty("moviereviews.db.user", "root");
 	// Database password (Note: Hardcoded for simplicity; should be replaced with
 	// secure credentials in production)
-	private static final String PASSWORD = "manager";
+	private static final String PASSWORD = System.getProperty("moviereviews.db.password", "manager");
+	// Comma-separated JDBC URLs of read replicas using the same credentials (-Dmoviereviews.db.replicas)
+	private static final String REPLICA_URLS = System.getProperty("moviereviews.db.replicas", "");
+	// Comma-separated JDBC URLs of the review shards (-Dmoviereviews.db.shards); reviews and shares
+	// are partitioned across them by movie_id, while users, movies and recommendations stay on the
+	// primary. Empty means unsharded: reviews and shares live on the primary as well
+	private static final String SHARD_URLS = System.getProperty("moviereviews.db.shards", "");
+	// Review IDs reserved from review_id_sequence per round trip when sharded
+	private static final int REVIEW_ID_BLOCK = 100;
+	// Sharded review IDs carry their movie ID modulo this in their low bits, so the shard of any
+	// layout whose shard count divides it can be told from the ID alone
+	public static final int REVIEW_ID_SLOTS = 64;
+	// Server-side prepared statements, so each statement is parsed by MySQL once per
+	// connection (disable with -Dmoviereviews.db.serverPrepStmts=false)
+	private static final String URL_OPTIONS = Boolean
+			.parseBoolean(System.getProperty("moviereviews.db.serverPrepStmts", "true"))
+					? "useServerPrepStmts=true"
+					: "";
+	// Maximum number of pooled connections (-Dmoviereviews.db.poolSize)
+	private static final int POOL_SIZE = Integer.getInteger("moviereviews.db.poolSize", 10);
+	// Prepared statements cached per pooled connection (-Dmoviereviews.db.statementCacheSize, 0 disables)
+	private static final int STATEMENT_CACHE_SIZE = Integer.getInteger("moviereviews.db.statementCacheSize", 64);
+	// Whether connections are wrapped to record per-statement timings in QueryStats
+	// (disable with -Dmoviereviews.instrumentation=false)
+	private static final boolean INSTRUMENTED = Boolean
+			.parseBoolean(System.getProperty("moviereviews.instrumentation", "true"));
+	// After a session writes, its reads go to the primary for this long so it sees its own changes
+	private static final long READ_YOUR_WRITES_MILLIS = Long.getLong("moviereviews.db.readYourWritesMillis", 5000L);
+	// Replicas lagging further behind than this are skipped (-Dmoviereviews.db.maxReplicaLagSeconds)
+	private static final long MAX_REPLICA_LAG_SECONDS = Long.getLong("moviereviews.db.maxReplicaLagSeconds", 5L);
+	// How often each replica's lag is re-checked, in the background
+	private static final long LAG_CHECK_INTERVAL_MILLIS = 2000L;
 
-	// Static block to load the MySQL JDBC driver when the class is initialized
-	static {
-		try {
-			// Load the MySQL JDBC driver class to register it with the DriverManager
-			Class.forName("com.mysql.cj.jdbc.Driver");
-		} catch (ClassNotFoundException e) {
-			// Handle the case where the JDBC driver class is not found
-			e.printStackTrace();
-			// Exit the application with an error code if the driver cannot be loaded
-			System.exit(1);
+	// Pool of reusable connections to the primary database
+	// The MySQL driver is loaded when the first connection is opened (see ConnectionPool.connect);
+	// without it, connections fail with an SQLException instead of the application exiting
+	private static final ConnectionPool POOL = new ConnectionPool("primary", withOptions(URL), USER, PASSWORD,
+			POOL_SIZE, STATEMENT_CACHE_SIZE);
+	// Read replicas, in configuration order
+	private static final List<Replica> REPLICAS = createReplicas();
+	// Daemon threads re-checking each replica's lag, so reads never wait for a check; null without replicas
+	private static final ScheduledExecutorService LAG_CHECKER = startLagChecks();
+	// Shard pools, indexed by shard number; empty when unsharded
+	private static final List<ConnectionPool> SHARDS = createShards();
+	// Rotates the starting replica so equally loaded replicas share reads
+	private static final AtomicInteger NEXT_REPLICA = new AtomicInteger();
+	// Time of the current session's (thread's) last write, for read-your-writes routing
+	private static final ThreadLocal<Long> LAST_WRITE = new ThreadLocal<>();
+
+	// Per ID slot, the next unused sequence value and the end (exclusive) of the block reserved by
+	// this process
+	private static final long[] NEXT_REVIEW_IDS = new long[REVIEW_ID_SLOTS];
+	private static final long[] REVIEW_ID_LIMITS = new long[REVIEW_ID_SLOTS];
+	// First review ID that carries its slot (IDs below it were assigned before sharding); read once
+	private static volatile Long slottedReviewIds;
+
+	// Where read connections were routed, and why
+	private static final Metrics.Counter READS_ON_REPLICA = Metrics.counter("db_read_routing_total",
+			"Read connections by routing decision.", "target", "replica");
+	private static final Metrics.Counter READS_STICKY = Metrics.counter("db_read_routing_total",
+			"Read connections by routing decision.", "target", "primary_read_your_writes");
+	private static final Metrics.Counter READS_FALLBACK = Metrics.counter("db_read_routing_total",
+			"Read connections by routing decision.", "target", "primary_fallback");
+
+	// One read replica with its pool and last known health
+	private static class Replica {
+		final ConnectionPool pool;
+		// False until the first lag check succeeds, and while the replica is unreachable or lagging
+		// too far behind
+		volatile boolean healthy;
+		volatile long lagSeconds;
+
+		Replica(ConnectionPool pool) {
+			this.pool = pool;
+			Metrics.gauge("db_replica_lag_seconds", "Last measured replication lag.", () -> lagSeconds, "pool",
+					pool.getName());
 		}
 	}
 
-	// Retrieves a connection to the MySQL database
+	// Retrieves a pooled connection to the MySQL database; closing it returns it to the pool
+	// Use this connection for writes and for reads that must see the latest data
 	// Throws SQLException if the connection cannot be established
 	public static Connection getConnection() throws SQLException {
-		// Use DriverManager to create and return a database connection using the
-		// specified URL, username, and password
-		return DriverManager.getConnection(URL, USER, PASSWORD);
+		return checkout(POOL);
+	}
+
+	// Retrieves a connection for read-only queries, routed to the least loaded healthy replica
+	// Falls back to the primary when no replicas are configured or healthy, and after the
+	// current session wrote within the read-your-writes window
+	// Throws SQLException if no connection can be established
+	public static Connection getReadConnection() throws SQLException {
+		if (REPLICAS.isEmpty()) {
+			return checkout(POOL);
+		}
+		Long lastWrite = LAST_WRITE.get();
+		if (lastWrite != null) {
+			if (System.currentTimeMillis() - lastWrite < READ_YOUR_WRITES_MILLIS) {
+				READS_STICKY.increment();
+				return checkout(POOL);
+			}
+			LAST_WRITE.remove();
+		}
+		Replica replica = chooseReplica();
+		if (replica != null) {
+			try {
+				Connection conn = checkout(replica.pool);
+				READS_ON_REPLICA.increment();
+				return conn;
+			} catch (SQLException e) {
+				// Stop routing to this replica until its next successful health check
+				replica.healthy = false;
+			}
+		}
+		READS_FALLBACK.increment();
+		return checkout(POOL);
+	}
+
+	// Records that the current session has just written, so its next reads see the change
+	public static void markWrite() {
+		if (!REPLICAS.isEmpty()) {
+			LAST_WRITE.set(System.currentTimeMillis());
+		}
+	}
+
+	// Returns true if reviews and shares are partitioned across shard databases
+	public static boolean isSharded() {
+		return !SHARDS.isEmpty();
+	}
+
+	// Returns the number of shards holding reviews; 1 when unsharded (the primary)
+	public static int shardCount() {
+		return Math.max(1, SHARDS.size());
+	}
+
+	// Returns the shard that holds the reviews (and their shares) of a movie
+	public static int shardFor(int movieId) {
+		return Math.floorMod(movieId, shardCount());
+	}
+
+	// Retrieves a connection to a shard for writes and reads that must see the latest data
+	// Returns a primary connection when unsharded
+	// Throws SQLException if the connection cannot be established
+	public static Connection getShardConnection(int shard) throws SQLException {
+		return SHARDS.isEmpty() ? checkout(POOL) : checkout(SHARDS.get(shard));
+	}
+
+	// Retrieves a connection to a shard for read-only queries
+	// Returns a replica-routed read connection when unsharded
+	// Throws SQLException if the connection cannot be established
+	public static Connection getShardReadConnection(int shard) throws SQLException {
+		return SHARDS.isEmpty() ? getReadConnection() : checkout(SHARDS.get(shard));
+	}
+
+	// Returns the JDBC URL of the primary database, without driver options
+	public static String getPrimaryUrl() {
+		return URL;
+	}
+
+	// Returns the configured shard URLs, or the primary URL alone when unsharded
+	public static List<String> getShardUrls() {
+		List<String> urls = new ArrayList<>();
+		for (String url : SHARD_URLS.split(",")) {
+			if (!url.trim().isEmpty()) {
+				urls.add(url.trim());
+			}
+		}
+		if (urls.isEmpty()) {
+			urls.add(URL);
+		}
+		return urls;
+	}
+
+	// Opens an unpooled connection to any database with the configured credentials
+	// Used by maintenance tools such as ReshardTool that address databases outside the current layout
+	// Throws SQLException if the connection cannot be established
+	public static Connection connect(String url) throws SQLException {
+		return ConnectionPool.connect(withOptions(url), USER, PASSWORD);
+	}
+
+	// Opens up to perPool connections in each pool (primary, replicas and shards) in parallel on
+	// the executor, so the first requests do not wait for connects
+	// Returns the number of connections opened
+	// Throws SQLException if a pool could not open any connection
+	public static int prewarm(int perPool, Executor executor) throws SQLException {
+		List<ConnectionPool> pools = new ArrayList<>();
+		pools.add(POOL);
+		for (Replica replica : REPLICAS) {
+			pools.add(replica.pool);
+		}
+		pools.addAll(SHARDS);
+		List<CompletableFuture<Integer>> warming = new ArrayList<>();
+		for (ConnectionPool pool : pools) {
+			warming.add(CompletableFuture.supplyAsync(() -> {
+				try {
+					return pool.prewarm(perPool, executor);
+				} catch (SQLException e) {
+					throw new CompletionException(e);
+				}
+			}, executor));
+		}
+		int opened = 0;
+		SQLException failure = null;
+		for (CompletableFuture<Integer> future : warming) {
+			try {
+				opened += future.join();
+			} catch (CompletionException e) {
+				failure = e.getCause() instanceof SQLException ? (SQLException) e.getCause()
+						: new SQLException(e.getCause());
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+		return opened;
+	}
+
+	// Allocates an ID, unique across all shards, for a new review of a movie
+	// The ID is a sequence value times REVIEW_ID_SLOTS plus the movie's slot (movie ID modulo
+	// REVIEW_ID_SLOTS); each slot has its own sequence, row 2 + slot of review_id_sequence on the
+	// primary, started past row 1 (the end of the IDs assigned before sharding). Values are
+	// reserved REVIEW_ID_BLOCK at a time, so most inserts need no extra round trip; values left
+	// unused when the process exits are skipped
+	// Throws SQLException if the sequence cannot be advanced
+	public static synchronized int allocateReviewId(int movieId) throws SQLException {
+		int slot = Math.floorMod(movieId, REVIEW_ID_SLOTS);
+		if (NEXT_REVIEW_IDS[slot] >= REVIEW_ID_LIMITS[slot]) {
+			try (Connection conn = checkout(POOL)) {
+				try (PreparedStatement stmt = conn.prepareStatement("INSERT IGNORE INTO review_id_sequence (id, next_id) "
+						+ "SELECT ?, (next_id + ? - 1) DIV ? FROM review_id_sequence WHERE id = 1")) {
+					stmt.setInt(1, 2 + slot);
+					stmt.setInt(2, REVIEW_ID_SLOTS);
+					stmt.setInt(3, REVIEW_ID_SLOTS);
+					stmt.executeUpdate();
+				}
+				// LAST_INSERT_ID(expr) returns the new value on this connection without a second lock
+				try (PreparedStatement stmt = conn.prepareStatement(
+						"UPDATE review_id_sequence SET next_id = LAST_INSERT_ID(next_id + ?) WHERE id = ?")) {
+					stmt.setInt(1, REVIEW_ID_BLOCK);
+					stmt.setInt(2, 2 + slot);
+					if (stmt.executeUpdate() == 0) {
+						throw new SQLException("review_id_sequence has not been initialized.");
+					}
+				}
+				try (Statement stmt = conn.createStatement();
+						ResultSet rs = stmt.executeQuery("SELECT LAST_INSERT_ID()")) {
+					rs.next();
+					REVIEW_ID_LIMITS[slot] = rs.getLong(1);
+				}
+			}
+			NEXT_REVIEW_IDS[slot] = REVIEW_ID_LIMITS[slot] - REVIEW_ID_BLOCK;
+		}
+		long id = NEXT_REVIEW_IDS[slot] * REVIEW_ID_SLOTS + slot;
+		if (id > Integer.MAX_VALUE) {
+			throw new SQLException("Review IDs of slot " + slot + " are exhausted.");
+		}
+		NEXT_REVIEW_IDS[slot]++;
+		return (int) id;
+	}
+
+	// Returns the shard holding a review, told from its ID, or -1 if the ID does not say: it was
+	// assigned before sharding, or the shard count does not divide REVIEW_ID_SLOTS
+	// Throws SQLException if review_id_sequence cannot be read
+	public static int shardForReviewId(int reviewId) throws SQLException {
+		if (REVIEW_ID_SLOTS % shardCount() != 0) {
+			return -1;
+		}
+		Long slottedFrom = slottedReviewIds;
+		if (slottedFrom == null) {
+			try (Connection conn = checkout(POOL);
+					PreparedStatement stmt = conn.prepareStatement("SELECT next_id FROM review_id_sequence WHERE id = 1");
+					ResultSet rs = stmt.executeQuery()) {
+				// Row 1 only moves while the application is stopped (ReshardTool)
+				slottedFrom = rs.next() ? (rs.getLong(1) + REVIEW_ID_SLOTS - 1) / REVIEW_ID_SLOTS * REVIEW_ID_SLOTS
+						: Long.MAX_VALUE;
+			}
+			slottedReviewIds = slottedFrom;
+		}
+		// shardFor(movieId) == shardFor(movieId mod REVIEW_ID_SLOTS) when the shard count divides it
+		return reviewId >= slottedFrom ? shardFor(reviewId % REVIEW_ID_SLOTS) : -1;
+	}
+
+	// Closes all pooled connections; called when the application exits
+	public static void shutdown() {
+		if (LAG_CHECKER != null) {
+			LAG_CHECKER.shutdownNow();
+		}
+		POOL.shutdown();
+		for (Replica replica : REPLICAS) {
+			replica.pool.shutdown();
+		}
+		for (ConnectionPool shard : SHARDS) {
+			shard.shutdown();
+		}
+	}
+
+	// Checks out a connection from a pool, timing the wait and wrapping it for instrumentation
+	private static Connection checkout(ConnectionPool pool) throws SQLException {
+		if (!INSTRUMENTED) {
+			// Check out a connection from the pool
+			return pool.getConnection();
+		}
+		// Time how long the caller waits for the connection, including pool waits
+		long start = System.nanoTime();
+		Connection conn;
+		try {
+			conn = pool.getConnection();
+		} catch (SQLException e) {
+			QueryStats.recordConnectionWait(System.nanoTime() - start, true);
+			throw e;
+		}
+		QueryStats.recordConnectionWait(System.nanoTime() - start, false);
+		// Wrap the connection so each statement reports its latency and row count
+		return InstrumentedJdbc.wrap(conn);
+	}
+
+	// Picks the healthy replica with the fewest active connections, rotating among ties, from the
+	// health the background checks last recorded
+	// Returns null if every replica is unhealthy
+	private static Replica chooseReplica() {
+		int start = Math.floorMod(NEXT_REPLICA.getAndIncrement(), REPLICAS.size());
+		Replica best = null;
+		int bestActive = Integer.MAX_VALUE;
+		for (int i = 0; i < REPLICAS.size(); i++) {
+			Replica replica = REPLICAS.get((start + i) % REPLICAS.size());
+			if (replica.healthy && replica.pool.active() < bestActive) {
+				best = replica;
+				bestActive = replica.pool.active();
+			}
+		}
+		return best;
+	}
+
+	// Schedules a lag check of every replica, right away and then every check interval, each on
+	// its own daemon thread so a hung replica does not delay the others' checks
+	// Returns null when no replicas are configured
+	private static ScheduledExecutorService startLagChecks() {
+		if (REPLICAS.isEmpty()) {
+			return null;
+		}
+		ScheduledExecutorService checker = Executors.newScheduledThreadPool(REPLICAS.size(), runnable -> {
+			Thread thread = new Thread(runnable, "replica-lag-check");
+			thread.setDaemon(true);
+			return thread;
+		});
+		for (Replica replica : REPLICAS) {
+			checker.scheduleWithFixedDelay(() -> refreshLag(replica), 0, LAG_CHECK_INTERVAL_MILLIS,
+					TimeUnit.MILLISECONDS);
+		}
+		return checker;
+	}
+
+	// Re-measures a replica's lag and records whether reads may be routed to it
+	private static void refreshLag(Replica replica) {
+		try (Connection conn = replica.pool.getConnection()) {
+			long lag = readLagSeconds(conn);
+			replica.lagSeconds = lag;
+			replica.healthy = lag <= MAX_REPLICA_LAG_SECONDS;
+		} catch (SQLException | RuntimeException e) {
+			// Unreachable replicas are skipped until a later check succeeds; catching everything
+			// keeps the check scheduled
+			replica.healthy = false;
+		}
+	}
+
+	// Returns the replication lag reported by the server in seconds
+	// Returns 0 for a server that is not replicating (e.g. a standalone test instance) and
+	// Long.MAX_VALUE when replication is configured but stopped
+	private static long readLagSeconds(Connection conn) throws SQLException {
+		String[][] variants = {
+				{ "SHOW REPLICA STATUS", "Seconds_Behind_Source" }, // MySQL 8.0.22 and later
+				{ "SHOW SLAVE STATUS", "Seconds_Behind_Master" } // Older servers
+		};
+		SQLException failure = null;
+		for (String[] variant : variants) {
+			try (Statement stmt = conn.createStatement();
+					ResultSet rs = stmt.executeQuery(variant[0])) {
+				if (!rs.next()) {
+					return 0;
+				}
+				long lag = rs.getLong(variant[1]);
+				return rs.wasNull() ? Long.MAX_VALUE : lag;
+			} catch (SQLException e) {
+				failure = e;
+			}
+		}
+		throw failure;
+	}
+
+	// Creates a pool for each configured replica URL
+	private static List<Replica> createReplicas() {
+		List<Replica> replicas = new ArrayList<>();
+		for (String url : REPLICA_URLS.split(",")) {
+			if (!url.trim().isEmpty()) {
+				replicas.add(new Replica(new ConnectionPool("replica-" + (replicas.size() + 1),
+						withOptions(url.trim()), USER, PASSWORD, POOL_SIZE, STATEMENT_CACHE_SIZE)));
+			}
+		}
+		return replicas;
+	}
+
+	// Creates a pool for each configured shard URL
+	private static List<ConnectionPool> createShards() {
+		List<ConnectionPool> shards = new ArrayList<>();
+		for (String url : SHARD_URLS.split(",")) {
+			if (!url.trim().isEmpty()) {
+				shards.add(new ConnectionPool("shard-" + shards.size(), withOptions(url.trim()), USER, PASSWORD,
+						POOL_SIZE, STATEMENT_CACHE_SIZE));
+			}
+		}
+		return shards;
+	}
+
+	// Appends the driver options to a JDBC URL that may already carry its own
+	private static String withOptions(String url) {
+		if (URL_OPTIONS.isEmpty()) {
+			return url;
+		}
+		return url + (url.contains("?") ? "&" : "?") + URL_OPTIONS;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,217 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+// Negative cache of the emails in the users table (JDBC backend): a Bloom filter that answers
+// "no user has this email" in memory, so logins, registrations, profile updates and shares with
+// an email nobody has never reach the database. It is built in the background from the primary
+// at startup (lookups go to the database until it is ready) and kept current by this process's
+// registrations and profile updates. Users registered or given a new email by other application
+// instances are caught up through users.updated_at at most every
+// -Dmoviereviews.users.emailFilterSyncMillis (default 1000), before an email is reported absent; a
+// lookup that finds a catch-up under way waits for it rather than answering from the old filter.
+// The filter is rebuilt in the background when it fills up past its capacity, when many users have
+// been deleted since (their emails only cost lookups until then), and every
+// -Dmoviereviews.users.emailFilterRebuildMinutes (default 60).
+public class EmailFilter {
+	private static final long SYNC_NANOS = TimeUnit.MILLISECONDS
+			.toNanos(Math.max(0, Long.getLong("moviereviews.users.emailFilterSyncMillis", 1000)));
+	private static final long REBUILD_NANOS = TimeUnit.MINUTES
+			.toNanos(Math.max(1, Long.getLong("moviereviews.users.emailFilterRebuildMinutes", 60)));
+	// Pause before retrying a failed first build.
+	private static final long RETRY_NANOS = TimeUnit.SECONDS.toNanos(10);
+	private static final double FALSE_POSITIVE_RATE = 0.01;
+	// Smallest capacity, and headroom for registrations over the number of users loaded.
+	private static final int MIN_CAPACITY = 1024;
+	private static final int GROWTH_FACTOR = 2;
+	// Seconds before the last read that each catch-up reads again, as a write on another instance
+	// may commit after later ones (updated_at is set when its statement runs, not when it commits).
+	private static final int SYNC_OVERLAP_SECONDS = 30;
+	// Operational metrics: email lookups answered by the filter alone, or passed on to the database,
+	// and filter builds.
+	private static final Metrics.Counter ABSENT = Metrics.counter("users_email_filter_lookups_total",
+			"Email lookups by filter result.", "result", "absent");
+	private static final Metrics.Counter MAYBE_PRESENT = Metrics.counter("users_email_filter_lookups_total",
+			"Email lookups by filter result.", "result", "maybe_present");
+	private static final Metrics.Counter BUILDS = Metrics.counter("users_email_filter_builds_total",
+			"Email filters built from the users table.");
+
+	// The filter; null until first built.
+	private volatile BloomFilter filter;
+	// Filter being built; emails stored meanwhile go to it as well, as the build may miss them.
+	private volatile BloomFilter building;
+	// Database time of the last read of the table (null before the first), when it was read, and
+	// when the last build started (0 before the first).
+	private volatile Timestamp readTo;
+	private volatile long syncedAt;
+	private volatile long builtAt;
+	// Users deleted since the filter was built; their emails still match.
+	private final LongAdder deleted = new LongAdder();
+	// Held while one thread catches up; set while a build is queued or running.
+	private final ReentrantLock syncing = new ReentrantLock();
+	private final AtomicBoolean rebuilding = new AtomicBoolean();
+	// Builds the filter off the request path.
+	private final ExecutorService builder = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "email-filter");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	// Starts building the filter in the background.
+	public void start() {
+		rebuildAsync();
+	}
+
+	// Returns false if no user has the (normalized) email, true if one may have it.
+	public boolean mightExist(String email) throws SQLException {
+		BloomFilter current = filter;
+		if (current == null) {
+			// Not built yet: let the database answer.
+			if (builtAt == 0 || System.nanoTime() - builtAt > RETRY_NANOS) {
+				rebuildAsync();
+			}
+			MAYBE_PRESENT.increment();
+			return true;
+		}
+		if (needsRebuild(current)) {
+			rebuildAsync();
+		}
+		if (current.mightContain(email) || (sync() && filter.mightContain(email))) {
+			MAYBE_PRESENT.increment();
+			return true;
+		}
+		ABSENT.increment();
+		return false;
+	}
+
+	// Records an email stored by this process, after its statement committed.
+	public void add(String email) {
+		BloomFilter current = filter;
+		if (current != null) {
+			current.put(email);
+		}
+		BloomFilter next = building;
+		if (next != null) {
+			next.put(email);
+		}
+	}
+
+	// Records that a user was removed; their email stays in the filter until the next build.
+	public void removed() {
+		deleted.increment();
+	}
+
+	// Returns true if the filter is full, holds many deleted users' emails, or is old.
+	private boolean needsRebuild(BloomFilter current) {
+		return current.getAdded() > current.getCapacity() || deleted.sum() > current.getCapacity() / 4
+				|| System.nanoTime() - builtAt > REBUILD_NANOS;
+	}
+
+	// Queues a build of the filter unless one is queued or running.
+	private void rebuildAsync() {
+		if (rebuilding.compareAndSet(false, true)) {
+			builder.execute(this::rebuild);
+		}
+	}
+
+	// Builds a filter sized for the current users from every email on the primary, then replaces
+	// the old one. Lookups keep using the old filter (or the database) meanwhile.
+	private void rebuild() {
+		long startedAt = System.nanoTime();
+		try {
+			int count;
+			try (Connection conn = DatabaseConnection.getConnection();
+					PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM users");
+					ResultSet rs = stmt.executeQuery()) {
+				rs.next();
+				count = rs.getInt(1);
+			}
+			BloomFilter next = new BloomFilter(Math.max(MIN_CAPACITY, count * GROWTH_FACTOR), FALSE_POSITIVE_RATE);
+			building = next;
+			deleted.reset();
+			Timestamp readAt = read(null, next::put);
+			filter = next;
+			// Only now, or catch-ups would skip what the old filter has not seen.
+			advance(readAt, startedAt);
+			builtAt = startedAt;
+			BUILDS.increment();
+		} catch (SQLException e) {
+			// Keep the old filter, or the database lookups; the next lookup queues another build.
+			System.out.println("Failed to build the email filter: " + e.getMessage());
+			builtAt = startedAt;
+		} finally {
+			building = null;
+			rebuilding.set(false);
+		}
+	}
+
+	// Returns true if users registered elsewhere should be caught up before answering "absent".
+	private boolean syncDue() {
+		return System.nanoTime() - syncedAt >= SYNC_NANOS;
+	}
+
+	// Adds the emails written since the last read, if it is due; waits instead if another thread is
+	// already doing so. Returns true if the filter may have changed.
+	private boolean sync() throws SQLException {
+		if (!syncDue() && !syncing.isLocked()) {
+			return false;
+		}
+		syncing.lock();
+		try {
+			// A catch-up that ended while this thread waited covers the lookup.
+			if (syncDue()) {
+				Timestamp from = readTo;
+				long startedAt = System.nanoTime();
+				advance(read(from == null ? null : new Timestamp(from.getTime() - SYNC_OVERLAP_SECONDS * 1000L),
+						this::add), startedAt);
+			}
+			return true;
+		} finally {
+			syncing.unlock();
+		}
+	}
+
+	// Passes the emails of users written at or after a database time (every user if null) to a
+	// consumer; returns the database time of the read.
+	private Timestamp read(Timestamp from, Consumer<String> consumer) throws SQLException {
+		Timestamp now;
+		try (Connection conn = DatabaseConnection.getConnection()) {
+			// The database's clock, so other instances' clocks do not matter.
+			try (PreparedStatement stmt = conn.prepareStatement("SELECT CURRENT_TIMESTAMP");
+					ResultSet rs = stmt.executeQuery()) {
+				rs.next();
+				now = rs.getTimestamp(1);
+			}
+			String sql = from == null ? "SELECT email FROM users" : "SELECT email FROM users WHERE updated_at >= ?";
+			try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+				if (from != null) {
+					stmt.setTimestamp(1, from);
+				}
+				try (ResultSet rs = stmt.executeQuery()) {
+					while (rs.next()) {
+						consumer.accept(rs.getString("email").toLowerCase());
+					}
+				}
+			}
+		}
+		return now;
+	}
+
+	// Records a read of the table at the given database time, started at the given nanoTime.
+	private synchronized void advance(Timestamp readAt, long startedAt) {
+		if (readTo == null || readAt.after(readTo)) {
+			readTo = readAt;
+		}
+		syncedAt = startedAt;
+	}
+}
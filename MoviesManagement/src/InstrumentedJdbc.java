@@ -0,0 +1,192 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// Wraps JDBC connections handed out by DatabaseConnection so every statement execution
+// is timed and recorded in QueryStats, tagged with the service method that prepared it.
+public class InstrumentedJdbc {
+	// Walks the stack to find the service method that issued a statement.
+	private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+
+	// Private constructor; this is a static factory.
+	private InstrumentedJdbc() {
+	}
+
+	// Returns a connection whose statements report to QueryStats.
+	public static Connection wrap(Connection conn) {
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, new ConnectionHandler(conn));
+	}
+
+	// Returns "Class.method" for the first stack frame outside the JDBC layers. A lambda is tagged
+	// with the method it was written in, e.g. statements of review writes run on the pipeline's
+	// writer threads.
+	static String callerTag() {
+		return STACK_WALKER.walk(frames -> frames
+				.filter(frame -> !isInfrastructure(frame.getClassName()))
+				.findFirst()
+				.map(frame -> simpleName(frame.getClassName()) + "." + enclosingMethod(frame.getMethodName()))
+				.orElse("unknown"));
+	}
+
+	// Returns the method a synthetic lambda method (lambda$<method>$<n>) was written in, or the
+	// name itself for other methods.
+	static String enclosingMethod(String methodName) {
+		if (!methodName.startsWith("lambda$")) {
+			return methodName;
+		}
+		int end = methodName.indexOf('$', "lambda$".length());
+		return end < 0 ? methodName : methodName.substring("lambda$".length(), end);
+	}
+
+	// Returns true for classes that sit between a service and the driver.
+	private static boolean isInfrastructure(String className) {
+		return className.startsWith("InstrumentedJdbc") || className.startsWith("DatabaseConnection")
+				|| className.startsWith("ShardQuery")
+				|| className.startsWith("java.") || className.startsWith("jdk.") || className.startsWith("sun.")
+				|| className.startsWith("com.sun.") || className.contains("$Proxy");
+	}
+
+	// Strips the package from a class name.
+	private static String simpleName(String className) {
+		return className.substring(className.lastIndexOf('.') + 1);
+	}
+
+	// Invokes the target method, rethrowing the original exception instead of the reflective wrapper.
+	private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	// Intercepts statement creation on a connection.
+	private static class ConnectionHandler implements InvocationHandler {
+		private final Connection target;
+
+		ConnectionHandler(Connection target) {
+			this.target = target;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			Object result = invokeTarget(target, method, args);
+			switch (method.getName()) {
+				case "prepareStatement":
+					return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+							new Class<?>[] { PreparedStatement.class },
+							new StatementHandler(result, (Connection) proxy,
+									QueryStats.statement(callerTag(), (String) args[0])));
+				case "prepareCall":
+					return Proxy.newProxyInstance(CallableStatement.class.getClassLoader(),
+							new Class<?>[] { CallableStatement.class },
+							new StatementHandler(result, (Connection) proxy,
+									QueryStats.statement(callerTag(), (String) args[0])));
+				case "createStatement":
+					// Plain statements receive their SQL at execution time.
+					return Proxy.newProxyInstance(Statement.class.getClassLoader(),
+							new Class<?>[] { Statement.class }, new StatementHandler(result, (Connection) proxy, null));
+				default:
+					return result;
+			}
+		}
+	}
+
+	// Times executions of one statement and counts the rows they produce.
+	private static class StatementHandler implements InvocationHandler {
+		private final Object target;
+		// The instrumented connection, returned by getConnection so later statements report too.
+		private final Connection connection;
+		private final QueryStats.StatementStats preparedStats;
+
+		StatementHandler(Object target, Connection connection, QueryStats.StatementStats preparedStats) {
+			this.target = target;
+			this.connection = connection;
+			this.preparedStats = preparedStats;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (name.equals("getConnection")) {
+				// Fails like the target once the statement is closed.
+				invokeTarget(target, method, args);
+				return connection;
+			}
+			if (!name.startsWith("execute")) {
+				return invokeTarget(target, method, args);
+			}
+			QueryStats.StatementStats stats = preparedStats;
+			if (stats == null) {
+				stats = QueryStats.statement(callerTag(),
+						args != null && args.length > 0 ? String.valueOf(args[0]) : "<batch>");
+			}
+			long start = System.nanoTime();
+			Object result;
+			try {
+				result = invokeTarget(target, method, args);
+			} catch (SQLException e) {
+				QueryStats.recordExecution(stats, System.nanoTime() - start, 0, true);
+				throw e;
+			}
+			long elapsed = System.nanoTime() - start;
+			QueryStats.recordExecution(stats, elapsed, affectedRows(result), false);
+			if (result instanceof ResultSet) {
+				// Count rows as the caller fetches them.
+				return Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+						new ResultSetHandler((ResultSet) result, stats));
+			}
+			return result;
+		}
+
+		// Returns the update count carried by an execute* result, or 0 for queries.
+		private long affectedRows(Object result) {
+			if (result instanceof Integer) {
+				return Math.max(0, (Integer) result);
+			}
+			if (result instanceof Long) {
+				return Math.max(0, (Long) result);
+			}
+			long total = 0;
+			if (result instanceof int[]) {
+				for (int count : (int[]) result) {
+					total += Math.max(0, count);
+				}
+			} else if (result instanceof long[]) {
+				for (long count : (long[]) result) {
+					total += Math.max(0, count);
+				}
+			}
+			return total;
+		}
+	}
+
+	// Counts rows returned through a result set.
+	private static class ResultSetHandler implements InvocationHandler {
+		private final ResultSet target;
+		private final QueryStats.StatementStats stats;
+
+		ResultSetHandler(ResultSet target, QueryStats.StatementStats stats) {
+			this.target = target;
+			this.stats = stats;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			Object result = invokeTarget(target, method, args);
+			if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+				QueryStats.recordRows(stats, 1);
+			}
+			return result;
+		}
+	}
+}
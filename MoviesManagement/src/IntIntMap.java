@@ -0,0 +1,92 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.util.Arrays;
+
+// Open-addressing hash map from int keys to int values, used by batch jobs that
+// index large numbers of ids without boxing every key into an Integer.
+public class IntIntMap {
+	// Marker stored in empty slots; ids in this application are always positive.
+	private static final int EMPTY = 0;
+	// Value returned by get when a key is missing.
+	public static final int MISSING = -1;
+
+	// Parallel arrays holding the keys and values of each slot.
+	private int[] keys;
+	private int[] values;
+	// Number of keys currently stored.
+	private int size;
+
+	// Creates a map sized to hold the expected number of keys without resizing.
+	public IntIntMap(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+		keys = new int[capacity];
+		values = new int[capacity];
+	}
+
+	// Returns the value stored for the key, or MISSING if the key is absent.
+	public int get(int key) {
+		int mask = keys.length - 1;
+		for (int slot = mix(key) & mask;; slot = (slot + 1) & mask) {
+			if (keys[slot] == key) {
+				return values[slot];
+			}
+			if (keys[slot] == EMPTY) {
+				return MISSING;
+			}
+		}
+	}
+
+	// Stores the value for the key, replacing any previous value.
+	public void put(int key, int value) {
+		if (key == EMPTY) {
+			throw new IllegalArgumentException("Key 0 is reserved.");
+		}
+		// Keep the load factor at or below one half so probe chains stay short.
+		if ((size + 1) * 2 > keys.length) {
+			rehash(keys.length * 2);
+		}
+		int mask = keys.length - 1;
+		for (int slot = mix(key) & mask;; slot = (slot + 1) & mask) {
+			if (keys[slot] == key) {
+				values[slot] = value;
+				return;
+			}
+			if (keys[slot] == EMPTY) {
+				keys[slot] = key;
+				values[slot] = value;
+				size++;
+				return;
+			}
+		}
+	}
+
+	// Returns the number of keys stored in the map.
+	public int size() {
+		return size;
+	}
+
+	// Removes every key while keeping the allocated capacity.
+	public void clear() {
+		Arrays.fill(keys, EMPTY);
+		size = 0;
+	}
+
+	// Moves every entry into freshly allocated arrays of the given capacity.
+	private void rehash(int capacity) {
+		int[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new int[capacity];
+		values = new int[capacity];
+		size = 0;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY) {
+				put(oldKeys[i], oldValues[i]);
+			}
+		}
+	}
+
+	// Spreads sequential ids across the table (Fibonacci hashing).
+	private static int mix(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
@@ -0,0 +1,142 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.util.Arrays;
+
+// Open-addressing hash map from int keys to object values, used by the in-memory store to index
+// records by id without boxing every key into an Integer.
+public class IntObjectMap<V> {
+	// Marker stored in empty slots; ids in this application are always positive.
+	private static final int EMPTY = 0;
+
+	// Receives the entries of the map in slot order.
+	public interface EntryConsumer<V> {
+		void accept(int key, V value);
+	}
+
+	// Parallel arrays holding the keys and values of each slot.
+	private int[] keys;
+	private Object[] values;
+	// Number of keys currently stored.
+	private int size;
+
+	// Creates a map sized to hold the expected number of keys without resizing.
+	public IntObjectMap(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+		keys = new int[capacity];
+		values = new Object[capacity];
+	}
+
+	// Returns the value stored for the key, or null if the key is absent.
+	@SuppressWarnings("unchecked")
+	public V get(int key) {
+		int mask = keys.length - 1;
+		for (int slot = mix(key) & mask;; slot = (slot + 1) & mask) {
+			if (keys[slot] == key && key != EMPTY) {
+				return (V) values[slot];
+			}
+			if (keys[slot] == EMPTY) {
+				return null;
+			}
+		}
+	}
+
+	// Stores the value for the key, replacing any previous value.
+	public void put(int key, V value) {
+		if (key == EMPTY) {
+			throw new IllegalArgumentException("Key 0 is reserved.");
+		}
+		// Keep the load factor at or below one half so probe chains stay short.
+		if ((size + 1) * 2 > keys.length) {
+			rehash(keys.length * 2);
+		}
+		int mask = keys.length - 1;
+		for (int slot = mix(key) & mask;; slot = (slot + 1) & mask) {
+			if (keys[slot] == key) {
+				values[slot] = value;
+				return;
+			}
+			if (keys[slot] == EMPTY) {
+				keys[slot] = key;
+				values[slot] = value;
+				size++;
+				return;
+			}
+		}
+	}
+
+	// Removes the key and returns its value, or null if the key was absent.
+	@SuppressWarnings("unchecked")
+	public V remove(int key) {
+		int mask = keys.length - 1;
+		for (int slot = mix(key) & mask;; slot = (slot + 1) & mask) {
+			if (keys[slot] == EMPTY) {
+				return null;
+			}
+			if (keys[slot] == key) {
+				V value = (V) values[slot];
+				deleteSlot(slot);
+				return value;
+			}
+		}
+	}
+
+	// Returns the number of keys stored in the map.
+	public int size() {
+		return size;
+	}
+
+	// Passes every entry to the consumer; the map must not be modified meanwhile.
+	@SuppressWarnings("unchecked")
+	public void forEach(EntryConsumer<? super V> consumer) {
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != EMPTY) {
+				consumer.accept(keys[i], (V) values[i]);
+			}
+		}
+	}
+
+	// Removes every key while keeping the allocated capacity.
+	public void clear() {
+		Arrays.fill(keys, EMPTY);
+		Arrays.fill(values, null);
+		size = 0;
+	}
+
+	// Empties a slot, shifting later entries of the probe chain back so lookups still find them.
+	private void deleteSlot(int slot) {
+		int mask = keys.length - 1;
+		int hole = slot;
+		for (int next = (hole + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+			// An entry may fill the hole only if the hole lies between its home slot and where it sits.
+			int home = mix(keys[next]) & mask;
+			if (((next - home) & mask) >= ((next - hole) & mask)) {
+				keys[hole] = keys[next];
+				values[hole] = values[next];
+				hole = next;
+			}
+		}
+		keys[hole] = EMPTY;
+		values[hole] = null;
+		size--;
+	}
+
+	// Moves every entry into freshly allocated arrays of the given capacity.
+	@SuppressWarnings("unchecked")
+	private void rehash(int capacity) {
+		int[] oldKeys = keys;
+		Object[] oldValues = values;
+		keys = new int[capacity];
+		values = new Object[capacity];
+		size = 0;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY) {
+				put(oldKeys[i], (V) oldValues[i]);
+			}
+		}
+	}
+
+	// Spreads sequential ids across the table (Fibonacci hashing).
+	private static int mix(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
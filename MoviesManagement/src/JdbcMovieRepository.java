@@ -0,0 +1,39 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+// MovieRepository backed by the movies table in MySQL.
+public class JdbcMovieRepository implements MovieRepository {
+	@Override
+	public List<Movie> findAll() throws SQLException {
+		List<Movie> movies = new ArrayList<>();
+		try (Connection conn = DatabaseConnection.getReadConnection();
+				PreparedStatement stmt = conn.prepareStatement("SELECT id, title, rel_date, genre FROM movies ORDER BY title");
+				ResultSet rs = stmt.executeQuery()) {
+			while (rs.next()) {
+				movies.add(toMovie(rs));
+			}
+		}
+		return movies;
+	}
+
+	@Override
+	public Movie findById(int movieId) throws SQLException {
+		try (Connection conn = DatabaseConnection.getReadConnection();
+				PreparedStatement stmt = conn.prepareStatement("SELECT id, title, rel_date, genre FROM movies WHERE id = ?")) {
+			stmt.setInt(1, movieId);
+			try (ResultSet rs = stmt.executeQuery()) {
+				return rs.next() ? toMovie(rs) : null;
+			}
+		}
+	}
+
+	// Creates a Movie from the current row.
+	private static Movie toMovie(ResultSet rs) throws SQLException {
+		return new Movie(rs.getInt("id"), rs.getString("title"), rs.getString("rel_date"), rs.getString("genre"));
+	}
+}
@@ -0,0 +1,1225 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+// ReviewRepository backed by the reviews and shares tables in MySQL. When reviews are sharded
+// (see DatabaseConnection), per-movie work goes to the movie's shard, review-ID operations to the
+// review's shard, and listings are merged across shards with reviewer names read from the primary.
+// Listings leave out reviews by users marked deleted, whose reviews may not be purged yet.
+// Deleting a review sets its deleted_at tombstone instead of removing the row, so a delete touches
+// one row rather than cascading through shares and the indexes of a hot movie; every query skips
+// tombstones, and purgeDeleted removes them in small batches later (see ReviewCompactor).
+// archive moves cold reviews and their shares to the compressed reviews_archive and shares_archive
+// tables of the same shard, so the hot tables and their indexes stay small. Listings read the hot
+// tables only; writes to an archived review first move it back (see unarchive).
+// Review text is stored compressed when that is smaller (see ReviewText). Listings read only the
+// precomputed preview column; findByMovie and findById read and decompress the full text.
+// Every review carries its share count and feed score (see ReviewRanking), set when it is written
+// and raised when it is shared; the feed reads a page from the (movie_id, feed_score, id) index
+// after the cursor's position, so no page sorts or skips the rest of a movie's reviews.
+// The band keys of each review's fingerprint (see ReviewFingerprint) are kept in
+// review_fingerprints, written with the review; rows of tombstones stay until the purge, hidden by
+// the join with reviews, while archiving drops them (the archive is not searched for duplicates),
+// so storeFingerprints restores those of reviews moved back.
+public class JdbcReviewRepository implements ReviewRepository {
+	// Columns copied between the hot and archive tables.
+	private static final String STORED_COLUMNS = "id, movie_id, review, review_deflated, preview, rating, user_id, "
+			+ "created_at, modified_at, share_count, feed_score, duplicate_of";
+	// Shares inserted per statement by shareAll.
+	private static final int SHARE_BATCH_ROWS = Math.max(1, Integer.getInteger("moviereviews.shares.batchRows", 1000));
+	// Reviews deleted per transaction by deleteAll, and IDs or keys listed per statement by findByIds
+	// and findIdsByFingerprint.
+	private static final int DELETE_BATCH_ROWS = 1000;
+	// Reviews re-indexed per transaction by storeFingerprints.
+	private static final int FINGERPRINT_BATCH_ROWS = 500;
+	// Batches concurrent mutations into shared transactions (see ReviewWritePipeline).
+	private final ReviewWritePipeline pipeline = new ReviewWritePipeline();
+
+	@Override
+	public Outcome create(int userId, int movieId, String text, int rating, int undoSeconds, Integer duplicateOf)
+			throws SQLException {
+		// Sharded reviews take a globally unique ID, allocated on the primary before the shard is
+		// touched; otherwise AUTO_INCREMENT assigns it.
+		Integer id = DatabaseConnection.isSharded() ? DatabaseConnection.allocateReviewId(movieId) : null;
+		// Compress on the caller's thread, so a writer thread never waits for a dictionary.
+		ReviewText.Encoded encoded = ReviewText.encode(text);
+		double score = ReviewRanking.baseScore(rating, text, System.currentTimeMillis());
+		int[] bandKeys = ReviewFingerprint.bandKeys(text);
+		// The mutation runs on the shard that holds the movie's reviews.
+		return written(pipeline.submit(DatabaseConnection.shardFor(movieId), conn -> {
+			// Verify that the movie ID exists in the database (shards carry a copy of movies).
+			if (!movieExists(conn, movieId)) {
+				return Outcome.MOVIE_NOT_FOUND;
+			}
+			// A tombstone still holds the unique (user_id, movie_id) key. One left by an admin that can
+			// still be restored blocks the new review; any other is replaced by it.
+			Integer tombstoneId = null;
+			try (PreparedStatement stmt = conn.prepareStatement("SELECT id, deleted_by_admin AND deleted_at >= "
+					+ "CURRENT_TIMESTAMP - INTERVAL ? SECOND AS restorable FROM reviews WHERE user_id = ? AND movie_id = ? AND deleted_at IS NOT NULL FOR UPDATE")) {
+				stmt.setInt(1, undoSeconds);
+				stmt.setInt(2, userId);
+				stmt.setInt(3, movieId);
+				try (ResultSet rs = stmt.executeQuery()) {
+					if (rs.next()) {
+						if (rs.getBoolean("restorable")) {
+							return Outcome.RESTORABLE;
+						}
+						tombstoneId = rs.getInt("id");
+					}
+				}
+			}
+			if (tombstoneId != null) {
+				try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM reviews WHERE id = ?")) {
+					stmt.setInt(1, tombstoneId);
+					stmt.executeUpdate();
+				}
+			}
+			// All reviews of a movie share a shard, so its unique (user_id, movie_id) key still applies.
+			// Earlier mutations of the same batch are visible here, so duplicates within a batch are caught;
+			// an archived review of the movie counts as well.
+			if (userHasReviewed(conn, userId, movieId)) {
+				return Outcome.DUPLICATE;
+			}
+			String sql = "INSERT INTO reviews (movie_id, review, review_deflated, preview, rating, user_id, feed_score, "
+					+ "duplicate_of, id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+			try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+				stmt.setInt(1, movieId);
+				stmt.setString(2, encoded.getText());
+				stmt.setBytes(3, encoded.getCompressed());
+				stmt.setString(4, encoded.getPreview());
+				stmt.setInt(5, rating);
+				stmt.setInt(6, userId);
+				stmt.setDouble(7, score);
+				setNullableInt(stmt, 8, duplicateOf);
+				setNullableInt(stmt, 9, id);
+				if (stmt.executeUpdate() == 0) {
+					return Outcome.MOVIE_NOT_FOUND;
+				}
+			}
+			insertFingerprint(conn, id, bandKeys);
+			return Outcome.OK;
+		}));
+	}
+
+	@Override
+	public Outcome update(int reviewId, int userId, String text, int rating, Integer duplicateOf)
+			throws SQLException {
+		ReviewText.Encoded encoded = ReviewText.encode(text);
+		double score = ReviewRanking.baseScore(rating, text, System.currentTimeMillis());
+		int[] bandKeys = ReviewFingerprint.bandKeys(text);
+		int shard = ShardQuery.findReviewShard(reviewId);
+		if (shard < 0) {
+			return Outcome.REVIEW_NOT_FOUND;
+		}
+		return written(pipeline.submit(shard, conn -> {
+			unarchive(conn, reviewId);
+			// The share boost is ReviewRanking.shareBoost in SQL.
+			String sql = "UPDATE reviews SET review = ?, review_deflated = ?, preview = ?, rating = ?, "
+					+ "feed_score = ? + LN(1 + share_count), duplicate_of = ? "
+					+ "WHERE id = ? AND user_id = ? AND deleted_at IS NULL";
+			try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+				stmt.setString(1, encoded.getText());
+				stmt.setBytes(2, encoded.getCompressed());
+				stmt.setString(3, encoded.getPreview());
+				stmt.setInt(4, rating);
+				stmt.setDouble(5, score);
+				setNullableInt(stmt, 6, duplicateOf);
+				stmt.setInt(7, reviewId);
+				stmt.setInt(8, userId);
+				// Rows are counted as matched, not changed, so an identical edit still succeeds.
+				if (stmt.executeUpdate() == 0) {
+					return Outcome.REVIEW_NOT_FOUND;
+				}
+			}
+			try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM review_fingerprints WHERE review_id = ?")) {
+				stmt.setInt(1, reviewId);
+				stmt.executeUpdate();
+			}
+			insertFingerprint(conn, reviewId, bandKeys);
+			return Outcome.OK;
+		}));
+	}
+
+	@Override
+	public Outcome delete(int reviewId, int userId) throws SQLException {
+		// Tombstone the review; its shares stay until compaction but are hidden with it.
+		// modified_at is kept so a restored review keeps its place in listings.
+		int shard = ShardQuery.findReviewShard(reviewId);
+		if (shard < 0) {
+			return Outcome.REVIEW_NOT_FOUND;
+		}
+		return written(pipeline.submit(shard, conn -> {
+			unarchive(conn, reviewId);
+			String sql = "UPDATE reviews SET deleted_at = CURRENT_TIMESTAMP, deleted_by_admin = FALSE, "
+					+ "modified_at = modified_at WHERE id = ? AND user_id = ? AND deleted_at IS NULL";
+			try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+				stmt.setInt(1, reviewId);
+				stmt.setInt(2, userId);
+				return outcome(stmt.executeUpdate(), Outcome.REVIEW_NOT_FOUND);
+			}
+		}));
+	}
+
+	@Override
+	public Outcome deleteAny(int reviewId) throws SQLException {
+		int shard = ShardQuery.findReviewShard(reviewId);
+		if (shard < 0) {
+			return Outcome.REVIEW_NOT_FOUND;
+		}
+		return written(pipeline.submit(shard, conn -> {
+			unarchive(conn, reviewId);
+			String sql = "UPDATE reviews SET deleted_at = CURRENT_TIMESTAMP, deleted_by_admin = TRUE, "
+					+ "modified_at = modified_at WHERE id = ? AND deleted_at IS NULL";
+			try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+				stmt.setInt(1, reviewId);
+				return outcome(stmt.executeUpdate(), Outcome.REVIEW_NOT_FOUND);
+			}
+		}));
+	}
+
+	@Override
+	public List<Integer> deleteAll(List<Integer> reviewIds) throws SQLException {
+		List<Integer> deleted = new ArrayList<>();
+		for (int from = 0; from < reviewIds.size(); from += DELETE_BATCH_ROWS) {
+			List<Integer> batch = reviewIds.subList(from, Math.min(reviewIds.size(), from + DELETE_BATCH_ROWS));
+			// Review IDs are unique across shards, so every shard deletes those it holds and the
+			// reviews' shards need not be looked up.
+			for (int shard = 0; shard < DatabaseConnection.shardCount(); shard++) {
+				deleted.addAll(deleteAll(shard, batch));
+			}
+		}
+		if (!deleted.isEmpty()) {
+			DatabaseConnection.markWrite();
+		}
+		return deleted;
+	}
+
+	// Deletes the live reviews among the IDs on one shard in one transaction of its own, like
+	// shareAll: archived ones are moved back, then the live ones are locked and marked deleted.
+	private List<Integer> deleteAll(int shard, List<Integer> reviewIds) throws SQLException {
+		List<Integer> deleted = new ArrayList<>();
+		try (Connection conn = DatabaseConnection.getShardConnection(shard)) {
+			conn.setAutoCommit(false);
+			try {
+				unarchive(conn, reviewIds);
+				try (PreparedStatement stmt = conn.prepareStatement("SELECT id FROM reviews WHERE id IN ("
+						+ placeholders(reviewIds.size()) + ") AND deleted_at IS NULL FOR UPDATE")) {
+					for (int i = 0; i < reviewIds.size(); i++) {
+						stmt.setInt(i + 1, reviewIds.get(i));
+					}
+					try (ResultSet rs = stmt.executeQuery()) {
+						while (rs.next()) {
+							deleted.add(rs.getInt("id"));
+						}
+					}
+				}
+				if (!deleted.isEmpty()) {
+					try (PreparedStatement stmt = conn.prepareStatement("UPDATE reviews SET deleted_at = CURRENT_TIMESTAMP, "
+							+ "deleted_by_admin = TRUE, modified_at = modified_at WHERE id IN (" + placeholders(deleted.size()) + ")")) {
+						for (int i = 0; i < deleted.size(); i++) {
+							stmt.setInt(i + 1, deleted.get(i));
+						}
+						stmt.executeUpdate();
+					}
+				}
+				conn.commit();
+				return deleted;
+			} catch (SQLException | RuntimeException e) {
+				conn.rollback();
+				throw e;
+			} finally {
+				conn.setAutoCommit(true);
+			}
+		}
+	}
+
+	@Override
+	public int findMatchingIds(ModerationCriteria criteria, int afterId, int limit, List<Integer> matches)
+			throws SQLException {
+		// The author, movie and time criteria are filtered by the query; text is matched here, as
+		// compressed texts cannot be searched in SQL. Reading by ID takes no locks.
+		StringBuilder sql = new StringBuilder(criteria.hasText()
+				? "SELECT id, movie_id, user_id, review, review_deflated, rating, modified_at FROM reviews"
+				: "SELECT id FROM reviews");
+		sql.append(" WHERE id > ? AND deleted_at IS NULL");
+		List<Object> parameters = new ArrayList<>();
+		parameters.add(afterId);
+		if (criteria.getUserId() != null) {
+			sql.append(" AND user_id = ?");
+			parameters.add(criteria.getUserId());
+		}
+		if (criteria.getMovieId() != null) {
+			sql.append(" AND movie_id = ?");
+			parameters.add(criteria.getMovieId());
+		}
+		if (criteria.getFrom() != null) {
+			sql.append(" AND modified_at >= ?");
+			parameters.add(criteria.getFrom());
+		}
+		if (criteria.getTo() != null) {
+			sql.append(" AND modified_at < ?");
+			parameters.add(criteria.getTo());
+		}
+		if (criteria.isDuplicatesOnly()) {
+			sql.append(" AND duplicate_of IS NOT NULL");
+		}
+		sql.append(" ORDER BY id LIMIT ?");
+		parameters.add(limit);
+		// Every shard returns its first rows after afterId; the first limit of the merged stream are
+		// examined, and the rest are read again by the next call.
+		List<Integer> examined = new ArrayList<>();
+		List<Review> texts = new ArrayList<>();
+		ShardQuery.mergeOrdered(sql.toString(), stmt -> {
+			for (int i = 0; i < parameters.size(); i++) {
+				Object parameter = parameters.get(i);
+				if (parameter instanceof Timestamp) {
+					stmt.setTimestamp(i + 1, (Timestamp) parameter);
+				} else {
+					stmt.setInt(i + 1, (Integer) parameter);
+				}
+			}
+		}, rs -> rs.getInt("id"), rs -> {
+			if (examined.size() < limit) {
+				examined.add(rs.getInt("id"));
+				if (criteria.hasText()) {
+					texts.add(toReview(rs));
+				}
+			}
+		});
+		if (criteria.hasText()) {
+			// Decompress after the shard connections are released.
+			ReviewText.inflate(texts);
+			for (Review review : texts) {
+				if (criteria.matchesText(review.getText())) {
+					matches.add(review.getId());
+				}
+			}
+		} else {
+			matches.addAll(examined);
+		}
+		return examined.size() < limit ? 0 : examined.get(examined.size() - 1);
+	}
+
+	@Override
+	public List<Review> findPage(int afterId, int limit) throws SQLException {
+		// Every shard returns its first rows after afterId; the first limit of the merged stream are kept.
+		List<Review> reviews = new ArrayList<>();
+		ShardQuery.mergeOrdered("SELECT id, movie_id, user_id, review, review_deflated, rating, modified_at FROM reviews "
+				+ "WHERE id > ? AND deleted_at IS NULL ORDER BY id LIMIT ?", stmt -> {
+					stmt.setInt(1, afterId);
+					stmt.setInt(2, limit);
+				}, rs -> rs.getInt("id"), rs -> {
+					if (reviews.size() < limit) {
+						reviews.add(toReview(rs));
+					}
+				});
+		ReviewText.inflate(reviews);
+		return reviews;
+	}
+
+	@Override
+	public List<Review> findByIds(List<Integer> reviewIds) throws SQLException {
+		List<Review> reviews = new ArrayList<>();
+		for (int from = 0; from < reviewIds.size(); from += DELETE_BATCH_ROWS) {
+			List<Integer> batch = reviewIds.subList(from, Math.min(reviewIds.size(), from + DELETE_BATCH_ROWS));
+			// Review IDs are unique across shards, so every shard returns those it holds.
+			ShardQuery.mergeOrdered("SELECT id, movie_id, user_id, review, review_deflated, rating, modified_at "
+					+ "FROM reviews WHERE id IN (" + placeholders(batch.size()) + ") AND deleted_at IS NULL ORDER BY id",
+					stmt -> {
+						for (int i = 0; i < batch.size(); i++) {
+							stmt.setInt(i + 1, batch.get(i));
+						}
+					}, rs -> rs.getInt("id"), rs -> reviews.add(toReview(rs)));
+		}
+		reviews.sort((a, b) -> Integer.compare(a.getId(), b.getId()));
+		ReviewText.inflate(reviews);
+		return reviews;
+	}
+
+	@Override
+	public Map<Integer, List<Integer>> findIdsByFingerprint(Collection<Integer> bandKeys, int limit)
+			throws SQLException {
+		Map<Integer, List<Integer>> idsByKey = new LinkedHashMap<>();
+		if (bandKeys.isEmpty()) {
+			return idsByKey;
+		}
+		// Read from the (band_key, review_id) primary key; the join leaves out tombstones. Every shard
+		// returns its lowest review IDs first for each chunk of keys, and the lowest limit are kept.
+		List<Integer> keys = new ArrayList<>(new LinkedHashSet<>(bandKeys));
+		List<int[]> entries = new ArrayList<>();
+		for (int from = 0; from < keys.size(); from += DELETE_BATCH_ROWS) {
+			List<Integer> batch = keys.subList(from, Math.min(keys.size(), from + DELETE_BATCH_ROWS));
+			ShardQuery.mergeOrdered("SELECT f.band_key, f.review_id FROM review_fingerprints f "
+					+ "JOIN reviews r ON r.id = f.review_id WHERE f.band_key IN (" + placeholders(batch.size()) + ") "
+					+ "AND r.deleted_at IS NULL ORDER BY f.review_id LIMIT ?", stmt -> {
+						for (int i = 0; i < batch.size(); i++) {
+							stmt.setInt(i + 1, batch.get(i));
+						}
+						stmt.setInt(batch.size() + 1, limit);
+					}, rs -> rs.getInt("review_id"),
+					rs -> entries.add(new int[] { rs.getInt("band_key"), rs.getInt("review_id") }));
+		}
+		entries.sort((a, b) -> Integer.compare(a[1], b[1]));
+		if (entries.size() > limit) {
+			entries.subList(limit, entries.size()).clear();
+		}
+		for (int[] entry : entries) {
+			idsByKey.computeIfAbsent(entry[0], key -> new ArrayList<>()).add(entry[1]);
+		}
+		return idsByKey;
+	}
+
+	@Override
+	public int storeFingerprints(List<Review> reviews) throws SQLException {
+		Map<Integer, int[]> keysById = new LinkedHashMap<>();
+		for (Review review : reviews) {
+			int[] keys = ReviewFingerprint.bandKeys(review.getText());
+			keysById.put(review.getId(), keys != null ? keys : new int[0]);
+		}
+		List<Integer> ids = new ArrayList<>(keysById.keySet());
+		int stored = 0;
+		for (int from = 0; from < ids.size(); from += FINGERPRINT_BATCH_ROWS) {
+			List<Integer> batch = ids.subList(from, Math.min(ids.size(), from + FINGERPRINT_BATCH_ROWS));
+			// As in deleteAll, every shard re-indexes the reviews it holds.
+			for (int shard = 0; shard < DatabaseConnection.shardCount(); shard++) {
+				stored += storeFingerprints(shard, batch, keysById);
+			}
+		}
+		if (stored > 0) {
+			DatabaseConnection.markWrite();
+		}
+		return stored;
+	}
+
+	// Rewrites the stored band keys of the live reviews among the IDs on one shard where they differ
+	// from the given ones, in one transaction that locks those reviews so none is purged meanwhile.
+	private int storeFingerprints(int shard, List<Integer> reviewIds, Map<Integer, int[]> keysById)
+			throws SQLException {
+		try (Connection conn = DatabaseConnection.getShardConnection(shard)) {
+			conn.setAutoCommit(false);
+			try {
+				Map<Integer, List<Integer>> storedKeys = new HashMap<>();
+				try (PreparedStatement stmt = conn.prepareStatement("SELECT id FROM reviews WHERE id IN ("
+						+ placeholders(reviewIds.size()) + ") AND deleted_at IS NULL FOR UPDATE")) {
+					for (int i = 0; i < reviewIds.size(); i++) {
+						stmt.setInt(i + 1, reviewIds.get(i));
+					}
+					try (ResultSet rs = stmt.executeQuery()) {
+						while (rs.next()) {
+							storedKeys.put(rs.getInt("id"), new ArrayList<>());
+						}
+					}
+				}
+				if (storedKeys.isEmpty()) {
+					conn.commit();
+					return 0;
+				}
+				List<Integer> live = new ArrayList<>(storedKeys.keySet());
+				String in = " IN (" + placeholders(live.size()) + ")";
+				try (PreparedStatement stmt = conn.prepareStatement(
+						"SELECT review_id, band_key FROM review_fingerprints WHERE review_id" + in)) {
+					for (int i = 0; i < live.size(); i++) {
+						stmt.setInt(i + 1, live.get(i));
+					}
+					try (ResultSet rs = stmt.executeQuery()) {
+						while (rs.next()) {
+							storedKeys.get(rs.getInt("review_id")).add(rs.getInt("band_key"));
+						}
+					}
+				}
+				List<Integer> stale = new ArrayList<>();
+				for (int reviewId : live) {
+					int[] keys = keysById.get(reviewId).clone();
+					int[] stored = storedKeys.get(reviewId).stream().mapToInt(Integer::intValue).sorted().toArray();
+					Arrays.sort(keys);
+					if (!Arrays.equals(keys, stored)) {
+						stale.add(reviewId);
+					}
+				}
+				if (!stale.isEmpty()) {
+					try (PreparedStatement stmt = conn.prepareStatement(
+							"DELETE FROM review_fingerprints WHERE review_id IN (" + placeholders(stale.size()) + ")")) {
+						for (int i = 0; i < stale.size(); i++) {
+							stmt.setInt(i + 1, stale.get(i));
+						}
+						stmt.executeUpdate();
+					}
+					List<int[]> rows = new ArrayList<>();
+					for (int reviewId : stale) {
+						for (int key : keysById.get(reviewId)) {
+							rows.add(new int[] { reviewId, key });
+						}
+					}
+					insertFingerprintRows(conn, rows);
+				}
+				conn.commit();
+				return stale.size();
+			} catch (SQLException | RuntimeException e) {
+				conn.rollback();
+				throw e;
+			} finally {
+				conn.setAutoCommit(true);
+			}
+		}
+	}
+
+	@Override
+	public Outcome restore(int reviewId, int withinSeconds) throws SQLException {
+		// A tombstone replaced by a new review of the same movie is gone, so no duplicate can arise.
+		int shard = ShardQuery.findReviewShard(reviewId);
+		if (shard < 0) {
+			return Outcome.REVIEW_NOT_FOUND;
+		}
+		return written(pipeline.submit(shard, conn -> {
+			String sql = "UPDATE reviews SET deleted_at = NULL, deleted_by_admin = FALSE, modified_at = modified_at "
+					+ "WHERE id = ? AND deleted_at >= CURRENT_TIMESTAMP - INTERVAL ? SECOND";
+			try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+				stmt.setInt(1, reviewId);
+				stmt.setInt(2, withinSeconds);
+				return outcome(stmt.executeUpdate(), Outcome.REVIEW_NOT_FOUND);
+			}
+		}));
+	}
+
+	@Override
+	public List<Review> findDeleted(int withinSeconds) throws SQLException {
+		if (DatabaseConnection.isSharded()) {
+			List<Review> reviews = mergeNewestFirst("SELECT r.id, r.movie_id, r.user_id, r.preview, r.rating, m.title, "
+					+ "r.modified_at, r.deleted_at AS sort_time FROM reviews r JOIN movies m ON r.movie_id = m.id "
+					+ "WHERE r.deleted_at >= CURRENT_TIMESTAMP - INTERVAL ? SECOND ORDER BY r.deleted_at DESC",
+					stmt -> stmt.setInt(1, withinSeconds), Review::setDeletedAt);
+			ShardQuery.resolveReviewerNames(reviews);
+			return reviews;
+		}
+		// Read the primary, so a review deleted a moment ago is listed.
+		String sql = "SELECT r.id, r.movie_id, r.user_id, r.preview, r.rating, m.title, u.first_name, u.last_name, "
+				+ "r.modified_at, r.deleted_at FROM reviews r "
+				+ "JOIN movies m ON r.movie_id = m.id "
+				+ "JOIN users u ON r.user_id = u.id "
+				+ "WHERE r.deleted_at >= CURRENT_TIMESTAMP - INTERVAL ? SECOND AND u.deleted_at IS NULL "
+				+ "ORDER BY r.deleted_at DESC";
+		List<Review> reviews = new ArrayList<>();
+		try (Connection conn = DatabaseConnection.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setInt(1, withinSeconds);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					Review review = toListedReview(rs);
+					review.setMovieTitle(rs.getString("title"));
+					review.setReviewerName(rs.getString("first_name") + " " + rs.getString("last_name"));
+					review.setDeletedAt(rs.getTimestamp("deleted_at"));
+					reviews.add(review);
+				}
+			}
+		}
+		return reviews;
+	}
+
+	@Override
+	public int purgeDeleted(int olderThanSeconds, int maxRows) throws SQLException {
+		// One bounded autocommit statement per call: the shares and fingerprints of expired tombstones
+		// first, so that removing the tombstones themselves cascades to nothing.
+		String[] steps = {
+				"DELETE FROM shares WHERE review_id IN (SELECT id FROM reviews "
+						+ "WHERE deleted_at < CURRENT_TIMESTAMP - INTERVAL ? SECOND) LIMIT ?",
+				"DELETE FROM review_fingerprints WHERE review_id IN (SELECT id FROM reviews "
+						+ "WHERE deleted_at < CURRENT_TIMESTAMP - INTERVAL ? SECOND) LIMIT ?",
+				"DELETE FROM reviews WHERE deleted_at < CURRENT_TIMESTAMP - INTERVAL ? SECOND LIMIT ?" };
+		for (int shard = 0; shard < DatabaseConnection.shardCount(); shard++) {
+			try (Connection conn = DatabaseConnection.getShardConnection(shard)) {
+				for (String sql : steps) {
+					try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+						stmt.setInt(1, olderThanSeconds);
+						stmt.setInt(2, maxRows);
+						int rows = stmt.executeUpdate();
+						if (rows > 0) {
+							return rows;
+						}
+					}
+				}
+			}
+		}
+		return 0;
+	}
+
+	@Override
+	public boolean isOwner(int reviewId, int userId) throws SQLException {
+		String sql = "SELECT id FROM reviews WHERE id = ? AND user_id = ? AND deleted_at IS NULL "
+				+ "UNION ALL SELECT id FROM reviews_archive WHERE id = ? AND user_id = ?";
+		int shard = ShardQuery.findReviewShard(reviewId);
+		if (shard < 0) {
+			return false;
+		}
+		try (Connection conn = DatabaseConnection.getShardConnection(shard);
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setInt(1, reviewId);
+			stmt.setInt(2, userId);
+			stmt.setInt(3, reviewId);
+			stmt.setInt(4, userId);
+			try (ResultSet rs = stmt.executeQuery()) {
+				return rs.next();
+			}
+		}
+	}
+
+	@Override
+	public Outcome share(int reviewId, int recipientId) throws SQLException {
+		// A share lives on the same shard as its review.
+		int shard = ShardQuery.findReviewShard(reviewId);
+		if (shard < 0) {
+			return Outcome.REVIEW_NOT_FOUND;
+		}
+		return written(pipeline.submit(shard, conn -> {
+			unarchive(conn, reviewId);
+			String checkShareSql = "SELECT review_id FROM shares WHERE review_id = ? AND user_id = ?";
+			try (PreparedStatement checkStmt = conn.prepareStatement(checkShareSql)) {
+				checkStmt.setInt(1, reviewId);
+				checkStmt.setInt(2, recipientId);
+				try (ResultSet rs = checkStmt.executeQuery()) {
+					if (rs.next()) {
+						return Outcome.DUPLICATE;
+					}
+				}
+			}
+			// Inserts nothing if the review is missing or deleted.
+			String sql = "INSERT INTO shares (review_id, user_id) SELECT id, ? FROM reviews WHERE id = ? AND deleted_at IS NULL";
+			try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+				stmt.setInt(1, recipientId);
+				stmt.setInt(2, reviewId);
+				if (stmt.executeUpdate() == 0) {
+					return Outcome.REVIEW_NOT_FOUND;
+				}
+			}
+			// Move the review up its feed by the difference the share makes to ReviewRanking.shareBoost.
+			// MySQL assigns left to right, so feed_score still sees the old share_count.
+			// Shares removed later (a recipient's deletion) leave the count as it was.
+			String rankSql = "UPDATE reviews SET feed_score = feed_score + LN(share_count + 2) - LN(share_count + 1), "
+					+ "share_count = share_count + 1, modified_at = modified_at WHERE id = ?";
+			try (PreparedStatement stmt = conn.prepareStatement(rankSql)) {
+				stmt.setInt(1, reviewId);
+				stmt.executeUpdate();
+			}
+			return Outcome.OK;
+		}));
+	}
+
+	@Override
+	public int shareAll(int reviewId, List<Integer> recipientIds) throws SQLException {
+		// Its own transaction rather than the pipeline's shared ones: a fan-out's statements must
+		// commit or roll back together, and a large one would hold up the mutations batched with it.
+		int shard = ShardQuery.findReviewShard(reviewId);
+		if (shard < 0) {
+			return -1;
+		}
+		try (Connection conn = DatabaseConnection.getShardConnection(shard)) {
+			conn.setAutoCommit(false);
+			try {
+				unarchive(conn, reviewId);
+				// Lock the review, so it cannot be deleted while its shares are written.
+				try (PreparedStatement stmt = conn.prepareStatement(
+						"SELECT id FROM reviews WHERE id = ? AND deleted_at IS NULL FOR UPDATE")) {
+					stmt.setInt(1, reviewId);
+					try (ResultSet rs = stmt.executeQuery()) {
+						if (!rs.next()) {
+							conn.commit();
+							return -1;
+						}
+					}
+				}
+				// Multi-row inserts; recipients who already have the review are skipped by the primary key.
+				int added = 0;
+				for (int from = 0; from < recipientIds.size(); from += SHARE_BATCH_ROWS) {
+					List<Integer> batch = recipientIds.subList(from, Math.min(recipientIds.size(), from + SHARE_BATCH_ROWS));
+					StringBuilder sql = new StringBuilder("INSERT IGNORE INTO shares (review_id, user_id) VALUES ");
+					for (int i = 0; i < batch.size(); i++) {
+						sql.append(i == 0 ? "(?, ?)" : ", (?, ?)");
+					}
+					try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+						for (int i = 0; i < batch.size(); i++) {
+							stmt.setInt(2 * i + 1, reviewId);
+							stmt.setInt(2 * i + 2, batch.get(i));
+						}
+						added += stmt.executeUpdate();
+					}
+				}
+				if (added > 0) {
+					// Raise the feed score as share() does, by all the new shares at once.
+					try (PreparedStatement stmt = conn.prepareStatement("UPDATE reviews SET "
+							+ "feed_score = feed_score + LN(share_count + 1 + ?) - LN(share_count + 1), "
+							+ "share_count = share_count + ?, modified_at = modified_at WHERE id = ?")) {
+						stmt.setInt(1, added);
+						stmt.setInt(2, added);
+						stmt.setInt(3, reviewId);
+						stmt.executeUpdate();
+					}
+				}
+				conn.commit();
+				if (added > 0) {
+					DatabaseConnection.markWrite();
+				}
+				return added;
+			} catch (SQLException | RuntimeException e) {
+				conn.rollback();
+				throw e;
+			} finally {
+				conn.setAutoCommit(true);
+			}
+		}
+	}
+
+	@Override
+	public List<Review> findByUser(int userId) throws SQLException {
+		// The user's reviews are spread over all shards, so each shard's newest-first rows are merged.
+		String sql = "SELECT r.id, r.movie_id, r.user_id, r.preview, r.rating, m.title, r.modified_at, "
+				+ "r.modified_at AS sort_time FROM reviews r JOIN movies m ON r.movie_id = m.id "
+				+ "WHERE r.user_id = ? AND r.deleted_at IS NULL ORDER BY r.modified_at DESC";
+		return mergeNewestFirst(sql, stmt -> stmt.setInt(1, userId), null);
+	}
+
+	@Override
+	public List<Review> findAll() throws SQLException {
+		if (DatabaseConnection.isSharded()) {
+			// Shards hold no users table; merge the shards' reviews and resolve names from the primary.
+			List<Review> reviews = mergeNewestFirst("SELECT r.id, r.movie_id, r.user_id, r.preview, r.rating, m.title, "
+					+ "r.modified_at, r.modified_at AS sort_time FROM reviews r JOIN movies m ON r.movie_id = m.id "
+					+ "WHERE r.deleted_at IS NULL ORDER BY r.modified_at DESC", ShardQuery.NO_PARAMETERS, null);
+			ShardQuery.resolveReviewerNames(reviews);
+			return reviews;
+		}
+		String sql = "SELECT r.id, r.movie_id, r.user_id, r.preview, r.rating, m.title, u.first_name, u.last_name, "
+				+ "r.modified_at FROM reviews r "
+				+ "JOIN movies m ON r.movie_id = m.id "
+				+ "JOIN users u ON r.user_id = u.id "
+				+ "WHERE r.deleted_at IS NULL AND u.deleted_at IS NULL ORDER BY r.modified_at DESC";
+		List<Review> reviews = new ArrayList<>();
+		try (Connection conn = DatabaseConnection.getReadConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql);
+				ResultSet rs = stmt.executeQuery()) {
+			while (rs.next()) {
+				Review review = toListedReview(rs);
+				review.setMovieTitle(rs.getString("title"));
+				review.setReviewerName(rs.getString("first_name") + " " + rs.getString("last_name"));
+				reviews.add(review);
+			}
+		}
+		return reviews;
+	}
+
+	@Override
+	public List<Review> findSharedWith(int userId) throws SQLException {
+		if (DatabaseConnection.isSharded()) {
+			// Shares live on their review's shard; merge by share date and resolve names from the primary.
+			List<Review> reviews = mergeNewestFirst("SELECT r.id, r.movie_id, r.user_id, r.preview, r.rating, m.title, "
+					+ "r.modified_at, s.share_date AS sort_time FROM reviews r JOIN movies m ON r.movie_id = m.id "
+					+ "JOIN shares s ON r.id = s.review_id WHERE s.user_id = ? AND r.deleted_at IS NULL "
+					+ "ORDER BY s.share_date DESC", stmt -> stmt.setInt(1, userId), Review::setSharedAt);
+			ShardQuery.resolveReviewerNames(reviews);
+			return reviews;
+		}
+		String sql = "SELECT r.id, r.movie_id, r.user_id, r.preview, r.rating, m.title, u.first_name, u.last_name, "
+				+ "r.modified_at, s.share_date FROM reviews r "
+				+ "JOIN movies m ON r.movie_id = m.id "
+				+ "JOIN users u ON r.user_id = u.id "
+				+ "JOIN shares s ON r.id = s.review_id "
+				+ "WHERE s.user_id = ? AND r.deleted_at IS NULL AND u.deleted_at IS NULL ORDER BY s.share_date DESC";
+		List<Review> reviews = new ArrayList<>();
+		try (Connection conn = DatabaseConnection.getReadConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setInt(1, userId);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					Review review = toListedReview(rs);
+					review.setMovieTitle(rs.getString("title"));
+					review.setReviewerName(rs.getString("first_name") + " " + rs.getString("last_name"));
+					review.setSharedAt(rs.getTimestamp("share_date"));
+					reviews.add(review);
+				}
+			}
+		}
+		return reviews;
+	}
+
+	@Override
+	public List<Review> findByMovie(int movieId) throws SQLException {
+		List<Review> reviews = new ArrayList<>();
+		if (DatabaseConnection.isSharded()) {
+			// All of a movie's reviews are on one shard, which holds no user data.
+			String sql = "SELECT id, movie_id, user_id, review, review_deflated, rating, modified_at FROM reviews "
+					+ "WHERE movie_id = ? AND deleted_at IS NULL";
+			try (Connection conn = DatabaseConnection.getShardReadConnection(DatabaseConnection.shardFor(movieId));
+					PreparedStatement stmt = conn.prepareStatement(sql)) {
+				stmt.setInt(1, movieId);
+				try (ResultSet rs = stmt.executeQuery()) {
+					while (rs.next()) {
+						reviews.add(toReview(rs));
+					}
+				}
+			}
+			// Resolve names and texts after releasing the shard connection, so none is held while waiting
+			// for the primary.
+			ShardQuery.resolveReviewerNames(reviews);
+			ReviewText.inflate(reviews);
+			return reviews;
+		}
+		String sql = "SELECT r.id, r.movie_id, r.user_id, r.review, r.review_deflated, r.rating, r.modified_at, "
+				+ "u.first_name, u.last_name "
+				+ "FROM reviews r JOIN users u ON r.user_id = u.id "
+				+ "WHERE r.movie_id = ? AND r.deleted_at IS NULL AND u.deleted_at IS NULL";
+		try (Connection conn = DatabaseConnection.getReadConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setInt(1, movieId);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					Review review = toReview(rs);
+					review.setReviewerName(rs.getString("first_name") + " " + rs.getString("last_name"));
+					reviews.add(review);
+				}
+			}
+		}
+		ReviewText.inflate(reviews);
+		return reviews;
+	}
+
+	@Override
+	public List<Review> findFeed(int movieId, FeedCursor after, int limit) throws SQLException {
+		// Rows after the cursor, in index order; the OR form keeps MySQL on the index range.
+		String from = after == null ? ""
+				: "AND (r.feed_score < ? OR (r.feed_score = ? AND r.id < ?)) ";
+		List<Review> reviews = new ArrayList<>();
+		if (DatabaseConnection.isSharded()) {
+			// All of a movie's reviews are on one shard, which holds no user data, so deleted users are
+			// excluded by ID in the query and a page is never cut short after the LIMIT.
+			List<Integer> deletedUsers = findDeletedUsers();
+			String sql = "SELECT r.id, r.movie_id, r.user_id, r.preview, r.rating, r.modified_at, r.feed_score "
+					+ "FROM reviews r WHERE r.movie_id = ? AND r.deleted_at IS NULL " + from
+					+ notInUsers("r.user_id", deletedUsers) + "ORDER BY r.feed_score DESC, r.id DESC LIMIT ?";
+			try (Connection conn = DatabaseConnection.getShardReadConnection(DatabaseConnection.shardFor(movieId));
+					PreparedStatement stmt = conn.prepareStatement(sql)) {
+				readFeed(stmt, movieId, after, deletedUsers, limit, false, reviews);
+			}
+			ShardQuery.resolveReviewerNames(reviews);
+			return reviews;
+		}
+		String sql = "SELECT r.id, r.movie_id, r.user_id, r.preview, r.rating, r.modified_at, r.feed_score, "
+				+ "u.first_name, u.last_name FROM reviews r JOIN users u ON r.user_id = u.id "
+				+ "WHERE r.movie_id = ? AND r.deleted_at IS NULL AND u.deleted_at IS NULL " + from
+				+ "ORDER BY r.feed_score DESC, r.id DESC LIMIT ?";
+		try (Connection conn = DatabaseConnection.getReadConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+			readFeed(stmt, movieId, after, List.of(), limit, true, reviews);
+		}
+		return reviews;
+	}
+
+	@Override
+	public RatingTotals findRatings(int movieId) throws SQLException {
+		// Answered from the (movie_id, rating) index.
+		if (DatabaseConnection.isSharded()) {
+			return sumShardRatings("reviews", " AND deleted_at IS NULL", movieId);
+		}
+		String sql = "SELECT COUNT(*) AS ratings, COALESCE(SUM(r.rating), 0) AS rating_sum FROM reviews r "
+				+ "JOIN users u ON r.user_id = u.id WHERE r.movie_id = ? AND r.deleted_at IS NULL "
+				+ "AND u.deleted_at IS NULL";
+		try (Connection conn = DatabaseConnection.getShardReadConnection(DatabaseConnection.shardFor(movieId));
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setInt(1, movieId);
+			try (ResultSet rs = stmt.executeQuery()) {
+				rs.next();
+				return new RatingTotals(rs.getInt("ratings"), rs.getLong("rating_sum"));
+			}
+		}
+	}
+
+	@Override
+	public Review findById(int reviewId) throws SQLException {
+		String columns = "r.id, r.movie_id, r.user_id, r.review, r.review_deflated, r.rating, r.modified_at, m.title";
+		String sql = "SELECT " + columns + " FROM reviews r JOIN movies m ON r.movie_id = m.id "
+				+ "WHERE r.id = ? AND r.deleted_at IS NULL "
+				+ "UNION ALL SELECT " + columns + " FROM reviews_archive r JOIN movies m ON r.movie_id = m.id WHERE r.id = ?";
+		List<Review> reviews = new ArrayList<>();
+		int shard = ShardQuery.findReviewShard(reviewId);
+		if (shard < 0) {
+			return null;
+		}
+		try (Connection conn = DatabaseConnection.getShardReadConnection(shard);
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setInt(1, reviewId);
+			stmt.setInt(2, reviewId);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					Review review = toReview(rs);
+					review.setMovieTitle(rs.getString("title"));
+					reviews.add(review);
+				}
+			}
+		}
+		ShardQuery.resolveReviewerNames(reviews);
+		ReviewText.inflate(reviews);
+		return reviews.isEmpty() ? null : reviews.get(0);
+	}
+
+	@Override
+	public int archive(int olderThanDays, int maxRows) throws SQLException {
+		// One transaction per call: lock a batch of cold reviews, copy them and their shares to the
+		// archive tables and delete them from the hot tables, where their shares and fingerprints cascade.
+		for (int shard = 0; shard < DatabaseConnection.shardCount(); shard++) {
+			try (Connection conn = DatabaseConnection.getShardConnection(shard)) {
+				conn.setAutoCommit(false);
+				try {
+					List<Integer> ids = new ArrayList<>();
+					try (PreparedStatement stmt = conn.prepareStatement("SELECT id FROM reviews "
+							+ "WHERE modified_at < CURRENT_TIMESTAMP - INTERVAL ? DAY AND deleted_at IS NULL "
+							+ "ORDER BY modified_at LIMIT ? FOR UPDATE")) {
+						stmt.setInt(1, olderThanDays);
+						stmt.setInt(2, maxRows);
+						try (ResultSet rs = stmt.executeQuery()) {
+							while (rs.next()) {
+								ids.add(rs.getInt("id"));
+							}
+						}
+					}
+					if (ids.isEmpty()) {
+						conn.commit();
+						continue;
+					}
+					String in = " IN (" + placeholders(ids.size()) + ")";
+					String[] steps = {
+							"INSERT INTO reviews_archive (" + STORED_COLUMNS + ") SELECT " + STORED_COLUMNS + " FROM reviews "
+									+ "WHERE id" + in,
+							"INSERT INTO shares_archive (review_id, user_id, share_date) "
+									+ "SELECT review_id, user_id, share_date FROM shares WHERE review_id" + in,
+							"DELETE FROM reviews WHERE id" + in };
+					for (String sql : steps) {
+						try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+							for (int i = 0; i < ids.size(); i++) {
+								stmt.setInt(i + 1, ids.get(i));
+							}
+							stmt.executeUpdate();
+						}
+					}
+					conn.commit();
+					return ids.size();
+				} catch (SQLException | RuntimeException e) {
+					conn.rollback();
+					throw e;
+				} finally {
+					conn.setAutoCommit(true);
+				}
+			}
+		}
+		return 0;
+	}
+
+	@Override
+	public List<Review> findArchivedByUser(int userId) throws SQLException {
+		String sql = "SELECT r.id, r.movie_id, r.user_id, r.preview, r.rating, m.title, r.modified_at, "
+				+ "r.modified_at AS sort_time FROM reviews_archive r JOIN movies m ON r.movie_id = m.id "
+				+ "WHERE r.user_id = ? ORDER BY r.modified_at DESC";
+		return mergeNewestFirst(sql, stmt -> stmt.setInt(1, userId), null);
+	}
+
+	@Override
+	public List<Review> findAllArchived() throws SQLException {
+		// Archive listings are rare, so they always take the sharded path, with names resolved from the primary.
+		List<Review> reviews = mergeNewestFirst("SELECT r.id, r.movie_id, r.user_id, r.preview, r.rating, m.title, "
+				+ "r.modified_at, r.modified_at AS sort_time FROM reviews_archive r JOIN movies m ON r.movie_id = m.id "
+				+ "ORDER BY r.modified_at DESC", ShardQuery.NO_PARAMETERS, null);
+		ShardQuery.resolveReviewerNames(reviews);
+		return reviews;
+	}
+
+	@Override
+	public List<Review> findArchivedSharedWith(int userId) throws SQLException {
+		List<Review> reviews = mergeNewestFirst("SELECT r.id, r.movie_id, r.user_id, r.preview, r.rating, m.title, "
+				+ "r.modified_at, s.share_date AS sort_time FROM reviews_archive r JOIN movies m ON r.movie_id = m.id "
+				+ "JOIN shares_archive s ON r.id = s.review_id WHERE s.user_id = ? ORDER BY s.share_date DESC",
+				stmt -> stmt.setInt(1, userId), Review::setSharedAt);
+		ShardQuery.resolveReviewerNames(reviews);
+		return reviews;
+	}
+
+	@Override
+	public RatingTotals findArchivedRatings(int movieId) throws SQLException {
+		// Answered from the (movie_id, rating) index.
+		if (DatabaseConnection.isSharded()) {
+			return sumShardRatings("reviews_archive", "", movieId);
+		}
+		String sql = "SELECT COUNT(*) AS ratings, COALESCE(SUM(r.rating), 0) AS rating_sum FROM reviews_archive r "
+				+ "JOIN users u ON r.user_id = u.id WHERE r.movie_id = ? AND u.deleted_at IS NULL";
+		try (Connection conn = DatabaseConnection.getShardReadConnection(DatabaseConnection.shardFor(movieId));
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setInt(1, movieId);
+			try (ResultSet rs = stmt.executeQuery()) {
+				rs.next();
+				return new RatingTotals(rs.getInt("ratings"), rs.getLong("rating_sum"));
+			}
+		}
+	}
+
+	// Counts and sums a movie's ratings in a table of its shard, leaving out users marked deleted.
+	// Shards hold no users, so those are read from the primary first and excluded by ID; there are
+	// only as many as are being purged at the moment.
+	private static RatingTotals sumShardRatings(String table, String condition, int movieId) throws SQLException {
+		List<Integer> deletedUsers = findDeletedUsers();
+		String sql = "SELECT COUNT(*) AS ratings, COALESCE(SUM(rating), 0) AS rating_sum FROM " + table
+				+ " WHERE movie_id = ?" + condition + " " + notInUsers("user_id", deletedUsers);
+		try (Connection conn = DatabaseConnection.getShardReadConnection(DatabaseConnection.shardFor(movieId));
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setInt(1, movieId);
+			for (int i = 0; i < deletedUsers.size(); i++) {
+				stmt.setInt(i + 2, deletedUsers.get(i));
+			}
+			try (ResultSet rs = stmt.executeQuery()) {
+				rs.next();
+				return new RatingTotals(rs.getInt("ratings"), rs.getLong("rating_sum"));
+			}
+		}
+	}
+
+	// Returns the IDs of users marked deleted, read from the primary's users table (shards hold no
+	// users), so shard queries can exclude their rows.
+	private static List<Integer> findDeletedUsers() throws SQLException {
+		List<Integer> deletedUsers = new ArrayList<>();
+		try (Connection conn = DatabaseConnection.getReadConnection();
+				PreparedStatement stmt = conn.prepareStatement("SELECT id FROM users WHERE deleted_at IS NOT NULL");
+				ResultSet rs = stmt.executeQuery()) {
+			while (rs.next()) {
+				deletedUsers.add(rs.getInt("id"));
+			}
+		}
+		return deletedUsers;
+	}
+
+	// Returns a condition excluding the given user IDs from the column (placeholders to bind in
+	// order), followed by a space, or an empty string for no IDs.
+	private static String notInUsers(String column, List<Integer> userIds) {
+		return userIds.isEmpty() ? "" : "AND " + column + " NOT IN (" + placeholders(userIds.size()) + ") ";
+	}
+
+	// Runs a listing on every shard and merges the rows newest sort_time first.
+	// When sort_time is not modified_at (share or deletion date), sortTime keeps it on the review;
+	// otherwise it is null.
+	private List<Review> mergeNewestFirst(String sql, ShardQuery.Binder binder, BiConsumer<Review, Timestamp> sortTime)
+			throws SQLException {
+		List<Review> reviews = new ArrayList<>();
+		ShardQuery.mergeOrdered(sql, binder, rs -> -rs.getTimestamp("sort_time").getTime(), rs -> {
+			Review review = toListedReview(rs);
+			review.setMovieTitle(rs.getString("title"));
+			if (sortTime != null) {
+				sortTime.accept(review, rs.getTimestamp("sort_time"));
+			}
+			reviews.add(review);
+		});
+		return reviews;
+	}
+
+	// Binds a feed query's movie, cursor, excluded user IDs and limit and adds its rows to reviews, with
+	// reviewer names if named (the query then reads first_name and last_name).
+	private static void readFeed(PreparedStatement stmt, int movieId, FeedCursor after, List<Integer> excludedUsers,
+			int limit, boolean named, List<Review> reviews) throws SQLException {
+		int index = 1;
+		stmt.setInt(index++, movieId);
+		if (after != null) {
+			stmt.setDouble(index++, after.getScore());
+			stmt.setDouble(index++, after.getScore());
+			stmt.setInt(index++, after.getReviewId());
+		}
+		for (int userId : excludedUsers) {
+			stmt.setInt(index++, userId);
+		}
+		stmt.setInt(index, limit);
+		try (ResultSet rs = stmt.executeQuery()) {
+			while (rs.next()) {
+				Review review = toListedReview(rs);
+				review.setFeedScore(rs.getDouble("feed_score"));
+				if (named) {
+					review.setReviewerName(rs.getString("first_name") + " " + rs.getString("last_name"));
+				}
+				reviews.add(review);
+			}
+		}
+	}
+
+	// Creates a Review from the stored columns of the current row; compressed text stays compressed
+	// until ReviewText.inflate.
+	private static Review toReview(ResultSet rs) throws SQLException {
+		Review review = new Review(rs.getInt("id"), rs.getInt("movie_id"), rs.getInt("user_id"), rs.getString("review"),
+				rs.getInt("rating"), rs.getTimestamp("modified_at"));
+		review.setCompressedText(rs.getBytes("review_deflated"));
+		return review;
+	}
+
+	// Creates a Review with only the preview of its text from the current row of a listing.
+	private static Review toListedReview(ResultSet rs) throws SQLException {
+		Review review = new Review(rs.getInt("id"), rs.getInt("movie_id"), rs.getInt("user_id"), null,
+				rs.getInt("rating"), rs.getTimestamp("modified_at"));
+		review.setPreview(rs.getString("preview"));
+		return review;
+	}
+
+	// Maps an update count to OK, or to the given outcome when no row was written.
+	private static Outcome outcome(int rows, Outcome otherwise) {
+		return rows == 0 ? otherwise : Outcome.OK;
+	}
+
+	// Returns a mutation's outcome; successful writes pin this session's reads to the primary
+	// (read-your-writes). Called on the caller's thread, as the mutation may run on a writer thread.
+	private static Outcome written(Outcome outcome) {
+		if (outcome == Outcome.OK) {
+			DatabaseConnection.markWrite();
+		}
+		return outcome;
+	}
+
+	// Moves an archived review and its shares back to the hot tables, so that the caller's write
+	// finds it there; does nothing if the review is not archived. The move is one transaction: the
+	// caller's batch transaction if there is one, otherwise its own.
+	private static void unarchive(Connection conn, int reviewId) throws SQLException {
+		unarchive(conn, List.of(reviewId));
+	}
+
+	// Moves the archived reviews among the IDs back to the hot tables, as unarchive does for one.
+	private static void unarchive(Connection conn, List<Integer> reviewIds) throws SQLException {
+		boolean autoCommit = conn.getAutoCommit();
+		if (autoCommit) {
+			conn.setAutoCommit(false);
+		}
+		try {
+			String in = " IN (" + placeholders(reviewIds.size()) + ")";
+			int rows;
+			try (PreparedStatement stmt = conn.prepareStatement(
+					"INSERT INTO reviews (" + STORED_COLUMNS + ") SELECT " + STORED_COLUMNS + " FROM reviews_archive "
+							+ "WHERE id" + in)) {
+				for (int i = 0; i < reviewIds.size(); i++) {
+					stmt.setInt(i + 1, reviewIds.get(i));
+				}
+				rows = stmt.executeUpdate();
+			}
+			if (rows > 0) {
+				String[] steps = {
+						"INSERT INTO shares (review_id, user_id, share_date) "
+								+ "SELECT review_id, user_id, share_date FROM shares_archive WHERE review_id" + in,
+						// Archived shares cascade.
+						"DELETE FROM reviews_archive WHERE id" + in };
+				for (String sql : steps) {
+					try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+						for (int i = 0; i < reviewIds.size(); i++) {
+							stmt.setInt(i + 1, reviewIds.get(i));
+						}
+						stmt.executeUpdate();
+					}
+				}
+			}
+			if (autoCommit) {
+				conn.commit();
+			}
+		} catch (SQLException | RuntimeException e) {
+			if (autoCommit) {
+				conn.rollback();
+			}
+			throw e;
+		} finally {
+			if (autoCommit) {
+				conn.setAutoCommit(true);
+			}
+		}
+	}
+
+	// Indexes the band keys of a review written on this connection (none if null); a null review ID
+	// stands for the review just inserted with an AUTO_INCREMENT ID.
+	private static void insertFingerprint(Connection conn, Integer reviewId, int[] bandKeys) throws SQLException {
+		if (bandKeys == null || bandKeys.length == 0) {
+			return;
+		}
+		StringBuilder sql = new StringBuilder("INSERT INTO review_fingerprints (review_id, band_key) VALUES ");
+		for (int i = 0; i < bandKeys.length; i++) {
+			sql.append(i == 0 ? "(COALESCE(?, LAST_INSERT_ID()), ?)" : ", (COALESCE(?, LAST_INSERT_ID()), ?)");
+		}
+		try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+			for (int i = 0; i < bandKeys.length; i++) {
+				if (reviewId != null) {
+					stmt.setInt(2 * i + 1, reviewId);
+				} else {
+					stmt.setNull(2 * i + 1, Types.INTEGER);
+				}
+				stmt.setInt(2 * i + 2, bandKeys[i]);
+			}
+			stmt.executeUpdate();
+		}
+	}
+
+	// Inserts (review ID, band key) rows into review_fingerprints with multi-row inserts.
+	private static void insertFingerprintRows(Connection conn, List<int[]> rows) throws SQLException {
+		for (int from = 0; from < rows.size(); from += SHARE_BATCH_ROWS) {
+			List<int[]> batch = rows.subList(from, Math.min(rows.size(), from + SHARE_BATCH_ROWS));
+			StringBuilder sql = new StringBuilder("INSERT INTO review_fingerprints (review_id, band_key) VALUES ");
+			for (int i = 0; i < batch.size(); i++) {
+				sql.append(i == 0 ? "(?, ?)" : ", (?, ?)");
+			}
+			try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+				for (int i = 0; i < batch.size(); i++) {
+					stmt.setInt(2 * i + 1, batch.get(i)[0]);
+					stmt.setInt(2 * i + 2, batch.get(i)[1]);
+				}
+				stmt.executeUpdate();
+			}
+		}
+	}
+
+	// Sets a statement parameter to an integer, or to NULL if it is null.
+	private static void setNullableInt(PreparedStatement stmt, int index, Integer value) throws SQLException {
+		if (value != null) {
+			stmt.setInt(index, value);
+		} else {
+			stmt.setNull(index, Types.INTEGER);
+		}
+	}
+
+	// Returns "?, ?, ..." with the given number of placeholders.
+	private static String placeholders(int count) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			sb.append(i == 0 ? "?" : ", ?");
+		}
+		return sb.toString();
+	}
+
+	// Helper method to check if a movie exists in the database.
+	// Returns true if the movie ID is found, false otherwise.
+	private boolean movieExists(Connection conn, int movieId) throws SQLException {
+		try (PreparedStatement stmt = conn.prepareStatement("SELECT id FROM movies WHERE id = ?")) {
+			stmt.setInt(1, movieId);
+			try (ResultSet rs = stmt.executeQuery()) {
+				return rs.next();
+			}
+		}
+	}
+
+	// Helper method to check if a user has already reviewed a movie, in the hot or archived reviews.
+	// Returns true if a review exists, false otherwise.
+	private boolean userHasReviewed(Connection conn, int userId, int movieId) throws SQLException {
+		try (PreparedStatement stmt = conn.prepareStatement("SELECT id FROM reviews WHERE user_id = ? AND movie_id = ? "
+				+ "UNION ALL SELECT id FROM reviews_archive WHERE user_id = ? AND movie_id = ?")) {
+			stmt.setInt(1, userId);
+			stmt.setInt(2, movieId);
+			stmt.setInt(3, userId);
+			stmt.setInt(4, movieId);
+			try (ResultSet rs = stmt.executeQuery()) {
+				return rs.next();
+			}
+		}
+	}
+}
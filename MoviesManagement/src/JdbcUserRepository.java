@@ -0,0 +1,394 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// UserRepository backed by the users table in MySQL.
+// Users marked deleted (deleted_at set) stay in the table until their reviews and shares are
+// purged; lookups and updates skip them, while email uniqueness checks still count them.
+// Lookups of an email no user has are answered from an in-memory filter (see EmailFilter).
+// Follows live in the follows table on the primary, next to users.
+public class JdbcUserRepository implements UserRepository {
+	// Emails looked up per statement by findIdsByEmails.
+	private static final int EMAIL_BATCH_SIZE = 1000;
+	// Emails known to the users table, so lookups of unknown ones skip the database.
+	private final EmailFilter emails = new EmailFilter();
+
+	// Creates the repository and starts building its email filter in the background.
+	public JdbcUserRepository() {
+		emails.start();
+	}
+
+	@Override
+	public boolean insert(String firstName, String lastName, String email, String mobile, LocalDate birthDate,
+			String password, String accountType) throws SQLException {
+		// SQL query to insert new user into the users table.
+		String sql = "INSERT INTO users (first_name, last_name, email, mobile, birth_date, password, account_type) VALUES (?, ?, ?, ?, ?, ?, ?)";
+		try (Connection conn = DatabaseConnection.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setString(1, firstName);
+			stmt.setString(2, lastName);
+			stmt.setString(3, email);
+			stmt.setString(4, mobile);
+			stmt.setDate(5, java.sql.Date.valueOf(birthDate));
+			stmt.setString(6, password); // Store password in plain text (insecure).
+			stmt.setString(7, accountType);
+			return markWriteIf(stmt.executeUpdate() > 0) && added(email);
+		} catch (SQLIntegrityConstraintViolationException e) {
+			// The email was taken meanwhile, e.g. by a registration on another instance that the
+			// email filter had not caught up with yet.
+			return false;
+		}
+	}
+
+	@Override
+	public Credentials findCredentials(String email) throws SQLException {
+		if (!emails.mightExist(email)) {
+			return null;
+		}
+		// Logins read the primary so a just-registered account can sign in at once.
+		String sql = "SELECT id, first_name, last_name, email, mobile, birth_date, password, account_type FROM users "
+				+ "WHERE email = ? AND deleted_at IS NULL";
+		try (Connection conn = DatabaseConnection.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setString(1, email);
+			try (ResultSet rs = stmt.executeQuery()) {
+				return rs.next() ? new Credentials(toUser(rs), rs.getString("password")) : null;
+			}
+		}
+	}
+
+	@Override
+	public int findIdByEmail(String email) throws SQLException {
+		if (!emails.mightExist(email)) {
+			return -1;
+		}
+		String sql = "SELECT id FROM users WHERE email = ? AND deleted_at IS NULL";
+		try (Connection conn = DatabaseConnection.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setString(1, email);
+			try (ResultSet rs = stmt.executeQuery()) {
+				return rs.next() ? rs.getInt("id") : -1;
+			}
+		}
+	}
+
+	@Override
+	public Map<String, Integer> findIdsByEmails(Collection<String> emails) throws SQLException {
+		// Emails the filter rules out are not sent; the rest are looked up a batch per statement.
+		List<String> candidates = new ArrayList<>();
+		for (String email : emails) {
+			if (this.emails.mightExist(email)) {
+				candidates.add(email);
+			}
+		}
+		Map<String, Integer> ids = new HashMap<>();
+		try (Connection conn = DatabaseConnection.getConnection()) {
+			for (int from = 0; from < candidates.size(); from += EMAIL_BATCH_SIZE) {
+				List<String> batch = candidates.subList(from, Math.min(candidates.size(), from + EMAIL_BATCH_SIZE));
+				String sql = "SELECT id, email FROM users WHERE deleted_at IS NULL AND email IN ("
+						+ placeholders(batch.size()) + ")";
+				try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+					for (int i = 0; i < batch.size(); i++) {
+						stmt.setString(i + 1, batch.get(i));
+					}
+					try (ResultSet rs = stmt.executeQuery()) {
+						while (rs.next()) {
+							ids.put(rs.getString("email").toLowerCase(), rs.getInt("id"));
+						}
+					}
+				}
+			}
+		}
+		return ids;
+	}
+
+	@Override
+	public boolean emailExists(String email) throws SQLException {
+		// Most registrations use new emails, which the filter rules out without a query.
+		if (!emails.mightExist(email)) {
+			return false;
+		}
+		// Includes users being deleted: their row still holds the unique email.
+		try (Connection conn = DatabaseConnection.getConnection();
+				PreparedStatement stmt = conn.prepareStatement("SELECT id FROM users WHERE email = ?")) {
+			stmt.setString(1, email);
+			try (ResultSet rs = stmt.executeQuery()) {
+				return rs.next();
+			}
+		}
+	}
+
+	@Override
+	public boolean emailInUse(String email, int excludingUserId) throws SQLException {
+		if (!emails.mightExist(email)) {
+			return false;
+		}
+		String sql = "SELECT email FROM users WHERE email = ? AND id != ?";
+		try (Connection conn = DatabaseConnection.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setString(1, email);
+			stmt.setInt(2, excludingUserId);
+			try (ResultSet rs = stmt.executeQuery()) {
+				return rs.next();
+			}
+		}
+	}
+
+	@Override
+	public String findAccountType(int userId) throws SQLException {
+		String sql = "SELECT account_type FROM users WHERE id = ? AND deleted_at IS NULL";
+		try (Connection conn = DatabaseConnection.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setInt(1, userId);
+			try (ResultSet rs = stmt.executeQuery()) {
+				return rs.next() ? rs.getString("account_type") : null;
+			}
+		}
+	}
+
+	@Override
+	public List<User> findAll() throws SQLException {
+		List<User> users = new ArrayList<>();
+		try (Connection conn = DatabaseConnection.getReadConnection();
+				PreparedStatement stmt = conn.prepareStatement(
+						"SELECT id, first_name, last_name, email, mobile, birth_date, account_type FROM users "
+								+ "WHERE deleted_at IS NULL");
+				ResultSet rs = stmt.executeQuery()) {
+			while (rs.next()) {
+				users.add(toUser(rs));
+			}
+		}
+		return users;
+	}
+
+	@Override
+	public List<User> findPage(int afterId, int limit) throws SQLException {
+		List<User> users = new ArrayList<>();
+		try (Connection conn = DatabaseConnection.getReadConnection();
+				PreparedStatement stmt = conn.prepareStatement(
+						"SELECT id, first_name, last_name, email, mobile, birth_date, account_type FROM users "
+								+ "WHERE id > ? AND deleted_at IS NULL ORDER BY id LIMIT ?")) {
+			stmt.setInt(1, afterId);
+			stmt.setInt(2, limit);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					users.add(toUser(rs));
+				}
+			}
+		}
+		return users;
+	}
+
+	@Override
+	public boolean updateProfile(int userId, String firstName, String lastName, String email, String mobile,
+			LocalDate birthDate) throws SQLException {
+		String sql = "UPDATE users SET first_name = ?, last_name = ?, email = ?, mobile = ?, birth_date = ? "
+				+ "WHERE id = ? AND deleted_at IS NULL";
+		try (Connection conn = DatabaseConnection.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setString(1, firstName);
+			stmt.setString(2, lastName);
+			stmt.setString(3, email);
+			stmt.setString(4, mobile);
+			stmt.setDate(5, java.sql.Date.valueOf(birthDate));
+			stmt.setInt(6, userId);
+			return markWriteIf(stmt.executeUpdate() > 0) && added(email);
+		}
+	}
+
+	@Override
+	public boolean updatePassword(int userId, String password) throws SQLException {
+		String sql = "UPDATE users SET password = ? WHERE id = ? AND deleted_at IS NULL";
+		try (Connection conn = DatabaseConnection.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setString(1, password); // Store password in plain text (insecure).
+			stmt.setInt(2, userId);
+			return markWriteIf(stmt.executeUpdate() > 0);
+		}
+	}
+
+	@Override
+	public boolean delete(int userId) throws SQLException {
+		// Shards have no users table to cascade from, so remove the user's reviews and
+		// shares there first; if this fails the user remains and the deletion can be retried.
+		if (DatabaseConnection.isSharded()) {
+			deleteShardedActivity(userId);
+		}
+		try (Connection conn = DatabaseConnection.getConnection();
+				PreparedStatement stmt = conn.prepareStatement("DELETE FROM users WHERE id = ?")) {
+			stmt.setInt(1, userId);
+			// Deletion cascades to related tables (e.g., reviews, shares).
+			if (!markWriteIf(stmt.executeUpdate() > 0)) {
+				return false;
+			}
+			emails.removed();
+			return true;
+		}
+	}
+
+	@Override
+	public boolean markDeleted(int userId) throws SQLException {
+		String sql = "UPDATE users SET deleted_at = CURRENT_TIMESTAMP WHERE id = ? AND deleted_at IS NULL";
+		try (Connection conn = DatabaseConnection.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setInt(1, userId);
+			return markWriteIf(stmt.executeUpdate() > 0);
+		}
+	}
+
+	@Override
+	public int purgeActivity(int userId, int maxRows) throws SQLException {
+		// Each statement is its own autocommit transaction, so no lock is held for long. Shares the
+		// user received go first, then the shares and fingerprints of their reviews, so deleting a
+		// review cascades to nothing; the user_id indexes keep each probe cheap once a step is done.
+		// The archive tables are purged the same way after the hot ones.
+		String[] steps = {
+				"DELETE FROM shares WHERE user_id = ? LIMIT ?",
+				"DELETE FROM shares WHERE review_id IN (SELECT id FROM reviews WHERE user_id = ?) LIMIT ?",
+				"DELETE FROM review_fingerprints WHERE review_id IN (SELECT id FROM reviews WHERE user_id = ?) LIMIT ?",
+				"DELETE FROM reviews WHERE user_id = ? LIMIT ?",
+				"DELETE FROM shares_archive WHERE user_id = ? LIMIT ?",
+				"DELETE FROM shares_archive WHERE review_id IN (SELECT id FROM reviews_archive WHERE user_id = ?) LIMIT ?",
+				"DELETE FROM reviews_archive WHERE user_id = ? LIMIT ?" };
+		for (int shard = 0; shard < DatabaseConnection.shardCount(); shard++) {
+			try (Connection conn = DatabaseConnection.getShardConnection(shard)) {
+				for (String sql : steps) {
+					try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+						stmt.setInt(1, userId);
+						stmt.setInt(2, maxRows);
+						int rows = stmt.executeUpdate();
+						if (rows > 0) {
+							DatabaseConnection.markWrite();
+							return rows;
+						}
+					}
+				}
+			}
+		}
+		return 0;
+	}
+
+	@Override
+	public List<Integer> findPendingDeletions() throws SQLException {
+		List<Integer> userIds = new ArrayList<>();
+		try (Connection conn = DatabaseConnection.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(
+						"SELECT id FROM users WHERE deleted_at IS NOT NULL ORDER BY deleted_at, id");
+				ResultSet rs = stmt.executeQuery()) {
+			while (rs.next()) {
+				userIds.add(rs.getInt("id"));
+			}
+		}
+		return userIds;
+	}
+
+	@Override
+	public boolean follow(int followerId, int followeeId) throws SQLException {
+		try (Connection conn = DatabaseConnection.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(
+						"INSERT INTO follows (follower_id, followee_id) VALUES (?, ?)")) {
+			stmt.setInt(1, followerId);
+			stmt.setInt(2, followeeId);
+			return markWriteIf(stmt.executeUpdate() > 0);
+		} catch (SQLIntegrityConstraintViolationException e) {
+			// Already followed (the primary key), or a user was deleted meanwhile (the foreign keys).
+			return false;
+		}
+	}
+
+	@Override
+	public boolean unfollow(int followerId, int followeeId) throws SQLException {
+		try (Connection conn = DatabaseConnection.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(
+						"DELETE FROM follows WHERE follower_id = ? AND followee_id = ?")) {
+			stmt.setInt(1, followerId);
+			stmt.setInt(2, followeeId);
+			return markWriteIf(stmt.executeUpdate() > 0);
+		}
+	}
+
+	@Override
+	public List<Integer> findFollowerIds(int userId, int limit) throws SQLException {
+		// Read from the primary key's (followee_id, follower_id) order; followers being deleted are skipped.
+		String sql = "SELECT f.follower_id FROM follows f JOIN users u ON f.follower_id = u.id "
+				+ "WHERE f.followee_id = ? AND u.deleted_at IS NULL ORDER BY f.follower_id LIMIT ?";
+		List<Integer> followerIds = new ArrayList<>();
+		try (Connection conn = DatabaseConnection.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+			stmt.setInt(1, userId);
+			stmt.setInt(2, limit);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					followerIds.add(rs.getInt("follower_id"));
+				}
+			}
+		}
+		return followerIds;
+	}
+
+	// Deletes a user's reviews (with the shares of those reviews) and the shares they received on every
+	// shard, in the hot and archive tables.
+	private void deleteShardedActivity(int userId) throws SQLException {
+		// Shares and fingerprints of the deleted reviews cascade within the shard.
+		String[] steps = {
+				"DELETE FROM shares WHERE user_id = ?",
+				"DELETE FROM reviews WHERE user_id = ?",
+				"DELETE FROM shares_archive WHERE user_id = ?",
+				"DELETE FROM reviews_archive WHERE user_id = ?" };
+		for (int shard = 0; shard < DatabaseConnection.shardCount(); shard++) {
+			try (Connection conn = DatabaseConnection.getShardConnection(shard)) {
+				for (String sql : steps) {
+					try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+						stmt.setInt(1, userId);
+						stmt.executeUpdate();
+					}
+				}
+			}
+		}
+	}
+
+	// Creates a User from the current row.
+	private static User toUser(ResultSet rs) throws SQLException {
+		return new User(
+				rs.getInt("id"),
+				rs.getString("first_name"),
+				rs.getString("last_name"),
+				rs.getString("email"),
+				rs.getString("mobile"),
+				rs.getDate("birth_date").toString(),
+				rs.getString("account_type"));
+	}
+
+	// Records an email just stored in the filter; returns true to pass a successful write through.
+	private boolean added(String email) {
+		emails.add(email.toLowerCase());
+		return true;
+	}
+
+	// Returns "?, ?, ..." with the given number of placeholders.
+	private static String placeholders(int count) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			sb.append(i == 0 ? "?" : ", ?");
+		}
+		return sb.toString();
+	}
+
+	// Pins this session's reads to the primary after a successful write (read-your-writes).
+	// Returns the given result unchanged.
+	private static boolean markWriteIf(boolean written) {
+		if (written) {
+			DatabaseConnection.markWrite();
+		}
+		return written;
+	}
+}
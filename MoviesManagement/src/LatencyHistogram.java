@@ -0,0 +1,118 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Lock-free latency histogram with log-linear buckets (in the style of HdrHistogram).
+// Values are grouped by power of two and split into 32 linear sub-buckets, so any
+// recorded value is reported within about 3% of its true value.
+public class LatencyHistogram {
+	// Number of linear sub-buckets per power of two (must be a power of two).
+	private static final int SUB_BUCKETS = 32;
+	private static final int SUB_BITS = 5;
+	// Highest power of two tracked; larger values are clamped (2^42 ns is over an hour).
+	private static final int MAX_EXPONENT = 42;
+	private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+	private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS;
+
+	// Per-bucket counts, updated with atomic increments only.
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	// Striped totals so concurrent recorders do not contend on one cache line.
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+	// Records one value (typically a duration in nanoseconds).
+	public void record(long value) {
+		long clamped = value < 0 ? 0 : Math.min(value, MAX_VALUE);
+		counts.incrementAndGet(bucketIndex(clamped));
+		count.increment();
+		sum.add(clamped);
+		max.accumulate(clamped);
+	}
+
+	// Returns the number of recorded values.
+	public long getCount() {
+		return count.sum();
+	}
+
+	// Returns the sum of all recorded values.
+	public long getSum() {
+		return sum.sum();
+	}
+
+	// Returns the largest recorded value.
+	public long getMax() {
+		return max.get();
+	}
+
+	// Returns the mean of recorded values, or 0 if nothing was recorded.
+	public double getMean() {
+		long n = count.sum();
+		return n == 0 ? 0 : (double) sum.sum() / n;
+	}
+
+	// Returns the value at the given percentile (0-100), or 0 if nothing was recorded.
+	// The result is the upper bound of the bucket holding that percentile.
+	public long getPercentile(double percentile) {
+		long total = 0;
+		long[] snapshot = new long[BUCKET_COUNT];
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			snapshot[i] = counts.get(i);
+			total += snapshot[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += snapshot[i];
+			if (seen >= target) {
+				return Math.min(bucketUpperBound(i), max.get());
+			}
+		}
+		return max.get();
+	}
+
+	// Returns the number of recorded values less than or equal to the given bound.
+	// Values sharing a bucket with the bound are counted, matching getPercentile precision.
+	public long countAtOrBelow(long bound) {
+		int last = bucketIndex(Math.max(0, Math.min(bound, MAX_VALUE)));
+		long total = 0;
+		for (int i = 0; i <= last; i++) {
+			total += counts.get(i);
+		}
+		return total;
+	}
+
+	// Clears all recorded values.
+	public void reset() {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts.set(i, 0);
+		}
+		count.reset();
+		sum.reset();
+		max.reset();
+	}
+
+	// Maps a value to its bucket: exact below SUB_BUCKETS * 2, log-linear above.
+	private static int bucketIndex(long value) {
+		if (value < SUB_BUCKETS * 2) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int shift = exponent - SUB_BITS;
+		return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+	}
+
+	// Returns the largest value that maps to the given bucket.
+	private static long bucketUpperBound(int index) {
+		if (index < SUB_BUCKETS * 2) {
+			return index;
+		}
+		int shift = index / SUB_BUCKETS - 1;
+		long lower = (long) (index % SUB_BUCKETS + SUB_BUCKETS) << shift;
+		return lower + (1L << shift) - 1;
+	}
+}
@@ -0,0 +1,79 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Rate limits login attempts by key (an email or a source) with one token bucket per key.
+// A bucket holds up to burst tokens and refills at perMinute tokens a minute; every attempt takes
+// one. Each bucket is a single AtomicLong holding the time at which it will be full again
+// (the generic cell rate algorithm), updated with compare-and-set, so attempts never lock.
+// Buckets live in a table bounded to maxKeys: once it is larger, full buckets are dropped (a new
+// bucket starts full, so nothing is lost), and if that is not enough, arbitrary others go too.
+public class LoginThrottle {
+	// Nanoseconds to earn one token, and how far the full time may lie ahead (burst tokens' worth).
+	private final long intervalNanos;
+	private final long burstNanos;
+	private final int maxKeys;
+	// Time each key's bucket is full again, by key.
+	private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+	// Set while one thread trims the table, so the others do not pile on.
+	private final AtomicBoolean trimming = new AtomicBoolean();
+	// Counts buckets dropped before they were full, when even trimming could not keep to maxKeys.
+	private final Metrics.Counter evictions;
+
+	// Creates a throttle allowing burst attempts at once and perMinute a minute per key, for at
+	// most maxKeys keys. name labels its eviction metric.
+	public LoginThrottle(String name, int perMinute, int burst, int maxKeys) {
+		this.intervalNanos = TimeUnit.MINUTES.toNanos(1) / Math.max(1, perMinute);
+		this.burstNanos = intervalNanos * Math.max(1, burst);
+		this.maxKeys = Math.max(1, maxKeys);
+		this.evictions = Metrics.counter("auth_login_throttle_evictions_total",
+				"Login rate limit buckets dropped before they refilled, because too many keys were tracked.",
+				"scope", name);
+	}
+
+	// Takes a token for the key. Returns 0 if the attempt may go ahead, otherwise the nanoseconds
+	// until the next token.
+	public long acquire(String key) {
+		long now = System.nanoTime();
+		AtomicLong bucket = buckets.get(key);
+		if (bucket == null) {
+			bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+			if (buckets.size() > maxKeys) {
+				trim(now);
+			}
+		}
+		while (true) {
+			long full = bucket.get();
+			long next = Math.max(full, now) + intervalNanos;
+			if (next - now > burstNanos) {
+				return next - now - burstNanos;
+			}
+			if (bucket.compareAndSet(full, next)) {
+				return 0;
+			}
+		}
+	}
+
+	// Drops full buckets and, if still over maxKeys, as many others as needed.
+	private void trim(long now) {
+		if (!trimming.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+			// An attacker cycling through keys can keep every bucket busy; bounding memory wins.
+			Iterator<AtomicLong> it = buckets.values().iterator();
+			while (buckets.size() > maxKeys * 3L / 4 && it.hasNext()) {
+				it.next();
+				it.remove();
+				evictions.increment();
+			}
+		} finally {
+			trimming.set(false);
+		}
+	}
+}
@@ -0,0 +1,117 @@
+// Copyright (c) 2025. Created By Yash Somani
+
+// Open-addressing hash map from long keys to int values, used by the in-memory store for
+// composite keys such as (user ID, movie ID) packed into one long.
+public class LongIntMap {
+	// Marker stored in empty slots; packed keys of positive ids are never zero.
+	private static final long EMPTY = 0L;
+	// Value returned by get when a key is missing.
+	public static final int MISSING = -1;
+
+	// Parallel arrays holding the keys and values of each slot.
+	private long[] keys;
+	private int[] values;
+	// Number of keys currently stored.
+	private int size;
+
+	// Creates a map sized to hold the expected number of keys without resizing.
+	public LongIntMap(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+		keys = new long[capacity];
+		values = new int[capacity];
+	}
+
+	// Returns the value stored for the key, or MISSING if the key is absent.
+	public int get(long key) {
+		int mask = keys.length - 1;
+		for (int slot = mix(key) & mask;; slot = (slot + 1) & mask) {
+			if (keys[slot] == key && key != EMPTY) {
+				return values[slot];
+			}
+			if (keys[slot] == EMPTY) {
+				return MISSING;
+			}
+		}
+	}
+
+	// Stores the value for the key, replacing any previous value.
+	public void put(long key, int value) {
+		if (key == EMPTY) {
+			throw new IllegalArgumentException("Key 0 is reserved.");
+		}
+		// Keep the load factor at or below one half so probe chains stay short.
+		if ((size + 1) * 2 > keys.length) {
+			rehash(keys.length * 2);
+		}
+		int mask = keys.length - 1;
+		for (int slot = mix(key) & mask;; slot = (slot + 1) & mask) {
+			if (keys[slot] == key) {
+				values[slot] = value;
+				return;
+			}
+			if (keys[slot] == EMPTY) {
+				keys[slot] = key;
+				values[slot] = value;
+				size++;
+				return;
+			}
+		}
+	}
+
+	// Removes the key and returns its value, or MISSING if the key was absent.
+	public int remove(long key) {
+		int mask = keys.length - 1;
+		for (int slot = mix(key) & mask;; slot = (slot + 1) & mask) {
+			if (keys[slot] == EMPTY) {
+				return MISSING;
+			}
+			if (keys[slot] == key) {
+				int value = values[slot];
+				deleteSlot(slot);
+				return value;
+			}
+		}
+	}
+
+	// Returns the number of keys stored in the map.
+	public int size() {
+		return size;
+	}
+
+	// Empties a slot, shifting later entries of the probe chain back so lookups still find them.
+	private void deleteSlot(int slot) {
+		int mask = keys.length - 1;
+		int hole = slot;
+		for (int next = (hole + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+			// An entry may fill the hole only if the hole lies between its home slot and where it sits.
+			int home = mix(keys[next]) & mask;
+			if (((next - home) & mask) >= ((next - hole) & mask)) {
+				keys[hole] = keys[next];
+				values[hole] = values[next];
+				hole = next;
+			}
+		}
+		keys[hole] = EMPTY;
+		size--;
+	}
+
+	// Moves every entry into freshly allocated arrays of the given capacity.
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new long[capacity];
+		values = new int[capacity];
+		size = 0;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY) {
+				put(oldKeys[i], oldValues[i]);
+			}
+		}
+	}
+
+	// Spreads keys across the table (Fibonacci hashing of both halves).
+	private static int mix(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
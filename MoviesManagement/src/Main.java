@@ -1,19 +1,36 @@
 
 // Copyright (c) 2025. Created By Yash Somani
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 // Main class that serves as the entry point for the movie review application
 public class Main {
 	// Instance variables for service classes, handling authentication, movies,
-	// reviews, and user input
-	private final AuthService authService = new AuthService(); // Manages user authentication and profiles
-	private final MovieService movieService = new MovieService(); // Manages movie-related operations
-	private final ReviewService reviewService = new ReviewService(); // Manages review-related operations
+	// reviews, and user input; services are created on first use or warmed up at startup (see Startup)
+	private final Startup.Lazy<AuthService> authService = new Startup.Lazy<>("auth_service", AuthService::new); // Manages user authentication and profiles
+	private final Startup.Lazy<MovieService> movieService = new Startup.Lazy<>("movie_service", MovieService::new); // Manages movie-related operations
+	private final Startup.Lazy<ReviewService> reviewService = new Startup.Lazy<>("review_service", ReviewService::new); // Manages review-related operations
+	private final Startup.Lazy<RecommendationService> recommendationService = new Startup.Lazy<>(
+			"recommendation_service", RecommendationService::new); // Suggests movies to users
+	private final Startup.Lazy<ReviewerSimilarityService> reviewerSimilarityService = new Startup.Lazy<>(
+			"reviewer_similarity_service", ReviewerSimilarityService::new); // Suggests share recipients
 	private final InputHandler inputHandler = new InputHandler(); // Handles user input validation and collection
 
 	// Main method to start the application
+	// With arguments, runs them as a non-interactive batch command instead (see BatchTool)
 	public static void main(String[] args) {
+		if (args.length > 0) {
+			BatchTool.main(args);
+			return;
+		}
+		// Serve Prometheus metrics locally when a port is configured (e.g. -Dmoviereviews.metricsPort=9404)
+		Integer metricsPort = Integer.getInteger("moviereviews.metricsPort");
+		if (metricsPort != null && Metrics.startHttpEndpoint(metricsPort)) {
+			System.out.println("Metrics available at http://127.0.0.1:" + metricsPort + "/metrics");
+		}
 		Main app = new Main(); // Create an instance of the Main class
+		app.warmUp(); // Create the services in the background, or before the first menu with pre-warming
 		try {
 			app.run(); // Start the application loop
 		} finally {
@@ -21,11 +38,28 @@ public class Main {
 		}
 	}
 
+	// Starts creating the services on background threads, then starts their background work: the
+	// purge of users deleted before a restart and of deleted reviews past their undo window
+	// With -Dmoviereviews.startup.prewarm=true, also opens database connections and reads the movie
+	// catalog, and waits for all of it before the first menu is shown
+	private void warmUp() {
+		CompletableFuture<?> services = CompletableFuture.allOf(
+				authService.warm().thenAccept(AuthService::resumeUserDeletions), // Finish purging deleted users
+				reviewService.warm().thenAccept(ReviewService::startCompaction), // Purge expired deleted reviews
+				movieService.warm(), recommendationService.warm(), reviewerSimilarityService.warm());
+		if (Startup.isPrewarm()) {
+			Startup.time("prewarm", () -> CompletableFuture.allOf(services, Startup.prewarmStorage())
+					.exceptionally(e -> null).join());
+		}
+	}
+
 	// Core method that runs the application, displaying menus based on user state
 	private void run() {
+		Startup.ready(); // Record the time until the first menu
 		// Infinite loop to keep the application running until the user exits
 		while (true) {
-			User currentUser = authService.getCurrentUser(); // Get the currently logged-in user
+			// Get the currently logged-in user; nobody has signed in before the auth service exists
+			User currentUser = authService.isReady() ? authService.get().getCurrentUser() : null;
 			if (currentUser == null) {
 				showMainMenu(); // Show the main menu for unauthenticated users
 			} else if (currentUser.getAccountType().equals("Admin")) {
@@ -54,9 +88,18 @@ public class Main {
 		System.out.println("11. View Shared Reviews");
 		System.out.println("12. Share a Review");
 		System.out.println("13. View Movie Details");
-		System.out.println("14. Sign Out");
+		System.out.println("14. View Recommendations");
+		System.out.println("15. Rebuild Recommendations");
+		System.out.println("16. View Query Statistics");
+		System.out.println("17. View Service Metrics");
+		System.out.println("18. Undo Review Deletion");
+		System.out.println("19. View Archived Reviews");
+		System.out.println("20. View a Review");
+		System.out.println("21. Follow or Unfollow a User");
+		System.out.println("22. Bulk Moderate Reviews");
+		System.out.println("23. Sign Out");
 		// Get the user's menu choice, ensuring it is within the valid range
-		int choice = inputHandler.getIntInRange("Choose an option: ", 1, 14);
+		int choice = inputHandler.getIntInRange("Choose an option: ", 1, 23);
 
 		// Handle the user's choice using a switch statement
 		switch (choice) {
@@ -100,7 +143,34 @@ public class Main {
 				displayMovieDetails(); // Display details of a specific movie
 				break;
 			case 14:
-				authService.logout(); // Log out the admin user
+				displayRecommendations(); // Display movies recommended for the admin
+				break;
+			case 15:
+				rebuildRecommendations(); // Recompute the movie similarity table
+				break;
+			case 16:
+				showQueryStatistics(); // Display and export database statement timings
+				break;
+			case 17:
+				showServiceMetrics(); // Display and export operational metrics
+				break;
+			case 18:
+				restoreReview(); // Restore a recently deleted review (admin privilege)
+				break;
+			case 19:
+				displayAllArchivedReviews(); // Display reviews moved to the archive
+				break;
+			case 20:
+				displayReview(); // Display the full text of one review
+				break;
+			case 21:
+				toggleFollow(); // Follow or unfollow another user
+				break;
+			case 22:
+				moderateReviews(); // Delete the reviews matching criteria (admin privilege)
+				break;
+			case 23:
+				authService.get().logout(); // Log out the admin user
 				System.out.println("Signed out successfully.");
 				break;
 		}
@@ -117,9 +187,10 @@ public class Main {
 			System.out.println("3. Update Regular User");
 			System.out.println("4. Delete User");
 			System.out.println("5. List All Users");
-			System.out.println("6. Back to Admin Menu");
+			System.out.println("6. User Deletion Progress");
+			System.out.println("7. Back to Admin Menu");
 			// Get the user's menu choice, ensuring it is within the valid range
-			int choice = inputHandler.getIntInRange("Choose an option: ", 1, 6);
+			int choice = inputHandler.getIntInRange("Choose an option: ", 1, 7);
 
 			// Handle the user's choice using a switch statement
 			switch (choice) {
@@ -139,6 +210,9 @@ public class Main {
 					listAllUsers(); // List all users in the system
 					break;
 				case 6:
+					showDeletionProgress(); // Show background removal of deleted users' data
+					break;
+				case 7:
 					return; // Return to the admin menu
 			}
 		}
@@ -165,7 +239,7 @@ public class Main {
 		}
 
 		// Register the new admin user and display the result
-		if (authService.register(firstName, lastName, email, mobile, birthDate, password, "Admin")) {
+		if (authService.get().register(firstName, lastName, email, mobile, birthDate, password, "Admin")) {
 			System.out.println("Admin user created successfully.");
 		} else {
 			System.out.println("Failed to create Admin user. Please check your inputs.");
@@ -193,7 +267,7 @@ public class Main {
 		}
 
 		// Register the new regular user and display the result
-		if (authService.register(firstName, lastName, email, mobile, birthDate, password, "Regular")) {
+		if (authService.get().register(firstName, lastName, email, mobile, birthDate, password, "Regular")) {
 			System.out.println("Regular user created successfully.");
 		} else {
 			System.out.println("Failed to create Regular user. Please check your inputs.");
@@ -212,7 +286,7 @@ public class Main {
 		}
 
 		// Retrieve the list of all users and find the target regular user by email
-		List<User> users = authService.listAllUsers();
+		List<User> users = authService.get().listAllUsers();
 		User targetUser = users.stream()
 				.filter(u -> u.getEmail().equalsIgnoreCase(email) && u.getAccountType().equals("Regular"))
 				.findFirst()
@@ -241,7 +315,7 @@ public class Main {
 				return;
 			}
 			// Update the user's password
-			if (authService.changePassword(targetUser.getId(), resetPassword)) {
+			if (authService.get().changePassword(targetUser.getId(), resetPassword)) {
 				System.out.println("Password updated successfully.");
 			} else {
 				System.out.println("Failed to update password.");
@@ -250,7 +324,7 @@ public class Main {
 		}
 
 		// Update the user's profile and display the result
-		if (authService.updateProfile(targetUser.getId(), firstName, lastName, newEmail, mobile, birthDate)) {
+		if (authService.get().updateProfile(targetUser.getId(), firstName, lastName, newEmail, mobile, birthDate)) {
 			System.out.println("Regular user updated successfully.");
 		} else {
 			System.out.println("Failed to update Regular user. Please check your inputs.");
@@ -270,7 +344,7 @@ public class Main {
 		}
 
 		// Retrieve the list of all users and find the target user by email
-		List<User> users = authService.listAllUsers();
+		List<User> users = authService.get().listAllUsers();
 		User targetUser = users.stream()
 				.filter(u -> u.getEmail().equalsIgnoreCase(email))
 				.findFirst()
@@ -290,13 +364,27 @@ public class Main {
 		}
 
 		// Delete the user and display the result
-		if (authService.deleteUser(authService.getCurrentUser().getId(), targetUser.getId())) {
-			System.out.println("User deleted successfully.");
+		if (authService.get().deleteUser(authService.get().getCurrentUser().getId(), targetUser.getId())) {
+			System.out.println("User deleted successfully. Their reviews and shares are removed in the background.");
 		} else {
 			System.out.println("Failed to delete user.");
 		}
 	}
 
+	// Displays the progress of background user deletions
+	private void showDeletionProgress() {
+		System.out.println("\n=== User Deletion Progress ===");
+		List<UserPurger.Progress> progress = authService.get().getDeletionProgress();
+		if (progress.isEmpty()) {
+			System.out.println("No user deletions since startup.");
+			return;
+		}
+		for (UserPurger.Progress entry : progress) {
+			System.out.printf("User ID: %d, Status: %s, Rows Removed: %d%s%n", entry.getUserId(), entry.getStatus(),
+					entry.getRowsDeleted(), entry.getError() != null ? ", Error: " + entry.getError() : "");
+		}
+	}
+
 	// Lists all users in the system
 	private void listAllUsers() {
 		// Print instructions for listing users
@@ -308,7 +396,7 @@ public class Main {
 		}
 
 		// Retrieve and display the list of all users
-		List<User> users = authService.listAllUsers();
+		List<User> users = authService.get().listAllUsers();
 		System.out.println("\n--- All Users ---");
 		if (users.isEmpty()) {
 			System.out.println("No users found.");
@@ -325,7 +413,7 @@ public class Main {
 	private void deleteAnyReview() {
 		// Print instructions for deleting a review
 		System.out.println("\n=== Delete Any Review ===");
-		reviewService.displayAllReviews(); // Display all reviews for reference
+		reviewService.get().displayAllReviews(); // Display all reviews for reference
 		int reviewId = inputHandler.getInt("Enter Review ID to delete: ");
 		// Validate the review ID
 		if (reviewId <= 0) {
@@ -341,13 +429,70 @@ public class Main {
 		}
 
 		// Delete the review and display the result
-		if (reviewService.deleteReviewByAdmin(reviewId)) {
+		if (reviewService.get().deleteReviewByAdmin(reviewId)) {
 			System.out.println("Review deleted successfully.");
 		} else {
 			System.out.println("Failed to delete review. Please check the review ID.");
 		}
 	}
 
+	// Deletes every review matching the admin's criteria, after showing how many match (admin privilege)
+	private void moderateReviews() {
+		// Print instructions for bulk moderation
+		System.out.println("\n=== Bulk Moderate Reviews ===");
+		System.out.println("Leave a field blank (or enter 0 for the movie) to match any review.");
+		String email = inputHandler.getString("Author's email: ");
+		int movieId = inputHandler.getInt("Movie ID: ");
+		String fromDate = inputHandler.getString("Modified on or after (yyyy-MM-dd): ");
+		String toDate = inputHandler.getString("Modified on or before (yyyy-MM-dd): ");
+		String text = inputHandler.getString("Text contains: ");
+		boolean flagged = inputHandler.getString("Only reviews flagged as near-duplicates (Y/N): ")
+				.equalsIgnoreCase("Y");
+		ReviewRepository.ModerationCriteria criteria = reviewService.get().moderationCriteria(email, movieId, fromDate,
+				toDate, text, flagged);
+		if (criteria == null) {
+			return;
+		}
+
+		// Count the matches first (dry run), then confirm the deletion with the admin
+		int matched = reviewService.get().moderateReviews(criteria, true);
+		if (matched <= 0) {
+			System.out.println(matched == 0 ? "No reviews match." : "Failed to count the matching reviews.");
+			return;
+		}
+		String confirm = inputHandler.getString(matched + " reviews match. Delete them (Y/N): ");
+		if (!confirm.equalsIgnoreCase("Y")) {
+			System.out.println("Moderation cancelled.");
+			return;
+		}
+
+		// Delete the reviews and display the result
+		int deleted = reviewService.get().moderateReviews(criteria, false);
+		if (deleted >= 0) {
+			System.out.println(deleted + " reviews deleted. They can be restored for a while with Undo Review Deletion.");
+		}
+	}
+
+	// Restores a recently deleted review (admin privilege)
+	private void restoreReview() {
+		// Print instructions for restoring a review
+		System.out.println("\n=== Undo Review Deletion ===");
+		reviewService.get().displayDeletedReviews(); // Display the reviews that can still be restored
+		int reviewId = inputHandler.getInt("Enter Review ID to restore: ");
+		// Validate the review ID
+		if (reviewId <= 0) {
+			System.out.println("Invalid Review ID.");
+			return;
+		}
+
+		// Restore the review and display the result
+		if (reviewService.get().restoreReview(reviewId)) {
+			System.out.println("Review restored successfully.");
+		} else {
+			System.out.println("Failed to restore review.");
+		}
+	}
+
 	// Displays the main menu for unauthenticated users
 	private void showMainMenu() {
 		// Print the main menu options
@@ -368,6 +513,7 @@ public class Main {
 				break;
 			case 3:
 				System.out.println("Exiting...");
+				Repositories.shutdown(); // Close pooled database connections
 				System.exit(0); // Exit the application
 		}
 	}
@@ -392,7 +538,7 @@ public class Main {
 		}
 
 		// Register the new user and display the result
-		if (authService.register(firstName, lastName, email, mobile, birthDate, password, "Regular")) {
+		if (authService.get().register(firstName, lastName, email, mobile, birthDate, password, "Regular")) {
 			System.out.println("Registration successful!");
 		} else {
 			System.out.println("Registration failed. Please check your inputs.");
@@ -407,8 +553,9 @@ public class Main {
 		String password = inputHandler.getString("Password: ");
 
 		// Attempt to log in and display the result
-		if (authService.login(email, password)) {
-			System.out.println("Login successful! Welcome, " + authService.getCurrentUser().getFirstName());
+		if (authService.get().login(email, password)) {
+			System.out.println("Login successful! Welcome, " + authService.get().getCurrentUser().getFirstName());
+			reviewService.get().preloadUserReviews(authService.get().getCurrentUser().getId()); // Warm the review cache for the menu
 		}
 	}
 
@@ -426,9 +573,13 @@ public class Main {
 		System.out.println("8. View Shared Reviews");
 		System.out.println("9. Share a Review");
 		System.out.println("10. View Movie Details");
-		System.out.println("11. Sign Out");
+		System.out.println("11. View Recommendations");
+		System.out.println("12. View Archived Reviews");
+		System.out.println("13. View a Review");
+		System.out.println("14. Follow or Unfollow a User");
+		System.out.println("15. Sign Out");
 		// Get the user's menu choice, ensuring it is within the valid range
-		int choice = inputHandler.getIntInRange("Choose an option: ", 1, 11);
+		int choice = inputHandler.getIntInRange("Choose an option: ", 1, 15);
 
 		// Handle the user's choice using a switch statement
 		switch (choice) {
@@ -463,7 +614,19 @@ public class Main {
 				displayMovieDetails(); // Display details of a specific movie
 				break;
 			case 11:
-				authService.logout(); // Log out the user
+				displayRecommendations(); // Display movies recommended for the user
+				break;
+			case 12:
+				displayArchivedReviews(); // Display the user's archived and archived shared reviews
+				break;
+			case 13:
+				displayReview(); // Display the full text of one review
+				break;
+			case 14:
+				toggleFollow(); // Follow or unfollow another user
+				break;
+			case 15:
+				authService.get().logout(); // Log out the user
 				System.out.println("Signed out successfully.");
 				break;
 		}
@@ -471,7 +634,7 @@ public class Main {
 
 	// Edits the profile of the currently logged-in user
 	private void editProfile() {
-		User user = authService.getCurrentUser(); // Get the current user
+		User user = authService.get().getCurrentUser(); // Get the current user
 		if (user == null) {
 			System.out.println("No user is logged in.");
 			return;
@@ -488,7 +651,7 @@ public class Main {
 		String birthDate = inputHandler.getString("Birth Date (" + user.getBirthDate() + "): ");
 
 		// Update the profile and display the result
-		if (authService.updateProfile(user.getId(), firstName, lastName, email, mobile, birthDate)) {
+		if (authService.get().updateProfile(user.getId(), firstName, lastName, email, mobile, birthDate)) {
 			System.out.println("Profile updated successfully.");
 		} else {
 			System.out.println("Profile update failed. Please check your inputs.");
@@ -508,7 +671,7 @@ public class Main {
 		}
 
 		// Change the password and display the result
-		if (authService.changePassword(authService.getCurrentUser().getId(), newPassword)) {
+		if (authService.get().changePassword(authService.get().getCurrentUser().getId(), newPassword)) {
 			System.out.println("Password changed successfully.");
 		} else {
 			System.out.println("Password change failed. Please try again.");
@@ -519,20 +682,20 @@ public class Main {
 	private void displayAllMovies() {
 		// Print instructions for viewing movies
 		System.out.println("\n=== View All Movies ===");
-		movieService.displayAllMovies(); // Call the movie service to display movies
+		movieService.get().displayAllMovies(); // Call the movie service to display movies
 	}
 
 	// Creates a new movie review
 	private void createReview() {
 		// Print instructions for creating a review
 		System.out.println("\n=== Create Review ===");
-		movieService.displayAllMovies(); // Display movies for reference
+		movieService.get().displayAllMovies(); // Display movies for reference
 		int movieId = inputHandler.getInt("Enter Movie ID to review: ");
 		String reviewText = inputHandler.getString("Enter Review Text: ");
 		int rating = inputHandler.getIntInRange("Enter Rating (1-5): ", 1, 5);
 
 		// Create the review and display the result
-		if (reviewService.createReview(authService.getCurrentUser().getId(), movieId, reviewText, rating)) {
+		if (reviewService.get().createReview(authService.get().getCurrentUser().getId(), movieId, reviewText, rating)) {
 			System.out.println("Review created successfully.");
 		} else {
 			System.out.println("Failed to create review. Please check your inputs.");
@@ -543,13 +706,13 @@ public class Main {
 	private void editReview() {
 		// Print instructions for editing a review
 		System.out.println("\n=== Edit Review ===");
-		reviewService.displayUserReviews(authService.getCurrentUser().getId()); // Display user's reviews
+		reviewService.get().displayUserReviews(authService.get().getCurrentUser().getId()); // Display user's reviews
 		int reviewId = inputHandler.getInt("Enter Review ID to edit: ");
 		String reviewText = inputHandler.getString("Enter new Review Text: ");
 		int rating = inputHandler.getIntInRange("Enter new Rating (1-5): ", 1, 5);
 
 		// Edit the review and display the result
-		if (reviewService.editReview(reviewId, authService.getCurrentUser().getId(), reviewText, rating)) {
+		if (reviewService.get().editReview(reviewId, authService.get().getCurrentUser().getId(), reviewText, rating)) {
 			System.out.println("Review updated successfully.");
 		} else {
 			System.out.println("Failed to update review. Please check the review ID.");
@@ -560,7 +723,7 @@ public class Main {
 	private void deleteReview() {
 		// Print instructions for deleting a review
 		System.out.println("\n=== Delete My Review ===");
-		reviewService.displayUserReviews(authService.getCurrentUser().getId()); // Display user's reviews
+		reviewService.get().displayUserReviews(authService.get().getCurrentUser().getId()); // Display user's reviews
 		int reviewId = inputHandler.getInt("Enter Review ID to delete: ");
 
 		// Confirm deletion with the user
@@ -571,7 +734,7 @@ public class Main {
 		}
 
 		// Delete the review and display the result
-		if (reviewService.deleteReview(reviewId, authService.getCurrentUser().getId())) {
+		if (reviewService.get().deleteReview(reviewId, authService.get().getCurrentUser().getId())) {
 			System.out.println("Review deleted successfully.");
 		} else {
 			System.out.println("Failed to delete review. Please check the review ID.");
@@ -582,33 +745,102 @@ public class Main {
 	private void displayAllReviews() {
 		// Print instructions for viewing reviews
 		System.out.println("\n=== View All Reviews ===");
-		reviewService.displayAllReviews(); // Call the review service to display reviews
+		reviewService.get().displayAllReviews(); // Call the review service to display reviews
 	}
 
 	// Displays the user's own reviews
 	private void displayUserReviews() {
 		// Print instructions for viewing user's reviews
 		System.out.println("\n=== View My Own Reviews ===");
-		reviewService.displayUserReviews(authService.getCurrentUser().getId()); // Display user's reviews
+		reviewService.get().displayUserReviews(authService.get().getCurrentUser().getId()); // Display user's reviews
 	}
 
 	// Displays reviews shared with the user
 	private void displaySharedReviews() {
 		// Print instructions for viewing shared reviews
 		System.out.println("\n=== View Shared Reviews ===");
-		reviewService.displaySharedReviews(authService.getCurrentUser().getId()); // Display shared reviews
+		reviewService.get().displaySharedReviews(authService.get().getCurrentUser().getId()); // Display shared reviews
+	}
+
+	// Follows another user, or stops following them
+	private void toggleFollow() {
+		// Print instructions for following a user
+		System.out.println("\n=== Follow or Unfollow a User ===");
+		String email = inputHandler.getString("Enter email of user to follow or unfollow: ");
+		authService.get().toggleFollow(authService.get().getCurrentUser().getId(), email);
+	}
+
+	// Displays one review with its full text
+	private void displayReview() {
+		// Print instructions for viewing a review
+		System.out.println("\n=== View a Review ===");
+		int reviewId = inputHandler.getInt("Enter Review ID to view: ");
+		// Validate the review ID
+		if (reviewId <= 0) {
+			System.out.println("Invalid Review ID.");
+			return;
+		}
+		reviewService.get().displayReview(reviewId); // Display the review's full text
+	}
+
+	// Displays the current user's archived reviews and archived reviews shared with them
+	private void displayArchivedReviews() {
+		// Print instructions for viewing archived reviews
+		System.out.println("\n=== View Archived Reviews ===");
+		reviewService.get().displayArchivedReviews(authService.get().getCurrentUser().getId()); // Display archived reviews
+	}
+
+	// Displays all archived reviews (admin privilege)
+	private void displayAllArchivedReviews() {
+		// Print instructions for viewing archived reviews
+		System.out.println("\n=== View Archived Reviews ===");
+		reviewService.get().displayAllArchivedReviews(); // Display every archived review
 	}
 
 	// Shares a review with another user
 	private void shareReview() {
 		// Print instructions for sharing a review
 		System.out.println("\n=== Share Review ===");
-		reviewService.displayUserReviews(authService.getCurrentUser().getId()); // Display user's reviews
+		reviewService.get().displayUserReviews(authService.get().getCurrentUser().getId()); // Display user's reviews
 		int reviewId = inputHandler.getInt("Enter Review ID to share: ");
-		String sharedWithEmail = inputHandler.getString("Enter email of user to share with: ");
+
+		// Suggest reviewers with similar taste as recipients (computed from the MySQL tables)
+		List<ReviewerSimilarityService.SimilarReviewer> suggestions = Repositories.isJdbc()
+				? reviewerSimilarityService.get().findSimilarReviewers(authService.get().getCurrentUser().getId(), 5)
+				: List.of();
+		if (!suggestions.isEmpty()) {
+			System.out.println("Reviewers with similar taste:");
+			for (int i = 0; i < suggestions.size(); i++) {
+				ReviewerSimilarityService.SimilarReviewer suggestion = suggestions.get(i);
+				System.out.printf("%d. %s (%s) - %d movies in common, %.0f%% match%n", i + 1,
+						suggestion.getName(), suggestion.getEmail(), suggestion.getSharedMovies(),
+						suggestion.getSimilarity() * 100);
+			}
+		}
+		System.out.println("Several emails separated by commas share with all of them; \"followers\" shares with all your followers.");
+		String sharedWithEmail = inputHandler.getString(suggestions.isEmpty()
+				? "Enter email of user to share with: "
+				: "Enter email of user to share with (or suggestion number): ");
+		// Share with many users at once: all followers, or a list of emails
+		int userId = authService.get().getCurrentUser().getId();
+		if (sharedWithEmail.trim().equalsIgnoreCase("followers")) {
+			reviewService.get().shareReviewWithFollowers(reviewId, userId);
+			return;
+		}
+		if (sharedWithEmail.contains(",")) {
+			reviewService.get().shareReviewWithEmails(reviewId, userId, Arrays.asList(sharedWithEmail.split(",")));
+			return;
+		}
+		// Resolve a suggestion number to that reviewer's email
+		if (sharedWithEmail.matches("\\d+")) {
+			int pick = Integer.parseInt(sharedWithEmail);
+			if (pick >= 1 && pick <= suggestions.size()) {
+				sharedWithEmail = suggestions.get(pick - 1).getEmail();
+			}
+		}
 
 		// Share the review and display the result
-		if (reviewService.shareReview(reviewId, authService.getCurrentUser().getId(), sharedWithEmail)) {
+		if (reviewService.get().shareReview(reviewId, authService.get().getCurrentUser().getId(), sharedWithEmail)) {
 			System.out.println("Review shared successfully.");
 		} else {
 			System.out.println("Failed to share review. Please check the review ID or email.");
@@ -619,8 +851,77 @@ public class Main {
 	private void displayMovieDetails() {
 		// Print instructions for viewing movie details
 		System.out.println("\n=== View Movie Details ===");
-		movieService.displayAllMovies(); // Display movies for reference
+		movieService.get().displayAllMovies(); // Display movies for reference
 		int movieId = inputHandler.getInt("Enter Movie ID to view details: ");
-		movieService.displayMovieDetails(movieId); // Display details of the selected movie
+		// Display details of the selected movie, then further pages of its reviews on request
+		ReviewRepository.FeedCursor next = movieService.get().displayMovieDetails(movieId);
+		while (next != null && inputHandler.getString("Show more reviews? (Y/N): ").equalsIgnoreCase("Y")) {
+			next = movieService.get().displayMoreReviews(movieId, next);
+		}
+	}
+
+	// Displays movies recommended for the current user
+	private void displayRecommendations() {
+		// Print instructions for viewing recommendations
+		System.out.println("\n=== View Recommendations ===");
+		if (!Repositories.isJdbc()) {
+			System.out.println("Recommendations require the MySQL storage backend.");
+			return;
+		}
+		recommendationService.get().displayRecommendations(authService.get().getCurrentUser().getId(), 10);
+	}
+
+	// Recomputes the precomputed movie similarities used by recommendations (admin privilege)
+	private void rebuildRecommendations() {
+		// Print instructions for rebuilding recommendations
+		System.out.println("\n=== Rebuild Recommendations ===");
+		if (!Repositories.isJdbc()) {
+			System.out.println("Recommendations require the MySQL storage backend.");
+			return;
+		}
+		int rows = recommendationService.get().rebuildNeighbors();
+		if (rows >= 0) {
+			System.out.println("Recommendations rebuilt with " + rows + " movie similarities.");
+		} else {
+			System.out.println("Failed to rebuild recommendations.");
+		}
+	}
+
+	// Displays per-statement database timings and optionally exports or resets them (admin privilege)
+	private void showQueryStatistics() {
+		// Print instructions for viewing query statistics
+		System.out.println("\n=== Query Statistics ===");
+		QueryStats.dump();
+		String path = inputHandler.getString("Export to CSV file (enter path or leave blank): ");
+		if (!path.isEmpty() && QueryStats.exportCsv(path)) {
+			System.out.println("Query statistics exported to " + path + ".");
+		}
+		String threshold = inputHandler.getString(
+				"Slow-query threshold in ms (" + QueryStats.getSlowQueryMillis() + ", leave blank to keep): ");
+		if (!threshold.isEmpty()) {
+			try {
+				QueryStats.setSlowQueryMillis(Long.parseLong(threshold));
+				System.out.println("Slow-query threshold updated.");
+			} catch (IllegalArgumentException e) {
+				// Covers both non-numeric and negative input
+				System.out.println("Please enter a non-negative whole number.");
+			}
+		}
+		String reset = inputHandler.getString("Reset statistics? (Y/N): ");
+		if (reset.equalsIgnoreCase("Y")) {
+			QueryStats.reset();
+			System.out.println("Query statistics reset.");
+		}
+	}
+
+	// Displays service-level counters and latency percentiles and optionally exports them (admin privilege)
+	private void showServiceMetrics() {
+		// Print instructions for viewing service metrics
+		System.out.println("\n=== Service Metrics ===");
+		Metrics.dump();
+		String path = inputHandler.getString("Export in Prometheus format (enter file path or leave blank): ");
+		if (!path.isEmpty() && Metrics.exportToFile(path)) {
+			System.out.println("Metrics exported to " + path + ".");
+		}
 	}
 }
\ No newline at end of file
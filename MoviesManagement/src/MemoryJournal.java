@@ -0,0 +1,57 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.sql.SQLException;
+
+// Records the mutations of the memory repositories in a WriteAheadLog, translating log failures
+// into SQLExceptions as the repository interfaces expect. A journal without a log (the default,
+// non-durable store) records nothing.
+public class MemoryJournal {
+	// Writes the fields of one record after its type byte.
+	public interface RecordWriter {
+		void write(DataOutputStream out) throws IOException;
+	}
+
+	// Journal of a store that is not persisted.
+	public static final MemoryJournal NONE = new MemoryJournal(null);
+
+	private final WriteAheadLog log;
+
+	// Creates a journal over the given log, or a non-recording one if log is null.
+	public MemoryJournal(WriteAheadLog log) {
+		this.log = log;
+	}
+
+	// Queues a record of the given type and returns its sequence number (0 without a log).
+	// Called while holding the repository lock, before the mutation is applied, so a record that
+	// cannot be logged leaves memory unchanged.
+	public long append(byte type, RecordWriter fields) throws SQLException {
+		if (log == null) {
+			return 0;
+		}
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeByte(type);
+			fields.write(out);
+			out.flush();
+			return log.append(bytes.toByteArray());
+		} catch (IOException e) {
+			throw new SQLException("Failed to write the write-ahead log: " + e.getMessage(), e);
+		}
+	}
+
+	// Blocks until the record with the sequence number is on disk. Called after releasing the
+	// repository lock, so other writers can join the same group commit.
+	public void awaitDurable(long sequence) throws SQLException {
+		if (log == null || sequence == 0) {
+			return;
+		}
+		try {
+			log.awaitDurable(sequence);
+		} catch (IOException e) {
+			throw new SQLException("Failed to write the write-ahead log: " + e.getMessage(), e);
+		}
+	}
+}
@@ -0,0 +1,105 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// MovieRepository held in process memory. The catalog is loaded through add(); see Repositories.
+// Additions are recorded in the store's journal when it is persisted; see MemoryStore.
+public class MemoryMovieRepository implements MovieRepository {
+	// Journal record type (see replay).
+	static final byte ADD = 10;
+
+	// Movies by ID.
+	private final IntObjectMap<Movie> moviesById = new IntObjectMap<>(16);
+	// ID for the next added movie.
+	private int nextId = 1;
+	// Journal receiving every mutation.
+	private MemoryJournal journal = MemoryJournal.NONE;
+
+	@Override
+	public synchronized List<Movie> findAll() {
+		List<Movie> movies = new ArrayList<>(moviesById.size());
+		moviesById.forEach((id, movie) -> movies.add(movie));
+		movies.sort(Comparator.comparing(Movie::getTitle));
+		return movies;
+	}
+
+	@Override
+	public synchronized Movie findById(int movieId) {
+		return moviesById.get(movieId);
+	}
+
+	// Returns true if a movie with the ID exists.
+	public synchronized boolean exists(int movieId) {
+		return moviesById.get(movieId) != null;
+	}
+
+	// Adds a movie to the catalog and returns its ID.
+	public int add(String title, String releaseDate, String genre) throws SQLException {
+		long sequence;
+		int id;
+		synchronized (this) {
+			id = nextId;
+			sequence = journal.append(ADD, out -> writeMovie(out, new Movie(id, title, releaseDate, genre)));
+			applyAdd(new Movie(id, title, releaseDate, genre));
+		}
+		journal.awaitDurable(sequence);
+		return id;
+	}
+
+	// Sets the journal that records subsequent mutations.
+	synchronized void setJournal(MemoryJournal journal) {
+		this.journal = journal;
+	}
+
+	// Applies a journal record if it is one of this repository's types.
+	// Returns false for other types.
+	boolean replay(byte type, DataInputStream in) throws IOException {
+		if (type != ADD) {
+			return false;
+		}
+		applyAdd(readMovie(in));
+		return true;
+	}
+
+	// Writes every movie to a snapshot.
+	synchronized void writeSnapshot(DataOutputStream out) throws IOException {
+		out.writeInt(nextId);
+		out.writeInt(moviesById.size());
+		for (Movie movie : findAll()) {
+			writeMovie(out, movie);
+		}
+	}
+
+	// Loads the movies of a snapshot into this empty repository.
+	synchronized void readSnapshot(DataInputStream in) throws IOException {
+		int snapshotNextId = in.readInt();
+		for (int count = in.readInt(); count > 0; count--) {
+			applyAdd(readMovie(in));
+		}
+		nextId = Math.max(nextId, snapshotNextId);
+	}
+
+	// Stores a movie under its ID.
+	private void applyAdd(Movie movie) {
+		moviesById.put(movie.getId(), movie);
+		nextId = Math.max(nextId, movie.getId() + 1);
+	}
+
+	// Writes a movie as stored in add records and snapshots.
+	private static void writeMovie(DataOutputStream out, Movie movie) throws IOException {
+		out.writeInt(movie.getId());
+		out.writeUTF(movie.getTitle());
+		out.writeUTF(movie.getReleaseDate());
+		out.writeUTF(movie.getGenre());
+	}
+
+	// Reads a movie written by writeMovie.
+	private static Movie readMovie(DataInputStream in) throws IOException {
+		return new Movie(in.readInt(), in.readUTF(), in.readUTF(), in.readUTF());
+	}
+}
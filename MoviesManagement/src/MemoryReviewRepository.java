@@ -0,0 +1,1041 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+// ReviewRepository held in process memory. Reviews are indexed by ID, by (user ID, movie ID),
+// by movie, by author and by share recipient in primitive-keyed maps, so every lookup is a hash
+// probe rather than a scan. Each movie's reviews are also kept sorted by ranking score for its feed,
+// updated as reviews are written and shared, and live reviews are indexed by the band keys of their
+// text's fingerprint. The rules of the SQL schema hold here too: ratings from 1 to 5, one
+// review per user and movie, reviews and shares only for existing users and movies, and a user's
+// deletion removing their reviews (with those reviews' shares) and the shares they received.
+// A deleted review is moved, with its shares, to a tombstone map, from which restore brings it back
+// and purgeDeleted removes it for good. A tombstone records whether an admin deleted the review, as
+// only those block the author's new review of the movie during the undo window.
+// There is no archive: every lookup here is a hash probe however much history there is, so all
+// reviews stay live and the findArchived methods find nothing.
+// Mutations are recorded in the store's journal when it is persisted; see MemoryStore.
+public class MemoryReviewRepository implements ReviewRepository {
+	// Journal record types (see replay).
+	static final byte CREATE = 20;
+	static final byte UPDATE = 21;
+	static final byte DELETE = 22;
+	static final byte SHARE = 23;
+	static final byte TOMBSTONE = 24;
+	static final byte RESTORE = 25;
+	static final byte PURGE = 26;
+	static final byte SHARE_ALL = 27;
+	static final byte TOMBSTONE_ALL = 28;
+	static final byte FLAG = 29;
+	static final byte ADMIN_TOMBSTONE = 30;
+
+	// Newest modification first, newest ID first among equal times.
+	private static final Comparator<Review> NEWEST_FIRST = Comparator.comparing(Review::getModifiedAt)
+			.thenComparingInt(Review::getId).reversed();
+	// Highest ranking score first, highest ID first among equal scores.
+	private static final Comparator<FeedEntry> FEED_ORDER = Comparator.comparingDouble((FeedEntry entry) -> entry.score)
+			.thenComparingInt(entry -> entry.id).reversed();
+
+	private final MemoryUserRepository users;
+	private final MemoryMovieRepository movies;
+	// Stored reviews by ID.
+	private final IntObjectMap<StoredReview> reviewsById = new IntObjectMap<>(1024);
+	// Review IDs by (user ID, movie ID), enforcing one review per user and movie.
+	private final LongIntMap idsByUserMovie = new LongIntMap(1024);
+	// Review IDs by movie ID and by author ID.
+	private final IntObjectMap<IdList> idsByMovie = new IntObjectMap<>(256);
+	private final IntObjectMap<IdList> idsByUser = new IntObjectMap<>(256);
+	// Each movie's live reviews in feed order.
+	private final IntObjectMap<NavigableSet<FeedEntry>> feedByMovie = new IntObjectMap<>(256);
+	// IDs of the live reviews by fingerprint band key.
+	private final IntObjectMap<IdList> idsByBand = new IntObjectMap<>(1024);
+	// IDs of the reviews shared with each recipient.
+	private final IntObjectMap<IdList> idsBySharedWith = new IntObjectMap<>(256);
+	// Deleted reviews by ID, and their IDs by (user ID, movie ID); a new review of the movie replaces one
+	// past its undo window.
+	private final IntObjectMap<StoredReview> tombstonesById = new IntObjectMap<>(64);
+	private final LongIntMap tombstoneIdsByUserMovie = new LongIntMap(64);
+	// ID for the next created review.
+	private int nextId = 1;
+	// Journal receiving every mutation.
+	private MemoryJournal journal = MemoryJournal.NONE;
+
+	// Creates an empty repository over the given users and movies and subscribes to user deletions.
+	public MemoryReviewRepository(MemoryUserRepository users, MemoryMovieRepository movies) {
+		this.users = users;
+		this.movies = movies;
+		users.addDeleteListener(this::deleteUserActivity);
+	}
+
+	@Override
+	public Outcome create(int userId, int movieId, String text, int rating, int undoSeconds, Integer duplicateOf)
+			throws SQLException {
+		checkRating(rating);
+		long sequence;
+		synchronized (this) {
+			if (!movies.exists(movieId)) {
+				return Outcome.MOVIE_NOT_FOUND;
+			}
+			if (idsByUserMovie.get(userMovieKey(userId, movieId)) != LongIntMap.MISSING) {
+				return Outcome.DUPLICATE;
+			}
+			// A tombstone left by an admin that can still be restored stays; applyCreate replaces any other.
+			int tombstoneId = tombstoneIdsByUserMovie.get(userMovieKey(userId, movieId));
+			if (tombstoneId != LongIntMap.MISSING) {
+				StoredReview tombstone = tombstonesById.get(tombstoneId);
+				if (tombstone.deletedByAdmin && tombstone.deletedAt >= System.currentTimeMillis() - undoSeconds * 1000L) {
+					return Outcome.RESTORABLE;
+				}
+			}
+			// Mirrors the foreign key from reviews to users.
+			if (!users.exists(userId)) {
+				throw new SQLException("Cannot add a review: user " + userId + " does not exist.");
+			}
+			int id = nextId;
+			long modifiedAt = System.currentTimeMillis();
+			sequence = journal.append(CREATE, out -> {
+				out.writeInt(id);
+				out.writeInt(movieId);
+				out.writeInt(userId);
+				out.writeUTF(text);
+				out.writeByte(rating);
+				out.writeLong(modifiedAt);
+			});
+			applyCreate(id, new StoredReview(movieId, userId, text, rating, modifiedAt));
+			if (duplicateOf != null) {
+				sequence = flag(id, duplicateOf);
+			}
+		}
+		journal.awaitDurable(sequence);
+		return Outcome.OK;
+	}
+
+	@Override
+	public Outcome update(int reviewId, int userId, String text, int rating, Integer duplicateOf)
+			throws SQLException {
+		checkRating(rating);
+		long sequence;
+		synchronized (this) {
+			StoredReview review = reviewsById.get(reviewId);
+			if (review == null || review.userId != userId) {
+				return Outcome.REVIEW_NOT_FOUND;
+			}
+			long modifiedAt = System.currentTimeMillis();
+			sequence = journal.append(UPDATE, out -> {
+				out.writeInt(reviewId);
+				out.writeUTF(text);
+				out.writeByte(rating);
+				out.writeLong(modifiedAt);
+			});
+			applyUpdate(reviewId, text, rating, modifiedAt);
+			int flag = duplicateOf != null ? duplicateOf : 0;
+			if (review.duplicateOf != flag) {
+				sequence = flag(reviewId, flag);
+			}
+		}
+		journal.awaitDurable(sequence);
+		return Outcome.OK;
+	}
+
+	@Override
+	public Outcome delete(int reviewId, int userId) throws SQLException {
+		long sequence;
+		synchronized (this) {
+			StoredReview review = reviewsById.get(reviewId);
+			if (review == null || review.userId != userId) {
+				return Outcome.REVIEW_NOT_FOUND;
+			}
+			sequence = tombstone(reviewId, false);
+		}
+		journal.awaitDurable(sequence);
+		return Outcome.OK;
+	}
+
+	@Override
+	public Outcome deleteAny(int reviewId) throws SQLException {
+		long sequence;
+		synchronized (this) {
+			if (reviewsById.get(reviewId) == null) {
+				return Outcome.REVIEW_NOT_FOUND;
+			}
+			sequence = tombstone(reviewId, true);
+		}
+		journal.awaitDurable(sequence);
+		return Outcome.OK;
+	}
+
+	@Override
+	public List<Integer> deleteAll(List<Integer> reviewIds) throws SQLException {
+		long sequence;
+		int[] deleted;
+		synchronized (this) {
+			IdList ids = new IdList();
+			Set<Integer> seen = new HashSet<>();
+			for (int reviewId : reviewIds) {
+				if (seen.add(reviewId) && reviewsById.get(reviewId) != null) {
+					ids.add(reviewId);
+				}
+			}
+			if (ids.size == 0) {
+				return new ArrayList<>();
+			}
+			deleted = ids.toArray();
+			long deletedAt = System.currentTimeMillis();
+			// One record for the whole set.
+			sequence = journal.append(TOMBSTONE_ALL, out -> {
+				out.writeLong(deletedAt);
+				out.writeInt(deleted.length);
+				for (int id : deleted) {
+					out.writeInt(id);
+				}
+			});
+			for (int id : deleted) {
+				applyTombstone(id, deletedAt, true);
+			}
+		}
+		journal.awaitDurable(sequence);
+		List<Integer> result = new ArrayList<>(deleted.length);
+		for (int id : deleted) {
+			result.add(id);
+		}
+		return result;
+	}
+
+	@Override
+	public synchronized int findMatchingIds(ModerationCriteria criteria, int afterId, int limit,
+			List<Integer> matches) {
+		// Every live review is a hash probe away, so the matches are found in one pass and handed
+		// out limit at a time.
+		List<Integer> found = new ArrayList<>();
+		reviewsById.forEach((id, review) -> {
+			if (id > afterId && (criteria.getUserId() == null || review.userId == criteria.getUserId())
+					&& (criteria.getMovieId() == null || review.movieId == criteria.getMovieId())
+					&& (!criteria.isDuplicatesOnly() || review.duplicateOf != 0)
+					&& criteria.matchesTime(review.modifiedAt) && criteria.matchesText(review.text)) {
+				found.add(id);
+			}
+		});
+		Collections.sort(found);
+		if (found.size() <= limit) {
+			matches.addAll(found);
+			return 0;
+		}
+		matches.addAll(found.subList(0, limit));
+		return found.get(limit - 1);
+	}
+
+	@Override
+	public synchronized List<Review> findPage(int afterId, int limit) {
+		// IDs are handed out in order, so the next ones are probed until the page is full.
+		List<Review> reviews = new ArrayList<>();
+		for (int id = afterId + 1; id < nextId && reviews.size() < limit; id++) {
+			StoredReview stored = reviewsById.get(id);
+			if (stored != null) {
+				reviews.add(toStoredReview(id, stored));
+			}
+		}
+		return reviews;
+	}
+
+	@Override
+	public synchronized List<Review> findByIds(List<Integer> reviewIds) {
+		List<Review> reviews = new ArrayList<>();
+		for (int reviewId : new TreeSet<>(reviewIds)) {
+			StoredReview stored = reviewsById.get(reviewId);
+			if (stored != null) {
+				reviews.add(toStoredReview(reviewId, stored));
+			}
+		}
+		return reviews;
+	}
+
+	@Override
+	public synchronized Map<Integer, List<Integer>> findIdsByFingerprint(Collection<Integer> bandKeys, int limit) {
+		Map<Integer, List<Integer>> idsByKey = new LinkedHashMap<>();
+		int read = 0;
+		for (int bandKey : bandKeys) {
+			IdList ids = idsByBand.get(bandKey);
+			if (ids == null || idsByKey.containsKey(bandKey)) {
+				continue;
+			}
+			List<Integer> found = new ArrayList<>();
+			for (int i = 0; i < ids.size && read < limit; i++, read++) {
+				found.add(ids.ids[i]);
+			}
+			idsByKey.put(bandKey, found);
+		}
+		return idsByKey;
+	}
+
+	@Override
+	public int storeFingerprints(List<Review> reviews) {
+		// The index is kept current by every write and rebuilt on load, so there is nothing to repair.
+		return 0;
+	}
+
+	@Override
+	public Outcome restore(int reviewId, int withinSeconds) throws SQLException {
+		long sequence;
+		synchronized (this) {
+			StoredReview review = tombstonesById.get(reviewId);
+			if (review == null || review.deletedAt < System.currentTimeMillis() - withinSeconds * 1000L) {
+				return Outcome.REVIEW_NOT_FOUND;
+			}
+			sequence = journal.append(RESTORE, out -> out.writeInt(reviewId));
+			applyRestore(reviewId);
+		}
+		journal.awaitDurable(sequence);
+		return Outcome.OK;
+	}
+
+	@Override
+	public synchronized List<Review> findDeleted(int withinSeconds) {
+		long cutoff = System.currentTimeMillis() - withinSeconds * 1000L;
+		List<Review> reviews = new ArrayList<>();
+		tombstonesById.forEach((id, stored) -> {
+			if (stored.deletedAt >= cutoff) {
+				Review review = toReview(id, stored);
+				review.setDeletedAt(new Timestamp(stored.deletedAt));
+				reviews.add(review);
+			}
+		});
+		reviews.sort(Comparator.comparing(Review::getDeletedAt).thenComparingInt(Review::getId).reversed());
+		return reviews;
+	}
+
+	@Override
+	public int purgeDeleted(int olderThanSeconds, int maxRows) throws SQLException {
+		long sequence;
+		int[] expired;
+		synchronized (this) {
+			long cutoff = System.currentTimeMillis() - olderThanSeconds * 1000L;
+			IdList ids = new IdList();
+			tombstonesById.forEach((id, stored) -> {
+				if (stored.deletedAt < cutoff && ids.size < maxRows) {
+					ids.add(id);
+				}
+			});
+			if (ids.size == 0) {
+				return 0;
+			}
+			expired = ids.toArray();
+			sequence = journal.append(PURGE, out -> {
+				out.writeInt(expired.length);
+				for (int id : expired) {
+					out.writeInt(id);
+				}
+			});
+			for (int id : expired) {
+				applyPurge(id);
+			}
+		}
+		journal.awaitDurable(sequence);
+		return expired.length;
+	}
+
+	@Override
+	public synchronized boolean isOwner(int reviewId, int userId) {
+		StoredReview review = reviewsById.get(reviewId);
+		return review != null && review.userId == userId;
+	}
+
+	@Override
+	public Outcome share(int reviewId, int recipientId) throws SQLException {
+		long sequence;
+		synchronized (this) {
+			StoredReview review = reviewsById.get(reviewId);
+			if (review == null) {
+				return Outcome.REVIEW_NOT_FOUND;
+			}
+			if (review.shareIndex(recipientId) >= 0) {
+				return Outcome.DUPLICATE;
+			}
+			// Mirrors the foreign key from shares to users.
+			if (!users.exists(recipientId)) {
+				throw new SQLException("Cannot share a review: user " + recipientId + " does not exist.");
+			}
+			long sharedAt = System.currentTimeMillis();
+			sequence = journal.append(SHARE, out -> {
+				out.writeInt(reviewId);
+				out.writeInt(recipientId);
+				out.writeLong(sharedAt);
+			});
+			applyShare(reviewId, recipientId, sharedAt);
+		}
+		journal.awaitDurable(sequence);
+		return Outcome.OK;
+	}
+
+	@Override
+	public int shareAll(int reviewId, List<Integer> recipientIds) throws SQLException {
+		long sequence;
+		int[] added;
+		synchronized (this) {
+			StoredReview review = reviewsById.get(reviewId);
+			if (review == null) {
+				return -1;
+			}
+			// Skip recipients who already have the review (or are listed twice) and, as the foreign key
+			// would, users deleted meanwhile.
+			Set<Integer> seen = new HashSet<>();
+			for (int i = 0; i < review.shareCount; i++) {
+				seen.add(review.shareRecipients[i]);
+			}
+			IdList ids = new IdList();
+			for (int recipientId : recipientIds) {
+				if (seen.add(recipientId) && users.exists(recipientId)) {
+					ids.add(recipientId);
+				}
+			}
+			if (ids.size == 0) {
+				return 0;
+			}
+			added = ids.toArray();
+			long sharedAt = System.currentTimeMillis();
+			// One record for the whole fan-out.
+			sequence = journal.append(SHARE_ALL, out -> {
+				out.writeInt(reviewId);
+				out.writeLong(sharedAt);
+				out.writeInt(added.length);
+				for (int id : added) {
+					out.writeInt(id);
+				}
+			});
+			applyShareAll(reviewId, added, sharedAt);
+		}
+		journal.awaitDurable(sequence);
+		return added.length;
+	}
+
+	@Override
+	public synchronized List<Review> findByUser(int userId) {
+		List<Review> reviews = toReviews(idsByUser.get(userId));
+		reviews.sort(NEWEST_FIRST);
+		return reviews;
+	}
+
+	@Override
+	public synchronized List<Review> findAll() {
+		List<Review> reviews = new ArrayList<>(reviewsById.size());
+		reviewsById.forEach((id, stored) -> reviews.add(toReview(id, stored)));
+		reviews.sort(NEWEST_FIRST);
+		return reviews;
+	}
+
+	@Override
+	public synchronized List<Review> findSharedWith(int userId) {
+		List<Review> reviews = toReviews(idsBySharedWith.get(userId));
+		for (Review review : reviews) {
+			StoredReview stored = reviewsById.get(review.getId());
+			review.setSharedAt(new Timestamp(stored.shareTimes[stored.shareIndex(userId)]));
+		}
+		reviews.sort(Comparator.comparing(Review::getSharedAt).reversed());
+		return reviews;
+	}
+
+	@Override
+	public synchronized List<Review> findByMovie(int movieId) {
+		List<Review> reviews = toReviews(idsByMovie.get(movieId));
+		reviews.sort(Comparator.comparingInt(Review::getId));
+		return reviews;
+	}
+
+	@Override
+	public synchronized List<Review> findFeed(int movieId, FeedCursor after, int limit) {
+		List<Review> reviews = new ArrayList<>();
+		NavigableSet<FeedEntry> feed = feedByMovie.get(movieId);
+		if (feed == null) {
+			return reviews;
+		}
+		if (after != null) {
+			feed = feed.tailSet(new FeedEntry(after.getScore(), after.getReviewId()), false);
+		}
+		for (FeedEntry entry : feed) {
+			if (reviews.size() >= limit) {
+				break;
+			}
+			Review review = toReview(entry.id, reviewsById.get(entry.id));
+			review.setFeedScore(entry.score);
+			reviews.add(review);
+		}
+		return reviews;
+	}
+
+	@Override
+	public synchronized RatingTotals findRatings(int movieId) {
+		IdList ids = idsByMovie.get(movieId);
+		if (ids == null) {
+			return new RatingTotals(0, 0);
+		}
+		long sum = 0;
+		for (int i = 0; i < ids.size; i++) {
+			sum += reviewsById.get(ids.ids[i]).rating;
+		}
+		return new RatingTotals(ids.size, sum);
+	}
+
+	@Override
+	public synchronized Review findById(int reviewId) {
+		StoredReview stored = reviewsById.get(reviewId);
+		return stored != null ? toReview(reviewId, stored) : null;
+	}
+
+	@Override
+	public int archive(int olderThanDays, int maxRows) {
+		return 0;
+	}
+
+	@Override
+	public List<Review> findArchivedByUser(int userId) {
+		return new ArrayList<>();
+	}
+
+	@Override
+	public List<Review> findAllArchived() {
+		return new ArrayList<>();
+	}
+
+	@Override
+	public List<Review> findArchivedSharedWith(int userId) {
+		return new ArrayList<>();
+	}
+
+	@Override
+	public RatingTotals findArchivedRatings(int movieId) {
+		return new RatingTotals(0, 0);
+	}
+
+	// Sets the journal that records subsequent mutations.
+	synchronized void setJournal(MemoryJournal journal) {
+		this.journal = journal;
+	}
+
+	// Applies a journal record if it is one of this repository's types.
+	// Returns false for other types.
+	boolean replay(byte type, DataInputStream in) throws IOException {
+		switch (type) {
+			case CREATE: {
+				int id = in.readInt();
+				applyCreate(id, new StoredReview(in.readInt(), in.readInt(), in.readUTF(), in.readByte(), in.readLong()));
+				return true;
+			}
+			case UPDATE:
+				applyUpdate(in.readInt(), in.readUTF(), in.readByte(), in.readLong());
+				return true;
+			case DELETE:
+				// Written before deletions left tombstones.
+				applyDelete(in.readInt());
+				return true;
+			case TOMBSTONE:
+				applyTombstone(in.readInt(), in.readLong(), false);
+				return true;
+			case ADMIN_TOMBSTONE:
+				applyTombstone(in.readInt(), in.readLong(), true);
+				return true;
+			case TOMBSTONE_ALL: {
+				// Only admins delete reviews in bulk.
+				long deletedAt = in.readLong();
+				for (int count = in.readInt(); count > 0; count--) {
+					applyTombstone(in.readInt(), deletedAt, true);
+				}
+				return true;
+			}
+			case RESTORE:
+				applyRestore(in.readInt());
+				return true;
+			case PURGE:
+				for (int count = in.readInt(); count > 0; count--) {
+					applyPurge(in.readInt());
+				}
+				return true;
+			case SHARE:
+				applyShare(in.readInt(), in.readInt(), in.readLong());
+				return true;
+			case FLAG:
+				applyFlag(in.readInt(), in.readInt());
+				return true;
+			case SHARE_ALL: {
+				int reviewId = in.readInt();
+				long sharedAt = in.readLong();
+				int[] recipientIds = new int[in.readInt()];
+				for (int i = 0; i < recipientIds.length; i++) {
+					recipientIds[i] = in.readInt();
+				}
+				applyShareAll(reviewId, recipientIds, sharedAt);
+				return true;
+			}
+			default:
+				return false;
+		}
+	}
+
+	// Writes every review, with its shares, to a snapshot, followed by the tombstones and the
+	// duplicate flags of both. A user deletion whose cascade is still running is applied here
+	// already: reviews and shares of users that no longer exist are left out.
+	synchronized void writeSnapshot(DataOutputStream out) throws IOException {
+		out.writeInt(nextId);
+		writeReviews(out, reviewsById, false);
+		writeReviews(out, tombstonesById, true);
+		List<int[]> flags = new ArrayList<>();
+		for (IntObjectMap<StoredReview> map : List.of(reviewsById, tombstonesById)) {
+			map.forEach((id, stored) -> {
+				if (stored.duplicateOf != 0 && users.exists(stored.userId)) {
+					flags.add(new int[] { id, stored.duplicateOf });
+				}
+			});
+		}
+		out.writeInt(flags.size());
+		for (int[] flag : flags) {
+			out.writeInt(flag[0]);
+			out.writeInt(flag[1]);
+		}
+	}
+
+	// Loads the reviews and shares of a snapshot into this empty repository. Snapshots written before
+	// deletions left tombstones have no tombstone section, those written before reviews were flagged
+	// as duplicates no flag section, and those written before admin deletions were recorded no
+	// deleter per tombstone.
+	synchronized void readSnapshot(DataInputStream in, boolean withTombstones, boolean withFlags,
+			boolean withDeleters) throws IOException {
+		int snapshotNextId = in.readInt();
+		readReviews(in, false, false);
+		if (withTombstones) {
+			readReviews(in, true, withDeleters);
+		}
+		if (withFlags) {
+			for (int count = in.readInt(); count > 0; count--) {
+				applyFlag(in.readInt(), in.readInt());
+			}
+		}
+		nextId = Math.max(nextId, snapshotNextId);
+	}
+
+	// Writes the reviews of one map, with their shares and, for tombstones, their deletion times and
+	// whether an admin deleted them.
+	private void writeReviews(DataOutputStream out, IntObjectMap<StoredReview> map, boolean tombstones)
+			throws IOException {
+		List<Integer> ids = new ArrayList<>(map.size());
+		map.forEach((id, stored) -> {
+			if (users.exists(stored.userId)) {
+				ids.add(id);
+			}
+		});
+		out.writeInt(ids.size());
+		for (int id : ids) {
+			StoredReview review = map.get(id);
+			out.writeInt(id);
+			out.writeInt(review.movieId);
+			out.writeInt(review.userId);
+			out.writeUTF(review.text);
+			out.writeByte(review.rating);
+			out.writeLong(review.modifiedAt);
+			if (tombstones) {
+				out.writeLong(review.deletedAt);
+				out.writeBoolean(review.deletedByAdmin);
+			}
+			int shares = 0;
+			for (int i = 0; i < review.shareCount; i++) {
+				if (users.exists(review.shareRecipients[i])) {
+					shares++;
+				}
+			}
+			out.writeInt(shares);
+			for (int i = 0; i < review.shareCount; i++) {
+				if (users.exists(review.shareRecipients[i])) {
+					out.writeInt(review.shareRecipients[i]);
+					out.writeLong(review.shareTimes[i]);
+				}
+			}
+		}
+	}
+
+	// Reads the reviews written by writeReviews, as live reviews or as tombstones. Tombstones written
+	// before admin deletions were told apart (withDeleters false) count as their authors' own.
+	private void readReviews(DataInputStream in, boolean tombstones, boolean withDeleters) throws IOException {
+		for (int count = in.readInt(); count > 0; count--) {
+			int id = in.readInt();
+			applyCreate(id, new StoredReview(in.readInt(), in.readInt(), in.readUTF(), in.readByte(), in.readLong()));
+			long deletedAt = tombstones ? in.readLong() : 0;
+			boolean deletedByAdmin = tombstones && withDeleters && in.readBoolean();
+			for (int shares = in.readInt(); shares > 0; shares--) {
+				applyShare(id, in.readInt(), in.readLong());
+			}
+			if (tombstones) {
+				applyTombstone(id, deletedAt, deletedByAdmin);
+			}
+		}
+	}
+
+	// Removes a deleted user's reviews and tombstones (with their shares) and the shares they received.
+	// Not journaled: replaying the user's deletion runs this again.
+	private synchronized void deleteUserActivity(int userId) {
+		IdList authored = idsByUser.get(userId);
+		if (authored != null) {
+			for (int reviewId : authored.toArray()) {
+				applyDelete(reviewId);
+			}
+		}
+		IdList received = idsBySharedWith.remove(userId);
+		if (received != null) {
+			for (int reviewId : received.toArray()) {
+				StoredReview review = reviewsById.get(reviewId);
+				unrank(review);
+				review.removeShare(userId);
+				rank(reviewId, review);
+			}
+		}
+		IdList deleted = new IdList();
+		tombstonesById.forEach((id, stored) -> {
+			stored.removeShare(userId);
+			if (stored.userId == userId) {
+				deleted.add(id);
+			}
+		});
+		for (int reviewId : deleted.toArray()) {
+			applyPurge(reviewId);
+		}
+	}
+
+	// Journals and applies the deletion of a live review by its author or an admin, keeping it as a
+	// tombstone. Returns the journal sequence number to wait for.
+	private long tombstone(int reviewId, boolean byAdmin) throws SQLException {
+		long deletedAt = System.currentTimeMillis();
+		long sequence = journal.append(byAdmin ? ADMIN_TOMBSTONE : TOMBSTONE, out -> {
+			out.writeInt(reviewId);
+			out.writeLong(deletedAt);
+		});
+		applyTombstone(reviewId, deletedAt, byAdmin);
+		return sequence;
+	}
+
+	// Stores a new review under the ID and indexes it, replacing the author's tombstone for the movie.
+	private void applyCreate(int id, StoredReview review) {
+		int replaced = tombstoneIdsByUserMovie.get(userMovieKey(review.userId, review.movieId));
+		if (replaced != LongIntMap.MISSING) {
+			applyPurge(replaced);
+		}
+		reviewsById.put(id, review);
+		idsByUserMovie.put(userMovieKey(review.userId, review.movieId), id);
+		index(idsByMovie, review.movieId).add(id);
+		index(idsByUser, review.userId).add(id);
+		rank(id, review);
+		fingerprint(id, review);
+		nextId = Math.max(nextId, id + 1);
+	}
+
+	// Replaces the text and rating of a live review, moving it to its new place in the feed.
+	private void applyUpdate(int reviewId, String text, int rating, long modifiedAt) {
+		StoredReview review = reviewsById.get(reviewId);
+		unrank(review);
+		unfingerprint(reviewId, review);
+		review.update(text, rating, modifiedAt);
+		rank(reviewId, review);
+		fingerprint(reviewId, review);
+	}
+
+	// Removes a review, its index entries and its shares.
+	private void applyDelete(int reviewId) {
+		StoredReview review = reviewsById.remove(reviewId);
+		idsByUserMovie.remove(userMovieKey(review.userId, review.movieId));
+		unindex(idsByMovie, review.movieId, reviewId);
+		unindex(idsByUser, review.userId, reviewId);
+		unrank(review);
+		unfingerprint(reviewId, review);
+		for (int i = 0; i < review.shareCount; i++) {
+			unindex(idsBySharedWith, review.shareRecipients[i], reviewId);
+		}
+	}
+
+	// Moves a live review, with its shares, out of the indexes into the tombstones.
+	private void applyTombstone(int reviewId, long deletedAt, boolean byAdmin) {
+		StoredReview review = reviewsById.get(reviewId);
+		applyDelete(reviewId);
+		review.deletedAt = deletedAt;
+		review.deletedByAdmin = byAdmin;
+		tombstonesById.put(reviewId, review);
+		tombstoneIdsByUserMovie.put(userMovieKey(review.userId, review.movieId), reviewId);
+	}
+
+	// Brings a tombstone back into the live reviews, with its shares.
+	private void applyRestore(int reviewId) {
+		StoredReview review = tombstonesById.remove(reviewId);
+		tombstoneIdsByUserMovie.remove(userMovieKey(review.userId, review.movieId));
+		review.deletedAt = 0;
+		review.deletedByAdmin = false;
+		reviewsById.put(reviewId, review);
+		idsByUserMovie.put(userMovieKey(review.userId, review.movieId), reviewId);
+		index(idsByMovie, review.movieId).add(reviewId);
+		index(idsByUser, review.userId).add(reviewId);
+		rank(reviewId, review);
+		fingerprint(reviewId, review);
+		for (int i = 0; i < review.shareCount; i++) {
+			index(idsBySharedWith, review.shareRecipients[i]).add(reviewId);
+		}
+	}
+
+	// Drops a tombstone for good.
+	private void applyPurge(int reviewId) {
+		StoredReview review = tombstonesById.remove(reviewId);
+		tombstoneIdsByUserMovie.remove(userMovieKey(review.userId, review.movieId));
+	}
+
+	// Journals and applies a review's duplicate flag, separately from the write it belongs to, so the
+	// older record types keep their layout. Returns the journal sequence number to wait for.
+	private long flag(int reviewId, int duplicateOf) throws SQLException {
+		long sequence = journal.append(FLAG, out -> {
+			out.writeInt(reviewId);
+			out.writeInt(duplicateOf);
+		});
+		applyFlag(reviewId, duplicateOf);
+		return sequence;
+	}
+
+	// Sets the ID of the review a live review or tombstone nearly duplicated when written (0 for none).
+	private void applyFlag(int reviewId, int duplicateOf) {
+		StoredReview review = reviewsById.get(reviewId);
+		if (review == null) {
+			review = tombstonesById.get(reviewId);
+		}
+		if (review != null) {
+			review.duplicateOf = duplicateOf;
+		}
+	}
+
+	// Records that a review was shared with a recipient.
+	private void applyShare(int reviewId, int recipientId, long sharedAt) {
+		StoredReview review = reviewsById.get(reviewId);
+		unrank(review);
+		review.addShare(recipientId, sharedAt);
+		rank(reviewId, review);
+		index(idsBySharedWith, recipientId).add(reviewId);
+	}
+
+	// Adds a live review to its movie's feed at its current score.
+	private void rank(int id, StoredReview review) {
+		review.feedEntry = new FeedEntry(ReviewRanking.score(review.rating, review.text, review.modifiedAt,
+				review.shareCount), id);
+		NavigableSet<FeedEntry> feed = feedByMovie.get(review.movieId);
+		if (feed == null) {
+			feed = new TreeSet<>(FEED_ORDER);
+			feedByMovie.put(review.movieId, feed);
+		}
+		feed.add(review.feedEntry);
+	}
+
+	// Removes a review from its movie's feed, dropping the feed once empty.
+	private void unrank(StoredReview review) {
+		NavigableSet<FeedEntry> feed = feedByMovie.get(review.movieId);
+		if (feed != null && feed.remove(review.feedEntry) && feed.isEmpty()) {
+			feedByMovie.remove(review.movieId);
+		}
+	}
+
+	// Indexes a live review under the band keys of its text's fingerprint, if it has one.
+	private void fingerprint(int id, StoredReview review) {
+		review.bandKeys = ReviewFingerprint.bandKeys(review.text);
+		if (review.bandKeys != null) {
+			for (int bandKey : review.bandKeys) {
+				index(idsByBand, bandKey).add(id);
+			}
+		}
+	}
+
+	// Removes a review from the fingerprint index.
+	private void unfingerprint(int id, StoredReview review) {
+		if (review.bandKeys != null) {
+			for (int bandKey : review.bandKeys) {
+				unindex(idsByBand, bandKey, id);
+			}
+		}
+	}
+
+	// Records that a review was shared with several recipients at once, moving it in its feed once.
+	private void applyShareAll(int reviewId, int[] recipientIds, long sharedAt) {
+		StoredReview review = reviewsById.get(reviewId);
+		unrank(review);
+		for (int recipientId : recipientIds) {
+			review.addShare(recipientId, sharedAt);
+			index(idsBySharedWith, recipientId).add(reviewId);
+		}
+		rank(reviewId, review);
+	}
+
+	// Creates Review snapshots of the listed reviews; an absent list yields an empty result.
+	private List<Review> toReviews(IdList ids) {
+		if (ids == null) {
+			return new ArrayList<>();
+		}
+		List<Review> reviews = new ArrayList<>(ids.size);
+		for (int i = 0; i < ids.size; i++) {
+			reviews.add(toReview(ids.ids[i], reviewsById.get(ids.ids[i])));
+		}
+		return reviews;
+	}
+
+	// Creates a Review snapshot with the movie title and reviewer name resolved.
+	private Review toReview(int id, StoredReview stored) {
+		Review review = toStoredReview(id, stored);
+		Movie movie = movies.findById(stored.movieId);
+		if (movie != null) {
+			review.setMovieTitle(movie.getTitle());
+		}
+		review.setReviewerName(users.findName(stored.userId));
+		return review;
+	}
+
+	// Creates a Review snapshot of the stored columns only, as the JDBC backend reads them.
+	private static Review toStoredReview(int id, StoredReview stored) {
+		return new Review(id, stored.movieId, stored.userId, stored.text, stored.rating, new Timestamp(stored.modifiedAt));
+	}
+
+	// Returns the ID list stored under a key, creating it if absent.
+	private static IdList index(IntObjectMap<IdList> map, int key) {
+		IdList ids = map.get(key);
+		if (ids == null) {
+			ids = new IdList();
+			map.put(key, ids);
+		}
+		return ids;
+	}
+
+	// Removes an ID from the list stored under a key, dropping the list once empty.
+	private static void unindex(IntObjectMap<IdList> map, int key, int id) {
+		IdList ids = map.get(key);
+		if (ids != null && ids.remove(id) && ids.size == 0) {
+			map.remove(key);
+		}
+	}
+
+	// Mirrors the CHECK constraint on reviews.rating.
+	private static void checkRating(int rating) throws SQLException {
+		if (rating < 1 || rating > 5) {
+			throw new SQLException("Check constraint violated: rating must be between 1 and 5.");
+		}
+	}
+
+	// Packs a user ID and movie ID into one map key.
+	private static long userMovieKey(int userId, int movieId) {
+		return ((long) userId << 32) | (movieId & 0xFFFFFFFFL);
+	}
+
+	// Unordered list of IDs; removal swaps in the last element.
+	private static class IdList {
+		private int[] ids = new int[4];
+		private int size;
+
+		void add(int id) {
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size * 2);
+			}
+			ids[size++] = id;
+		}
+
+		// Returns true if the ID was present.
+		boolean remove(int id) {
+			for (int i = 0; i < size; i++) {
+				if (ids[i] == id) {
+					ids[i] = ids[--size];
+					return true;
+				}
+			}
+			return false;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(ids, size);
+		}
+	}
+
+	// A review's place in its movie's feed.
+	private static class FeedEntry {
+		private final double score;
+		private final int id;
+
+		FeedEntry(double score, int id) {
+			this.score = score;
+			this.id = id;
+		}
+	}
+
+	// Mutable state of one review, including the recipients it was shared with.
+	private static class StoredReview {
+		private final int movieId;
+		private final int userId;
+		private String text;
+		private int rating;
+		private long modifiedAt;
+		// Deletion time of a tombstone; 0 for a live review.
+		private long deletedAt;
+		// Whether an admin (rather than the author) deleted the tombstone.
+		private boolean deletedByAdmin;
+		// Recipients and share times, in the order the shares were made.
+		private int[] shareRecipients = new int[0];
+		private long[] shareTimes = new long[0];
+		private int shareCount;
+		// Place in the movie's feed while live, as of the last change.
+		private FeedEntry feedEntry;
+		// Band keys of the text's fingerprint, or null if it has none.
+		private int[] bandKeys;
+		// Review this one nearly duplicated when last written, or 0 (see ReviewService.checkDuplicate).
+		private int duplicateOf;
+
+		StoredReview(int movieId, int userId, String text, int rating, long modifiedAt) {
+			this.movieId = movieId;
+			this.userId = userId;
+			this.text = text;
+			this.rating = rating;
+			this.modifiedAt = modifiedAt;
+		}
+
+		void update(String text, int rating, long modifiedAt) {
+			this.text = text;
+			this.rating = rating;
+			this.modifiedAt = modifiedAt;
+		}
+
+		// Returns the position of a recipient in the share arrays, or -1 if not shared with them.
+		int shareIndex(int recipientId) {
+			for (int i = 0; i < shareCount; i++) {
+				if (shareRecipients[i] == recipientId) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		void addShare(int recipientId, long sharedAt) {
+			if (shareCount == shareRecipients.length) {
+				int capacity = Math.max(2, shareCount * 2);
+				shareRecipients = Arrays.copyOf(shareRecipients, capacity);
+				shareTimes = Arrays.copyOf(shareTimes, capacity);
+			}
+			shareRecipients[shareCount] = recipientId;
+			shareTimes[shareCount] = sharedAt;
+			shareCount++;
+		}
+
+		void removeShare(int recipientId) {
+			int index = shareIndex(recipientId);
+			if (index >= 0) {
+				shareCount--;
+				System.arraycopy(shareRecipients, index + 1, shareRecipients, index, shareCount - index);
+				System.arraycopy(shareTimes, index + 1, shareTimes, index, shareCount - index);
+			}
+		}
+	}
+}
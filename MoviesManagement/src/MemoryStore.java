@@ -0,0 +1,284 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+// The memory storage backend: user, movie and review repositories held in process memory,
+// optionally made durable in a data directory.
+// A durable store records every mutation in a WriteAheadLog (wal-<generation>.log) before
+// acknowledging it, and periodically writes a compacted snapshot of the whole state
+// (snapshot-<generation>.dat), after which older snapshots and log segments are deleted.
+// Snapshot N holds the state at the start of segment N; on startup the newest snapshot is
+// loaded, the segments from its generation on are replayed, and a fresh snapshot is written.
+public class MemoryStore implements Closeable {
+	// Identifies snapshot files of this format, of the earlier formats without the deleter of review
+	// tombstones, also without review duplicate flags, also without follows, and of the first format,
+	// also without review tombstones.
+	private static final int SNAPSHOT_MAGIC = 0x4D525335;
+	private static final int SNAPSHOT_MAGIC_V4 = 0x4D525334;
+	private static final int SNAPSHOT_MAGIC_V3 = 0x4D525333;
+	private static final int SNAPSHOT_MAGIC_V2 = 0x4D525332;
+	private static final int SNAPSHOT_MAGIC_V1 = 0x4D525331;
+	// Seconds between snapshots of a durable store; a snapshot is only written if the log grew.
+	private static final long SNAPSHOT_SECONDS = Long.getLong("moviereviews.storage.snapshotSeconds", 60);
+
+	private final MemoryUserRepository users = new MemoryUserRepository();
+	private final MemoryMovieRepository movies = new MemoryMovieRepository();
+	private final MemoryReviewRepository reviews = new MemoryReviewRepository(users, movies);
+	// Data directory and log of a durable store; null for a purely in-memory one.
+	private final Path directory;
+	private WriteAheadLog log;
+	private ScheduledExecutorService snapshotter;
+	// True if existing data was loaded from the directory.
+	private boolean recovered;
+
+	// Creates an empty store, or opens the durable store in the given directory if not null.
+	private MemoryStore(Path directory) {
+		this.directory = directory;
+	}
+
+	// Creates an empty, non-durable store.
+	public static MemoryStore inMemory() {
+		return new MemoryStore(null);
+	}
+
+	// Opens the durable store in a directory, creating it if needed and recovering any data in it.
+	public static MemoryStore open(Path directory) throws IOException {
+		MemoryStore store = new MemoryStore(directory);
+		store.recover();
+		return store;
+	}
+
+	// Returns the user repository.
+	public MemoryUserRepository users() {
+		return users;
+	}
+
+	// Returns the movie repository.
+	public MemoryMovieRepository movies() {
+		return movies;
+	}
+
+	// Returns the review repository.
+	public MemoryReviewRepository reviews() {
+		return reviews;
+	}
+
+	// Returns true if existing data was loaded from the data directory.
+	public boolean isRecovered() {
+		return recovered;
+	}
+
+	// Writes a snapshot of the current state and deletes the log segments and snapshots it
+	// replaces. Does nothing for a non-durable store.
+	public synchronized void checkpoint() throws IOException {
+		if (log == null) {
+			return;
+		}
+		long generation;
+		byte[] state;
+		// Holding every repository lock (in the order reviews, users, movies that the repositories
+		// themselves use) stops all mutations, so the snapshot matches the start of the new segment.
+		synchronized (reviews) {
+			synchronized (users) {
+				synchronized (movies) {
+					generation = log.rotate();
+					state = serialize();
+				}
+			}
+		}
+		writeSnapshot(generation, state);
+		deleteBefore(generation);
+	}
+
+	// Stops periodic snapshots, writes a final one and closes the log.
+	@Override
+	public synchronized void close() throws IOException {
+		if (log == null) {
+			return;
+		}
+		snapshotter.shutdownNow();
+		checkpoint();
+		log.close();
+		log = null;
+	}
+
+	// Loads the newest snapshot, replays the log after it, then starts a new generation.
+	private void recover() throws IOException {
+		Files.createDirectories(directory);
+		List<Long> snapshots = generations("snapshot-", ".dat");
+		List<Long> segments = generations("wal-", ".log");
+		long base = 0;
+		if (!snapshots.isEmpty()) {
+			base = snapshots.get(snapshots.size() - 1);
+			readSnapshot(snapshotPath(base));
+			recovered = true;
+		}
+		long last = base;
+		for (long segment : segments) {
+			if (segment >= base) {
+				if (WriteAheadLog.replay(WriteAheadLog.segmentPath(directory, segment), this::apply) > 0) {
+					recovered = true;
+				}
+				last = Math.max(last, segment);
+			}
+		}
+		// Continue in a new segment with a snapshot of the recovered state, which also drops any torn
+		// tail of the last segment.
+		long generation = last + 1;
+		log = new WriteAheadLog(directory, generation);
+		writeSnapshot(generation, serialize());
+		deleteBefore(generation);
+		MemoryJournal journal = new MemoryJournal(log);
+		users.setJournal(journal);
+		movies.setJournal(journal);
+		reviews.setJournal(journal);
+		snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "memory-store-snapshot");
+			thread.setDaemon(true);
+			return thread;
+		});
+		snapshotter.scheduleWithFixedDelay(this::periodicCheckpoint, SNAPSHOT_SECONDS, SNAPSHOT_SECONDS,
+				TimeUnit.SECONDS);
+	}
+
+	// Writes a snapshot if anything was logged since the last one.
+	private void periodicCheckpoint() {
+		try {
+			synchronized (this) {
+				if (log != null && log.segmentRecords() > 0) {
+					checkpoint();
+				}
+			}
+		} catch (IOException e) {
+			// The log stays intact, so nothing is lost; the next attempt retries.
+			System.out.println("Failed to write snapshot: " + e.getMessage());
+		}
+	}
+
+	// Applies one replayed log record to the repository that owns its type.
+	private void apply(DataInputStream record) throws IOException {
+		byte type = record.readByte();
+		if (!users.replay(type, record) && !movies.replay(type, record) && !reviews.replay(type, record)) {
+			throw new IOException("Unknown log record type " + type + ".");
+		}
+	}
+
+	// Serializes the state of all repositories.
+	private byte[] serialize() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		users.writeSnapshot(out);
+		movies.writeSnapshot(out);
+		reviews.writeSnapshot(out);
+		users.writeFollows(out);
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	// Writes a snapshot file through a temporary file, so a crash never leaves a partial snapshot
+	// under the final name. The file holds a magic number, the state's length, the state and a
+	// CRC32 of the state.
+	private void writeSnapshot(long generation, byte[] state) throws IOException {
+		Path target = snapshotPath(generation);
+		Path temporary = directory.resolve(target.getFileName() + ".tmp");
+		ByteBuffer buffer = ByteBuffer.allocate(state.length + 12);
+		buffer.putInt(SNAPSHOT_MAGIC).putInt(state.length).put(state).putInt(crc(state)).flip();
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			// Force the contents to disk before the rename makes the snapshot visible.
+			channel.force(true);
+		}
+		Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	// Loads a snapshot file into the empty repositories.
+	private void readSnapshot(Path path) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+		int magic = buffer.remaining() < 12 ? 0 : buffer.getInt();
+		if (magic != SNAPSHOT_MAGIC && magic != SNAPSHOT_MAGIC_V4 && magic != SNAPSHOT_MAGIC_V3
+				&& magic != SNAPSHOT_MAGIC_V2 && magic != SNAPSHOT_MAGIC_V1) {
+			throw new IOException("Not a snapshot file: " + path);
+		}
+		int length = buffer.getInt();
+		if (length < 0 || buffer.remaining() != length + 4) {
+			throw new IOException("Truncated snapshot file: " + path);
+		}
+		byte[] state = new byte[length];
+		buffer.get(state);
+		if (buffer.getInt() != crc(state)) {
+			throw new IOException("Corrupt snapshot file: " + path);
+		}
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(state));
+		users.readSnapshot(in);
+		movies.readSnapshot(in);
+		reviews.readSnapshot(in, magic != SNAPSHOT_MAGIC_V1, magic == SNAPSHOT_MAGIC || magic == SNAPSHOT_MAGIC_V4,
+				magic == SNAPSHOT_MAGIC);
+		if (magic == SNAPSHOT_MAGIC || magic == SNAPSHOT_MAGIC_V4 || magic == SNAPSHOT_MAGIC_V3) {
+			users.readFollows(in);
+		}
+	}
+
+	// Deletes snapshots and log segments older than the given generation.
+	private void deleteBefore(long generation) throws IOException {
+		for (long old : generations("snapshot-", ".dat")) {
+			if (old < generation) {
+				Files.deleteIfExists(snapshotPath(old));
+			}
+		}
+		for (long old : generations("wal-", ".log")) {
+			if (old < generation) {
+				Files.deleteIfExists(WriteAheadLog.segmentPath(directory, old));
+			}
+		}
+	}
+
+	// Returns the generations of the files named <prefix><generation><suffix>, in ascending order.
+	private List<Long> generations(String prefix, String suffix) throws IOException {
+		List<Long> generations = new ArrayList<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				try {
+					generations.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+				} catch (NumberFormatException e) {
+					// Not one of ours.
+				}
+			}
+		}
+		Collections.sort(generations);
+		return generations;
+	}
+
+	// Returns the CRC32 of a byte array.
+	private static int crc(byte[] bytes) {
+		CRC32 crc = new CRC32();
+		crc.update(bytes, 0, bytes.length);
+		return (int) crc.getValue();
+	}
+
+	// Returns the path of the snapshot of a generation.
+	private Path snapshotPath(long generation) {
+		return directory.resolve("snapshot-" + generation + ".dat");
+	}
+}
@@ -0,0 +1,457 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.IntConsumer;
+
+// UserRepository held in process memory, with an email index for lookups and the follows indexed
+// both ways (followers of each user, and whom each user follows, for a deletion's cascade).
+// Mutations are recorded in the store's journal when it is persisted; see MemoryStore.
+public class MemoryUserRepository implements UserRepository {
+	// Journal record types (see replay).
+	static final byte INSERT = 1;
+	static final byte UPDATE_PROFILE = 2;
+	static final byte UPDATE_PASSWORD = 3;
+	static final byte DELETE = 4;
+	static final byte FOLLOW = 5;
+	static final byte UNFOLLOW = 6;
+
+	// Stored users by ID, kept in ID order like the users table.
+	private final NavigableMap<Integer, StoredUser> usersById = new TreeMap<>();
+	// User IDs by email.
+	private final Map<String, Integer> idsByEmail = new HashMap<>();
+	// Follower IDs in ID order by followed user ID, and followed user IDs by follower ID.
+	private final Map<Integer, NavigableSet<Integer>> followersById = new HashMap<>();
+	private final Map<Integer, Set<Integer>> followeesById = new HashMap<>();
+	// Called with the ID of each deleted user so dependent data can cascade.
+	private final List<IntConsumer> deleteListeners = new CopyOnWriteArrayList<>();
+	// ID for the next inserted user.
+	private int nextId = 1;
+	// Journal receiving every mutation.
+	private MemoryJournal journal = MemoryJournal.NONE;
+
+	@Override
+	public boolean insert(String firstName, String lastName, String email, String mobile, LocalDate birthDate,
+			String password, String accountType) throws SQLException {
+		long sequence;
+		synchronized (this) {
+			// Emails are unique, as in the users table.
+			if (idsByEmail.containsKey(email)) {
+				return false;
+			}
+			int id = nextId;
+			sequence = journal.append(INSERT, out -> {
+				out.writeInt(id);
+				writeFields(out, firstName, lastName, email, mobile, birthDate);
+				out.writeUTF(password);
+				out.writeUTF(accountType);
+			});
+			applyInsert(id, new StoredUser(firstName, lastName, email, mobile, birthDate, password, accountType));
+		}
+		journal.awaitDurable(sequence);
+		return true;
+	}
+
+	@Override
+	public synchronized Credentials findCredentials(String email) {
+		Integer id = idsByEmail.get(email);
+		return id == null ? null : new Credentials(toUser(id), usersById.get(id).password);
+	}
+
+	@Override
+	public synchronized int findIdByEmail(String email) {
+		Integer id = idsByEmail.get(email);
+		return id != null ? id : -1;
+	}
+
+	@Override
+	public synchronized Map<String, Integer> findIdsByEmails(Collection<String> emails) {
+		Map<String, Integer> ids = new HashMap<>();
+		for (String email : emails) {
+			Integer id = idsByEmail.get(email);
+			if (id != null) {
+				ids.put(email, id);
+			}
+		}
+		return ids;
+	}
+
+	@Override
+	public synchronized boolean emailExists(String email) {
+		return idsByEmail.containsKey(email);
+	}
+
+	@Override
+	public synchronized boolean emailInUse(String email, int excludingUserId) {
+		Integer id = idsByEmail.get(email);
+		return id != null && id != excludingUserId;
+	}
+
+	@Override
+	public synchronized String findAccountType(int userId) {
+		StoredUser user = usersById.get(userId);
+		return user != null ? user.accountType : null;
+	}
+
+	@Override
+	public synchronized List<User> findAll() {
+		List<User> users = new ArrayList<>(usersById.size());
+		for (Integer id : usersById.keySet()) {
+			users.add(toUser(id));
+		}
+		return users;
+	}
+
+	@Override
+	public synchronized List<User> findPage(int afterId, int limit) {
+		List<User> users = new ArrayList<>();
+		for (Integer id : usersById.tailMap(afterId, false).keySet()) {
+			if (users.size() == limit) {
+				break;
+			}
+			users.add(toUser(id));
+		}
+		return users;
+	}
+
+	@Override
+	public boolean updateProfile(int userId, String firstName, String lastName, String email, String mobile,
+			LocalDate birthDate) throws SQLException {
+		long sequence;
+		synchronized (this) {
+			if (!usersById.containsKey(userId) || emailInUse(email, userId)) {
+				return false;
+			}
+			sequence = journal.append(UPDATE_PROFILE, out -> {
+				out.writeInt(userId);
+				writeFields(out, firstName, lastName, email, mobile, birthDate);
+			});
+			applyProfile(userId, firstName, lastName, email, mobile, birthDate);
+		}
+		journal.awaitDurable(sequence);
+		return true;
+	}
+
+	@Override
+	public boolean updatePassword(int userId, String password) throws SQLException {
+		long sequence;
+		synchronized (this) {
+			StoredUser user = usersById.get(userId);
+			if (user == null) {
+				return false;
+			}
+			sequence = journal.append(UPDATE_PASSWORD, out -> {
+				out.writeInt(userId);
+				out.writeUTF(password);
+			});
+			user.password = password;
+		}
+		journal.awaitDurable(sequence);
+		return true;
+	}
+
+	@Override
+	public boolean delete(int userId) throws SQLException {
+		long sequence;
+		synchronized (this) {
+			if (!usersById.containsKey(userId)) {
+				return false;
+			}
+			sequence = journal.append(DELETE, out -> out.writeInt(userId));
+			applyDelete(userId);
+		}
+		// Cascade outside the lock, so listeners may read users without lock-order concerns.
+		// The journal holds only the user's deletion; replaying it repeats the cascade.
+		notifyDeleted(userId);
+		journal.awaitDurable(sequence);
+		return true;
+	}
+
+	// The in-memory cascade is quick and holds no database locks, so marking deletes at once.
+	@Override
+	public boolean markDeleted(int userId) throws SQLException {
+		return delete(userId);
+	}
+
+	// Nothing is left to purge once a user is marked, as marking deletes.
+	@Override
+	public int purgeActivity(int userId, int maxRows) {
+		return 0;
+	}
+
+	@Override
+	public List<Integer> findPendingDeletions() {
+		return new ArrayList<>();
+	}
+
+	@Override
+	public boolean follow(int followerId, int followeeId) throws SQLException {
+		long sequence;
+		synchronized (this) {
+			// Mirrors the primary key and foreign keys of the follows table.
+			if (!usersById.containsKey(followerId) || !usersById.containsKey(followeeId)
+					|| follows(followerId, followeeId)) {
+				return false;
+			}
+			sequence = journal.append(FOLLOW, out -> {
+				out.writeInt(followerId);
+				out.writeInt(followeeId);
+			});
+			applyFollow(followerId, followeeId);
+		}
+		journal.awaitDurable(sequence);
+		return true;
+	}
+
+	@Override
+	public boolean unfollow(int followerId, int followeeId) throws SQLException {
+		long sequence;
+		synchronized (this) {
+			if (!follows(followerId, followeeId)) {
+				return false;
+			}
+			sequence = journal.append(UNFOLLOW, out -> {
+				out.writeInt(followerId);
+				out.writeInt(followeeId);
+			});
+			applyUnfollow(followerId, followeeId);
+		}
+		journal.awaitDurable(sequence);
+		return true;
+	}
+
+	@Override
+	public synchronized List<Integer> findFollowerIds(int userId, int limit) {
+		List<Integer> followerIds = new ArrayList<>();
+		for (int followerId : followersById.getOrDefault(userId, new TreeSet<>())) {
+			if (followerIds.size() >= limit) {
+				break;
+			}
+			followerIds.add(followerId);
+		}
+		return followerIds;
+	}
+
+	// Returns "first last" for the user, or null if the user does not exist.
+	public synchronized String findName(int userId) {
+		StoredUser user = usersById.get(userId);
+		return user != null ? user.firstName + " " + user.lastName : null;
+	}
+
+	// Returns true if the user exists.
+	public synchronized boolean exists(int userId) {
+		return usersById.containsKey(userId);
+	}
+
+	// Registers a callback that receives the ID of every deleted user.
+	public void addDeleteListener(IntConsumer listener) {
+		deleteListeners.add(listener);
+	}
+
+	// Sets the journal that records subsequent mutations.
+	synchronized void setJournal(MemoryJournal journal) {
+		this.journal = journal;
+	}
+
+	// Applies a journal record if it is one of this repository's types.
+	// Returns false for other types.
+	boolean replay(byte type, DataInputStream in) throws IOException {
+		switch (type) {
+			case INSERT: {
+				int id = in.readInt();
+				applyInsert(id, readUser(in));
+				return true;
+			}
+			case UPDATE_PROFILE:
+				applyProfile(in.readInt(), in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(),
+						LocalDate.ofEpochDay(in.readLong()));
+				return true;
+			case UPDATE_PASSWORD: {
+				int id = in.readInt();
+				usersById.get(id).password = in.readUTF();
+				return true;
+			}
+			case DELETE: {
+				int id = in.readInt();
+				applyDelete(id);
+				notifyDeleted(id);
+				return true;
+			}
+			case FOLLOW:
+				applyFollow(in.readInt(), in.readInt());
+				return true;
+			case UNFOLLOW:
+				applyUnfollow(in.readInt(), in.readInt());
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	// Writes every user to a snapshot.
+	synchronized void writeSnapshot(DataOutputStream out) throws IOException {
+		out.writeInt(nextId);
+		out.writeInt(usersById.size());
+		for (Map.Entry<Integer, StoredUser> entry : usersById.entrySet()) {
+			StoredUser user = entry.getValue();
+			out.writeInt(entry.getKey());
+			writeFields(out, user.firstName, user.lastName, user.email, user.mobile, user.birthDate);
+			out.writeUTF(user.password);
+			out.writeUTF(user.accountType);
+		}
+	}
+
+	// Writes every follow to a snapshot, after the other repositories' state.
+	synchronized void writeFollows(DataOutputStream out) throws IOException {
+		int count = 0;
+		for (Set<Integer> followers : followersById.values()) {
+			count += followers.size();
+		}
+		out.writeInt(count);
+		for (Map.Entry<Integer, NavigableSet<Integer>> entry : followersById.entrySet()) {
+			for (int followerId : entry.getValue()) {
+				out.writeInt(followerId);
+				out.writeInt(entry.getKey());
+			}
+		}
+	}
+
+	// Loads the follows written by writeFollows.
+	synchronized void readFollows(DataInputStream in) throws IOException {
+		for (int count = in.readInt(); count > 0; count--) {
+			applyFollow(in.readInt(), in.readInt());
+		}
+	}
+
+	// Loads the users of a snapshot into this empty repository.
+	synchronized void readSnapshot(DataInputStream in) throws IOException {
+		int snapshotNextId = in.readInt();
+		for (int count = in.readInt(); count > 0; count--) {
+			int id = in.readInt();
+			applyInsert(id, readUser(in));
+		}
+		nextId = Math.max(nextId, snapshotNextId);
+	}
+
+	// Stores a new user under the ID.
+	private void applyInsert(int id, StoredUser user) {
+		usersById.put(id, user);
+		idsByEmail.put(user.email, id);
+		nextId = Math.max(nextId, id + 1);
+	}
+
+	// Replaces a user's profile fields, moving the email index entry.
+	private void applyProfile(int userId, String firstName, String lastName, String email, String mobile,
+			LocalDate birthDate) {
+		StoredUser user = usersById.get(userId);
+		idsByEmail.remove(user.email);
+		idsByEmail.put(email, userId);
+		user.firstName = firstName;
+		user.lastName = lastName;
+		user.email = email;
+		user.mobile = mobile;
+		user.birthDate = birthDate;
+	}
+
+	// Removes a user, their email index entry and their follows both ways.
+	private void applyDelete(int userId) {
+		StoredUser user = usersById.remove(userId);
+		idsByEmail.remove(user.email);
+		for (int followeeId : new ArrayList<>(followeesById.getOrDefault(userId, new HashSet<>()))) {
+			applyUnfollow(userId, followeeId);
+		}
+		for (int followerId : new ArrayList<>(followersById.getOrDefault(userId, new TreeSet<>()))) {
+			applyUnfollow(followerId, userId);
+		}
+	}
+
+	// Returns true if one user follows another.
+	private boolean follows(int followerId, int followeeId) {
+		Set<Integer> followers = followersById.get(followeeId);
+		return followers != null && followers.contains(followerId);
+	}
+
+	// Records a follow in both indexes.
+	private void applyFollow(int followerId, int followeeId) {
+		followersById.computeIfAbsent(followeeId, id -> new TreeSet<>()).add(followerId);
+		followeesById.computeIfAbsent(followerId, id -> new HashSet<>()).add(followeeId);
+	}
+
+	// Removes a follow from both indexes, dropping emptied entries.
+	private void applyUnfollow(int followerId, int followeeId) {
+		Set<Integer> followers = followersById.get(followeeId);
+		if (followers != null && followers.remove(followerId) && followers.isEmpty()) {
+			followersById.remove(followeeId);
+		}
+		Set<Integer> followees = followeesById.get(followerId);
+		if (followees != null && followees.remove(followeeId) && followees.isEmpty()) {
+			followeesById.remove(followerId);
+		}
+	}
+
+	// Passes a deleted user's ID to the delete listeners.
+	private void notifyDeleted(int userId) {
+		for (IntConsumer listener : deleteListeners) {
+			listener.accept(userId);
+		}
+	}
+
+	// Creates a User snapshot of a stored user; callers never see the stored object.
+	private User toUser(int id) {
+		StoredUser user = usersById.get(id);
+		return new User(id, user.firstName, user.lastName, user.email, user.mobile, user.birthDate.toString(),
+				user.accountType);
+	}
+
+	// Writes the profile fields shared by insert records, profile records and snapshots.
+	private static void writeFields(DataOutputStream out, String firstName, String lastName, String email,
+			String mobile, LocalDate birthDate) throws IOException {
+		out.writeUTF(firstName);
+		out.writeUTF(lastName);
+		out.writeUTF(email);
+		out.writeUTF(mobile);
+		out.writeLong(birthDate.toEpochDay());
+	}
+
+	// Reads the fields written after the ID by insert records and snapshots.
+	private static StoredUser readUser(DataInputStream in) throws IOException {
+		return new StoredUser(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(),
+				LocalDate.ofEpochDay(in.readLong()), in.readUTF(), in.readUTF());
+	}
+
+	// Mutable state of one user.
+	private static class StoredUser {
+		private String firstName;
+		private String lastName;
+		private String email;
+		private String mobile;
+		private LocalDate birthDate;
+		private String password;
+		private final String accountType;
+
+		StoredUser(String firstName, String lastName, String email, String mobile, LocalDate birthDate,
+				String password, String accountType) {
+			this.firstName = firstName;
+			this.lastName = lastName;
+			this.email = email;
+			this.mobile = mobile;
+			this.birthDate = birthDate;
+			this.password = password;
+			this.accountType = accountType;
+		}
+	}
+}
@@ -0,0 +1,235 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+import com.sun.net.httpserver.HttpServer;
+
+// Application-wide registry of operational metrics: striped counters, lock-free latency
+// histograms and gauges. Services look up their metrics once (in static fields) so the hot
+// path only pays for a LongAdder increment or a histogram bucket increment.
+// Metrics are exported in Prometheus text format to a file or a local HTTP endpoint.
+public class Metrics {
+	// Quantiles reported for each histogram.
+	private static final double[] QUANTILES = { 0.5, 0.95, 0.99 };
+
+	// All metric families by name, sorted so exports are stable.
+	private static final Map<String, Family> FAMILIES = new TreeMap<>();
+	// Time the registry was initialized, used to report per-second rates.
+	private static final long STARTED_AT = System.nanoTime();
+	// Local HTTP endpoint, if started.
+	private static HttpServer server;
+
+	// Monotonic counter backed by a LongAdder.
+	public static class Counter {
+		private final LongAdder value = new LongAdder();
+
+		// Adds one to the counter.
+		public void increment() {
+			value.increment();
+		}
+
+		// Adds the given amount to the counter.
+		public void add(long amount) {
+			value.add(amount);
+		}
+
+		// Returns the current total.
+		public long get() {
+			return value.sum();
+		}
+	}
+
+	// A metric name with its help text, type and labeled series.
+	private static class Family {
+		final String name;
+		final String help;
+		final String type;
+		// Series keyed by their label string, e.g. {result="success"}.
+		final Map<String, Object> series = new ConcurrentHashMap<>();
+
+		Family(String name, String help, String type) {
+			this.name = name;
+			this.help = help;
+			this.type = type;
+		}
+	}
+
+	// Private constructor; all state is static.
+	private Metrics() {
+	}
+
+	// Returns the counter for a name and optional label pairs, creating it on first use.
+	public static Counter counter(String name, String help, String... labels) {
+		return (Counter) register(name, help, "counter", labels, new Counter());
+	}
+
+	// Returns the histogram (in nanoseconds) for a name and optional label pairs.
+	// The name should end in _seconds; values are converted when exported.
+	public static LatencyHistogram histogram(String name, String help, String... labels) {
+		return (LatencyHistogram) register(name, help, "summary", labels, new LatencyHistogram());
+	}
+
+	// Registers a gauge whose value is read from the supplier at export time.
+	public static void gauge(String name, String help, DoubleSupplier supplier, String... labels) {
+		Family family = family(name, help, "gauge");
+		family.series.put(labelString(labels), supplier);
+	}
+
+	// Writes every metric in Prometheus text exposition format.
+	public static void writePrometheus(PrintWriter out) {
+		for (Family family : families()) {
+			out.printf("# HELP %s %s%n", family.name, family.help);
+			out.printf("# TYPE %s %s%n", family.name, family.type);
+			for (Map.Entry<String, Object> entry : new TreeMap<>(family.series).entrySet()) {
+				String labels = entry.getKey();
+				Object metric = entry.getValue();
+				if (metric instanceof Counter) {
+					out.printf("%s%s %d%n", family.name, labels, ((Counter) metric).get());
+				} else if (metric instanceof LatencyHistogram) {
+					LatencyHistogram histogram = (LatencyHistogram) metric;
+					for (double quantile : QUANTILES) {
+						out.printf("%s%s %s%n", family.name, withLabel(labels, "quantile", String.valueOf(quantile)),
+								seconds(histogram.getPercentile(quantile * 100)));
+					}
+					out.printf("%s_sum%s %s%n", family.name, labels, seconds(histogram.getSum()));
+					out.printf("%s_count%s %d%n", family.name, labels, histogram.getCount());
+				} else {
+					out.printf("%s%s %s%n", family.name, labels, ((DoubleSupplier) metric).getAsDouble());
+				}
+			}
+		}
+		out.flush();
+	}
+
+	// Writes the Prometheus text export to a file (e.g. for the node exporter textfile collector).
+	// Returns true if the file was written, false otherwise.
+	public static boolean exportToFile(String path) {
+		try (PrintWriter out = new PrintWriter(new FileWriter(path))) {
+			writePrometheus(out);
+			return true;
+		} catch (IOException e) {
+			// Handle file errors during export.
+			System.out.println("Failed to export metrics: " + e.getMessage());
+			return false;
+		}
+	}
+
+	// Starts a local HTTP endpoint serving the Prometheus export at /metrics.
+	// Returns true if the endpoint is running, false otherwise.
+	public static synchronized boolean startHttpEndpoint(int port) {
+		if (server != null) {
+			return true;
+		}
+		try {
+			HttpServer created = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+			created.createContext("/metrics", exchange -> {
+				StringWriter body = new StringWriter();
+				writePrometheus(new PrintWriter(body));
+				byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+				exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+				exchange.sendResponseHeaders(200, bytes.length);
+				try (OutputStream os = exchange.getResponseBody()) {
+					os.write(bytes);
+				}
+			});
+			created.start();
+			server = created;
+			return true;
+		} catch (IOException e) {
+			// Handle port conflicts or permission errors.
+			System.out.println("Failed to start metrics endpoint: " + e.getMessage());
+			return false;
+		}
+	}
+
+	// Prints counters with their average per-second rate since startup, and histogram percentiles.
+	public static void dump() {
+		double uptime = (System.nanoTime() - STARTED_AT) / 1_000_000_000.0;
+		System.out.println("\n--- Service Metrics ---");
+		System.out.printf("Uptime: %.0f s%n", uptime);
+		for (Family family : families()) {
+			for (Map.Entry<String, Object> entry : new TreeMap<>(family.series).entrySet()) {
+				String series = family.name + entry.getKey();
+				Object metric = entry.getValue();
+				if (metric instanceof Counter) {
+					long value = ((Counter) metric).get();
+					System.out.printf("%s: %d (%.2f/s)%n", series, value, uptime > 0 ? value / uptime : 0);
+				} else if (metric instanceof LatencyHistogram) {
+					LatencyHistogram histogram = (LatencyHistogram) metric;
+					System.out.printf("%s: %d samples, p50 %.2f ms, p95 %.2f ms, p99 %.2f ms%n", series,
+							histogram.getCount(), histogram.getPercentile(50) / 1_000_000.0,
+							histogram.getPercentile(95) / 1_000_000.0, histogram.getPercentile(99) / 1_000_000.0);
+				} else {
+					System.out.printf("%s: %.3f%n", series, ((DoubleSupplier) metric).getAsDouble());
+				}
+			}
+		}
+	}
+
+	// Returns the metric for a series, registering the candidate if the series is new.
+	private static Object register(String name, String help, String type, String[] labels, Object candidate) {
+		Family family = family(name, help, type);
+		Object existing = family.series.putIfAbsent(labelString(labels), candidate);
+		return existing != null ? existing : candidate;
+	}
+
+	// Returns the family for a name, creating it on first use.
+	private static Family family(String name, String help, String type) {
+		synchronized (FAMILIES) {
+			Family family = FAMILIES.computeIfAbsent(name, key -> new Family(name, help, type));
+			if (!family.type.equals(type)) {
+				throw new IllegalArgumentException("Metric " + name + " is already registered as " + family.type);
+			}
+			return family;
+		}
+	}
+
+	// Returns a copy of the registered families for iteration.
+	private static List<Family> families() {
+		synchronized (FAMILIES) {
+			return new ArrayList<>(FAMILIES.values());
+		}
+	}
+
+	// Formats label pairs as {key="value",...}, or an empty string when there are none.
+	private static String labelString(String[] labels) {
+		if (labels.length % 2 != 0) {
+			throw new IllegalArgumentException("Labels must be given as name/value pairs.");
+		}
+		if (labels.length == 0) {
+			return "";
+		}
+		StringBuilder sb = new StringBuilder("{");
+		for (int i = 0; i < labels.length; i += 2) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append(labels[i]).append("=\"").append(labels[i + 1].replace("\\", "\\\\").replace("\"", "\\\""))
+					.append('"');
+		}
+		return sb.append('}').toString();
+	}
+
+	// Appends one more label to an existing label string.
+	private static String withLabel(String labels, String name, String value) {
+		String label = name + "=\"" + value + "\"";
+		return labels.isEmpty() ? "{" + label + "}" : labels.substring(0, labels.length() - 1) + "," + label + "}";
+	}
+
+	// Converts nanoseconds to seconds for export.
+	private static double seconds(long nanos) {
+		return nanos / 1_000_000_000.0;
+	}
+}
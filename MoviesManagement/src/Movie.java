@@ -0,0 +1,42 @@
+// Copyright (c) 2025. Created By Yash Somani
+
+// Represents a movie in the catalog.
+public class Movie {
+	// Unique identifier of the movie.
+	private final int id;
+	// Movie title.
+	private final String title;
+	// Release date in YYYY-MM-DD format.
+	private final String releaseDate;
+	// Movie genre.
+	private final String genre;
+
+	// Constructs a movie with the given details.
+	// Handles null strings by assigning empty strings.
+	public Movie(int id, String title, String releaseDate, String genre) {
+		this.id = id;
+		this.title = title != null ? title : "";
+		this.releaseDate = releaseDate != null ? releaseDate : "";
+		this.genre = genre != null ? genre : "";
+	}
+
+	// Returns the movie's unique ID.
+	public int getId() {
+		return id;
+	}
+
+	// Returns the movie title.
+	public String getTitle() {
+		return title;
+	}
+
+	// Returns the release date (YYYY-MM-DD).
+	public String getReleaseDate() {
+		return releaseDate;
+	}
+
+	// Returns the movie genre.
+	public String getGenre() {
+		return genre;
+	}
+}
@@ -0,0 +1,13 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.sql.SQLException;
+import java.util.List;
+
+// Data access for the movie catalog. Implemented by JdbcMovieRepository (MySQL) and
+// MemoryMovieRepository (embedded); see Repositories for how one is chosen at startup.
+public interface MovieRepository {
+	// Returns all movies sorted by title.
+	List<Movie> findAll() throws SQLException;
+
+	// Returns the movie with the ID, or null if it does not exist.
+	Movie findById(int movieId) throws SQLException;
+}
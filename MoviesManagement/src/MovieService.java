@@ -1,32 +1,48 @@
-
 // Copyright (c) 2025. Created By Yash Somani
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.List;
 
-// Provides methods for displaying movie information from the movies and reviews tables in the Movie Review Application.
+// Provides methods for displaying movie information and reviews in the Movie Review Application.
 public class MovieService {
+	// Operational metrics: how often movie listings and details are viewed.
+	private static final Metrics.Counter LIST_VIEWS = Metrics.counter("movies_views_total",
+			"Movie pages displayed by view.", "view", "list");
+	private static final Metrics.Counter DETAIL_VIEWS = Metrics.counter("movies_views_total",
+			"Movie pages displayed by view.", "view", "details");
+	private static final Metrics.Counter FEED_PAGES = Metrics.counter("movies_views_total",
+			"Movie pages displayed by view.", "view", "more_reviews");
+	// Reviews shown per page of a movie's feed.
+	private static final int FEED_PAGE_SIZE = Math.max(1, Integer.getInteger("moviereviews.feed.pageSize", 10));
+
+	// Storage for the movie catalog and reviews.
+	private final MovieRepository movies;
+	private final ReviewRepository reviews;
+
+	// Creates the service over the storage backend selected at startup.
+	public MovieService() {
+		this(Repositories.movies(), Repositories.reviews());
+	}
 
-	// Displays a list of all movies in the database, sorted by title.
+	// Creates the service over the given movie and review storage.
+	public MovieService(MovieRepository movies, ReviewRepository reviews) {
+		this.movies = movies;
+		this.reviews = reviews;
+	}
+
+	// Displays a list of all movies, sorted by title.
 	public void displayAllMovies() {
-		// SQL query to select movie details, ordered alphabetically by title.
-		String sql = "SELECT id, title, rel_date, genre FROM movies ORDER BY title";
-		try (Connection conn = DatabaseConnection.getConnection();
-				PreparedStatement stmt = conn.prepareStatement(sql);
-				ResultSet rs = stmt.executeQuery()) {
+		LIST_VIEWS.increment();
+		try {
+			List<Movie> allMovies = movies.findAll();
 			// Print header for the movies section.
 			System.out.println("\n--- All Movies ---");
-			// Track if any movies are found.
-			boolean hasMovies = false;
-			// Iterate through results and display movie details.
-			while (rs.next()) {
-				hasMovies = true;
+			// Display each movie's details.
+			for (Movie movie : allMovies) {
 				System.out.printf("ID: %d, Title: %s, Release Date: %s, Genre: %s%n",
-						rs.getInt("id"), rs.getString("title"), rs.getString("rel_date"), rs.getString("genre"));
+						movie.getId(), movie.getTitle(), movie.getReleaseDate(), movie.getGenre());
 			}
 			// Inform user if no movies were found.
-			if (!hasMovies) {
+			if (allMovies.isEmpty()) {
 				System.out.println("No movies found.");
 			}
 		} catch (SQLException e) {
@@ -35,78 +51,81 @@ public class MovieService {
 		}
 	}
 
-	// Displays detailed information about a specific movie, including its reviews
-	// and average rating.
-	public void displayMovieDetails(int movieId) {
-		// SQL query to fetch movie details, associated reviews, and reviewer names
-		// using left joins.
-		String sql = "SELECT m.id, m.title, m.rel_date, m.genre, r.id AS review_id, r.review, r.rating, u.first_name, u.last_name "
-				+
-				"FROM movies m " +
-				"LEFT JOIN reviews r ON m.id = r.movie_id " +
-				"LEFT JOIN users u ON r.user_id = u.id " +
-				"WHERE m.id = ?";
-		try (Connection conn = DatabaseConnection.getConnection();
-				PreparedStatement stmt = conn.prepareStatement(sql)) {
-			// Set movie ID parameter for the query.
-			stmt.setInt(1, movieId);
-			try (ResultSet rs = stmt.executeQuery()) {
-				// Track if the movie is found.
-				boolean movieFound = false;
-				// Print header for the movie details section.
-				System.out.println("\n--- Movie Details ---");
-				// Calculate the movie's average rating.
-				double avgRating = calculateAverageRating(movieId);
-				// Iterate through results to display movie and review details.
-				while (rs.next()) {
-					if (!movieFound) {
-						// Display movie details once, when first encountered.
-						System.out.printf("ID: %d, Title: %s, Release Date: %s, Genre: %s, Average Rating: %.1f%n",
-								rs.getInt("id"), rs.getString("title"), rs.getString("rel_date"),
-								rs.getString("genre"), avgRating);
-						movieFound = true;
-					}
-					// Display review details if a review exists.
-					String review = rs.getString("review");
-					if (review != null) {
-						System.out.printf("Review ID: %d, By %s %s: %s (Rating: %d)%n",
-								rs.getInt("review_id"), rs.getString("first_name"), rs.getString("last_name"),
-								review, rs.getInt("rating"));
-					}
-				}
-				// Inform user if the movie was not found.
-				if (!movieFound) {
-					System.out.println("Movie not found.");
-				}
+	// Displays detailed information about a specific movie: its average rating and the first page of
+	// its reviews, most helpful first (see ReviewRanking). Archived reviews are not listed but count
+	// towards the average. Returns the cursor for the next page of reviews, or null if there is none.
+	public ReviewRepository.FeedCursor displayMovieDetails(int movieId) {
+		DETAIL_VIEWS.increment();
+		Movie movie;
+		List<Review> page = List.of();
+		ReviewRepository.RatingTotals live = new ReviewRepository.RatingTotals(0, 0);
+		ReviewRepository.RatingTotals archived = live;
+		try {
+			movie = movies.findById(movieId);
+			if (movie != null) {
+				live = reviews.findRatings(movieId);
+				archived = reviews.findArchivedRatings(movieId);
+				page = reviews.findFeed(movieId, null, FEED_PAGE_SIZE + 1);
 			}
 		} catch (SQLException e) {
 			// Handle database errors during movie details display.
 			System.out.println("Failed to display movie details: " + e.getMessage());
+			return null;
+		}
+		// Print header for the movie details section.
+		System.out.println("\n--- Movie Details ---");
+		// Inform user if the movie was not found.
+		if (movie == null) {
+			System.out.println("Movie not found.");
+			return null;
+		}
+		System.out.printf("ID: %d, Title: %s, Release Date: %s, Genre: %s, Average Rating: %.1f%n",
+				movie.getId(), movie.getTitle(), movie.getReleaseDate(), movie.getGenre(),
+				averageRating(live, archived));
+		if (live.getCount() > 0) {
+			System.out.println(live.getCount() + " reviews, most helpful first:");
 		}
+		ReviewRepository.FeedCursor next = displayFeedPage(page);
+		if (archived.getCount() > 0) {
+			System.out.println(archived.getCount() + " older reviews are archived and not listed.");
+		}
+		return next;
 	}
 
-	// Calculates the average rating for a movie based on its reviews.
-	// Returns the average as a double, or 0.0 if no reviews exist or an error
-	// occurs.
-	private double calculateAverageRating(int movieId) {
-		// SQL query to compute the average rating for reviews of the specified movie.
-		String sql = "SELECT AVG(rating) as avg_rating FROM reviews WHERE movie_id = ?";
-		try (Connection conn = DatabaseConnection.getConnection();
-				PreparedStatement stmt = conn.prepareStatement(sql)) {
-			// Set movie ID parameter for the query.
-			stmt.setInt(1, movieId);
-			try (ResultSet rs = stmt.executeQuery()) {
-				// Check if there is a valid average rating.
-				if (rs.next() && rs.getDouble("avg_rating") > 0) {
-					return rs.getDouble("avg_rating");
-				}
-				// Return 0.0 if no reviews are found.
-				return 0.0;
-			}
+	// Displays the page of a movie's reviews after the cursor returned for the previous page.
+	// Returns the cursor for the following page, or null if there is none.
+	public ReviewRepository.FeedCursor displayMoreReviews(int movieId, ReviewRepository.FeedCursor after) {
+		FEED_PAGES.increment();
+		List<Review> page;
+		try {
+			page = reviews.findFeed(movieId, after, FEED_PAGE_SIZE + 1);
 		} catch (SQLException e) {
-			// Handle database errors during average rating calculation.
-			System.out.println("Failed to calculate average rating: " + e.getMessage());
+			System.out.println("Failed to display reviews: " + e.getMessage());
+			return null;
+		}
+		return displayFeedPage(page);
+	}
+
+	// Displays the reviews of a feed page, read with one extra review to tell whether another page
+	// follows. Returns the cursor after the last review displayed, or null if none follows.
+	private ReviewRepository.FeedCursor displayFeedPage(List<Review> page) {
+		int shown = Math.min(page.size(), FEED_PAGE_SIZE);
+		// Display each review with its reviewer's name.
+		for (int i = 0; i < shown; i++) {
+			Review review = page.get(i);
+			System.out.printf("Review ID: %d, By %s: %s (Rating: %d)%n",
+					review.getId(), review.getReviewerName(), review.getPreview(), review.getRating());
+		}
+		return page.size() > FEED_PAGE_SIZE ? ReviewRepository.FeedCursor.after(page.get(shown - 1)) : null;
+	}
+
+	// Calculates the average rating of a movie's listed and archived reviews.
+	// Returns 0.0 if there are no reviews.
+	private double averageRating(ReviewRepository.RatingTotals live, ReviewRepository.RatingTotals archived) {
+		int count = live.getCount() + archived.getCount();
+		if (count == 0) {
 			return 0.0;
 		}
+		return (double) (live.getSum() + archived.getSum()) / count;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,201 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Collects per-statement JDBC statistics recorded by InstrumentedJdbc: latency histograms,
+// rows returned or affected, and errors, keyed by the calling service method and SQL text.
+// Also tracks how long callers wait for connections and writes slow statements to a log file.
+public class QueryStats {
+	// Statements slower than this many milliseconds are written to the slow-query log.
+	private static volatile long slowQueryMillis = Long.getLong("moviereviews.slowQueryMillis", 200L);
+	// File that receives slow-query entries.
+	private static final String SLOW_QUERY_LOG = System.getProperty("moviereviews.slowQueryLog",
+			"slow-queries.log");
+	private static final DateTimeFormatter LOG_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+	// Statistics per (caller, SQL) pair.
+	private static final ConcurrentHashMap<String, StatementStats> STATEMENTS = new ConcurrentHashMap<>();
+	// Time spent obtaining connections, exported since startup: Prometheus expects a histogram's
+	// counts never to decrease, so reset() leaves it alone.
+	private static final LatencyHistogram CONNECTION_WAIT = Metrics.histogram("db_connection_wait_seconds",
+			"Time spent obtaining a database connection.");
+	// The same waits, and failed attempts, since the last reset(), for the statistics menu.
+	private static final LatencyHistogram RECENT_CONNECTION_WAIT = new LatencyHistogram();
+	private static final LongAdder CONNECTION_ERRORS = new LongAdder();
+
+	// Statistics for one SQL statement issued from one service method.
+	public static class StatementStats {
+		private final String caller;
+		private final String sql;
+		private final LatencyHistogram latency = new LatencyHistogram();
+		private final LongAdder rows = new LongAdder();
+		private final LongAdder errors = new LongAdder();
+
+		StatementStats(String caller, String sql) {
+			this.caller = caller;
+			this.sql = sql;
+		}
+
+		// Returns the service method that issued the statement (e.g. "ReviewService.createReview").
+		public String getCaller() {
+			return caller;
+		}
+
+		// Returns the SQL text of the statement.
+		public String getSql() {
+			return sql;
+		}
+
+		// Returns the execution latency histogram in nanoseconds.
+		public LatencyHistogram getLatency() {
+			return latency;
+		}
+
+		// Returns the total rows returned by queries or affected by updates.
+		public long getRows() {
+			return rows.sum();
+		}
+
+		// Returns the number of executions that threw an SQLException.
+		public long getErrors() {
+			return errors.sum();
+		}
+	}
+
+	// Private constructor; all state is static.
+	private QueryStats() {
+	}
+
+	// Returns the statistics entry for a caller and SQL text, creating it on first use.
+	public static StatementStats statement(String caller, String sql) {
+		return STATEMENTS.computeIfAbsent(caller + '\n' + sql, key -> new StatementStats(caller, sql));
+	}
+
+	// Records one statement execution; logs it if it exceeded the slow-query threshold.
+	public static void recordExecution(StatementStats stats, long nanos, long rows, boolean failed) {
+		stats.latency.record(nanos);
+		if (rows > 0) {
+			stats.rows.add(rows);
+		}
+		if (failed) {
+			stats.errors.increment();
+		}
+		if (TimeUnit.NANOSECONDS.toMillis(nanos) >= slowQueryMillis) {
+			logSlowQuery(stats, nanos, failed);
+		}
+	}
+
+	// Adds rows fetched from a result set after the query itself returned.
+	public static void recordRows(StatementStats stats, long rows) {
+		stats.rows.add(rows);
+	}
+
+	// Records the time taken to obtain a connection.
+	public static void recordConnectionWait(long nanos, boolean failed) {
+		CONNECTION_WAIT.record(nanos);
+		RECENT_CONNECTION_WAIT.record(nanos);
+		if (failed) {
+			CONNECTION_ERRORS.increment();
+		}
+	}
+
+	// Returns the histogram of connection waits since the last reset, in nanoseconds.
+	public static LatencyHistogram getConnectionWait() {
+		return RECENT_CONNECTION_WAIT;
+	}
+
+	// Returns the current slow-query threshold in milliseconds.
+	public static long getSlowQueryMillis() {
+		return slowQueryMillis;
+	}
+
+	// Changes the slow-query threshold in milliseconds.
+	public static void setSlowQueryMillis(long millis) {
+		if (millis < 0) {
+			throw new IllegalArgumentException("Threshold cannot be negative.");
+		}
+		slowQueryMillis = millis;
+	}
+
+	// Returns a snapshot of all statement statistics, slowest total time first.
+	public static List<StatementStats> snapshot() {
+		List<StatementStats> list = new ArrayList<>(STATEMENTS.values());
+		list.sort((a, b) -> Long.compare(b.latency.getSum(), a.latency.getSum()));
+		return list;
+	}
+
+	// Prints a summary table of connection waits and per-statement latencies.
+	public static void dump() {
+		System.out.println("\n--- Query Statistics ---");
+		System.out.printf("Connections: %d opened, %d failed, wait p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+				RECENT_CONNECTION_WAIT.getCount(), CONNECTION_ERRORS.sum(),
+				millis(RECENT_CONNECTION_WAIT.getPercentile(50)), millis(RECENT_CONNECTION_WAIT.getPercentile(99)),
+				millis(RECENT_CONNECTION_WAIT.getMax()));
+		System.out.println("Slow-query threshold: " + slowQueryMillis + " ms (log: " + SLOW_QUERY_LOG + ")");
+		List<StatementStats> list = snapshot();
+		if (list.isEmpty()) {
+			System.out.println("No statements recorded.");
+			return;
+		}
+		for (StatementStats stats : list) {
+			LatencyHistogram latency = stats.latency;
+			System.out.printf("%s: %d calls, %d errors, %d rows, total %.1f ms, p50 %.2f ms, p95 %.2f ms, "
+					+ "p99 %.2f ms, max %.2f ms%n    %s%n",
+					stats.caller, latency.getCount(), stats.getErrors(), stats.getRows(), millis(latency.getSum()),
+					millis(latency.getPercentile(50)), millis(latency.getPercentile(95)),
+					millis(latency.getPercentile(99)), millis(latency.getMax()), stats.sql);
+		}
+	}
+
+	// Writes all statement statistics to a CSV file.
+	// Returns true if the file was written, false otherwise.
+	public static boolean exportCsv(String path) {
+		try (PrintWriter out = new PrintWriter(new FileWriter(path))) {
+			out.println("caller,sql,calls,errors,rows,total_ms,p50_ms,p95_ms,p99_ms,max_ms");
+			for (StatementStats stats : snapshot()) {
+				LatencyHistogram latency = stats.latency;
+				out.printf("%s,\"%s\",%d,%d,%d,%.3f,%.3f,%.3f,%.3f,%.3f%n",
+						stats.caller, stats.sql.replace("\"", "\"\""), latency.getCount(), stats.getErrors(),
+						stats.getRows(), millis(latency.getSum()), millis(latency.getPercentile(50)),
+						millis(latency.getPercentile(95)), millis(latency.getPercentile(99)),
+						millis(latency.getMax()));
+			}
+			return true;
+		} catch (IOException e) {
+			// Handle file errors during export.
+			System.out.println("Failed to export query statistics: " + e.getMessage());
+			return false;
+		}
+	}
+
+	// Clears the statistics shown by dump() and exportCsv(); the exported metrics keep counting.
+	public static void reset() {
+		STATEMENTS.clear();
+		RECENT_CONNECTION_WAIT.reset();
+		CONNECTION_ERRORS.reset();
+	}
+
+	// Appends one entry to the slow-query log file.
+	private static synchronized void logSlowQuery(StatementStats stats, long nanos, boolean failed) {
+		try (PrintWriter out = new PrintWriter(new FileWriter(SLOW_QUERY_LOG, true))) {
+			out.printf("%s %.2f ms %s%s: %s%n", LocalDateTime.now().format(LOG_TIME), millis(nanos),
+					stats.caller, failed ? " (failed)" : "", stats.sql);
+		} catch (IOException e) {
+			// Slow-query logging must never break the statement being measured.
+			System.out.println("Failed to write slow-query log: " + e.getMessage());
+		}
+	}
+
+	// Converts nanoseconds to fractional milliseconds for display.
+	private static double millis(long nanos) {
+		return nanos / 1_000_000.0;
+	}
+}
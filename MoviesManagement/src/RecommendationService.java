@@ -0,0 +1,422 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Provides "recommended for you" suggestions using item-item collaborative filtering.
+// A batch job precomputes the most similar movies for every movie into the
+// movie_neighbors table, and the online scorer ranks a user's unseen movies from it.
+public class RecommendationService {
+	// Number of neighbors kept per movie in the precomputed table.
+	private static final int NEIGHBORS_PER_MOVIE = 20;
+	// Shrinks similarities backed by few co-raters towards zero.
+	private static final double SHRINKAGE = 10.0;
+	// Movies handled by one fork/join leaf task before it stops splitting.
+	private static final int MOVIES_PER_TASK = 64;
+	// Rows inserted per JDBC batch when storing the neighbor table.
+	private static final int INSERT_BATCH_SIZE = 500;
+	// Movie IDs per IN query when scoring a sharded user's candidates.
+	private static final int LOOKUP_BATCH_SIZE = 500;
+	// A user's hot and archived ratings; binds the user ID twice.
+	private static final String USER_RATINGS = "SELECT movie_id, rating FROM reviews WHERE user_id = ? AND deleted_at IS NULL "
+			+ "UNION ALL SELECT movie_id, rating FROM reviews_archive WHERE user_id = ?";
+
+	// Represents one recommended movie with its predicted rating.
+	public static class Recommendation {
+		private final int movieId;
+		private final String title;
+		private final double score;
+
+		public Recommendation(int movieId, String title, double score) {
+			this.movieId = movieId;
+			this.title = title;
+			this.score = score;
+		}
+
+		// Returns the ID of the recommended movie.
+		public int getMovieId() {
+			return movieId;
+		}
+
+		// Returns the title of the recommended movie.
+		public String getTitle() {
+			return title;
+		}
+
+		// Returns the predicted rating (1-5 scale) used for ranking.
+		public double getScore() {
+			return score;
+		}
+	}
+
+	// Recomputes the movie_neighbors table from all ratings in the reviews table.
+	// Returns the number of neighbor rows stored, or -1 if the job failed.
+	public int rebuildNeighbors() {
+		try {
+			RatingMatrix matrix = loadRatings();
+			int[][] neighbors = new int[matrix.movieCount][];
+			float[][] similarities = new float[matrix.movieCount][];
+			// Score every movie against its co-rated movies in parallel.
+			ForkJoinPool.commonPool().invoke(new NeighborTask(matrix, 0, matrix.movieCount, neighbors, similarities));
+			try (Connection conn = DatabaseConnection.getConnection()) {
+				return storeNeighbors(conn, matrix, neighbors, similarities);
+			}
+		} catch (SQLException e) {
+			// Handle database errors during the batch job.
+			System.out.println("Failed to rebuild recommendations: " + e.getMessage());
+			return -1;
+		}
+	}
+
+	// Ranks movies the user has not reviewed by their predicted rating.
+	// Returns at most limit recommendations, best first.
+	public List<Recommendation> recommendForUser(int userId, int limit) {
+		if (DatabaseConnection.isSharded()) {
+			return recommendAcrossShards(userId, limit);
+		}
+		List<Recommendation> recommendations = new ArrayList<>();
+		// Weighted average of the user's own ratings, hot and archived, over each candidate's neighbors.
+		String sql = "SELECT n.neighbor_id, m.title, SUM(n.similarity * r.rating) / SUM(n.similarity) AS score " +
+				"FROM (" + USER_RATINGS + ") r " +
+				"JOIN movie_neighbors n ON n.movie_id = r.movie_id " +
+				"JOIN movies m ON m.id = n.neighbor_id " +
+				"WHERE n.neighbor_id NOT IN (SELECT movie_id FROM (" + USER_RATINGS + ") rated) " +
+				"GROUP BY n.neighbor_id, m.title " +
+				"ORDER BY score DESC, SUM(n.similarity) DESC LIMIT ?";
+		try (Connection conn = DatabaseConnection.getReadConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql)) {
+			for (int i = 1; i <= 4; i++) {
+				stmt.setInt(i, userId);
+			}
+			stmt.setInt(5, limit);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					recommendations.add(new Recommendation(rs.getInt("neighbor_id"), rs.getString("title"),
+							rs.getDouble("score")));
+				}
+			}
+		} catch (SQLException e) {
+			// Print error but return an empty list to avoid null returns.
+			System.out.println("Failed to load recommendations: " + e.getMessage());
+		}
+		return recommendations;
+	}
+
+	// Displays the top recommendations for a user.
+	public void displayRecommendations(int userId, int limit) {
+		List<Recommendation> recommendations = recommendForUser(userId, limit);
+		// Print header for the recommendations section.
+		System.out.println("\n--- Recommended For You ---");
+		if (recommendations.isEmpty()) {
+			System.out.println("No recommendations yet. Review a few movies to get suggestions.");
+			return;
+		}
+		for (Recommendation rec : recommendations) {
+			System.out.printf("ID: %d, Title: %s, Predicted Rating: %.1f%n",
+					rec.getMovieId(), rec.getTitle(), rec.getScore());
+		}
+	}
+
+	// Scores candidates in memory when the user's reviews live on shards and the neighbor
+	// table on the primary, so the two cannot be joined in SQL.
+	private List<Recommendation> recommendAcrossShards(int userId, int limit) {
+		List<Recommendation> recommendations = new ArrayList<>();
+		IntIntMap ratings = new IntIntMap(64);
+		List<Integer> ratedMovies = new ArrayList<>();
+		// Candidate movie ID -> { weighted rating sum, similarity sum }, plus titles.
+		Map<Integer, double[]> sums = new HashMap<>();
+		Map<Integer, String> titles = new HashMap<>();
+		try {
+			ShardQuery.mergeOrdered(USER_RATINGS + " ORDER BY movie_id", stmt -> {
+				stmt.setInt(1, userId);
+				stmt.setInt(2, userId);
+			}, rs -> rs.getInt("movie_id"), rs -> {
+				ratings.put(rs.getInt("movie_id"), rs.getInt("rating"));
+				ratedMovies.add(rs.getInt("movie_id"));
+			});
+			try (Connection conn = DatabaseConnection.getReadConnection()) {
+				for (int from = 0; from < ratedMovies.size(); from += LOOKUP_BATCH_SIZE) {
+					List<Integer> batch = ratedMovies.subList(from,
+							Math.min(from + LOOKUP_BATCH_SIZE, ratedMovies.size()));
+					StringBuilder sql = new StringBuilder("SELECT n.movie_id, n.neighbor_id, n.similarity, m.title "
+							+ "FROM movie_neighbors n JOIN movies m ON m.id = n.neighbor_id WHERE n.movie_id IN (");
+					for (int i = 0; i < batch.size(); i++) {
+						sql.append(i == 0 ? "?" : ", ?");
+					}
+					sql.append(')');
+					try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+						for (int i = 0; i < batch.size(); i++) {
+							stmt.setInt(i + 1, batch.get(i));
+						}
+						try (ResultSet rs = stmt.executeQuery()) {
+							while (rs.next()) {
+								int neighborId = rs.getInt("neighbor_id");
+								// Skip movies the user has already reviewed.
+								if (ratings.get(neighborId) != IntIntMap.MISSING) {
+									continue;
+								}
+								double similarity = rs.getDouble("similarity");
+								double[] sum = sums.computeIfAbsent(neighborId, id -> new double[2]);
+								sum[0] += similarity * ratings.get(rs.getInt("movie_id"));
+								sum[1] += similarity;
+								titles.put(neighborId, rs.getString("title"));
+							}
+						}
+					}
+				}
+			}
+		} catch (SQLException e) {
+			// Print error but return an empty list to avoid null returns.
+			System.out.println("Failed to load recommendations: " + e.getMessage());
+			return recommendations;
+		}
+		// Same ranking as the single-database query: score, then total similarity.
+		List<Map.Entry<Integer, double[]>> ranked = new ArrayList<>(sums.entrySet());
+		ranked.sort((a, b) -> {
+			int byScore = Double.compare(b.getValue()[0] / b.getValue()[1], a.getValue()[0] / a.getValue()[1]);
+			return byScore != 0 ? byScore : Double.compare(b.getValue()[1], a.getValue()[1]);
+		});
+		for (Map.Entry<Integer, double[]> entry : ranked.subList(0, Math.min(limit, ranked.size()))) {
+			recommendations.add(new Recommendation(entry.getKey(), titles.get(entry.getKey()),
+					entry.getValue()[0] / entry.getValue()[1]));
+		}
+		return recommendations;
+	}
+
+	// Loads every rating into column (per movie) and row (per user) sparse vectors.
+	// Each movie's ratings live on a single shard, so the shards are read one after another.
+	// Ratings of users marked deleted are left out, as their reviews are already hidden.
+	private RatingMatrix loadRatings() throws SQLException {
+		IntIntMap deletedUsers = new IntIntMap(16);
+		try (Connection conn = DatabaseConnection.getReadConnection();
+				PreparedStatement stmt = conn.prepareStatement("SELECT id FROM users WHERE deleted_at IS NOT NULL");
+				ResultSet rs = stmt.executeQuery()) {
+			while (rs.next()) {
+				deletedUsers.put(rs.getInt("id"), 1);
+			}
+		}
+		// Archived reviews are read too, so the similarities cover the full rating history.
+		String sql = "SELECT movie_id, user_id, rating FROM reviews WHERE deleted_at IS NULL "
+				+ "UNION ALL SELECT movie_id, user_id, rating FROM reviews_archive ORDER BY movie_id";
+		int[] movieIds = new int[64];
+		int[] movieStart = new int[65];
+		int[] userIndexes = new int[1024];
+		float[] ratings = new float[1024];
+		IntIntMap userIndexById = new IntIntMap(1024);
+		int movieCount = 0;
+		int count = 0;
+		for (int shard = 0; shard < DatabaseConnection.shardCount(); shard++) {
+			try (Connection conn = DatabaseConnection.getShardReadConnection(shard);
+					PreparedStatement stmt = conn.prepareStatement(sql);
+					ResultSet rs = stmt.executeQuery()) {
+				// Rows arrive grouped by movie, so each movie's column is one contiguous block.
+				while (rs.next()) {
+					if (deletedUsers.get(rs.getInt("user_id")) != IntIntMap.MISSING) {
+						continue;
+					}
+					int movieId = rs.getInt("movie_id");
+					if (movieCount == 0 || movieIds[movieCount - 1] != movieId) {
+						if (movieCount == movieIds.length) {
+							movieIds = Arrays.copyOf(movieIds, movieCount * 2);
+							movieStart = Arrays.copyOf(movieStart, movieCount * 2 + 1);
+						}
+						movieStart[movieCount] = count;
+						movieIds[movieCount++] = movieId;
+					}
+					int userIndex = userIndexById.get(rs.getInt("user_id"));
+					if (userIndex == IntIntMap.MISSING) {
+						userIndex = userIndexById.size();
+						userIndexById.put(rs.getInt("user_id"), userIndex);
+					}
+					if (count == ratings.length) {
+						userIndexes = Arrays.copyOf(userIndexes, count * 2);
+						ratings = Arrays.copyOf(ratings, count * 2);
+					}
+					userIndexes[count] = userIndex;
+					ratings[count++] = rs.getInt("rating");
+				}
+			}
+		}
+		movieStart[movieCount] = count;
+		return new RatingMatrix(movieCount, userIndexById.size(), Arrays.copyOf(movieIds, movieCount),
+				movieStart, userIndexes, ratings);
+	}
+
+	// Replaces the contents of movie_neighbors in a single transaction.
+	private int storeNeighbors(Connection conn, RatingMatrix matrix, int[][] neighbors, float[][] similarities)
+			throws SQLException {
+		conn.setAutoCommit(false);
+		try (PreparedStatement deleteStmt = conn.prepareStatement("DELETE FROM movie_neighbors");
+				PreparedStatement insertStmt = conn.prepareStatement(
+						"INSERT INTO movie_neighbors (movie_id, neighbor_id, similarity) VALUES (?, ?, ?)")) {
+			deleteStmt.executeUpdate();
+			int rows = 0;
+			for (int m = 0; m < matrix.movieCount; m++) {
+				for (int k = 0; k < neighbors[m].length; k++) {
+					insertStmt.setInt(1, matrix.movieIds[m]);
+					insertStmt.setInt(2, matrix.movieIds[neighbors[m][k]]);
+					insertStmt.setDouble(3, similarities[m][k]);
+					insertStmt.addBatch();
+					// Flush periodically to bound driver memory.
+					if (++rows % INSERT_BATCH_SIZE == 0) {
+						insertStmt.executeBatch();
+					}
+				}
+			}
+			insertStmt.executeBatch();
+			conn.commit();
+			DatabaseConnection.markWrite();
+			return rows;
+		} catch (SQLException | RuntimeException e) {
+			// Keep the previous neighbor table if the rebuild fails halfway.
+			conn.rollback();
+			throw e;
+		} finally {
+			conn.setAutoCommit(true);
+		}
+	}
+
+	// Sparse rating matrix stored twice: column-major by movie and row-major by user.
+	// Ratings are mean-centered per user so similarities are adjusted cosine.
+	private static class RatingMatrix {
+		final int movieCount;
+		final int[] movieIds;
+		// Column storage: entries movieStart[m]..movieStart[m+1] hold movie m's raters.
+		final int[] movieStart;
+		final int[] colUsers;
+		final float[] colValues;
+		// Row storage: entries userStart[u]..userStart[u+1] hold user u's movies.
+		final int[] userStart;
+		final int[] rowMovies;
+		final float[] rowValues;
+		// Euclidean norm of each movie's centered column.
+		final double[] norms;
+
+		RatingMatrix(int movieCount, int userCount, int[] movieIds, int[] movieStart, int[] colUsers,
+				float[] ratings) {
+			this.movieCount = movieCount;
+			this.movieIds = movieIds;
+			this.movieStart = movieStart;
+			this.colUsers = colUsers;
+			int nnz = movieStart[movieCount];
+
+			// Compute each user's mean rating and centre the column values on it.
+			double[] sums = new double[userCount];
+			int[] counts = new int[userCount];
+			for (int i = 0; i < nnz; i++) {
+				sums[colUsers[i]] += ratings[i];
+				counts[colUsers[i]]++;
+			}
+			colValues = new float[nnz];
+			for (int i = 0; i < nnz; i++) {
+				colValues[i] = (float) (ratings[i] - sums[colUsers[i]] / counts[colUsers[i]]);
+			}
+
+			// Transpose into row storage with a counting sort on user index.
+			userStart = new int[userCount + 1];
+			for (int u = 0; u < userCount; u++) {
+				userStart[u + 1] = userStart[u] + counts[u];
+			}
+			rowMovies = new int[nnz];
+			rowValues = new float[nnz];
+			int[] fill = Arrays.copyOf(userStart, userCount);
+			norms = new double[movieCount];
+			for (int m = 0; m < movieCount; m++) {
+				double squares = 0;
+				for (int i = movieStart[m]; i < movieStart[m + 1]; i++) {
+					int pos = fill[colUsers[i]]++;
+					rowMovies[pos] = m;
+					rowValues[pos] = colValues[i];
+					squares += (double) colValues[i] * colValues[i];
+				}
+				norms[m] = Math.sqrt(squares);
+			}
+		}
+	}
+
+	// Computes the top neighbors for a range of movies, splitting until the range is small.
+	private static class NeighborTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final RatingMatrix matrix;
+		private final int from;
+		private final int to;
+		private final int[][] neighbors;
+		private final float[][] similarities;
+
+		NeighborTask(RatingMatrix matrix, int from, int to, int[][] neighbors, float[][] similarities) {
+			this.matrix = matrix;
+			this.from = from;
+			this.to = to;
+			this.neighbors = neighbors;
+			this.similarities = similarities;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > MOVIES_PER_TASK) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new NeighborTask(matrix, from, mid, neighbors, similarities),
+						new NeighborTask(matrix, mid, to, neighbors, similarities));
+				return;
+			}
+			// Dense scratch accumulators reused for every movie in this leaf.
+			double[] dots = new double[matrix.movieCount];
+			int[] coRaters = new int[matrix.movieCount];
+			int[] touched = new int[matrix.movieCount];
+			for (int m = from; m < to; m++) {
+				int touchedCount = 0;
+				// Walk each rater of m and accumulate dot products with their other movies.
+				for (int i = matrix.movieStart[m]; i < matrix.movieStart[m + 1]; i++) {
+					int user = matrix.colUsers[i];
+					float value = matrix.colValues[i];
+					for (int j = matrix.userStart[user]; j < matrix.userStart[user + 1]; j++) {
+						int other = matrix.rowMovies[j];
+						if (other == m) {
+							continue;
+						}
+						if (coRaters[other]++ == 0) {
+							touched[touchedCount++] = other;
+						}
+						dots[other] += value * matrix.rowValues[j];
+					}
+				}
+
+				// Keep the best NEIGHBORS_PER_MOVIE positive similarities in descending order.
+				int[] best = new int[NEIGHBORS_PER_MOVIE];
+				float[] bestSims = new float[NEIGHBORS_PER_MOVIE];
+				int kept = 0;
+				for (int t = 0; t < touchedCount; t++) {
+					int other = touched[t];
+					double denominator = matrix.norms[m] * matrix.norms[other];
+					if (denominator > 0 && dots[other] > 0) {
+						float sim = (float) (dots[other] / denominator
+								* coRaters[other] / (coRaters[other] + SHRINKAGE));
+						if (kept < NEIGHBORS_PER_MOVIE || sim > bestSims[kept - 1]) {
+							int pos = kept < NEIGHBORS_PER_MOVIE ? kept++ : kept - 1;
+							while (pos > 0 && bestSims[pos - 1] < sim) {
+								best[pos] = best[pos - 1];
+								bestSims[pos] = bestSims[pos - 1];
+								pos--;
+							}
+							best[pos] = other;
+							bestSims[pos] = sim;
+						}
+					}
+					// Reset scratch state for the next movie.
+					dots[other] = 0;
+					coRaters[other] = 0;
+				}
+				neighbors[m] = Arrays.copyOf(best, kept);
+				similarities[m] = Arrays.copyOf(bestSims, kept);
+			}
+		}
+	}
+}
@@ -0,0 +1,150 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+// Chooses the storage backend at startup and hands out its repositories.
+// -Dmoviereviews.storage=jdbc (default) stores data in MySQL through DatabaseConnection;
+// -Dmoviereviews.storage=memory keeps everything in process memory, so the application runs
+// without a database server. With -Dmoviereviews.storage.dir=<directory> the memory backend is
+// durable (write-ahead log and snapshots, see MemoryStore); otherwise data is lost on exit.
+// A new memory store starts with the sample data from MoviesDatabase.sql unless
+// -Dmoviereviews.storage.sampleData=false. With either backend, each user's review listing and
+// shared inbox are cached (see CachingReviewRepository).
+public final class Repositories {
+	// Selected backend: "jdbc" or "memory".
+	private static final String STORAGE = System.getProperty("moviereviews.storage", "jdbc").trim().toLowerCase();
+	// Whether the memory backend is seeded with the sample data.
+	private static final boolean SAMPLE_DATA = Boolean
+			.parseBoolean(System.getProperty("moviereviews.storage.sampleData", "true"));
+	// Data directory of a durable memory backend; empty for a non-durable one.
+	private static final String STORAGE_DIR = System.getProperty("moviereviews.storage.dir", "").trim();
+
+	private static UserRepository users;
+	private static MovieRepository movies;
+	private static ReviewRepository reviews;
+	// The memory backend's store, if that backend is in use.
+	private static MemoryStore memoryStore;
+
+	// Prevent instantiation of the utility class.
+	private Repositories() {
+	}
+
+	// Returns true if data is stored in MySQL; features that query the database directly
+	// (recommendations, reviewer similarity) are only available then.
+	public static boolean isJdbc() {
+		return STORAGE.equals("jdbc");
+	}
+
+	// Returns the user repository of the selected backend.
+	public static synchronized UserRepository users() {
+		init();
+		return users;
+	}
+
+	// Returns the movie repository of the selected backend.
+	public static synchronized MovieRepository movies() {
+		init();
+		return movies;
+	}
+
+	// Returns the review repository of the selected backend.
+	public static synchronized ReviewRepository reviews() {
+		init();
+		return reviews;
+	}
+
+	// Releases backend resources: the MySQL connection pools, or the memory store's log, after
+	// writing a final snapshot.
+	public static synchronized void shutdown() {
+		if (isJdbc()) {
+			DatabaseConnection.shutdown();
+		} else if (memoryStore != null) {
+			try {
+				memoryStore.close();
+			} catch (IOException e) {
+				System.out.println("Failed to close the memory store: " + e.getMessage());
+			}
+		}
+	}
+
+	// Creates the repositories on first use, timed as the "storage" startup phase.
+	private static void init() {
+		if (users != null) {
+			return;
+		}
+		long start = System.nanoTime();
+		switch (STORAGE) {
+			case "jdbc":
+				users = new JdbcUserRepository();
+				movies = new JdbcMovieRepository();
+				reviews = new CachingReviewRepository(new JdbcReviewRepository());
+				break;
+			case "memory":
+				try {
+					memoryStore = STORAGE_DIR.isEmpty() ? MemoryStore.inMemory()
+							: MemoryStore.open(Paths.get(STORAGE_DIR));
+					if (SAMPLE_DATA && !memoryStore.isRecovered()) {
+						loadSampleData(memoryStore.users(), memoryStore.movies(), memoryStore.reviews());
+					}
+				} catch (IOException | SQLException e) {
+					// Exit: nothing works without storage.
+					System.err.println("Failed to open the memory store: " + e.getMessage());
+					System.exit(1);
+				}
+				users = memoryStore.users();
+				movies = memoryStore.movies();
+				reviews = new CachingReviewRepository(memoryStore.reviews());
+				break;
+			default:
+				throw new IllegalArgumentException(
+						"Unknown moviereviews.storage '" + STORAGE + "' (expected 'jdbc' or 'memory')");
+		}
+		Startup.record("storage", System.nanoTime() - start);
+	}
+
+	// Loads the sample users, movies, reviews, shares and follows of MoviesDatabase.sql.
+	private static void loadSampleData(MemoryUserRepository users, MemoryMovieRepository movies,
+			MemoryReviewRepository reviews) throws SQLException {
+		users.insert("John", "Doe", "john.doe@example.com", "+12025550123", LocalDate.parse("1990-05-15"),
+				"Password123!", "Admin");
+		users.insert("Jane", "Smith", "jane.smith@example.com", "+12025550124", LocalDate.parse("1985-08-22"),
+				"Password123!", "Regular");
+		users.insert("Alice", "Johnson", "alice.j@example.com", "+12025550125", LocalDate.parse("1995-03-10"),
+				"Password123!", "Regular");
+		users.insert("Bob", "Brown", "bob.brown@example.com", "+12025550126", LocalDate.parse("1988-11-30"),
+				"Password123!", "Admin");
+
+		movies.add("Inception", "2010-07-16", "Sci-Fi");
+		movies.add("The Shawshank Redemption", "1994-09-23", "Drama");
+		movies.add("The Dark Knight", "2008-07-18", "Action");
+		movies.add("Pulp Fiction", "1994-10-14", "Crime");
+		movies.add("The Matrix", "1999-03-31", "Sci-Fi");
+		movies.add("Forrest Gump", "1994-07-06", "Drama");
+		movies.add("Fight Club", "1999-10-15", "Drama");
+		movies.add("Interstellar", "2014-11-07", "Sci-Fi");
+		movies.add("Gladiator", "2000-05-05", "Action");
+		movies.add("Titanic", "1997-12-19", "Romance");
+
+		reviews.create(1, 1, "Mind-bending and thrilling! A masterpiece of storytelling.", 5, 0, null);
+		reviews.create(2, 1, "Confusing at times but brilliantly executed.", 4, 0, null);
+		reviews.create(3, 2, "A timeless masterpiece. Emotional and inspiring.", 5, 0, null);
+		reviews.create(4, 3, "Heath Ledger’s Joker was phenomenal!", 4, 0, null);
+		reviews.create(1, 4, "Quentin Tarantino at his best. Witty and bold.", 5, 0, null);
+		reviews.create(2, 5, "Revolutionary sci-fi with iconic action scenes.", 4, 0, null);
+		reviews.create(3, 6, "Heartwarming and unforgettable. Tom Hanks shines.", 5, 0, null);
+		reviews.create(4, 7, "Thought-provoking and intense. A cult classic.", 4, 0, null);
+		reviews.create(1, 8, "Epic journey through space and time.", 5, 0, null);
+		reviews.create(2, 9, "Russell Crowe delivers a powerful performance.", 4, 0, null);
+
+		reviews.share(1, 2);
+		reviews.share(2, 3);
+		reviews.share(3, 4);
+		reviews.share(4, 1);
+
+		users.follow(2, 1);
+		users.follow(3, 1);
+		users.follow(4, 1);
+	}
+}
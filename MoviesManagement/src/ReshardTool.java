@@ -0,0 +1,283 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Offline tool that moves reviews and their shares from the current shard layout
+// (-Dmoviereviews.db.shards, or the primary when unsharded) to a new list of shard URLs; hot and
+// archived reviews each stay in their own tables.
+// Usage: java -Dmoviereviews.db.shards=<current urls> ReshardTool <new url>[,<new url>...]
+// Run it while the application is stopped. Each batch is copied before it is deleted from its
+// source and copies are idempotent, so an interrupted run can simply be started again.
+public class ReshardTool {
+	// Reviews read from a source shard per batch.
+	private static final int BATCH_SIZE = 500;
+	// The hot and archive tables, moved one after the other.
+	private static final Tier HOT = new Tier("reviews", "shares",
+			"id, movie_id, review, review_deflated, preview, rating, user_id, created_at, modified_at, deleted_at, "
+					+ "deleted_by_admin, share_count, feed_score, duplicate_of");
+	private static final Tier ARCHIVE = new Tier("reviews_archive", "shares_archive",
+			"id, movie_id, review, review_deflated, preview, rating, user_id, created_at, modified_at, archived_at, "
+					+ "share_count, feed_score, duplicate_of");
+
+	// Source and target layouts.
+	private final List<String> sources;
+	private final List<String> targets;
+	// Open connections to target shards, keyed by URL.
+	private final Map<String, Connection> targetConnections = new HashMap<>();
+
+	// Creates a tool that moves data from the given source URLs to the given target URLs.
+	public ReshardTool(List<String> sources, List<String> targets) {
+		this.sources = sources;
+		this.targets = targets;
+	}
+
+	// Entry point; exits with status 1 if resharding fails.
+	public static void main(String[] args) {
+		if (args.length != 1 || args[0].trim().isEmpty()) {
+			System.out.println("Usage: java -Dmoviereviews.db.shards=<current urls> ReshardTool <new url>[,<new url>...]");
+			System.exit(1);
+		}
+		List<String> targets = new ArrayList<>();
+		for (String url : args[0].split(",")) {
+			if (!url.trim().isEmpty()) {
+				targets.add(url.trim());
+			}
+		}
+		ReshardTool tool = new ReshardTool(DatabaseConnection.getShardUrls(), targets);
+		try {
+			long moved = tool.run();
+			System.out.println("Resharding complete: " + moved + " reviews moved.");
+			System.out.println("Restart the application with -Dmoviereviews.db.shards=" + String.join(",", targets));
+		} catch (SQLException e) {
+			// Handle database errors; completed batches stay moved and a rerun resumes the rest.
+			System.out.println("Resharding failed: " + e.getMessage());
+			System.exit(1);
+		} finally {
+			tool.closeTargets();
+			DatabaseConnection.shutdown();
+		}
+	}
+
+	// Prepares the targets and moves every misplaced review.
+	// Returns the number of reviews moved.
+	public long run() throws SQLException {
+		copyMovies();
+		advanceReviewIds();
+		long moved = 0;
+		for (String source : sources) {
+			moved += moveFrom(source, HOT);
+			moved += moveFrom(source, ARCHIVE);
+		}
+		return moved;
+	}
+
+	// Copies the movies reference table from the primary to every target shard, so reviews can
+	// be joined with titles and checked against existing movies on their own shard.
+	private void copyMovies() throws SQLException {
+		List<Object[]> movies = new ArrayList<>();
+		try (Connection conn = DatabaseConnection.getConnection();
+				Statement stmt = conn.createStatement();
+				ResultSet rs = stmt.executeQuery("SELECT id, title, rel_date, genre FROM movies")) {
+			while (rs.next()) {
+				movies.add(new Object[] { rs.getInt("id"), rs.getString("title"), rs.getDate("rel_date"),
+						rs.getString("genre") });
+			}
+		}
+		for (String target : targets) {
+			if (target.equals(DatabaseConnection.getPrimaryUrl())) {
+				// The primary already holds the master copy.
+				continue;
+			}
+			Connection conn = target(target);
+			try (PreparedStatement stmt = conn.prepareStatement(
+					"INSERT INTO movies (id, title, rel_date, genre) VALUES (?, ?, ?, ?) "
+							+ "ON DUPLICATE KEY UPDATE title = VALUES(title), rel_date = VALUES(rel_date), "
+							+ "genre = VALUES(genre)")) {
+				for (Object[] movie : movies) {
+					for (int i = 0; i < movie.length; i++) {
+						stmt.setObject(i + 1, movie[i]);
+					}
+					stmt.addBatch();
+				}
+				stmt.executeBatch();
+			}
+			System.out.println("Copied " + movies.size() + " movies to " + target);
+		}
+	}
+
+	// Moves review_id_sequence past every existing review ID, so sharded inserts never reuse
+	// IDs assigned by AUTO_INCREMENT before the data was sharded. Once sharded inserts have
+	// allocated IDs (rows of the per-slot sequences exist) every ID is from the sequence, and row 1,
+	// the end of the IDs located by probing (see DatabaseConnection.shardForReviewId), stays put.
+	private void advanceReviewIds() throws SQLException {
+		try (Connection conn = DatabaseConnection.getConnection();
+				Statement stmt = conn.createStatement();
+				ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM review_id_sequence WHERE id > 1")) {
+			rs.next();
+			if (rs.getLong(1) > 0) {
+				return;
+			}
+		}
+		long maxId = 0;
+		for (String source : sources) {
+			try (Connection conn = DatabaseConnection.connect(source);
+					Statement stmt = conn.createStatement();
+					ResultSet rs = stmt.executeQuery("SELECT GREATEST((SELECT COALESCE(MAX(id), 0) FROM reviews), "
+							+ "(SELECT COALESCE(MAX(id), 0) FROM reviews_archive))")) {
+				rs.next();
+				maxId = Math.max(maxId, rs.getLong(1));
+			}
+		}
+		try (Connection conn = DatabaseConnection.getConnection();
+				PreparedStatement stmt = conn.prepareStatement("INSERT INTO review_id_sequence (id, next_id) "
+						+ "VALUES (1, ?) ON DUPLICATE KEY UPDATE next_id = GREATEST(next_id, VALUES(next_id))")) {
+			stmt.setLong(1, maxId + 1);
+			stmt.executeUpdate();
+		}
+	}
+
+	// Moves the reviews of one tier of a source shard that belong elsewhere under the new layout.
+	// Returns the number of reviews moved.
+	private long moveFrom(String source, Tier tier) throws SQLException {
+		long scanned = 0;
+		long moved = 0;
+		int lastId = 0;
+		int columnCount = tier.columns.split(",").length;
+		try (Connection conn = DatabaseConnection.connect(source);
+				PreparedStatement select = conn.prepareStatement(
+						"SELECT " + tier.columns + " FROM " + tier.reviews + " WHERE id > ? ORDER BY id LIMIT ?")) {
+			while (true) {
+				// Group this batch's misplaced reviews by their new shard.
+				Map<String, List<Object[]>> byTarget = new HashMap<>();
+				int rows = 0;
+				select.setInt(1, lastId);
+				select.setInt(2, BATCH_SIZE);
+				try (ResultSet rs = select.executeQuery()) {
+					while (rs.next()) {
+						rows++;
+						lastId = rs.getInt("id");
+						String target = targets.get(Math.floorMod(rs.getInt("movie_id"), targets.size()));
+						if (!target.equals(source)) {
+							Object[] review = new Object[columnCount];
+							for (int i = 0; i < columnCount; i++) {
+								review[i] = rs.getObject(i + 1);
+							}
+							byTarget.computeIfAbsent(target, url -> new ArrayList<>()).add(review);
+						}
+					}
+				}
+				if (rows == 0) {
+					break;
+				}
+				scanned += rows;
+				for (Map.Entry<String, List<Object[]>> entry : byTarget.entrySet()) {
+					copyBatch(conn, target(entry.getKey()), tier, entry.getValue());
+					deleteBatch(conn, tier, entry.getValue());
+					moved += entry.getValue().size();
+				}
+				System.out.printf("%s %s: scanned %d reviews, moved %d%n", source, tier.reviews, scanned, moved);
+			}
+		}
+		return moved;
+	}
+
+	// Copies reviews and their shares to a target shard in one transaction.
+	// Rows that already exist there (from an interrupted run) are left as they are.
+	private void copyBatch(Connection source, Connection target, Tier tier, List<Object[]> reviews)
+			throws SQLException {
+		target.setAutoCommit(false);
+		try (PreparedStatement insertReview = target.prepareStatement("INSERT IGNORE INTO " + tier.reviews
+				+ " (" + tier.columns + ") VALUES (" + placeholders(reviews.get(0).length) + ")");
+				PreparedStatement selectShares = source.prepareStatement(
+						"SELECT review_id, user_id, share_date FROM " + tier.shares + " WHERE review_id IN ("
+								+ placeholders(reviews.size()) + ")");
+				PreparedStatement insertShare = target.prepareStatement(
+						"INSERT IGNORE INTO " + tier.shares + " (review_id, user_id, share_date) VALUES (?, ?, ?)")) {
+			for (int r = 0; r < reviews.size(); r++) {
+				Object[] review = reviews.get(r);
+				for (int i = 0; i < review.length; i++) {
+					insertReview.setObject(i + 1, review[i]);
+				}
+				insertReview.addBatch();
+				selectShares.setObject(r + 1, review[0]);
+			}
+			insertReview.executeBatch();
+			try (ResultSet rs = selectShares.executeQuery()) {
+				while (rs.next()) {
+					insertShare.setInt(1, rs.getInt("review_id"));
+					insertShare.setInt(2, rs.getInt("user_id"));
+					insertShare.setTimestamp(3, rs.getTimestamp("share_date"));
+					insertShare.addBatch();
+				}
+			}
+			insertShare.executeBatch();
+			target.commit();
+		} catch (SQLException | RuntimeException e) {
+			target.rollback();
+			throw e;
+		} finally {
+			target.setAutoCommit(true);
+		}
+	}
+
+	// Deletes moved reviews from their source shard; their shares cascade.
+	private void deleteBatch(Connection source, Tier tier, List<Object[]> reviews) throws SQLException {
+		try (PreparedStatement stmt = source.prepareStatement(
+				"DELETE FROM " + tier.reviews + " WHERE id IN (" + placeholders(reviews.size()) + ")")) {
+			for (int r = 0; r < reviews.size(); r++) {
+				stmt.setObject(r + 1, reviews.get(r)[0]);
+			}
+			stmt.executeUpdate();
+		}
+	}
+
+	// Returns the open connection to a target shard, connecting on first use.
+	private Connection target(String url) throws SQLException {
+		Connection conn = targetConnections.get(url);
+		if (conn == null) {
+			conn = DatabaseConnection.connect(url);
+			targetConnections.put(url, conn);
+		}
+		return conn;
+	}
+
+	// Closes all target connections.
+	private void closeTargets() {
+		for (Connection conn : targetConnections.values()) {
+			try {
+				conn.close();
+			} catch (SQLException e) {
+				// The tool is exiting; nothing more to do.
+			}
+		}
+	}
+
+	// Returns "?, ?, ..." with the given number of placeholders.
+	private static String placeholders(int count) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			sb.append(i == 0 ? "?" : ", ?");
+		}
+		return sb.toString();
+	}
+
+	// A reviews table, its shares table and the review columns copied.
+	private static class Tier {
+		private final String reviews;
+		private final String shares;
+		private final String columns;
+
+		Tier(String reviews, String shares, String columns) {
+			this.reviews = reviews;
+			this.shares = shares;
+			this.columns = columns;
+		}
+	}
+}
@@ -0,0 +1,151 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.sql.Timestamp;
+
+// Represents a movie review, optionally carrying the movie title and reviewer name used for display.
+public class Review {
+	// Unique identifier of the review.
+	private final int id;
+	// ID of the reviewed movie.
+	private final int movieId;
+	// ID of the user who wrote the review.
+	private final int userId;
+	// Review text; empty in listings, which read only the preview.
+	private String text;
+	// Rating from 1 to 5.
+	private final int rating;
+	// Time the review was last modified.
+	private final Timestamp modifiedAt;
+	// Title of the reviewed movie; empty until resolved.
+	private String movieTitle = "";
+	// Full name of the reviewer; empty until resolved.
+	private String reviewerName = "";
+	// Time the review was shared with the viewing user; null outside shared listings.
+	private Timestamp sharedAt;
+	// Time the review was deleted; null outside listings of deleted reviews.
+	private Timestamp deletedAt;
+	// Short form of the text shown in listings; derived from the text if not read from storage.
+	private String preview;
+	// Compressed text as read from storage, until ReviewText.inflate replaces it with the text.
+	private byte[] compressedText;
+	// Ranking score in the movie's feed (see ReviewRanking); 0 outside feeds.
+	private double feedScore;
+
+	// Constructs a review from its stored columns.
+	// Handles a null text by assigning an empty string.
+	public Review(int id, int movieId, int userId, String text, int rating, Timestamp modifiedAt) {
+		this.id = id;
+		this.movieId = movieId;
+		this.userId = userId;
+		this.text = text != null ? text : "";
+		this.rating = rating;
+		this.modifiedAt = modifiedAt;
+	}
+
+	// Returns the review's unique ID.
+	public int getId() {
+		return id;
+	}
+
+	// Returns the ID of the reviewed movie.
+	public int getMovieId() {
+		return movieId;
+	}
+
+	// Returns the ID of the reviewer.
+	public int getUserId() {
+		return userId;
+	}
+
+	// Returns the review text.
+	public String getText() {
+		return text;
+	}
+
+	// Sets the review text.
+	// Handles a null text by assigning an empty string.
+	public void setText(String text) {
+		this.text = text != null ? text : "";
+	}
+
+	// Returns the preview shown in listings.
+	public String getPreview() {
+		return preview != null ? preview : ReviewText.preview(text);
+	}
+
+	// Sets the preview read from storage.
+	public void setPreview(String preview) {
+		this.preview = preview;
+	}
+
+	// Returns the compressed text read from storage, or null if the text is plain or already inflated.
+	public byte[] getCompressedText() {
+		return compressedText;
+	}
+
+	// Sets the compressed text read from storage.
+	public void setCompressedText(byte[] compressedText) {
+		this.compressedText = compressedText;
+	}
+
+	// Returns the ranking score in the movie's feed, or 0 if not read from a feed.
+	public double getFeedScore() {
+		return feedScore;
+	}
+
+	// Sets the ranking score in the movie's feed.
+	public void setFeedScore(double feedScore) {
+		this.feedScore = feedScore;
+	}
+
+	// Returns the rating (1-5).
+	public int getRating() {
+		return rating;
+	}
+
+	// Returns the last modification time.
+	public Timestamp getModifiedAt() {
+		return modifiedAt;
+	}
+
+	// Returns the title of the reviewed movie.
+	public String getMovieTitle() {
+		return movieTitle;
+	}
+
+	// Sets the title of the reviewed movie.
+	// Retains current value if input is null.
+	public void setMovieTitle(String movieTitle) {
+		this.movieTitle = movieTitle != null ? movieTitle : this.movieTitle;
+	}
+
+	// Returns the reviewer's full name.
+	public String getReviewerName() {
+		return reviewerName;
+	}
+
+	// Sets the reviewer's full name.
+	// Retains current value if input is null.
+	public void setReviewerName(String reviewerName) {
+		this.reviewerName = reviewerName != null ? reviewerName : this.reviewerName;
+	}
+
+	// Returns the time the review was shared, or null if not applicable.
+	public Timestamp getSharedAt() {
+		return sharedAt;
+	}
+
+	// Sets the time the review was shared.
+	public void setSharedAt(Timestamp sharedAt) {
+		this.sharedAt = sharedAt;
+	}
+
+	// Returns the time the review was deleted, or null if not applicable.
+	public Timestamp getDeletedAt() {
+		return deletedAt;
+	}
+
+	// Sets the time the review was deleted.
+	public void setDeletedAt(Timestamp deletedAt) {
+		this.deletedAt = deletedAt;
+	}
+}
@@ -0,0 +1,106 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+// Background job that permanently removes review tombstones once their undo window has passed,
+// and then moves reviews not modified for -Dmoviereviews.archive.afterDays (default 365; 0 turns
+// archiving off) to the archive tables, so the hot tables only hold recent history.
+// Every -Dmoviereviews.reviewCompaction.intervalSeconds (default 60) it checks how many review
+// writes happened since the previous check; only if there were at most
+// -Dmoviereviews.reviewCompaction.quietWrites (default 10) does it purge and archive, in batches of
+// -Dmoviereviews.reviewCompaction.batchRows rows (default 500) with a short pause between them,
+// and it stops early as soon as writes pick up again. Tombstones are invisible to every query,
+// so postponing a purge costs only disk space; postponed archiving only leaves the hot tables larger.
+public class ReviewCompactor {
+	// A bounded step of compaction; returns the number of rows it handled, 0 when done.
+	private interface Batch {
+		int run() throws SQLException;
+	}
+
+	private static final long INTERVAL_SECONDS = Math.max(1,
+			Long.getLong("moviereviews.reviewCompaction.intervalSeconds", 60));
+	private static final long QUIET_WRITES = Long.getLong("moviereviews.reviewCompaction.quietWrites", 10);
+	private static final int BATCH_ROWS = Math.max(1, Integer.getInteger("moviereviews.reviewCompaction.batchRows", 500));
+	private static final int ARCHIVE_DAYS = Math.max(0, Integer.getInteger("moviereviews.archive.afterDays", 365));
+	// Pause between batches, so the purge never holds the tables for long stretches.
+	private static final long PAUSE_MILLIS = 50;
+	// Operational metrics: rows purged, reviews archived and compaction runs skipped because writes were busy.
+	private static final Metrics.Counter ROWS_PURGED = Metrics.counter("reviews_compacted_rows_total",
+			"Deleted reviews and their shares removed by compaction.");
+	private static final Metrics.Counter REVIEWS_ARCHIVED = Metrics.counter("reviews_archived_total",
+			"Reviews moved to the archive tables by compaction.");
+	private static final Metrics.Counter RUNS_SKIPPED = Metrics.counter("reviews_compaction_skipped_total",
+			"Compaction runs skipped or cut short because review writes were busy.");
+
+	// Storage whose tombstones are purged.
+	private final ReviewRepository reviews;
+	// Seconds a tombstone is kept, so it can still be restored.
+	private final int retainSeconds;
+	// Running count of review writes, used to detect quiet periods.
+	private final LongSupplier writes;
+	// Write count at the previous check.
+	private long lastWrites;
+	private ScheduledExecutorService scheduler;
+
+	// Creates a compactor that keeps tombstones for retainSeconds and reads write activity from writes.
+	public ReviewCompactor(ReviewRepository reviews, int retainSeconds, LongSupplier writes) {
+		this.reviews = reviews;
+		this.retainSeconds = retainSeconds;
+		this.writes = writes;
+	}
+
+	// Starts the periodic compaction on a daemon thread; later calls do nothing.
+	public synchronized void start() {
+		if (scheduler != null) {
+			return;
+		}
+		lastWrites = writes.getAsLong();
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "review-compactor");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(this::compact, INTERVAL_SECONDS, INTERVAL_SECONDS, TimeUnit.SECONDS);
+	}
+
+	// Purges expired tombstones, then archives cold reviews, in batches if review writes are quiet.
+	private void compact() {
+		long start = writes.getAsLong();
+		boolean quiet = start - lastWrites <= QUIET_WRITES;
+		lastWrites = start;
+		if (!quiet) {
+			RUNS_SKIPPED.increment();
+			return;
+		}
+		try {
+			if (drain(start, () -> reviews.purgeDeleted(retainSeconds, BATCH_ROWS), ROWS_PURGED) && ARCHIVE_DAYS > 0) {
+				drain(start, () -> reviews.archive(ARCHIVE_DAYS, BATCH_ROWS), REVIEWS_ARCHIVED);
+			}
+		} catch (SQLException | RuntimeException e) {
+			// Tombstones stay hidden and cold reviews stay hot; the next run retries. Catching
+			// everything keeps the task scheduled.
+			System.out.println("Failed to compact reviews: " + e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	// Runs batches until none is left, counting their rows.
+	// Returns false if it stopped early because writes picked up since start.
+	private boolean drain(long start, Batch batch, Metrics.Counter counter) throws SQLException, InterruptedException {
+		int rows;
+		while ((rows = batch.run()) > 0) {
+			counter.add(rows);
+			if (writes.getAsLong() - start > QUIET_WRITES) {
+				// Writers are back; the rest waits for the next quiet period.
+				RUNS_SKIPPED.increment();
+				return false;
+			}
+			Thread.sleep(PAUSE_MILLIS);
+		}
+		return true;
+	}
+}
@@ -0,0 +1,135 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Near-duplicate fingerprints of review text. A text is reduced to its set of word pairs
+// (lowercased, punctuation and spacing ignored), and its fingerprint is a MinHash signature of that
+// set cut into BANDS bands of ROWS values, each band hashed to one int "band key". Two texts share
+// a band key with a probability that rises steeply with the Jaccard similarity of their word-pair
+// sets: over 99% at 0.8, 91% at 0.6, 24% at 0.3 and 1% at 0.1. Storage indexes reviews by band key,
+// so the candidates for a new text are found with a few index probes however many reviews exist;
+// similarity then confirms them on the texts themselves. Texts of fewer than MIN_WORDS words have
+// no fingerprint: short reviews ("Great movie, loved it!") are alike by nature.
+// Band keys are stored with the reviews, so the seeds and sizes below must not change without
+// re-indexing every review (BatchTool reviews duplicates).
+public final class ReviewFingerprint {
+	// Bands and MinHash values per band (BANDS * ROWS values per signature).
+	static final int BANDS = 10;
+	private static final int ROWS = 3;
+	private static final int HASHES = BANDS * ROWS;
+	// Fewest words a text needs to have a fingerprint (strictly, one more than its distinct word pairs).
+	private static final int MIN_WORDS = 6;
+	// Fixed seeds of the MinHash functions, so band keys are stable across processes and restarts.
+	private static final long[] SEEDS = new long[HASHES];
+
+	static {
+		SplittableRandom random = new SplittableRandom(0xD0C5);
+		for (int i = 0; i < HASHES; i++) {
+			SEEDS[i] = random.nextLong();
+		}
+	}
+
+	private ReviewFingerprint() {
+	}
+
+	// Returns the distinct band keys of a text (BANDS of them, unless two collide), or null if it is
+	// too short to have a fingerprint.
+	public static int[] bandKeys(String text) {
+		long[] shingles = wordPairs(text);
+		if (shingles.length < MIN_WORDS - 1) {
+			return null;
+		}
+		long[] signature = new long[HASHES];
+		Arrays.fill(signature, Long.MAX_VALUE);
+		for (long shingle : shingles) {
+			for (int i = 0; i < HASHES; i++) {
+				signature[i] = Math.min(signature[i], mix(shingle ^ SEEDS[i]));
+			}
+		}
+		int[] keys = new int[BANDS];
+		int count = 0;
+		for (int band = 0; band < BANDS; band++) {
+			// The band number is hashed in, so equal values in different bands do not collide.
+			long hash = band;
+			for (int row = 0; row < ROWS; row++) {
+				hash = mix(hash * 31 + signature[band * ROWS + row]);
+			}
+			int key = (int) (hash ^ (hash >>> 32));
+			boolean seen = false;
+			for (int i = 0; i < count && !seen; i++) {
+				seen = keys[i] == key;
+			}
+			if (!seen) {
+				keys[count++] = key;
+			}
+		}
+		return count == BANDS ? keys : Arrays.copyOf(keys, count);
+	}
+
+	// Returns the Jaccard similarity of the word-pair sets (from wordPairs) of two texts: 1 for the
+	// same words in the same order, 0 for texts with no word pair in common (or without any).
+	public static double similarity(long[] first, long[] second) {
+		if (first.length == 0 || second.length == 0) {
+			return 0;
+		}
+		// Both are sorted: count the common values in one merge.
+		int common = 0;
+		for (int i = 0, j = 0; i < first.length && j < second.length;) {
+			if (first[i] == second[j]) {
+				common++;
+				i++;
+				j++;
+			} else if (first[i] < second[j]) {
+				i++;
+			} else {
+				j++;
+			}
+		}
+		return (double) common / (first.length + second.length - common);
+	}
+
+	// Returns the distinct hashes of the text's consecutive word pairs, sorted; computed once per text
+	// when it is compared with several others.
+	public static long[] wordPairs(String text) {
+		long[] shingles = new long[16];
+		int count = 0;
+		long previous = 0;
+		int words = 0;
+		long word = 0;
+		boolean inWord = false;
+		for (int i = 0; i <= text.length(); i++) {
+			int c = i < text.length() ? text.charAt(i) : ' ';
+			if (Character.isLetterOrDigit(c)) {
+				// FNV-1a over the lowercased word.
+				word = ((inWord ? word : 0xCBF29CE484222325L) ^ Character.toLowerCase(c)) * 0x100000001B3L;
+				inWord = true;
+			} else if (inWord) {
+				inWord = false;
+				word = mix(word);
+				if (words++ > 0) {
+					if (count == shingles.length) {
+						shingles = Arrays.copyOf(shingles, count * 2);
+					}
+					shingles[count++] = mix(previous * 31 + word);
+				}
+				previous = word;
+			}
+		}
+		shingles = Arrays.copyOf(shingles, count);
+		Arrays.sort(shingles);
+		int distinct = 0;
+		for (int i = 0; i < shingles.length; i++) {
+			if (i == 0 || shingles[i] != shingles[i - 1]) {
+				shingles[distinct++] = shingles[i];
+			}
+		}
+		return Arrays.copyOf(shingles, distinct);
+	}
+
+	// Scrambles the bits of a value (the SplitMix64 finalizer).
+	private static long mix(long value) {
+		value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+		value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+		return value ^ (value >>> 31);
+	}
+}
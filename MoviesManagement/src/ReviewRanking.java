@@ -0,0 +1,41 @@
+// Copyright (c) 2025. Created By Yash Somani
+
+// Scores reviews for a movie's ranked feed ("most helpful" first). A review's weight is
+//   rating * (1 + text length / LENGTH_UNIT)^LENGTH_WEIGHT * (1 + shares) * 2^(-age / HALF_LIFE),
+// higher ratings, longer texts and more shares counting for more and halving every HALF_LIFE since
+// the last modification. The score stored with a review is the weight's logarithm with the age
+// term written as modifiedAt / tau instead: that differs from the decayed weight's logarithm by
+// now / tau, the same for every review, so ordering by the stored score is ordering by the decayed
+// weight at any moment, and scores never need to be recomputed as time passes. A score changes
+// only when the review is written or shared, which lets the feed be read from an index.
+// The formula is repeated in SQL in MoviesDatabase.sql (sample data) and JdbcReviewRepository (shares).
+public final class ReviewRanking {
+	// Days after which a review's weight halves.
+	private static final double HALF_LIFE_DAYS = 30;
+	// Seconds in which a weight falls by a factor of e.
+	static final double TAU_SECONDS = HALF_LIFE_DAYS * 86400 / Math.log(2);
+	// Characters per unit of the length factor, the length beyond which a text counts no more, and
+	// the factor's exponent (square root: a long text helps, a wall of text not much more).
+	private static final double LENGTH_UNIT = 100;
+	private static final int MAX_LENGTH = 1000;
+	private static final double LENGTH_WEIGHT = 0.5;
+
+	private ReviewRanking() {
+	}
+
+	// Returns the score of a review that was never shared, modified at modifiedAtMillis.
+	public static double baseScore(int rating, String text, long modifiedAtMillis) {
+		int length = Math.min(text != null ? text.length() : 0, MAX_LENGTH);
+		return Math.log(rating) + LENGTH_WEIGHT * Math.log1p(length / LENGTH_UNIT) + modifiedAtMillis / 1000.0 / TAU_SECONDS;
+	}
+
+	// Returns what shareCount shares add to a review's score.
+	public static double shareBoost(int shareCount) {
+		return Math.log1p(shareCount);
+	}
+
+	// Returns the score of a review with the given shares.
+	public static double score(int rating, String text, long modifiedAtMillis, int shareCount) {
+		return baseScore(rating, text, modifiedAtMillis) + shareBoost(shareCount);
+	}
+}
@@ -0,0 +1,256 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Data access for reviews and shares. Implemented by JdbcReviewRepository (MySQL, optionally
+// sharded) and MemoryReviewRepository (embedded); see Repositories for how one is chosen at startup.
+// Implementations enforce the schema's rules: one review per user and movie, reviews only for
+// existing movies, and shares removed with their review.
+// Deleting a review leaves a tombstone: the review and its shares disappear from every lookup and
+// listing at once, can be restored for a while, and are removed for good by purgeDeleted.
+// A new review of the same movie by the same user replaces the author's tombstone.
+// Reviews not modified for a long time can be moved to an archive: the find methods below read
+// only recent (hot) reviews, the findArchived methods read the archive on demand, and writing an
+// archived review moves it back first. Archived ratings still count towards movie averages.
+// Each movie's live reviews also form a ranked feed (findFeed), ordered by a score kept with every
+// review (see ReviewRanking) and read a page at a time from a cursor, so the first page costs the
+// same however many reviews the movie has.
+// Live reviews are indexed by the band keys of their text's fingerprint (see ReviewFingerprint),
+// kept current as reviews are written, so near-duplicate texts are found without reading every review.
+public interface ReviewRepository {
+	// Result of a review mutation.
+	enum Outcome {
+		// The change was applied.
+		OK,
+		// The referenced movie does not exist.
+		MOVIE_NOT_FOUND,
+		// The review does not exist or is not owned by the given user.
+		REVIEW_NOT_FOUND,
+		// The user already reviewed the movie, or the review is already shared with the recipient.
+		DUPLICATE,
+		// An admin deleted the user's review of the movie recently, and it can still be restored.
+		RESTORABLE
+	}
+
+	// Number and sum of ratings, e.g. of a movie's archived reviews.
+	class RatingTotals {
+		private final int count;
+		private final long sum;
+
+		public RatingTotals(int count, long sum) {
+			this.count = count;
+			this.sum = sum;
+		}
+
+		// Returns the number of ratings.
+		public int getCount() {
+			return count;
+		}
+
+		// Returns the sum of the ratings.
+		public long getSum() {
+			return sum;
+		}
+	}
+
+	// Position in a movie's feed: the ranking score and ID of the last review of a page.
+	class FeedCursor {
+		private final double score;
+		private final int reviewId;
+
+		public FeedCursor(double score, int reviewId) {
+			this.score = score;
+			this.reviewId = reviewId;
+		}
+
+		// Returns the cursor after the given review of a feed page.
+		public static FeedCursor after(Review review) {
+			return new FeedCursor(review.getFeedScore(), review.getId());
+		}
+
+		// Returns the ranking score of the last review returned.
+		public double getScore() {
+			return score;
+		}
+
+		// Returns the ID of the last review returned; it breaks ties between equal scores.
+		public int getReviewId() {
+			return reviewId;
+		}
+	}
+
+	// Selects reviews for bulk moderation; null fields match any review.
+	class ModerationCriteria {
+		private final Integer userId;
+		private final Integer movieId;
+		// Modification time range: from inclusive, to exclusive.
+		private final Timestamp from;
+		private final Timestamp to;
+		// Text the review must contain, lower case (matched ignoring case).
+		private final String textContains;
+		// Whether only reviews flagged as near-duplicates when written match.
+		private final boolean duplicatesOnly;
+
+		public ModerationCriteria(Integer userId, Integer movieId, Timestamp from, Timestamp to, String textContains,
+				boolean duplicatesOnly) {
+			this.userId = userId;
+			this.movieId = movieId;
+			this.from = from;
+			this.to = to;
+			this.textContains = textContains != null ? textContains.toLowerCase(Locale.ROOT) : null;
+			this.duplicatesOnly = duplicatesOnly;
+		}
+
+		// Returns the author's ID, or null for any author.
+		public Integer getUserId() {
+			return userId;
+		}
+
+		// Returns the movie's ID, or null for any movie.
+		public Integer getMovieId() {
+			return movieId;
+		}
+
+		// Returns the earliest modification time, or null for no lower bound.
+		public Timestamp getFrom() {
+			return from;
+		}
+
+		// Returns the modification time matched reviews precede, or null for no upper bound.
+		public Timestamp getTo() {
+			return to;
+		}
+
+		// Returns true if only reviews flagged as near-duplicates match.
+		public boolean isDuplicatesOnly() {
+			return duplicatesOnly;
+		}
+
+		// Returns true if the criteria filter on review text.
+		public boolean hasText() {
+			return textContains != null;
+		}
+
+		// Returns true if a review modified at the given time matches the time range.
+		public boolean matchesTime(long modifiedAtMillis) {
+			return (from == null || modifiedAtMillis >= from.getTime()) && (to == null || modifiedAtMillis < to.getTime());
+		}
+
+		// Returns true if the review text matches the text criterion.
+		public boolean matchesText(String text) {
+			return textContains == null || (text != null && text.toLowerCase(Locale.ROOT).contains(textContains));
+		}
+	}
+
+	// Stores a new review (text already trimmed, rating 1-5). A tombstone of the user's review of the
+	// movie that an admin deleted within the last undoSeconds can still be restored, so it blocks the
+	// new review (RESTORABLE); any other, such as one the user deleted, is replaced. duplicateOf is the ID of a live review the text nearly
+	// duplicates, kept on the review as a flag for moderation, or null.
+	Outcome create(int userId, int movieId, String text, int rating, int undoSeconds, Integer duplicateOf)
+			throws SQLException;
+
+	// Replaces the text, rating and duplicate flag (as for create) of a review owned by the user.
+	Outcome update(int reviewId, int userId, String text, int rating, Integer duplicateOf) throws SQLException;
+
+	// Deletes a review owned by the user, with its shares.
+	Outcome delete(int reviewId, int userId) throws SQLException;
+
+	// Deletes any review, with its shares (admin).
+	Outcome deleteAny(int reviewId) throws SQLException;
+
+	// Deletes the live reviews among the IDs as deleteAny does, with set-based writes in short
+	// transactions instead of one per review; missing and already deleted reviews are skipped.
+	// Returns the IDs of the reviews deleted.
+	List<Integer> deleteAll(List<Integer> reviewIds) throws SQLException;
+
+	// Adds to matches, in ID order, the IDs of live (hot) reviews after afterId that match the
+	// criteria, one chunk at a time: a call examines at most limit reviews, or returns at most limit
+	// matches where examining is cheap (memory). Returns the ID to continue after, or 0 once no
+	// reviews are left to examine.
+	int findMatchingIds(ModerationCriteria criteria, int afterId, int limit, List<Integer> matches)
+			throws SQLException;
+
+	// Returns up to limit live (hot) reviews with ID above afterId, in ID order, with full text.
+	List<Review> findPage(int afterId, int limit) throws SQLException;
+
+	// Returns the live (hot) reviews among the IDs, in ID order, with full text.
+	List<Review> findByIds(List<Integer> reviewIds) throws SQLException;
+
+	// Returns the IDs of the live (hot) reviews indexed under each of the band keys, by band key,
+	// reading at most limit index entries in all.
+	Map<Integer, List<Integer>> findIdsByFingerprint(Collection<Integer> bandKeys, int limit) throws SQLException;
+
+	// Indexes the given reviews' fingerprints where the stored ones are missing or differ (e.g. for
+	// reviews written before fingerprints existed, or moved back from the archive), skipping
+	// reviews that are no longer live. Returns the number of reviews re-indexed.
+	int storeFingerprints(List<Review> reviews) throws SQLException;
+
+	// Restores a review, with its shares, deleted at most withinSeconds ago.
+	// Returns REVIEW_NOT_FOUND if there is no such deleted review.
+	Outcome restore(int reviewId, int withinSeconds) throws SQLException;
+
+	// Returns the reviews deleted at most withinSeconds ago, with titles, reviewer names and
+	// deletion times, most recently deleted first.
+	List<Review> findDeleted(int withinSeconds) throws SQLException;
+
+	// Permanently removes up to maxRows tombstones older than olderThanSeconds and their shares,
+	// in short transactions. Returns the number of rows removed; 0 once none are left.
+	int purgeDeleted(int olderThanSeconds, int maxRows) throws SQLException;
+
+	// Returns true if the review exists and belongs to the user.
+	boolean isOwner(int reviewId, int userId) throws SQLException;
+
+	// Shares a review with another user.
+	Outcome share(int reviewId, int recipientId) throws SQLException;
+
+	// Shares a review with every listed user (existing users, resolved by the caller) it is not yet
+	// shared with, in one transaction with batched writes. Returns the number of users it was newly
+	// shared with, or -1 if the review does not exist.
+	int shareAll(int reviewId, List<Integer> recipientIds) throws SQLException;
+
+	// Returns the user's reviews with movie titles, most recently modified first.
+	List<Review> findByUser(int userId) throws SQLException;
+
+	// Returns all reviews with movie titles and reviewer names, most recently modified first.
+	List<Review> findAll() throws SQLException;
+
+	// Returns reviews shared with the user, with titles, reviewer names and share times,
+	// most recently shared first.
+	List<Review> findSharedWith(int userId) throws SQLException;
+
+	// Returns a movie's reviews with reviewer names and full text.
+	List<Review> findByMovie(int movieId) throws SQLException;
+
+	// Returns up to limit of a movie's live reviews with reviewer names, previews and ranking scores,
+	// highest score first (higher ID first among equal scores), starting after the cursor; a null
+	// cursor starts at the top.
+	List<Review> findFeed(int movieId, FeedCursor after, int limit) throws SQLException;
+
+	// Returns the number and sum of the ratings of a movie's live reviews.
+	RatingTotals findRatings(int movieId) throws SQLException;
+
+	// Returns a live or archived review with its full text, movie title and reviewer name, or null
+	// if there is none. The other listings may carry only a preview of the text (Review.getPreview).
+	Review findById(int reviewId) throws SQLException;
+
+	// Moves up to maxRows live reviews not modified for olderThanDays, with their shares, to the
+	// archive in short transactions. Returns the number of reviews moved; 0 once none are left.
+	int archive(int olderThanDays, int maxRows) throws SQLException;
+
+	// Returns the user's archived reviews with movie titles, most recently modified first.
+	List<Review> findArchivedByUser(int userId) throws SQLException;
+
+	// Returns all archived reviews with movie titles and reviewer names, most recently modified first.
+	List<Review> findAllArchived() throws SQLException;
+
+	// Returns archived reviews shared with the user, with titles, reviewer names and share times,
+	// most recently shared first.
+	List<Review> findArchivedSharedWith(int userId) throws SQLException;
+
+	// Returns the number and sum of the ratings of a movie's archived reviews.
+	RatingTotals findArchivedRatings(int movieId) throws SQLException;
+}
@@ -1,16 +1,103 @@
 
 // Copyright (c) 2025. Created By Yash Somani
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.text.SimpleDateFormat;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 // Manages the creation, editing, deletion, and sharing of movie reviews in the Movie Review Application.
 public class ReviewService {
 	// Defines a date format for displaying timestamps in a consistent format
-	// (yyyy-MM-dd HH:mm:ss).
-	private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+	// (yyyy-MM-dd HH:mm:ss). Immutable, so concurrent sessions can share it.
+	private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+	// Operational metrics: successful review mutations by operation.
+	private static final Metrics.Counter REVIEWS_CREATED = Metrics.counter("reviews_operations_total",
+			"Successful review mutations by operation.", "operation", "create");
+	private static final Metrics.Counter REVIEWS_EDITED = Metrics.counter("reviews_operations_total",
+			"Successful review mutations by operation.", "operation", "edit");
+	private static final Metrics.Counter REVIEWS_DELETED = Metrics.counter("reviews_operations_total",
+			"Successful review mutations by operation.", "operation", "delete");
+	private static final Metrics.Counter REVIEWS_SHARED = Metrics.counter("reviews_operations_total",
+			"Successful review mutations by operation.", "operation", "share");
+	private static final Metrics.Counter REVIEWS_RESTORED = Metrics.counter("reviews_operations_total",
+			"Successful review mutations by operation.", "operation", "restore");
+	// Users reached by shares with several recipients (emails or followers).
+	private static final Metrics.Counter SHARE_RECIPIENTS = Metrics.counter("reviews_share_recipients_total",
+			"Users a review was newly shared with by shares to several recipients.");
+	// Review mutations that reached the database but changed no rows.
+	private static final Metrics.Counter REVIEW_FAILURES = Metrics.counter("reviews_failures_total",
+			"Review mutations that reached the database but changed no rows.");
+	// Seconds during which an admin can undo a review deletion; compaction purges older tombstones.
+	private static final int UNDO_SECONDS = Math.max(0, Integer.getInteger("moviereviews.reviews.undoSeconds", 600));
+	// Most recipients of one share to several users; larger audiences are refused rather than
+	// written as an unbounded transaction.
+	private static final int MAX_RECIPIENTS = Math.max(1, Integer.getInteger("moviereviews.shares.maxRecipients", 10000));
+	// Unknown emails listed by name after a share to several emails.
+	private static final int LISTED_UNKNOWN_EMAILS = 10;
+	// Reviews examined per chunk of a bulk moderation; each chunk's matches are deleted in one
+	// short transaction per shard.
+	private static final int MODERATION_CHUNK = Math.max(1, Integer.getInteger("moviereviews.moderation.chunkSize", 1000));
+	// Least time between two progress lines of a bulk moderation.
+	private static final long MODERATION_PROGRESS_MILLIS = 2000;
+	// What happens to a new or edited review nearly duplicating another live review (see
+	// ReviewFingerprint): "flag" stores it and counts it, "reject" refuses it, "off" skips the check.
+	private static final String DUPLICATE_ACTION = System.getProperty("moviereviews.duplicates.action", "flag").trim()
+			.toLowerCase();
+	// Least similarity of two texts (ReviewFingerprint.similarity) for one to duplicate the other.
+	private static final double DUPLICATE_SIMILARITY = Double
+			.parseDouble(System.getProperty("moviereviews.duplicates.similarity", "0.6"));
+	// Fingerprint index entries read per text checked; bounds the work a very common text causes.
+	private static final int DUPLICATE_CANDIDATES = 64;
+	// Near-duplicate reviews found as they were written, by action taken.
+	private static final Metrics.Counter DUPLICATES_FLAGGED = Metrics.counter("reviews_duplicates_total",
+			"Reviews written as near-duplicates of other reviews, by action taken.", "action", "flagged");
+	private static final Metrics.Counter DUPLICATES_REJECTED = Metrics.counter("reviews_duplicates_total",
+			"Reviews written as near-duplicates of other reviews, by action taken.", "action", "rejected");
+
+	// Storage for reviews and shares, and for looking up share recipients.
+	private final ReviewRepository reviews;
+	private final UserRepository users;
+	// Purges deleted reviews once they can no longer be restored.
+	private final ReviewCompactor compactor;
+
+	// Creates the service over the storage backend selected at startup.
+	public ReviewService() {
+		this(Repositories.reviews(), Repositories.users());
+	}
+
+	// Creates the service over the given review and user storage.
+	public ReviewService(ReviewRepository reviews, UserRepository users) {
+		this.reviews = reviews;
+		this.users = users;
+		this.compactor = new ReviewCompactor(reviews, UNDO_SECONDS, ReviewService::writeCount);
+	}
+
+	// Starts the background purge of deleted reviews whose undo window has passed.
+	public void startCompaction() {
+		compactor.start();
+	}
+
+	// Loads the user's reviews and shared inbox into the review cache in the background after
+	// login, so the signed-in menu's first listings do not wait for the database.
+	public void preloadUserReviews(int userId) {
+		CompletableFuture.runAsync(() -> {
+			try {
+				reviews.findByUser(userId);
+				reviews.findSharedWith(userId);
+			} catch (SQLException e) {
+				// Nothing lost: the menu loads the listings when it shows them.
+			}
+		});
+	}
 
 	// Creates a new review for a movie by a user.
 	// Returns true if creation succeeds, false otherwise.
@@ -31,30 +118,29 @@ public class ReviewService {
 			return false;
 		}
 
-		// Establish database connection to perform review creation.
-		try (Connection conn = DatabaseConnection.getConnection()) {
-			// Verify that the movie ID exists in the database.
-			if (!movieExists(conn, movieId)) {
-				System.out.println("Invalid movie ID.");
-				return false;
-			}
-
-			// Check if the user has already reviewed this movie to prevent duplicates.
-			if (userHasReviewed(conn, userId, movieId)) {
-				System.out.println("You have already reviewed this movie.");
-				return false;
-			}
+		int duplicateOf = checkDuplicate(0, userId, movieId, reviewText.trim());
+		if (duplicateOf < 0) {
+			return false;
+		}
 
-			// SQL query to insert a new review into the reviews table.
-			String sql = "INSERT INTO reviews (movie_id, review, rating, user_id) VALUES (?, ?, ?, ?)";
-			try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-				// Set prepared statement parameters with validated inputs.
-				stmt.setInt(1, movieId);
-				stmt.setString(2, reviewText.trim());
-				stmt.setInt(3, rating);
-				stmt.setInt(4, userId);
-				// Execute insert and return true if at least one row is affected.
-				return stmt.executeUpdate() > 0;
+		try {
+			switch (reviews.create(userId, movieId, reviewText.trim(), rating, UNDO_SECONDS,
+					duplicateOf > 0 ? duplicateOf : null)) {
+				case MOVIE_NOT_FOUND:
+					// The movie ID does not exist.
+					System.out.println("Invalid movie ID.");
+					return false;
+				case DUPLICATE:
+					// The user has already reviewed this movie.
+					System.out.println("You have already reviewed this movie.");
+					return false;
+				case RESTORABLE:
+					// A moderator's deletion can still be undone, so the removed review is kept.
+					System.out.println("Your review of this movie was removed by an administrator less than "
+							+ UNDO_SECONDS + " seconds ago and may still be restored; please try again later.");
+					return false;
+				default:
+					return countResult(REVIEWS_CREATED, true);
 			}
 		} catch (SQLException e) {
 			// Handle database errors and inform user.
@@ -82,32 +168,23 @@ public class ReviewService {
 			return false;
 		}
 
-		// Connect to the database to verify and update the review.
-		try (Connection conn = DatabaseConnection.getConnection()) {
-			// Check if the review exists and is owned by the user.
-			String checkReviewSql = "SELECT id FROM reviews WHERE id = ? AND user_id = ?";
-			try (PreparedStatement checkStmt = conn.prepareStatement(checkReviewSql)) {
-				checkStmt.setInt(1, reviewId);
-				checkStmt.setInt(2, userId);
-				try (ResultSet rs = checkStmt.executeQuery()) {
-					if (!rs.next()) {
-						System.out.println("Review not found or you don't have permission to edit it.");
-						return false;
-					}
-				}
+		try {
+			// Only the owner's edits are checked for duplicates, so others learn nothing from the check.
+			if (!reviews.isOwner(reviewId, userId)) {
+				System.out.println("Review not found or you don't have permission to edit it.");
+				return false;
 			}
-
-			// SQL query to update the review's text and rating.
-			String sql = "UPDATE reviews SET review = ?, rating = ? WHERE id = ? AND user_id = ?";
-			try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-				// Set prepared statement parameters.
-				stmt.setString(1, reviewText.trim());
-				stmt.setInt(2, rating);
-				stmt.setInt(3, reviewId);
-				stmt.setInt(4, userId);
-				// Execute update and return true if successful.
-				return stmt.executeUpdate() > 0;
+			int duplicateOf = checkDuplicate(reviewId, userId, 0, reviewText.trim());
+			if (duplicateOf < 0) {
+				return false;
+			}
+			// Update the review's text and rating, provided the user still owns it.
+			if (reviews.update(reviewId, userId, reviewText.trim(), rating,
+					duplicateOf > 0 ? duplicateOf : null) != ReviewRepository.Outcome.OK) {
+				System.out.println("Review not found or you don't have permission to edit it.");
+				return false;
 			}
+			return countResult(REVIEWS_EDITED, true);
 		} catch (SQLException e) {
 			// Handle database errors during review update.
 			System.out.println("Failed to edit review: " + e.getMessage());
@@ -115,30 +192,138 @@ public class ReviewService {
 		}
 	}
 
-	// Deletes any review (admin-only functionality).
-	// Returns true if deletion succeeds, false otherwise.
-	public boolean deleteReviewByAdmin(int reviewId) {
-		// Connect to the database to verify and delete the review.
-		try (Connection conn = DatabaseConnection.getConnection()) {
-			// Verify that the review exists.
-			String checkSql = "SELECT id FROM reviews WHERE id = ?";
-			try (PreparedStatement checkStmt = conn.prepareStatement(checkSql)) {
-				checkStmt.setInt(1, reviewId);
-				try (ResultSet rs = checkStmt.executeQuery()) {
-					if (!rs.next()) {
-						System.out.println("Review not found.");
-						return false;
+	// Checks the text of a new (reviewId 0) or edited review against the other live reviews: a
+	// near-duplicate is refused with "reject" and, with "flag", stored with the original's ID for
+	// moderation to find (ModerationCriteria duplicatesOnly). Concurrent copies may each pass before
+	// the other is stored; the batch scan catches those. A failed check lets the review through.
+	// Returns -1 if the review is refused, else the ID of the review to flag it against, or 0.
+	private int checkDuplicate(int reviewId, int userId, int movieId, String text) {
+		if (DUPLICATE_ACTION.equals("off")) {
+			return 0;
+		}
+		try {
+			Integer original = findNearDuplicates(List.of(new Review(reviewId, movieId, userId, text, 0, null)), false)
+					.get(reviewId);
+			if (original == null) {
+				return 0;
+			}
+			if (DUPLICATE_ACTION.equals("reject")) {
+				// The original's ID is not shown: it may belong to another user.
+				DUPLICATES_REJECTED.increment();
+				System.out.println("This review is nearly identical to an existing review. Please write your own.");
+				return -1;
+			}
+			DUPLICATES_FLAGGED.increment();
+			return original;
+		} catch (SQLException e) {
+			System.out.println("Failed to check for duplicate reviews: " + e.getMessage());
+			return 0;
+		}
+	}
+
+	// Re-indexes the fingerprints of a page of reviews (from ReviewRepository.findPage) that are
+	// missing or stale, for batch jobs. Returns the number re-indexed, or -1 if indexing failed.
+	public int indexFingerprints(List<Review> page) {
+		try {
+			return reviews.storeFingerprints(page);
+		} catch (SQLException e) {
+			System.out.println("Failed to index review fingerprints: " + e.getMessage());
+			return -1;
+		}
+	}
+
+	// Finds the reviews of a page (from ReviewRepository.findPage) that nearly duplicate a live
+	// review with a lower ID, so that of several copies all but the first are reported, for batch
+	// jobs. Returns the ID of the most similar earlier review by ID of each duplicate, or null if
+	// the search failed.
+	public Map<Integer, Integer> findDuplicateReviews(List<Review> page) {
+		try {
+			return findNearDuplicates(page, true);
+		} catch (SQLException e) {
+			System.out.println("Failed to find duplicate reviews: " + e.getMessage());
+			return null;
+		}
+	}
+
+	// Finds, for each review, the live review (other than itself; with earlierOnly, with a lower ID)
+	// whose text is most similar to its own, if at least DUPLICATE_SIMILARITY alike. Candidates are
+	// the reviews sharing a fingerprint band key with it, read from the index for all the reviews at
+	// once; their texts are then compared. Returns the ID found by review ID.
+	private Map<Integer, Integer> findNearDuplicates(List<Review> page, boolean earlierOnly) throws SQLException {
+		Map<Integer, Integer> duplicates = new HashMap<>();
+		Map<Integer, int[]> keysById = new HashMap<>();
+		Set<Integer> allKeys = new HashSet<>();
+		// Word pairs of the texts compared (see ReviewFingerprint.similarity), by review ID.
+		Map<Integer, long[]> wordPairs = new HashMap<>();
+		for (Review review : page) {
+			int[] keys = ReviewFingerprint.bandKeys(review.getText());
+			if (keys != null) {
+				keysById.put(review.getId(), keys);
+				for (int key : keys) {
+					allKeys.add(key);
+				}
+				wordPairs.put(review.getId(), ReviewFingerprint.wordPairs(review.getText()));
+			}
+		}
+		if (allKeys.isEmpty()) {
+			return duplicates;
+		}
+		Map<Integer, List<Integer>> idsByKey = reviews.findIdsByFingerprint(allKeys, page.size() * DUPLICATE_CANDIDATES);
+
+		// Collect each review's candidates, and read the texts of the others in one go.
+		Map<Integer, Set<Integer>> candidatesById = new HashMap<>();
+		Set<Integer> unread = new HashSet<>();
+		for (Map.Entry<Integer, int[]> entry : keysById.entrySet()) {
+			int reviewId = entry.getKey();
+			Set<Integer> candidates = new HashSet<>();
+			for (int key : entry.getValue()) {
+				for (int candidateId : idsByKey.getOrDefault(key, List.of())) {
+					if (candidateId != reviewId && (!earlierOnly || candidateId < reviewId)) {
+						candidates.add(candidateId);
+						if (!wordPairs.containsKey(candidateId)) {
+							unread.add(candidateId);
+						}
 					}
 				}
 			}
+			candidatesById.put(reviewId, candidates);
+		}
+		if (!unread.isEmpty()) {
+			for (Review review : reviews.findByIds(new ArrayList<>(unread))) {
+				wordPairs.put(review.getId(), ReviewFingerprint.wordPairs(review.getText()));
+			}
+		}
 
-			// SQL query to delete the review by ID.
-			String sql = "DELETE FROM reviews WHERE id = ?";
-			try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-				stmt.setInt(1, reviewId);
-				// Execute deletion and return true if successful.
-				return stmt.executeUpdate() > 0;
+		for (Map.Entry<Integer, Set<Integer>> entry : candidatesById.entrySet()) {
+			long[] pairs = wordPairs.get(entry.getKey());
+			int best = 0;
+			double bestSimilarity = DUPLICATE_SIMILARITY;
+			for (int candidateId : entry.getValue()) {
+				// A candidate deleted since the index was read has no text.
+				long[] candidatePairs = wordPairs.get(candidateId);
+				double similarity = candidatePairs != null ? ReviewFingerprint.similarity(pairs, candidatePairs) : 0;
+				if (similarity > bestSimilarity || (similarity == bestSimilarity && (best == 0 || candidateId < best))) {
+					best = candidateId;
+					bestSimilarity = similarity;
+				}
+			}
+			if (best != 0) {
+				duplicates.put(entry.getKey(), best);
+			}
+		}
+		return duplicates;
+	}
+
+	// Deletes any review (admin-only functionality).
+	// Returns true if deletion succeeds, false otherwise.
+	public boolean deleteReviewByAdmin(int reviewId) {
+		try {
+			// Delete the review with its shares.
+			if (reviews.deleteAny(reviewId) != ReviewRepository.Outcome.OK) {
+				System.out.println("Review not found.");
+				return false;
 			}
+			return countResult(REVIEWS_DELETED, true);
 		} catch (SQLException e) {
 			// Handle database errors during deletion.
 			System.out.println("Failed to delete review: " + e.getMessage());
@@ -146,24 +331,108 @@ public class ReviewService {
 		}
 	}
 
+	// Deletes the reviews with the given IDs (admin-only functionality, for batch jobs) with
+	// set-based writes instead of one round trip per review. Missing reviews are skipped.
+	// Returns the IDs of the reviews deleted, or null if the deletion failed.
+	public List<Integer> deleteReviewsByAdmin(List<Integer> reviewIds) {
+		try {
+			List<Integer> deleted = reviews.deleteAll(reviewIds);
+			REVIEWS_DELETED.add(deleted.size());
+			REVIEW_FAILURES.add(reviewIds.size() - deleted.size());
+			return deleted;
+		} catch (SQLException e) {
+			// Handle database errors; batches committed before the failure stay deleted.
+			System.out.println("Failed to delete reviews: " + e.getMessage());
+			return null;
+		}
+	}
+
+	// Builds bulk moderation criteria from the admin's input: blank values and a movie ID of 0
+	// match any review; dates are yyyy-MM-dd, both inclusive, compared with the last modification.
+	// duplicatesOnly limits the match to reviews flagged as near-duplicates.
+	// Returns null (after printing why) if a value is invalid or no criterion is given.
+	public ReviewRepository.ModerationCriteria moderationCriteria(String userEmail, int movieId, String fromDate,
+			String toDate, String textContains, boolean duplicatesOnly) {
+		try {
+			Integer userId = null;
+			if (userEmail != null && !userEmail.trim().isEmpty()) {
+				userId = users.findIdByEmail(userEmail.trim().toLowerCase());
+				if (userId == -1) {
+					System.out.println("No user found with that email.");
+					return null;
+				}
+			}
+			Timestamp from = null;
+			Timestamp to = null;
+			try {
+				if (fromDate != null && !fromDate.trim().isEmpty()) {
+					from = Timestamp.valueOf(LocalDate.parse(fromDate.trim()).atStartOfDay());
+				}
+				if (toDate != null && !toDate.trim().isEmpty()) {
+					to = Timestamp.valueOf(LocalDate.parse(toDate.trim()).plusDays(1).atStartOfDay());
+				}
+			} catch (DateTimeParseException e) {
+				System.out.println("Invalid date format. Use yyyy-MM-dd.");
+				return null;
+			}
+			String text = textContains != null && !textContains.trim().isEmpty() ? textContains.trim() : null;
+			if (userId == null && movieId <= 0 && from == null && to == null && text == null && !duplicatesOnly) {
+				// Refuse to select every review.
+				System.out.println("Give at least one criterion.");
+				return null;
+			}
+			return new ReviewRepository.ModerationCriteria(userId, movieId > 0 ? movieId : null, from, to, text,
+					duplicatesOnly);
+		} catch (SQLException e) {
+			System.out.println("Failed to look up the user: " + e.getMessage());
+			return null;
+		}
+	}
+
+	// Deletes the live reviews matching the criteria (admin-only bulk moderation), or with dryRun
+	// only counts them. Reviews are examined by ID a chunk at a time and each chunk's matches are
+	// deleted in one set-based write, so every transaction locks few reviews briefly however many
+	// match. Deleted reviews can be restored during the undo window. Progress is printed as it goes.
+	// Returns the number of reviews matched (dry run) or deleted, or -1 if moderation failed.
+	public int moderateReviews(ReviewRepository.ModerationCriteria criteria, boolean dryRun) {
+		int matched = 0;
+		int deleted = 0;
+		long reportedAt = System.currentTimeMillis();
+		try {
+			int afterId = 0;
+			do {
+				List<Integer> matches = new ArrayList<>();
+				afterId = reviews.findMatchingIds(criteria, afterId, MODERATION_CHUNK, matches);
+				matched += matches.size();
+				if (!dryRun && !matches.isEmpty()) {
+					List<Integer> done = reviews.deleteAll(matches);
+					deleted += done.size();
+					REVIEWS_DELETED.add(done.size());
+				}
+				if (afterId != 0 && System.currentTimeMillis() - reportedAt >= MODERATION_PROGRESS_MILLIS) {
+					System.out.println("Examined reviews up to ID " + afterId + ": " + matched + " matched"
+							+ (dryRun ? "" : ", " + deleted + " deleted"));
+					reportedAt = System.currentTimeMillis();
+				}
+			} while (afterId != 0);
+			return dryRun ? matched : deleted;
+		} catch (SQLException e) {
+			// Handle database errors; chunks deleted before the failure stay deleted.
+			System.out.println("Failed to moderate reviews after " + deleted + " deletions: " + e.getMessage());
+			return -1;
+		}
+	}
+
 	// Deletes a review if it belongs to the user.
 	// Returns true if deletion succeeds, false otherwise.
 	public boolean deleteReview(int reviewId, int userId) {
-		// Connect to the database to perform deletion.
-		try (Connection conn = DatabaseConnection.getConnection()) {
-			// SQL query to delete the review, ensuring user ownership.
-			String sql = "DELETE FROM reviews WHERE id = ? AND user_id = ?";
-			try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-				stmt.setInt(1, reviewId);
-				stmt.setInt(2, userId);
-				// Execute deletion and check if any rows were affected.
-				int rowsAffected = stmt.executeUpdate();
-				if (rowsAffected == 0) {
-					System.out.println("Review not found or you don't have permission to delete it.");
-					return false;
-				}
-				return true;
+		try {
+			// Delete the review, ensuring user ownership.
+			if (reviews.delete(reviewId, userId) != ReviewRepository.Outcome.OK) {
+				System.out.println("Review not found or you don't have permission to delete it.");
+				return countResult(REVIEWS_DELETED, false);
 			}
+			return countResult(REVIEWS_DELETED, true);
 		} catch (SQLException e) {
 			// Handle database errors during deletion.
 			System.out.println("Failed to delete review: " + e.getMessage());
@@ -171,110 +440,154 @@ public class ReviewService {
 		}
 	}
 
+	// Restores a review deleted within the undo window (admin-only functionality).
+	// Returns true if the review was restored, false otherwise.
+	public boolean restoreReview(int reviewId) {
+		try {
+			if (reviews.restore(reviewId, UNDO_SECONDS) != ReviewRepository.Outcome.OK) {
+				System.out.println("No review with that ID was deleted in the last " + UNDO_SECONDS + " seconds.");
+				return countResult(REVIEWS_RESTORED, false);
+			}
+			return countResult(REVIEWS_RESTORED, true);
+		} catch (SQLException e) {
+			// Handle database errors during the restore.
+			System.out.println("Failed to restore review: " + e.getMessage());
+			return false;
+		}
+	}
+
+	// Displays the reviews that can still be restored, most recently deleted first.
+	public void displayDeletedReviews() {
+		List<Review> deletedReviews;
+		try {
+			deletedReviews = reviews.findDeleted(UNDO_SECONDS);
+		} catch (SQLException e) {
+			// Handle database errors during retrieval.
+			System.out.println("Failed to fetch deleted reviews: " + e.getMessage());
+			return;
+		}
+		System.out.println("\n--- Recently Deleted Reviews ---");
+		for (Review review : deletedReviews) {
+			System.out.printf("Review ID: %d, Movie: %s, By: %s, Review: %s, Rating: %d, Deleted: %s%n",
+					review.getId(), review.getMovieTitle(), review.getReviewerName(), review.getPreview(),
+					review.getRating(), DATE_FORMAT.format(review.getDeletedAt().toLocalDateTime()));
+		}
+		if (deletedReviews.isEmpty()) {
+			System.out.println("No reviews were deleted in the last " + UNDO_SECONDS + " seconds.");
+		}
+	}
+
+	// Displays one review with its full text; listings show only a preview of each text.
+	public void displayReview(int reviewId) {
+		Review review;
+		try {
+			review = reviews.findById(reviewId);
+		} catch (SQLException e) {
+			// Handle database errors during retrieval.
+			System.out.println("Failed to display review: " + e.getMessage());
+			return;
+		}
+		System.out.println("\n--- Review Details ---");
+		if (review == null) {
+			System.out.println("Review not found.");
+			return;
+		}
+		System.out.printf("Review ID: %d, Movie: %s, By: %s, Rating: %d, Modified: %s%n",
+				review.getId(), review.getMovieTitle(), review.getReviewerName(), review.getRating(),
+				DATE_FORMAT.format(review.getModifiedAt().toLocalDateTime()));
+		System.out.println(review.getText());
+	}
+
 	// Displays all reviews by a specific user.
 	public void displayUserReviews(int userId) {
-		// SQL query to fetch user's reviews, joining with movies table, ordered by
-		// modification date.
-		String sql = "SELECT r.id, r.review, r.rating, m.title, r.modified_at " +
-				"FROM reviews r JOIN movies m ON r.movie_id = m.id " +
-				"WHERE r.user_id = ? ORDER BY r.modified_at DESC";
-		try (Connection conn = DatabaseConnection.getConnection();
-				PreparedStatement stmt = conn.prepareStatement(sql)) {
-			// Set user ID parameter for the query.
-			stmt.setInt(1, userId);
-			try (ResultSet rs = stmt.executeQuery()) {
-				// Print header for the reviews section.
-				System.out.println("\n--- Your Reviews ---");
-				// Track if any reviews are found.
-				boolean hasReviews = false;
-				// Iterate through results and display review details.
-				while (rs.next()) {
-					hasReviews = true;
-					System.out.printf("Review ID: %d, Movie: %s, Review: %s, Rating: %d, Modified: %s%n",
-							rs.getInt("id"), rs.getString("title"), rs.getString("review"),
-							rs.getInt("rating"), DATE_FORMAT.format(rs.getTimestamp("modified_at")));
-				}
-				// Inform user if no reviews were found.
-				if (!hasReviews) {
-					System.out.println("No reviews found.");
-				}
-			}
+		List<Review> userReviews;
+		try {
+			// Fetch the user's reviews, most recently modified first.
+			userReviews = reviews.findByUser(userId);
 		} catch (SQLException e) {
 			// Handle database errors during review display.
 			System.out.println("Failed to display reviews: " + e.getMessage());
+			return;
+		}
+		// Print header for the reviews section.
+		System.out.println("\n--- Your Reviews ---");
+		// Display each review's details.
+		for (Review review : userReviews) {
+			System.out.printf("Review ID: %d, Movie: %s, Review: %s, Rating: %d, Modified: %s%n",
+					review.getId(), review.getMovieTitle(), review.getPreview(), review.getRating(),
+					DATE_FORMAT.format(review.getModifiedAt().toLocalDateTime()));
+		}
+		// Inform user if no reviews were found.
+		if (userReviews.isEmpty()) {
+			System.out.println("No reviews found.");
 		}
 	}
 
 	// Displays all reviews in the system.
 	public void displayAllReviews() {
-		// SQL query to fetch all reviews, joining with movies and users tables, ordered
-		// by modification date.
-		String sql = "SELECT r.id, r.review, r.rating, m.title, u.first_name, u.last_name, r.modified_at " +
-				"FROM reviews r " +
-				"JOIN movies m ON r.movie_id = m.id " +
-				"JOIN users u ON r.user_id = u.id " +
-				"ORDER BY r.modified_at DESC";
-		try (Connection conn = DatabaseConnection.getConnection();
-				PreparedStatement stmt = conn.prepareStatement(sql);
-				ResultSet rs = stmt.executeQuery()) {
-			// Print header for the reviews section.
-			System.out.println("\n--- All Reviews ---");
-			// Track if any reviews are found.
-			boolean hasReviews = false;
-			// Iterate through results and display review details with reviewer names.
-			while (rs.next()) {
-				hasReviews = true;
-				System.out.printf("Review ID: %d, Movie: %s, By: %s %s, Review: %s, Rating: %d, Modified: %s%n",
-						rs.getInt("id"), rs.getString("title"), rs.getString("first_name"),
-						rs.getString("last_name"), rs.getString("review"), rs.getInt("rating"),
-						DATE_FORMAT.format(rs.getTimestamp("modified_at")));
-			}
-			// Inform user if no reviews were found.
-			if (!hasReviews) {
-				System.out.println("No reviews found.");
-			}
+		List<Review> allReviews;
+		try {
+			// Fetch all reviews with reviewer names, most recently modified first.
+			allReviews = reviews.findAll();
 		} catch (SQLException e) {
 			// Handle database errors during review display.
 			System.out.println("Failed to display reviews: " + e.getMessage());
+			return;
 		}
+		displayReviews("\n--- All Reviews ---", "No reviews found.", allReviews);
 	}
 
 	// Displays reviews shared with a specific user.
 	public void displaySharedReviews(int userId) {
-		// SQL query to fetch shared reviews, joining reviews, movies, users, and shares
-		// tables, ordered by share date.
-		String sql = "SELECT r.id, r.review, r.rating, m.title, u.first_name, u.last_name, r.modified_at " +
-				"FROM reviews r " +
-				"JOIN movies m ON r.movie_id = m.id " +
-				"JOIN users u ON r.user_id = u.id " +
-				"JOIN shares s ON r.id = s.review_id " +
-				"WHERE s.user_id = ? ORDER BY s.share_date DESC";
-		try (Connection conn = DatabaseConnection.getConnection();
-				PreparedStatement stmt = conn.prepareStatement(sql)) {
-			// Set user ID parameter for the query.
-			stmt.setInt(1, userId);
-			try (ResultSet rs = stmt.executeQuery()) {
-				// Print header for the shared reviews section.
-				System.out.println("\n--- Reviews Shared with You ---");
-				// Track if any shared reviews are found.
-				boolean hasShares = false;
-				// Iterate through results and display shared review details.
-				while (rs.next()) {
-					hasShares = true;
-					System.out.printf("Review ID: %d, Movie: %s, By: %s %s, Review: %s, Rating: %d, Modified: %s%n",
-							rs.getInt("id"), rs.getString("title"), rs.getString("first_name"),
-							rs.getString("last_name"), rs.getString("review"), rs.getInt("rating"),
-							DATE_FORMAT.format(rs.getTimestamp("modified_at")));
-				}
-				// Inform user if no shared reviews were found.
-				if (!hasShares) {
-					System.out.println("No reviews shared with you.");
-				}
-			}
+		List<Review> sharedReviews;
+		try {
+			// Fetch shared reviews, most recently shared first.
+			sharedReviews = reviews.findSharedWith(userId);
 		} catch (SQLException e) {
 			// Handle database errors during shared review display.
 			System.out.println("Failed to display shared reviews: " + e.getMessage());
+			return;
 		}
+		displayReviews("\n--- Reviews Shared with You ---", "No reviews shared with you.", sharedReviews);
+	}
+
+	// Displays a user's archived reviews and the archived reviews shared with them, which the
+	// regular listings leave out.
+	public void displayArchivedReviews(int userId) {
+		List<Review> userReviews;
+		List<Review> sharedReviews;
+		try {
+			userReviews = reviews.findArchivedByUser(userId);
+			sharedReviews = reviews.findArchivedSharedWith(userId);
+		} catch (SQLException e) {
+			// Handle database errors during retrieval.
+			System.out.println("Failed to display archived reviews: " + e.getMessage());
+			return;
+		}
+		System.out.println("\n--- Your Archived Reviews ---");
+		for (Review review : userReviews) {
+			System.out.printf("Review ID: %d, Movie: %s, Review: %s, Rating: %d, Modified: %s%n",
+					review.getId(), review.getMovieTitle(), review.getPreview(), review.getRating(),
+					DATE_FORMAT.format(review.getModifiedAt().toLocalDateTime()));
+		}
+		if (userReviews.isEmpty()) {
+			System.out.println("No archived reviews found.");
+		}
+		displayReviews("\n--- Archived Reviews Shared with You ---", "No archived reviews shared with you.",
+				sharedReviews);
+	}
+
+	// Displays all archived reviews (admin-only functionality).
+	public void displayAllArchivedReviews() {
+		List<Review> archivedReviews;
+		try {
+			archivedReviews = reviews.findAllArchived();
+		} catch (SQLException e) {
+			// Handle database errors during retrieval.
+			System.out.println("Failed to display archived reviews: " + e.getMessage());
+			return;
+		}
+		displayReviews("\n--- All Archived Reviews ---", "No archived reviews found.", archivedReviews);
 	}
 
 	// Shares a review with another user via their email.
@@ -286,33 +599,18 @@ public class ReviewService {
 			return false;
 		}
 
-		// Connect to the database to perform sharing.
-		try (Connection conn = DatabaseConnection.getConnection()) {
+		try {
 			// Verify that the review exists and is owned by the user.
-			String checkReviewSql = "SELECT id FROM reviews WHERE id = ? AND user_id = ?";
-			try (PreparedStatement checkStmt = conn.prepareStatement(checkReviewSql)) {
-				checkStmt.setInt(1, reviewId);
-				checkStmt.setInt(2, userId);
-				try (ResultSet rs = checkStmt.executeQuery()) {
-					if (!rs.next()) {
-						System.out.println("Review not found or you don't own it.");
-						return false;
-					}
-				}
+			if (!reviews.isOwner(reviewId, userId)) {
+				System.out.println("Review not found or you don't own it.");
+				return false;
 			}
 
-			// Retrieve the ID of the user with the provided email.
-			String getUserSql = "SELECT id FROM users WHERE email = ?";
-			int sharedWithId;
-			try (PreparedStatement stmt = conn.prepareStatement(getUserSql)) {
-				stmt.setString(1, sharedWithEmail.trim().toLowerCase());
-				try (ResultSet rs = stmt.executeQuery()) {
-					if (!rs.next()) {
-						System.out.println("User with that email not found.");
-						return false;
-					}
-					sharedWithId = rs.getInt("id");
-				}
+			// Stop if no user has the provided email.
+			int sharedWithId = users.findIdByEmail(sharedWithEmail.trim().toLowerCase());
+			if (sharedWithId < 0) {
+				System.out.println("User with that email not found.");
+				return false;
 			}
 
 			// Prevent users from sharing reviews with themselves.
@@ -321,26 +619,16 @@ public class ReviewService {
 				return false;
 			}
 
-			// Check if the review has already been shared with this user.
-			String checkShareSql = "SELECT review_id FROM shares WHERE review_id = ? AND user_id = ?";
-			try (PreparedStatement checkStmt = conn.prepareStatement(checkShareSql)) {
-				checkStmt.setInt(1, reviewId);
-				checkStmt.setInt(2, sharedWithId);
-				try (ResultSet rs = checkStmt.executeQuery()) {
-					if (rs.next()) {
-						System.out.println("Review already shared with this user.");
-						return false;
-					}
-				}
-			}
-
-			// SQL query to insert a new share record into the shares table.
-			String sql = "INSERT INTO shares (review_id, user_id) VALUES (?, ?)";
-			try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-				stmt.setInt(1, reviewId);
-				stmt.setInt(2, sharedWithId);
-				// Execute insert and return true if successful.
-				return stmt.executeUpdate() > 0;
+			switch (reviews.share(reviewId, sharedWithId)) {
+				case DUPLICATE:
+					// The review has already been shared with this user.
+					System.out.println("Review already shared with this user.");
+					return false;
+				case OK:
+					return countResult(REVIEWS_SHARED, true);
+				default:
+					// The review was deleted in the meantime.
+					return countResult(REVIEWS_SHARED, false);
 			}
 		} catch (SQLException e) {
 			// Handle database errors during sharing.
@@ -349,28 +637,119 @@ public class ReviewService {
 		}
 	}
 
-	// Helper method to check if a movie exists in the database.
-	// Returns true if the movie ID is found, false otherwise.
-	private boolean movieExists(Connection conn, int movieId) throws SQLException {
-		String sql = "SELECT id FROM movies WHERE id = ?";
-		try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-			stmt.setInt(1, movieId);
-			try (ResultSet rs = stmt.executeQuery()) {
-				return rs.next();
+	// Shares a review with several users at once via their emails. The emails are resolved in one
+	// set-based lookup and the shares written in one batch; emails nobody has are reported and skipped.
+	// Returns true if the review was shared with at least one new recipient, false otherwise.
+	public boolean shareReviewWithEmails(int reviewId, int userId, List<String> emails) {
+		// Normalize and deduplicate the emails, keeping their order for the report.
+		Set<String> normalized = new LinkedHashSet<>();
+		for (String email : emails) {
+			if (email != null && !email.trim().isEmpty()) {
+				normalized.add(email.trim().toLowerCase());
 			}
 		}
+		if (normalized.isEmpty()) {
+			System.out.println("Email cannot be empty.");
+			return false;
+		}
+		if (normalized.size() > MAX_RECIPIENTS) {
+			System.out.println("Too many recipients: " + normalized.size() + " (at most " + MAX_RECIPIENTS + ").");
+			return false;
+		}
+		try {
+			if (!reviews.isOwner(reviewId, userId)) {
+				System.out.println("Review not found or you don't own it.");
+				return false;
+			}
+			Map<String, Integer> ids = users.findIdsByEmails(normalized);
+			List<String> unknown = new ArrayList<>();
+			for (String email : normalized) {
+				if (!ids.containsKey(email)) {
+					unknown.add(email);
+				}
+			}
+			if (!unknown.isEmpty()) {
+				System.out.println(unknown.size() + " emails not found: "
+						+ String.join(", ", unknown.subList(0, Math.min(unknown.size(), LISTED_UNKNOWN_EMAILS)))
+						+ (unknown.size() > LISTED_UNKNOWN_EMAILS ? ", ..." : ""));
+			}
+			return fanOut(reviewId, userId, new ArrayList<>(ids.values()));
+		} catch (SQLException e) {
+			System.out.println("Failed to share review: " + e.getMessage());
+			return false;
+		}
 	}
 
-	// Helper method to check if a user has already reviewed a movie.
-	// Returns true if a review exists, false otherwise.
-	private boolean userHasReviewed(Connection conn, int userId, int movieId) throws SQLException {
-		String sql = "SELECT id FROM reviews WHERE user_id = ? AND movie_id = ?";
-		try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-			stmt.setInt(1, userId);
-			stmt.setInt(2, movieId);
-			try (ResultSet rs = stmt.executeQuery()) {
-				return rs.next();
+	// Shares a review with all of the user's followers at once, in one batch.
+	// Returns true if the review was shared with at least one new recipient, false otherwise.
+	public boolean shareReviewWithFollowers(int reviewId, int userId) {
+		try {
+			if (!reviews.isOwner(reviewId, userId)) {
+				System.out.println("Review not found or you don't own it.");
+				return false;
+			}
+			// One more than allowed, to tell an audience at the limit from a larger one.
+			List<Integer> followerIds = users.findFollowerIds(userId, MAX_RECIPIENTS + 1);
+			if (followerIds.isEmpty()) {
+				System.out.println("You have no followers.");
+				return false;
 			}
+			if (followerIds.size() > MAX_RECIPIENTS) {
+				System.out.println("You have more than " + MAX_RECIPIENTS + " followers; share with a list of emails instead.");
+				return false;
+			}
+			return fanOut(reviewId, userId, followerIds);
+		} catch (SQLException e) {
+			System.out.println("Failed to share review: " + e.getMessage());
+			return false;
+		}
+	}
+
+	// Writes the shares of a review with the given users (other than its author) in one batch and
+	// reports how many were new. Returns true if there was at least one.
+	private boolean fanOut(int reviewId, int userId, List<Integer> recipientIds) throws SQLException {
+		List<Integer> others = new ArrayList<>(recipientIds);
+		others.remove(Integer.valueOf(userId));
+		if (others.isEmpty()) {
+			System.out.println("No one to share the review with.");
+			return false;
+		}
+		int added = reviews.shareAll(reviewId, others);
+		if (added < 0) {
+			// The review was deleted in the meantime.
+			return countResult(REVIEWS_SHARED, false);
+		}
+		SHARE_RECIPIENTS.add(added);
+		System.out.println("Review shared with " + added + " users"
+				+ (added < others.size() ? " (" + (others.size() - added) + " already had it)." : "."));
+		return countResult(REVIEWS_SHARED, added > 0);
+	}
+
+	// Returns the number of review mutations attempted so far, the write activity compaction avoids.
+	private static long writeCount() {
+		return REVIEWS_CREATED.get() + REVIEWS_EDITED.get() + REVIEWS_DELETED.get() + REVIEWS_SHARED.get()
+				+ REVIEWS_RESTORED.get() + REVIEW_FAILURES.get();
+	}
+
+	// Counts a completed mutation as a success or a failure and passes the result through.
+	private static boolean countResult(Metrics.Counter successes, boolean success) {
+		(success ? successes : REVIEW_FAILURES).increment();
+		return success;
+	}
+
+	// Helper method to display a list of reviews with movie titles and reviewer names.
+	private void displayReviews(String header, String emptyMessage, List<Review> reviewList) {
+		// Print header for the reviews section.
+		System.out.println(header);
+		// Display review details with reviewer names.
+		for (Review review : reviewList) {
+			System.out.printf("Review ID: %d, Movie: %s, By: %s, Review: %s, Rating: %d, Modified: %s%n",
+					review.getId(), review.getMovieTitle(), review.getReviewerName(), review.getPreview(),
+					review.getRating(), DATE_FORMAT.format(review.getModifiedAt().toLocalDateTime()));
+		}
+		// Inform user if no reviews were found.
+		if (reviewList.isEmpty()) {
+			System.out.println(emptyMessage);
 		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,302 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Compressed storage of review text and the short previews shown in listings (JDBC backend).
+// A review's text is stored either as is (reviews.review) or, when that is smaller, Deflate-compressed
+// (reviews.review_deflated) with a preset dictionary of phrases common in reviews. Dictionaries
+// are trained from existing reviews by ReviewTextTool and kept in review_dictionaries on the
+// primary; each compressed value starts with the ID of its dictionary (0 for none), so values
+// written with an older dictionary stay readable. The newest dictionary is loaded on first use.
+// -Dmoviereviews.reviewText.compression=false stores all new text uncompressed.
+public final class ReviewText {
+	// Maximum length of a preview, including the ellipsis.
+	public static final int PREVIEW_LENGTH = 60;
+	// Largest dictionary Deflate can use (its window size).
+	public static final int MAX_DICTIONARY_BYTES = 32 * 1024;
+	private static final boolean COMPRESSION = Boolean
+			.parseBoolean(System.getProperty("moviereviews.reviewText.compression", "true"));
+	// Reviews shorter than this gain nothing from compression.
+	private static final int MIN_COMPRESS_BYTES = 24;
+	// Operational metrics: review text stored compressed or as is, and bytes saved.
+	private static final Metrics.Counter STORED_COMPRESSED = Metrics.counter("reviews_text_stored_total",
+			"Review texts written, by storage format.", "format", "deflate");
+	private static final Metrics.Counter STORED_PLAIN = Metrics.counter("reviews_text_stored_total",
+			"Review texts written, by storage format.", "format", "plain");
+	private static final Metrics.Counter BYTES_SAVED = Metrics.counter("reviews_text_bytes_saved_total",
+			"Bytes saved by compressing review text.");
+
+	// Dictionaries by ID, as read from review_dictionaries; ID 0 is the empty dictionary.
+	private static final Map<Integer, byte[]> DICTIONARIES = new ConcurrentHashMap<>();
+	// ID of the dictionary new text is compressed with; -1 until loaded.
+	private static volatile int currentId = -1;
+
+	static {
+		DICTIONARIES.put(0, new byte[0]);
+	}
+
+	// A review text in its stored form: exactly one of text and compressed is set.
+	public static class Encoded {
+		private final String text;
+		private final byte[] compressed;
+		private final String preview;
+
+		public Encoded(String text, byte[] compressed, String preview) {
+			this.text = text;
+			this.compressed = compressed;
+			this.preview = preview;
+		}
+
+		// Returns the text to store as is, or null if it is stored compressed.
+		public String getText() {
+			return text;
+		}
+
+		// Returns the compressed text, or null if it is stored as is.
+		public byte[] getCompressed() {
+			return compressed;
+		}
+
+		// Returns the preview shown in listings.
+		public String getPreview() {
+			return preview;
+		}
+	}
+
+	// Prevent instantiation of the utility class.
+	private ReviewText() {
+	}
+
+	// Returns the first PREVIEW_LENGTH characters of a text with whitespace collapsed, cut at a word
+	// boundary and ending in "..." if anything was left out.
+	public static String preview(String text) {
+		String collapsed = text.trim().replaceAll("\\s+", " ");
+		if (collapsed.length() <= PREVIEW_LENGTH) {
+			return collapsed;
+		}
+		int end = collapsed.lastIndexOf(' ', PREVIEW_LENGTH - 3);
+		if (end < PREVIEW_LENGTH / 2) {
+			end = PREVIEW_LENGTH - 3;
+		}
+		return collapsed.substring(0, end) + "...";
+	}
+
+	// Encodes a text for storage with the newest dictionary, compressed if that makes it smaller.
+	public static Encoded encode(String text) throws SQLException {
+		if (!COMPRESSION) {
+			STORED_PLAIN.increment();
+			return new Encoded(text, null, preview(text));
+		}
+		int id = currentDictionaryId();
+		return encode(text, id, DICTIONARIES.get(id));
+	}
+
+	// Encodes a text for storage with the given dictionary, compressed if that makes it smaller.
+	public static Encoded encode(String text, int dictionaryId, byte[] dictionary) {
+		byte[] plain = text.getBytes(StandardCharsets.UTF_8);
+		if (plain.length >= MIN_COMPRESS_BYTES) {
+			byte[] compressed = compress(plain, dictionaryId, dictionary);
+			if (compressed.length < plain.length) {
+				STORED_COMPRESSED.increment();
+				BYTES_SAVED.add(plain.length - compressed.length);
+				return new Encoded(null, compressed, preview(text));
+			}
+		}
+		STORED_PLAIN.increment();
+		return new Encoded(text, null, preview(text));
+	}
+
+	// Replaces the compressed text of reviews read from storage with the decompressed text.
+	// Called after the query's connections are released, as unknown dictionaries are read from
+	// the primary.
+	public static void inflate(List<Review> reviews) throws SQLException {
+		for (Review review : reviews) {
+			if (review.getCompressedText() != null) {
+				review.setText(decompress(review.getCompressedText()));
+				review.setCompressedText(null);
+			}
+		}
+	}
+
+	// Decompresses a stored value, reading its dictionary from the primary if it is not known yet.
+	public static String decompress(byte[] stored) throws SQLException {
+		ByteBuffer buffer = ByteBuffer.wrap(stored);
+		int dictionaryId = Short.toUnsignedInt(buffer.getShort());
+		byte[] dictionary = dictionary(dictionaryId);
+		Inflater inflater = new Inflater(true);
+		try {
+			if (dictionary.length > 0) {
+				inflater.setDictionary(dictionary);
+			}
+			inflater.setInput(stored, 2, stored.length - 2);
+			byte[] out = new byte[Math.max(64, stored.length * 4)];
+			int length = 0;
+			while (!inflater.finished()) {
+				if (length == out.length) {
+					out = Arrays.copyOf(out, out.length * 2);
+				}
+				int n = inflater.inflate(out, length, out.length - length);
+				if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					throw new SQLException("Truncated compressed review text.");
+				}
+				length += n;
+			}
+			return new String(out, 0, length, StandardCharsets.UTF_8);
+		} catch (DataFormatException e) {
+			throw new SQLException("Corrupt compressed review text: " + e.getMessage(), e);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	// Builds a dictionary of at most maxBytes from sample texts: the words and two- and three-word
+	// phrases that repeat most, weighted by the bytes a match would save, with the most valuable
+	// last (Deflate reaches the end of the dictionary with the shortest distances).
+	public static byte[] train(List<String> samples, int maxBytes) {
+		Map<String, Integer> counts = new HashMap<>();
+		for (String sample : samples) {
+			String[] words = sample.trim().split("\\s+");
+			for (int i = 0; i < words.length; i++) {
+				StringBuilder phrase = new StringBuilder();
+				for (int n = 0; n < 3 && i + n < words.length; n++) {
+					phrase.append(n == 0 ? "" : " ").append(words[i + n]);
+					if (phrase.length() >= 4) {
+						counts.merge(phrase.toString() + " ", 1, Integer::sum);
+					}
+				}
+			}
+		}
+		List<Map.Entry<String, Integer>> candidates = new ArrayList<>();
+		for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+			if (entry.getValue() > 1) {
+				candidates.add(entry);
+			}
+		}
+		// Most valuable first, so a phrase is skipped if a better one already contains it.
+		candidates.sort((a, b) -> Long.compare(score(b), score(a)));
+		List<byte[]> chosen = new ArrayList<>();
+		StringBuilder taken = new StringBuilder();
+		int size = 0;
+		for (Map.Entry<String, Integer> candidate : candidates) {
+			String phrase = candidate.getKey();
+			byte[] bytes = phrase.getBytes(StandardCharsets.UTF_8);
+			if (size + bytes.length > maxBytes || taken.indexOf(phrase) >= 0) {
+				continue;
+			}
+			chosen.add(bytes);
+			taken.append(phrase);
+			size += bytes.length;
+		}
+		ByteBuffer dictionary = ByteBuffer.allocate(size);
+		for (int i = chosen.size() - 1; i >= 0; i--) {
+			dictionary.put(chosen.get(i));
+		}
+		return dictionary.array();
+	}
+
+	// Stores a new dictionary on the primary and returns its ID. Applications pick it up for new
+	// text when they restart; text compressed with it is readable by all of them at once.
+	public static int saveDictionary(byte[] dictionary) throws SQLException {
+		try (Connection conn = DatabaseConnection.getConnection();
+				PreparedStatement stmt = conn.prepareStatement("INSERT INTO review_dictionaries (dictionary) VALUES (?)",
+						Statement.RETURN_GENERATED_KEYS)) {
+			stmt.setBytes(1, dictionary);
+			stmt.executeUpdate();
+			try (ResultSet keys = stmt.getGeneratedKeys()) {
+				keys.next();
+				int id = keys.getInt(1);
+				if (id > 0xFFFF) {
+					throw new SQLException("Too many review dictionaries; IDs must fit in two bytes.");
+				}
+				DICTIONARIES.put(id, dictionary);
+				return id;
+			}
+		}
+	}
+
+	// Returns a dictionary by ID, reading it from the primary on first use.
+	public static byte[] dictionary(int id) throws SQLException {
+		byte[] dictionary = DICTIONARIES.get(id);
+		if (dictionary != null) {
+			return dictionary;
+		}
+		try (Connection conn = DatabaseConnection.getConnection();
+				PreparedStatement stmt = conn.prepareStatement("SELECT dictionary FROM review_dictionaries WHERE id = ?")) {
+			stmt.setInt(1, id);
+			try (ResultSet rs = stmt.executeQuery()) {
+				if (!rs.next()) {
+					throw new SQLException("Unknown review dictionary " + id + ".");
+				}
+				dictionary = rs.getBytes("dictionary");
+			}
+		}
+		DICTIONARIES.put(id, dictionary);
+		return dictionary;
+	}
+
+	// Returns the ID of the newest dictionary, reading it from the primary on first use.
+	private static int currentDictionaryId() throws SQLException {
+		if (currentId >= 0) {
+			return currentId;
+		}
+		synchronized (ReviewText.class) {
+			if (currentId < 0) {
+				int id = 0;
+				try (Connection conn = DatabaseConnection.getConnection();
+						PreparedStatement stmt = conn.prepareStatement(
+								"SELECT id, dictionary FROM review_dictionaries ORDER BY id DESC LIMIT 1");
+						ResultSet rs = stmt.executeQuery()) {
+					if (rs.next()) {
+						id = rs.getInt("id");
+						DICTIONARIES.put(id, rs.getBytes("dictionary"));
+					}
+				}
+				currentId = id;
+			}
+			return currentId;
+		}
+	}
+
+	// Compresses UTF-8 text with a dictionary, prefixed with the dictionary's ID.
+	private static byte[] compress(byte[] plain, int dictionaryId, byte[] dictionary) {
+		Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+		try {
+			if (dictionary.length > 0) {
+				deflater.setDictionary(dictionary);
+			}
+			deflater.setInput(plain);
+			deflater.finish();
+			byte[] out = new byte[plain.length + 64];
+			ByteBuffer.wrap(out).putShort((short) dictionaryId);
+			int length = 2;
+			while (!deflater.finished()) {
+				if (length == out.length) {
+					out = Arrays.copyOf(out, out.length * 2);
+				}
+				length += deflater.deflate(out, length, out.length - length);
+			}
+			return Arrays.copyOf(out, length);
+		} finally {
+			deflater.end();
+		}
+	}
+
+	// Estimated bytes a dictionary phrase saves over the samples: every repeat is a match.
+	private static long score(Map.Entry<String, Integer> candidate) {
+		return (long) (candidate.getValue() - 1) * (candidate.getKey().length() - 2);
+	}
+}
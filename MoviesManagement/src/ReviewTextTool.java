@@ -0,0 +1,159 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+// Offline tool that trains a new Deflate dictionary for review text from the existing reviews and
+// rewrites every stored text (hot and archived, on every shard) with it, filling in missing previews.
+// Usage: java [-Dmoviereviews.db.shards=<urls>] ReviewTextTool [sampleSize]
+// It may run while the application is up: a row is only rewritten if it is unchanged since it was
+// read, and older dictionaries stay in review_dictionaries, so text written meanwhile stays readable.
+// Running applications compress new text with the new dictionary once they are restarted.
+public class ReviewTextTool {
+	// Reviews read and rewritten per batch.
+	private static final int BATCH_SIZE = 500;
+	// Reviews sampled for training unless given on the command line.
+	private static final int DEFAULT_SAMPLE_SIZE = 20000;
+	// Size of the trained dictionary; larger ones help little for texts of at most 1024 characters.
+	private static final int DICTIONARY_BYTES = 16 * 1024;
+	// Tables holding review text on every shard.
+	private static final String[] TABLES = { "reviews", "reviews_archive" };
+
+	// URLs of the databases holding reviews.
+	private final List<String> shards;
+	// Stored text bytes before and after rewriting.
+	private long bytesBefore;
+	private long bytesAfter;
+
+	// Creates a tool over the given shard URLs (the primary alone when unsharded).
+	public ReviewTextTool(List<String> shards) {
+		this.shards = shards;
+	}
+
+	// Entry point; exits with status 1 if training or rewriting fails.
+	public static void main(String[] args) {
+		int sampleSize = DEFAULT_SAMPLE_SIZE;
+		if (args.length > 1 || (args.length == 1 && !args[0].matches("\\d+"))) {
+			System.out.println("Usage: java [-Dmoviereviews.db.shards=<urls>] ReviewTextTool [sampleSize]");
+			System.exit(1);
+		}
+		if (args.length == 1) {
+			sampleSize = Math.max(1, Integer.parseInt(args[0]));
+		}
+		ReviewTextTool tool = new ReviewTextTool(DatabaseConnection.getShardUrls());
+		try {
+			tool.run(sampleSize);
+		} catch (SQLException e) {
+			// Handle database errors; rewritten rows stay valid and a rerun trains a fresh dictionary.
+			System.out.println("Review text compression failed: " + e.getMessage());
+			System.exit(1);
+		} finally {
+			DatabaseConnection.shutdown();
+		}
+	}
+
+	// Trains and stores a dictionary from up to sampleSize reviews, then rewrites every review.
+	public void run(int sampleSize) throws SQLException {
+		List<String> samples = sample(sampleSize);
+		byte[] dictionary = ReviewText.train(samples, DICTIONARY_BYTES);
+		int dictionaryId = ReviewText.saveDictionary(dictionary);
+		System.out.printf("Trained dictionary %d (%d bytes) from %d reviews%n", dictionaryId, dictionary.length,
+				samples.size());
+		long rewritten = 0;
+		for (String shard : shards) {
+			for (String table : TABLES) {
+				rewritten += rewrite(shard, table, dictionaryId, dictionary);
+			}
+		}
+		System.out.printf("Rewrote %d reviews; stored text went from %d to %d bytes%n", rewritten, bytesBefore,
+				bytesAfter);
+	}
+
+	// Reads the texts of up to limit of the newest reviews, spread over the shards.
+	private List<String> sample(int limit) throws SQLException {
+		List<Object> stored = new ArrayList<>();
+		int perShard = Math.max(1, limit / shards.size());
+		for (String shard : shards) {
+			try (Connection conn = DatabaseConnection.connect(shard);
+					PreparedStatement stmt = conn.prepareStatement(
+							"SELECT review, review_deflated FROM reviews WHERE deleted_at IS NULL ORDER BY id DESC LIMIT ?")) {
+				stmt.setInt(1, perShard);
+				try (ResultSet rs = stmt.executeQuery()) {
+					while (rs.next()) {
+						String text = rs.getString("review");
+						stored.add(text != null ? text : rs.getBytes("review_deflated"));
+					}
+				}
+			}
+		}
+		// Decompress after the shard connections are closed.
+		List<String> samples = new ArrayList<>(stored.size());
+		for (Object value : stored) {
+			samples.add(value instanceof String ? (String) value : ReviewText.decompress((byte[]) value));
+		}
+		return samples;
+	}
+
+	// Rewrites the texts of one table of one shard with the given dictionary, in batches by ID.
+	// Returns the number of rows changed.
+	private long rewrite(String shard, String table, int dictionaryId, byte[] dictionary) throws SQLException {
+		long scanned = 0;
+		long changed = 0;
+		int lastId = 0;
+		try (Connection conn = DatabaseConnection.connect(shard);
+				PreparedStatement select = conn.prepareStatement("SELECT id, review, review_deflated, preview FROM "
+						+ table + " WHERE id > ? ORDER BY id LIMIT ?");
+				PreparedStatement update = conn.prepareStatement("UPDATE " + table + " SET review = ?, "
+						+ "review_deflated = ?, preview = ?, modified_at = modified_at "
+						+ "WHERE id = ? AND review <=> ? AND review_deflated <=> ?")) {
+			while (true) {
+				int rows = 0;
+				select.setInt(1, lastId);
+				select.setInt(2, BATCH_SIZE);
+				try (ResultSet rs = select.executeQuery()) {
+					while (rs.next()) {
+						rows++;
+						lastId = rs.getInt("id");
+						String plain = rs.getString("review");
+						byte[] compressed = rs.getBytes("review_deflated");
+						String text = plain != null ? plain : ReviewText.decompress(compressed);
+						ReviewText.Encoded encoded = ReviewText.encode(text, dictionaryId, dictionary);
+						bytesBefore += storedBytes(plain, compressed);
+						bytesAfter += storedBytes(encoded.getText(), encoded.getCompressed());
+						if (Objects.equals(plain, encoded.getText()) && Arrays.equals(compressed, encoded.getCompressed())
+								&& encoded.getPreview().equals(rs.getString("preview"))) {
+							continue;
+						}
+						update.setString(1, encoded.getText());
+						update.setBytes(2, encoded.getCompressed());
+						update.setString(3, encoded.getPreview());
+						update.setInt(4, lastId);
+						update.setString(5, plain);
+						update.setBytes(6, compressed);
+						update.addBatch();
+					}
+				}
+				if (rows == 0) {
+					break;
+				}
+				scanned += rows;
+				for (int count : update.executeBatch()) {
+					changed += Math.max(0, count);
+				}
+				System.out.printf("%s %s: scanned %d reviews, rewrote %d%n", shard, table, scanned, changed);
+			}
+		}
+		return changed;
+	}
+
+	// Returns the bytes a text takes in storage, plain or compressed.
+	private static int storedBytes(String plain, byte[] compressed) {
+		return plain != null ? plain.getBytes(StandardCharsets.UTF_8).length : compressed.length;
+	}
+}
@@ -0,0 +1,198 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Coalesces concurrent review mutations into short transactions, so a burst of writes shares one
+// commit (and one fsync on the server) instead of paying one each in autocommit mode.
+// Each shard has a queue and a writer thread. The writer takes the first waiting mutation,
+// collects more for up to -Dmoviereviews.db.writeBatchDelayMillis (default 2) or until
+// -Dmoviereviews.db.writeBatchSize (default 32) are queued, and runs them in one transaction.
+// Every caller still gets its own outcome or exception, and every mutation is atomic. Each runs
+// after a savepoint, so one that fails with an ordinary error (e.g. a constraint violation) or
+// returns an outcome other than OK has all of its statements rolled back while the rest of the
+// batch still commits; if the whole transaction is rolled back (deadlock), the commit fails or a
+// mutation throws an unexpected exception, the batch is rerun one mutation at a time, each in its
+// own transaction.
+// A batch size of 1 turns coalescing off: mutations then run directly on the caller's thread, each
+// in its own transaction.
+public class ReviewWritePipeline {
+	// A review mutation that runs its statements on the given connection.
+	public interface Mutation {
+		ReviewRepository.Outcome apply(Connection conn) throws SQLException;
+	}
+
+	private static final int BATCH_SIZE = Math.max(1, Integer.getInteger("moviereviews.db.writeBatchSize", 32));
+	private static final long BATCH_DELAY_NANOS = TimeUnit.MILLISECONDS
+			.toNanos(Math.max(0, Long.getLong("moviereviews.db.writeBatchDelayMillis", 2)));
+	// Operational metrics: transactions committed by the writers and mutations they carried.
+	private static final Metrics.Counter BATCHES = Metrics.counter("reviews_write_batches_total",
+			"Transactions committed by the review write pipeline.");
+	private static final Metrics.Counter BATCHED_WRITES = Metrics.counter("reviews_batched_writes_total",
+			"Review mutations committed through the write pipeline.");
+	private static final Metrics.Counter BATCH_FALLBACKS = Metrics.counter("reviews_write_batch_fallbacks_total",
+			"Batches rerun one mutation at a time after their transaction was rolled back.");
+
+	// Queues of pending mutations by shard, created with their writer threads on first use.
+	private final List<LinkedBlockingQueue<Request>> queues = new ArrayList<>();
+
+	// Runs a mutation on the given shard and returns its outcome, batching it with concurrent ones.
+	public ReviewRepository.Outcome submit(int shard, Mutation mutation) throws SQLException {
+		if (BATCH_SIZE == 1) {
+			return runAlone(shard, mutation);
+		}
+		Request request = new Request(mutation);
+		queue(shard).add(request);
+		try {
+			return request.result.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof SQLException) {
+				throw (SQLException) cause;
+			}
+			throw new SQLException("Review write failed: " + cause, cause);
+		} catch (InterruptedException e) {
+			// The mutation may still be applied; report it as failed to this caller.
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a review write.", e);
+		}
+	}
+
+	// Returns the queue of a shard, starting its writer thread the first time.
+	private synchronized LinkedBlockingQueue<Request> queue(int shard) {
+		while (queues.size() <= shard) {
+			LinkedBlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+			int queueShard = queues.size();
+			Thread writer = new Thread(() -> writeLoop(queueShard, queue), "review-writer-" + queueShard);
+			writer.setDaemon(true);
+			writer.start();
+			queues.add(queue);
+		}
+		return queues.get(shard);
+	}
+
+	// Writer thread: collects batches from the queue and runs each in one transaction.
+	private void writeLoop(int shard, LinkedBlockingQueue<Request> queue) {
+		List<Request> batch = new ArrayList<>(BATCH_SIZE);
+		while (true) {
+			try {
+				batch.add(queue.take());
+				long deadline = System.nanoTime() + BATCH_DELAY_NANOS;
+				while (batch.size() < BATCH_SIZE) {
+					long remaining = deadline - System.nanoTime();
+					Request next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+					if (next == null) {
+						break;
+					}
+					batch.add(next);
+				}
+			} catch (InterruptedException e) {
+				// Daemon thread; keep serving whatever was collected.
+			}
+			if (!batch.isEmpty()) {
+				runBatch(shard, batch);
+				batch.clear();
+			}
+		}
+	}
+
+	// Runs a batch in one transaction, falling back to one mutation at a time if it is rolled back.
+	private void runBatch(int shard, List<Request> batch) {
+		List<Object> results = new ArrayList<>(batch.size());
+		try (Connection conn = DatabaseConnection.getShardConnection(shard)) {
+			conn.setAutoCommit(false);
+			try {
+				for (Request request : batch) {
+					Savepoint savepoint = conn.setSavepoint();
+					try {
+						ReviewRepository.Outcome outcome = request.mutation.apply(conn);
+						if (outcome != ReviewRepository.Outcome.OK) {
+							// Keep nothing of a mutation that was refused, e.g. an unarchive before a
+							// failed ownership check.
+							conn.rollback(savepoint);
+						}
+						results.add(outcome);
+					} catch (SQLTransactionRollbackException e) {
+						// The server rolled back the whole transaction.
+						throw e;
+					} catch (SQLException e) {
+						// The server rolled back only the failing statement; undo the mutation's earlier
+						// ones too, and keep the error for its caller.
+						conn.rollback(savepoint);
+						results.add(e);
+					}
+				}
+				conn.commit();
+			} catch (SQLException | RuntimeException e) {
+				conn.rollback();
+				throw e;
+			} finally {
+				conn.setAutoCommit(true);
+			}
+		} catch (SQLException | RuntimeException e) {
+			// Rerun alone, a mutation with a bug fails only its own caller.
+			BATCH_FALLBACKS.increment();
+			runIndividually(shard, batch);
+			return;
+		}
+		BATCHES.increment();
+		BATCHED_WRITES.add(batch.size());
+		for (int i = 0; i < batch.size(); i++) {
+			Object result = results.get(i);
+			if (result instanceof SQLException) {
+				batch.get(i).result.completeExceptionally((SQLException) result);
+			} else {
+				batch.get(i).result.complete((ReviewRepository.Outcome) result);
+			}
+		}
+	}
+
+	// Runs each mutation of a rolled-back batch on its own.
+	private void runIndividually(int shard, List<Request> batch) {
+		for (Request request : batch) {
+			try {
+				request.result.complete(runAlone(shard, request.mutation));
+			} catch (SQLException | RuntimeException e) {
+				request.result.completeExceptionally(e);
+			}
+		}
+	}
+
+	// Runs one mutation in its own transaction on the given shard.
+	private static ReviewRepository.Outcome runAlone(int shard, Mutation mutation) throws SQLException {
+		try (Connection conn = DatabaseConnection.getShardConnection(shard)) {
+			conn.setAutoCommit(false);
+			try {
+				ReviewRepository.Outcome outcome = mutation.apply(conn);
+				if (outcome == ReviewRepository.Outcome.OK) {
+					conn.commit();
+				} else {
+					conn.rollback();
+				}
+				return outcome;
+			} catch (SQLException | RuntimeException e) {
+				conn.rollback();
+				throw e;
+			} finally {
+				conn.setAutoCommit(true);
+			}
+		}
+	}
+
+	// A queued mutation and the caller's pending result.
+	private static class Request {
+		private final Mutation mutation;
+		private final CompletableFuture<ReviewRepository.Outcome> result = new CompletableFuture<>();
+
+		Request(Mutation mutation) {
+			this.mutation = mutation;
+		}
+	}
+}
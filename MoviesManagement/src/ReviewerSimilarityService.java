@@ -0,0 +1,386 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Finds "reviewers like you" so the share flow can suggest recipients with similar taste.
+// Candidates come from MinHash/LSH over each user's set of rated movies, so lookups stay
+// sub-linear in the number of users; candidates are then ranked by the Pearson correlation
+// of their ratings over co-rated movies, shrunk towards zero when few movies are shared.
+public class ReviewerSimilarityService {
+	// Number of bands and rows per band in the LSH index (BANDS * ROWS MinHash values per user).
+	private static final int BANDS = 16;
+	private static final int ROWS = 2;
+	private static final int HASHES = BANDS * ROWS;
+	// Upper bound on users read from a single bucket, protecting against very popular movie sets.
+	private static final int MAX_BUCKET_SCAN = 200;
+	// Upper bound on candidates scored exactly per lookup.
+	private static final int MAX_CANDIDATES = 500;
+	// Shrinks similarities backed by few co-rated movies towards zero, as RecommendationService does.
+	private static final double SHRINKAGE = 10.0;
+	// How long a built index is reused before the next lookup rebuilds it.
+	private static final long INDEX_TTL_MILLIS = 15 * 60 * 1000L;
+
+	// Fixed hash coefficients so signatures are stable across rebuilds.
+	private static final long[] HASH_A = new long[HASHES];
+	private static final long[] HASH_B = new long[HASHES];
+
+	static {
+		SplittableRandom random = new SplittableRandom(0x5EED);
+		for (int i = 0; i < HASHES; i++) {
+			HASH_A[i] = random.nextLong() | 1L;
+			HASH_B[i] = random.nextLong();
+		}
+	}
+
+	// Lookups served by the cached index versus ones that had to rebuild it.
+	private static final Metrics.Counter INDEX_HITS = Metrics.counter("cache_requests_total",
+			"Cache lookups by cache and result.", "cache", "reviewer_similarity", "result", "hit");
+	private static final Metrics.Counter INDEX_MISSES = Metrics.counter("cache_requests_total",
+			"Cache lookups by cache and result.", "cache", "reviewer_similarity", "result", "miss");
+
+	// Most recently built index; replaced atomically when it expires.
+	private volatile SimilarityIndex index;
+
+	// Represents one suggested reviewer with their similarity to the requesting user.
+	public static class SimilarReviewer {
+		private final int userId;
+		private final String name;
+		private final String email;
+		private final double similarity;
+		private final int sharedMovies;
+
+		public SimilarReviewer(int userId, String name, String email, double similarity, int sharedMovies) {
+			this.userId = userId;
+			this.name = name;
+			this.email = email;
+			this.similarity = similarity;
+			this.sharedMovies = sharedMovies;
+		}
+
+		// Returns the ID of the suggested reviewer.
+		public int getUserId() {
+			return userId;
+		}
+
+		// Returns the suggested reviewer's full name.
+		public String getName() {
+			return name;
+		}
+
+		// Returns the suggested reviewer's email, used as the share recipient.
+		public String getEmail() {
+			return email;
+		}
+
+		// Returns the shrunk Pearson correlation of ratings over co-rated movies (above 0, at most 1).
+		public double getSimilarity() {
+			return similarity;
+		}
+
+		// Returns how many movies both users have reviewed.
+		public int getSharedMovies() {
+			return sharedMovies;
+		}
+	}
+
+	// Returns up to limit reviewers whose ratings are most similar to the user's, best first.
+	public List<SimilarReviewer> findSimilarReviewers(int userId, int limit) {
+		try {
+			SimilarityIndex current = currentIndex();
+			int user = current.indexOf(userId);
+			if (user < 0) {
+				// Users without reviews have no taste profile yet.
+				return Collections.emptyList();
+			}
+			int[] candidates = current.candidates(user);
+			// Score candidates exactly and keep the best matches.
+			List<double[]> scored = new ArrayList<>();
+			for (int candidate : candidates) {
+				double[] score = current.similarity(user, candidate);
+				if (score[0] > 0) {
+					scored.add(new double[] { candidate, score[0], score[1] });
+				}
+			}
+			scored.sort((a, b) -> Double.compare(b[1], a[1]));
+			if (scored.size() > limit) {
+				scored = scored.subList(0, limit);
+			}
+			return loadReviewers(current, scored);
+		} catch (SQLException e) {
+			// Print error but return an empty list; suggestions are optional.
+			System.out.println("Failed to find similar reviewers: " + e.getMessage());
+			return Collections.emptyList();
+		}
+	}
+
+	// Forces the next lookup to rebuild the index, e.g. after a bulk import.
+	public void invalidate() {
+		index = null;
+	}
+
+	// Returns the cached index, rebuilding it if it is missing or expired.
+	private SimilarityIndex currentIndex() throws SQLException {
+		SimilarityIndex current = index;
+		if (current == null || System.currentTimeMillis() - current.builtAt > INDEX_TTL_MILLIS) {
+			synchronized (this) {
+				current = index;
+				if (current == null || System.currentTimeMillis() - current.builtAt > INDEX_TTL_MILLIS) {
+					INDEX_MISSES.increment();
+					current = buildIndex();
+					index = current;
+					return current;
+				}
+			}
+		}
+		INDEX_HITS.increment();
+		return current;
+	}
+
+	// Loads all ratings grouped by user and builds signatures and band buckets.
+	private SimilarityIndex buildIndex() throws SQLException {
+		// Archived reviews are read too, so signatures cover each user's full rating history.
+		String sql = "SELECT user_id, movie_id, rating FROM reviews WHERE deleted_at IS NULL "
+				+ "UNION ALL SELECT user_id, movie_id, rating FROM reviews_archive ORDER BY user_id, movie_id";
+		RatingRows rows = new RatingRows();
+		// A user's ratings may sit on several shards; merging on (user, movie) restores one sorted stream.
+		ShardQuery.mergeOrdered(sql, ShardQuery.NO_PARAMETERS,
+				rs -> ((long) rs.getInt("user_id") << 32) | rs.getInt("movie_id"),
+				rs -> rows.add(rs.getInt("user_id"), rs.getInt("movie_id"), rs.getInt("rating")));
+		rows.userStart[rows.userCount] = rows.count;
+		return new SimilarityIndex(Arrays.copyOf(rows.userIds, rows.userCount), rows.userStart, rows.movies,
+				rows.ratings);
+	}
+
+	// Ratings grouped by user, accumulated in arrival order.
+	private static class RatingRows {
+		int[] userIds = new int[256];
+		int[] userStart = new int[257];
+		int[] movies = new int[1024];
+		byte[] ratings = new byte[1024];
+		int userCount;
+		int count;
+
+		// Appends one rating; rows arrive grouped by user with movies sorted, ready for merge-based dot products.
+		void add(int userId, int movieId, int rating) {
+			if (userCount == 0 || userIds[userCount - 1] != userId) {
+				if (userCount == userIds.length) {
+					userIds = Arrays.copyOf(userIds, userCount * 2);
+					userStart = Arrays.copyOf(userStart, userCount * 2 + 1);
+				}
+				userStart[userCount] = count;
+				userIds[userCount++] = userId;
+			}
+			if (count == movies.length) {
+				movies = Arrays.copyOf(movies, count * 2);
+				ratings = Arrays.copyOf(ratings, count * 2);
+			}
+			movies[count] = movieId;
+			ratings[count++] = (byte) rating;
+		}
+	}
+
+	// Looks up names and emails for the scored candidates in one query, preserving rank order.
+	private List<SimilarReviewer> loadReviewers(SimilarityIndex current, List<double[]> scored)
+			throws SQLException {
+		List<SimilarReviewer> reviewers = new ArrayList<>();
+		if (scored.isEmpty()) {
+			return reviewers;
+		}
+		StringBuilder sql = new StringBuilder("SELECT id, first_name, last_name, email FROM users WHERE id IN (");
+		for (int i = 0; i < scored.size(); i++) {
+			sql.append(i == 0 ? "?" : ", ?");
+		}
+		sql.append(") AND deleted_at IS NULL");
+		String[] names = new String[scored.size()];
+		String[] emails = new String[scored.size()];
+		IntIntMap positionById = new IntIntMap(scored.size());
+		try (Connection conn = DatabaseConnection.getReadConnection();
+				PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+			for (int i = 0; i < scored.size(); i++) {
+				int userId = current.userIds[(int) scored.get(i)[0]];
+				positionById.put(userId, i);
+				stmt.setInt(i + 1, userId);
+			}
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					int i = positionById.get(rs.getInt("id"));
+					names[i] = rs.getString("first_name") + " " + rs.getString("last_name");
+					emails[i] = rs.getString("email");
+				}
+			}
+		}
+		for (int i = 0; i < scored.size(); i++) {
+			// Skip users deleted (or marked deleted) since the index was built.
+			if (emails[i] != null) {
+				double[] score = scored.get(i);
+				reviewers.add(new SimilarReviewer(current.userIds[(int) score[0]], names[i], emails[i], score[1],
+						(int) score[2]));
+			}
+		}
+		return reviewers;
+	}
+
+	// Immutable snapshot of every user's ratings plus the LSH band tables.
+	private static class SimilarityIndex {
+		final long builtAt = System.currentTimeMillis();
+		// Sorted user ids; position in this array is the user's index.
+		final int[] userIds;
+		// Entries userStart[u]..userStart[u+1] hold user u's movies (sorted) and ratings.
+		final int[] userStart;
+		final int[] movies;
+		final byte[] ratings;
+		// Each user's bucket hash per band, at bandHashes[u * BANDS + b].
+		final int[] bandHashes;
+		// One sorted table per band of (bandHash << 32 | userIndex) entries.
+		final long[][] bands = new long[BANDS][];
+
+		SimilarityIndex(int[] userIds, int[] userStart, int[] movies, byte[] ratings) {
+			this.userIds = userIds;
+			this.userStart = userStart;
+			this.movies = movies;
+			this.ratings = ratings;
+			int userCount = userIds.length;
+			bandHashes = new int[userCount * BANDS];
+			for (int b = 0; b < BANDS; b++) {
+				bands[b] = new long[userCount];
+			}
+			int[] signature = new int[HASHES];
+			for (int u = 0; u < userCount; u++) {
+				Arrays.fill(signature, Integer.MAX_VALUE);
+				// MinHash: keep the smallest hash of any rated movie under each hash function.
+				for (int i = userStart[u]; i < userStart[u + 1]; i++) {
+					for (int h = 0; h < HASHES; h++) {
+						int value = (int) ((HASH_A[h] * movies[i] + HASH_B[h]) >>> 33);
+						if (value < signature[h]) {
+							signature[h] = value;
+						}
+					}
+				}
+				// Combine each band's rows into one bucket hash.
+				for (int b = 0; b < BANDS; b++) {
+					int bandHash = 17;
+					for (int r = 0; r < ROWS; r++) {
+						bandHash = bandHash * 31 + signature[b * ROWS + r];
+					}
+					bandHashes[u * BANDS + b] = bandHash;
+					bands[b][u] = ((long) bandHash << 32) | u;
+				}
+			}
+			for (int b = 0; b < BANDS; b++) {
+				Arrays.parallelSort(bands[b]);
+			}
+		}
+
+		// Returns the index of the user id, or -1 if the user has no reviews.
+		int indexOf(int userId) {
+			return Arrays.binarySearch(userIds, userId);
+		}
+
+		// Returns users sharing at least one band bucket with the user, most collisions first.
+		int[] candidates(int user) {
+			IntIntMap collisions = new IntIntMap(64);
+			int[] found = new int[64];
+			int foundCount = 0;
+			for (int b = 0; b < BANDS; b++) {
+				long[] table = bands[b];
+				int bandHash = bandHashes[user * BANDS + b];
+				// Walk the contiguous run of entries sharing this bucket hash.
+				int start = lowerBound(table, (long) bandHash << 32);
+				for (int i = start; i < table.length && i - start < MAX_BUCKET_SCAN
+						&& (int) (table[i] >> 32) == bandHash; i++) {
+					// Stored as index + 1 because the map reserves key 0.
+					int other = (int) table[i] + 1;
+					if (other - 1 == user) {
+						continue;
+					}
+					int seen = collisions.get(other);
+					if (seen == IntIntMap.MISSING) {
+						if (foundCount == found.length) {
+							found = Arrays.copyOf(found, foundCount * 2);
+						}
+						found[foundCount++] = other;
+						collisions.put(other, 1);
+					} else {
+						collisions.put(other, seen + 1);
+					}
+				}
+			}
+			// Prefer candidates that collided in more bands (higher estimated Jaccard similarity).
+			long[] ranked = new long[foundCount];
+			for (int i = 0; i < foundCount; i++) {
+				ranked[i] = ((long) (BANDS - collisions.get(found[i])) << 32) | (found[i] - 1);
+			}
+			Arrays.sort(ranked);
+			int[] result = new int[Math.min(foundCount, MAX_CANDIDATES)];
+			for (int i = 0; i < result.length; i++) {
+				result[i] = (int) ranked[i];
+			}
+			return result;
+		}
+
+		// Returns {similarity, co-rated count} computed by merging both sorted movie lists. The
+		// similarity is the Pearson correlation over the co-rated movies only: both ratings are
+		// centred on their means over those movies, so a user who rates everything high is not
+		// alike to everyone, and movies only one user rated do not dilute the score. It is then
+		// scaled by shared / (shared + SHRINKAGE), so one or two agreeing ratings rank low.
+		double[] similarity(int a, int b) {
+			double sumA = 0;
+			double sumB = 0;
+			double squaresA = 0;
+			double squaresB = 0;
+			double products = 0;
+			int shared = 0;
+			int i = userStart[a];
+			int j = userStart[b];
+			while (i < userStart[a + 1] && j < userStart[b + 1]) {
+				if (movies[i] < movies[j]) {
+					i++;
+				} else if (movies[i] > movies[j]) {
+					j++;
+				} else {
+					int ratingA = ratings[i++];
+					int ratingB = ratings[j++];
+					sumA += ratingA;
+					sumB += ratingB;
+					squaresA += ratingA * ratingA;
+					squaresB += ratingB * ratingB;
+					products += ratingA * ratingB;
+					shared++;
+				}
+			}
+			if (shared == 0) {
+				return new double[] { 0, 0 };
+			}
+			// Centred sums of squares and products, from the raw sums in one pass.
+			double varianceA = squaresA - sumA * sumA / shared;
+			double varianceB = squaresB - sumB * sumB / shared;
+			double covariance = products - sumA * sumB / shared;
+			double denominator = Math.sqrt(varianceA * varianceB);
+			// Constant ratings over the shared movies carry no taste signal.
+			double pearson = denominator > 1e-9 ? covariance / denominator : 0;
+			return new double[] { pearson * shared / (shared + SHRINKAGE), shared };
+		}
+
+		// Returns the first position whose value is >= key.
+		private int lowerBound(long[] table, long key) {
+			int low = 0;
+			int high = table.length;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (table[mid] < key) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+	}
+}
@@ -0,0 +1,240 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Scatter-gather queries over the review shards. The same statement runs on every shard in
+// parallel, and the per-shard results, each already sorted by the statement's ORDER BY, are
+// k-way merged so callers see one globally ordered stream. With a single shard (unsharded)
+// the statement simply runs on the primary.
+public class ShardQuery {
+	// User IDs resolved per IN query when looking up reviewer names.
+	private static final int NAME_BATCH_SIZE = 500;
+	// Runs the per-shard queries concurrently so a listing costs one round trip, not one per shard.
+	private static final ExecutorService SCATTER_POOL = Executors.newCachedThreadPool(runnable -> {
+		Thread thread = new Thread(runnable, "shard-query");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	// Sets the parameters of a per-shard statement.
+	public interface Binder {
+		void bind(PreparedStatement stmt) throws SQLException;
+	}
+
+	// Binder for statements without parameters.
+	public static final Binder NO_PARAMETERS = stmt -> {
+	};
+
+	// Extracts the merge key of the current row; rows are merged in ascending key order.
+	public interface SortKey {
+		long of(ResultSet rs) throws SQLException;
+	}
+
+	// Consumes one merged row.
+	public interface RowHandler {
+		void handle(ResultSet rs) throws SQLException;
+	}
+
+	// An open per-shard result positioned on its current row.
+	private static class Cursor {
+		final int shard;
+		final Connection conn;
+		final PreparedStatement stmt;
+		ResultSet rs;
+		long key;
+
+		Cursor(int shard, Connection conn, PreparedStatement stmt) {
+			this.shard = shard;
+			this.conn = conn;
+			this.stmt = stmt;
+		}
+
+		// Moves to the next row and caches its key; returns false when the shard is exhausted.
+		boolean advance(SortKey sortKey) throws SQLException {
+			if (!rs.next()) {
+				return false;
+			}
+			key = sortKey.of(rs);
+			return true;
+		}
+
+		void close() {
+			try {
+				if (rs != null) {
+					rs.close();
+				}
+				stmt.close();
+			} catch (SQLException e) {
+				// The connection is closed below regardless.
+			}
+			try {
+				conn.close();
+			} catch (SQLException e) {
+				// Nothing more to release.
+			}
+		}
+	}
+
+	// Private constructor; all methods are static.
+	private ShardQuery() {
+	}
+
+	// Runs a query on every shard and passes the rows to the handler in ascending key order.
+	// The SQL must sort each shard's rows by the same key (use a negated key for DESC orders).
+	// Throws SQLException if any shard fails.
+	public static void mergeOrdered(String sql, Binder binder, SortKey sortKey, RowHandler handler)
+			throws SQLException {
+		List<Cursor> cursors = new ArrayList<>();
+		try {
+			// Check out and prepare on the calling thread so statement statistics keep the
+			// service method as their caller; connections are taken in shard order.
+			for (int shard = 0; shard < DatabaseConnection.shardCount(); shard++) {
+				Connection conn = DatabaseConnection.getShardReadConnection(shard);
+				PreparedStatement stmt;
+				try {
+					stmt = conn.prepareStatement(sql);
+					binder.bind(stmt);
+				} catch (SQLException e) {
+					conn.close();
+					throw e;
+				}
+				cursors.add(new Cursor(shard, conn, stmt));
+			}
+			execute(cursors);
+			// Ties are broken by shard number so the merged order is deterministic.
+			PriorityQueue<Cursor> heap = new PriorityQueue<>(cursors.size(), (a, b) -> a.key != b.key
+					? Long.compare(a.key, b.key)
+					: Integer.compare(a.shard, b.shard));
+			for (Cursor cursor : cursors) {
+				if (cursor.advance(sortKey)) {
+					heap.add(cursor);
+				}
+			}
+			while (!heap.isEmpty()) {
+				Cursor cursor = heap.poll();
+				handler.handle(cursor.rs);
+				if (cursor.advance(sortKey)) {
+					heap.add(cursor);
+				}
+			}
+		} finally {
+			for (Cursor cursor : cursors) {
+				cursor.close();
+			}
+		}
+	}
+
+	// Returns the shard holding a review: told from its ID when it can be (see
+	// DatabaseConnection.shardForReviewId), otherwise found by probing every shard in parallel.
+	// Returns -1 when probing finds no shard that has it.
+	public static int findReviewShard(int reviewId) throws SQLException {
+		if (!DatabaseConnection.isSharded()) {
+			return 0;
+		}
+		int shard = DatabaseConnection.shardForReviewId(reviewId);
+		if (shard >= 0) {
+			return shard;
+		}
+		int[] found = { -1 };
+		// A review lives on the shard of its movie, in the hot table or the archive.
+		mergeOrdered("SELECT movie_id FROM reviews WHERE id = ? UNION ALL SELECT movie_id FROM reviews_archive WHERE id = ?",
+				stmt -> {
+					stmt.setInt(1, reviewId);
+					stmt.setInt(2, reviewId);
+				}, rs -> 0L, rs -> found[0] = DatabaseConnection.shardFor(rs.getInt("movie_id")));
+		return found[0];
+	}
+
+	// Returns "first last" names for the given user IDs, read from the primary in batches.
+	// Users that no longer exist or are marked deleted are absent from the map.
+	public static Map<Integer, String> userNames(Collection<Integer> userIds) throws SQLException {
+		Map<Integer, String> names = new HashMap<>();
+		Set<Integer> pending = new LinkedHashSet<>(userIds);
+		Iterator<Integer> it = pending.iterator();
+		try (Connection conn = DatabaseConnection.getReadConnection()) {
+			while (it.hasNext()) {
+				List<Integer> batch = new ArrayList<>();
+				while (it.hasNext() && batch.size() < NAME_BATCH_SIZE) {
+					batch.add(it.next());
+				}
+				StringBuilder sql = new StringBuilder("SELECT id, first_name, last_name FROM users WHERE id IN (");
+				for (int i = 0; i < batch.size(); i++) {
+					sql.append(i == 0 ? "?" : ", ?");
+				}
+				sql.append(") AND deleted_at IS NULL");
+				try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+					for (int i = 0; i < batch.size(); i++) {
+						stmt.setInt(i + 1, batch.get(i));
+					}
+					try (ResultSet rs = stmt.executeQuery()) {
+						while (rs.next()) {
+							names.put(rs.getInt("id"), rs.getString("first_name") + " " + rs.getString("last_name"));
+						}
+					}
+				}
+			}
+		}
+		return names;
+	}
+
+	// Fills in reviewer names for reviews read from shards, which hold no user data, and drops the
+	// reviews of users marked deleted whose reviews are still being purged.
+	public static void resolveReviewerNames(List<Review> reviews) throws SQLException {
+		List<Integer> userIds = new ArrayList<>();
+		for (Review review : reviews) {
+			userIds.add(review.getUserId());
+		}
+		Map<Integer, String> names = userNames(userIds);
+		reviews.removeIf(review -> !names.containsKey(review.getUserId()));
+		for (Review review : reviews) {
+			review.setReviewerName(names.get(review.getUserId()));
+		}
+	}
+
+	// Executes every cursor's statement, in parallel when there is more than one shard.
+	private static void execute(List<Cursor> cursors) throws SQLException {
+		if (cursors.size() == 1) {
+			cursors.get(0).rs = cursors.get(0).stmt.executeQuery();
+			return;
+		}
+		List<Future<ResultSet>> futures = new ArrayList<>();
+		for (Cursor cursor : cursors) {
+			futures.add(SCATTER_POOL.submit(() -> cursor.stmt.executeQuery()));
+		}
+		SQLException failure = null;
+		// Wait for every shard, even after a failure, so no statement is still running when closed.
+		for (int i = 0; i < futures.size(); i++) {
+			try {
+				cursors.get(i).rs = futures.get(i).get();
+			} catch (ExecutionException e) {
+				if (failure == null) {
+					failure = e.getCause() instanceof SQLException ? (SQLException) e.getCause()
+							: new SQLException("Shard query failed.", e.getCause());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				if (failure == null) {
+					failure = new SQLException("Interrupted while querying shards.", e);
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+}
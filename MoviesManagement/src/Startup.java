@@ -0,0 +1,145 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+// Measures and shortens application startup. Startup phases (loading the JDBC driver, opening the
+// storage backend, creating each service, pre-warming) are timed and exported as the
+// startup_phase_seconds gauge, with "ready" the time from JVM start until the first menu; with
+// -Dmoviereviews.startup.log=true each phase is also printed as it ends. Services are created on
+// first use through Lazy, and by default warmed on background threads while the first menu is
+// shown. With -Dmoviereviews.startup.prewarm=true the first menu waits instead until the services
+// exist, -Dmoviereviews.startup.prewarmConnections connections (default 2) are open in every
+// database pool and the movie catalog has been read once, all done in parallel.
+public final class Startup {
+	private static final boolean LOG = Boolean.getBoolean("moviereviews.startup.log");
+	private static final boolean PREWARM = Boolean.getBoolean("moviereviews.startup.prewarm");
+	private static final int PREWARM_CONNECTIONS = Math.max(1,
+			Integer.getInteger("moviereviews.startup.prewarmConnections", 2));
+	// Duration of each phase in nanoseconds, by phase name.
+	private static final Map<String, Long> PHASES = new ConcurrentHashMap<>();
+	private static final AtomicBoolean READY = new AtomicBoolean();
+	// Runs warm-up work; daemon threads, so warm-up never keeps the application alive.
+	private static final ExecutorService WARMERS = Executors.newCachedThreadPool(runnable -> {
+		Thread thread = new Thread(runnable, "startup-warm");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	// A value created on first use, or ahead of it by warm().
+	public static final class Lazy<T> {
+		private final String phase;
+		private final Supplier<T> factory;
+		private volatile T value;
+
+		// Creates a holder whose value the factory creates, timed as the given startup phase.
+		public Lazy(String phase, Supplier<T> factory) {
+			this.phase = phase;
+			this.factory = factory;
+		}
+
+		// Returns the value, creating it first if no thread has yet.
+		public T get() {
+			T current = value;
+			if (current == null) {
+				synchronized (this) {
+					current = value;
+					if (current == null) {
+						current = time(phase, factory);
+						value = current;
+					}
+				}
+			}
+			return current;
+		}
+
+		// Returns true if the value has been created.
+		public boolean isReady() {
+			return value != null;
+		}
+
+		// Starts creating the value on a background thread.
+		public CompletableFuture<T> warm() {
+			return CompletableFuture.supplyAsync(this::get, WARMERS);
+		}
+	}
+
+	// Prevent instantiation of the utility class.
+	private Startup() {
+	}
+
+	// Returns true if the first menu should wait for the services, connections and caches.
+	public static boolean isPrewarm() {
+		return PREWARM;
+	}
+
+	// Runs one startup phase and records how long it took.
+	public static <T> T time(String phase, Supplier<T> work) {
+		long start = System.nanoTime();
+		try {
+			return work.get();
+		} finally {
+			record(phase, System.nanoTime() - start);
+		}
+	}
+
+	// Records the duration of a startup phase.
+	public static void record(String phase, long nanos) {
+		if (PHASES.put(phase, nanos) == null) {
+			Metrics.gauge("startup_phase_seconds", "Duration of each startup phase.", () -> PHASES.get(phase) / 1e9,
+					"phase", phase);
+		}
+		if (LOG) {
+			System.out.println("Startup: " + phase + " took " + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms");
+		}
+	}
+
+	// Records the time from JVM start until now as the "ready" phase, once; called when the first
+	// menu is shown. The JVM's uptime is read on a warm-up thread, as loading the management classes
+	// would itself delay the menu.
+	public static void ready() {
+		if (!READY.compareAndSet(false, true)) {
+			return;
+		}
+		long readyAt = System.nanoTime();
+		WARMERS.execute(() -> {
+			long uptimeNanos = TimeUnit.MILLISECONDS.toNanos(ManagementFactory.getRuntimeMXBean().getUptime());
+			record("ready", uptimeNanos - (System.nanoTime() - readyAt));
+		});
+	}
+
+	// Opens connections to every database pool and reads the movie catalog, in parallel, so the
+	// first requests find warm connections, cached statements and database pages. Failures are
+	// reported and leave the work to the first requests.
+	public static CompletableFuture<Void> prewarmStorage() {
+		List<CompletableFuture<?>> tasks = new ArrayList<>();
+		if (Repositories.isJdbc()) {
+			tasks.add(CompletableFuture.runAsync(() -> time("prewarm_connections", () -> {
+				try {
+					return DatabaseConnection.prewarm(PREWARM_CONNECTIONS, WARMERS);
+				} catch (SQLException e) {
+					System.out.println("Failed to pre-warm database connections: " + e.getMessage());
+					return 0;
+				}
+			}), WARMERS));
+		}
+		tasks.add(CompletableFuture.runAsync(() -> time("prewarm_movies", () -> {
+			try {
+				return Repositories.movies().findAll();
+			} catch (SQLException e) {
+				System.out.println("Failed to pre-warm the movie catalog: " + e.getMessage());
+				return null;
+			}
+		}), WARMERS));
+		return CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0]));
+	}
+}
@@ -0,0 +1,522 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+// Concurrency stress test of the service layer. Simulates many users at once, each session on its
+// own thread (a virtual thread on Java 21 and later), running a realistic mix of registrations,
+// logins, browsing and review writes through AuthService, MovieService and ReviewService against
+// the configured storage. It reports throughput and latency percentiles per operation, and then
+// checks invariants: no user has two reviews of a movie, no review write was lost, no share
+// outlives its review, and every movie average matches the ratings the sessions wrote.
+// Usage: java [-Dmoviereviews.storage=memory] StressTool [sessions] [seconds]
+// Defaults are 1000 sessions for 30 seconds; -Dmoviereviews.stress.thinkMillis (default 0) pauses
+// each session between operations. Sessions register their own users (stress-<run>-<n>@example.com)
+// and only write their reviews, so run it against a local or scratch database nobody else writes
+// to meanwhile; the average check would report their changes too. Exits with status 1 if an
+// invariant was violated.
+public class StressTool {
+	private static final int DEFAULT_SESSIONS = 1000;
+	private static final int DEFAULT_SECONDS = 30;
+	private static final long THINK_MILLIS = Math.max(0, Long.getLong("moviereviews.stress.thinkMillis", 0));
+	// Password of every stress user; satisfies AuthService's rules.
+	private static final String PASSWORD = "Stress123!";
+	// Share of review creations submitted twice at once, like a double-clicked submit button.
+	private static final double DOUBLE_SUBMIT_RATE = 0.25;
+	// Seconds between progress lines while sessions run.
+	private static final int PROGRESS_SECONDS = 5;
+	// Violations and error messages printed at most.
+	private static final int MAX_LISTED = 20;
+	// Service output lines that report an error rather than a rejected request.
+	private static final Pattern FAILURE = Pattern.compile("(?i)\\bfailed\\b");
+	// Phrases review texts are made of.
+	private static final String[] PHRASES = { "A gripping story", "with stunning visuals.", "The pacing drags",
+			"in the second half.", "Great performances", "from the whole cast.", "The ending felt rushed",
+			"but the score is wonderful.", "Worth watching twice", "for the details alone." };
+
+	// Operations of the mix, with their relative weights.
+	private enum Operation {
+		REGISTER(2), LOGIN(6), BROWSE_MOVIES(18), MOVIE_DETAILS(14), MY_REVIEWS(16), SHARED_REVIEWS(10),
+		CREATE_REVIEW(14), EDIT_REVIEW(10), DELETE_REVIEW(4), SHARE_REVIEW(6);
+
+		private final int weight;
+
+		Operation(int weight) {
+			this.weight = weight;
+		}
+	}
+
+	// A stress user and the ratings of the reviews it should have, by movie ID. Only the session that
+	// registered it writes its reviews, and the final check runs after every session has ended, so
+	// the map needs no locking.
+	private static class Account {
+		final int id;
+		final String email;
+		final Map<Integer, Integer> ratings = new HashMap<>();
+
+		Account(int id, String email) {
+			this.id = id;
+			this.email = email;
+		}
+	}
+
+	// Latency, rejections (the service said no) and errors (the service reported a failure) of one operation.
+	private static class Stats {
+		final LatencyHistogram latency = new LatencyHistogram();
+		final LongAdder rejected = new LongAdder();
+		final LongAdder errors = new LongAdder();
+	}
+
+	// Services under test; AuthService holds the signed-in user, so each session creates its own.
+	private final UserRepository users = Repositories.users();
+	private final ReviewRepository reviews = Repositories.reviews();
+	private final UserPurger purger = new UserPurger(users);
+	private final MovieService movieService = new MovieService();
+	private final ReviewService reviewService = new ReviewService();
+
+	private final int sessions;
+	private final long durationNanos;
+	// Prefix of this run's user emails, so repeated runs do not collide.
+	private final String emailPrefix = "stress-" + Long.toString(System.currentTimeMillis(), 36) + "-";
+	private final AtomicInteger registered = new AtomicInteger();
+	// Every account registered by a session, in registration order.
+	private final List<Account> accounts = Collections.synchronizedList(new ArrayList<>());
+	private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+	// Operation running on the current thread, so reported failures are counted against it.
+	private final ThreadLocal<Operation> running = new ThreadLocal<>();
+	// Failure messages reported by the services, with how often each occurred.
+	private final Map<String, LongAdder> errorMessages = new ConcurrentHashMap<>();
+	// Invariant violations seen while the sessions ran (double submissions that both succeeded).
+	private final List<String> violations = Collections.synchronizedList(new ArrayList<>());
+	// Runs the sessions and the second half of double submissions.
+	private ExecutorService executor;
+	private boolean virtualThreads;
+	// Movie IDs sessions browse and review.
+	private int[] movieIds;
+
+	// Creates a run of the given number of concurrent sessions for the given number of seconds.
+	public StressTool(int sessions, int seconds) {
+		this.sessions = sessions;
+		this.durationNanos = TimeUnit.SECONDS.toNanos(seconds);
+		for (Operation operation : Operation.values()) {
+			stats.put(operation, new Stats());
+		}
+	}
+
+	// Entry point; exits with status 1 if an invariant was violated or the run could not start.
+	public static void main(String[] args) {
+		if (args.length > 2 || (args.length > 0 && !args[0].matches("\\d+"))
+				|| (args.length > 1 && !args[1].matches("\\d+"))) {
+			System.out.println("Usage: java [-Dmoviereviews.storage=memory] StressTool [sessions] [seconds]");
+			System.exit(1);
+		}
+		int sessions = args.length > 0 ? Math.max(1, Integer.parseInt(args[0])) : DEFAULT_SESSIONS;
+		int seconds = args.length > 1 ? Math.max(1, Integer.parseInt(args[1])) : DEFAULT_SECONDS;
+		boolean passed = false;
+		try {
+			passed = new StressTool(sessions, seconds).run();
+		} catch (SQLException e) {
+			System.out.println("Stress test failed: " + e.getMessage());
+		} catch (InterruptedException e) {
+			System.out.println("Stress test interrupted.");
+		} finally {
+			Repositories.shutdown();
+		}
+		System.exit(passed ? 0 : 1);
+	}
+
+	// Runs the sessions, prints the report and returns true if no invariant was violated.
+	public boolean run() throws SQLException, InterruptedException {
+		List<Movie> movies = Repositories.movies().findAll();
+		if (movies.isEmpty()) {
+			throw new SQLException("No movies to review; load the sample data first.");
+		}
+		movieIds = new int[movies.size()];
+		for (int i = 0; i < movieIds.length; i++) {
+			movieIds[i] = movies.get(i).getId();
+		}
+		Map<Integer, long[]> baseline = ratingTotals();
+
+		executor = newExecutor();
+		System.out.printf("Running %d sessions for %d s on %s threads (storage: %s)%n", sessions,
+				TimeUnit.NANOSECONDS.toSeconds(durationNanos), virtualThreads ? "virtual" : "platform",
+				Repositories.isJdbc() ? "jdbc" : "memory");
+		PrintStream console = System.out;
+		long start = System.nanoTime();
+		long deadline = start + durationNanos;
+		// The services print every listing and message; keep only the failures, as errors.
+		System.setOut(new FailureCapture());
+		try {
+			// Double submissions still use the executor, so it is shut down once every session ended.
+			CountDownLatch finished = new CountDownLatch(sessions);
+			for (int i = 0; i < sessions; i++) {
+				// Each session logs in from its own source, like a separate client.
+				String source = "stress-" + i;
+				executor.execute(() -> {
+					try {
+						runSession(source, deadline);
+					} finally {
+						finished.countDown();
+					}
+				});
+			}
+			while (!finished.await(PROGRESS_SECONDS, TimeUnit.SECONDS)) {
+				console.printf("  %d s: %d operations, %d users registered%n",
+						TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start), totalOperations(), registered.get());
+			}
+		} finally {
+			executor.shutdown();
+			System.setOut(console);
+		}
+		long elapsed = System.nanoTime() - start;
+
+		printReport(elapsed);
+		checkInvariants(baseline);
+		if (violations.isEmpty()) {
+			System.out.println("Invariants: all held.");
+			return true;
+		}
+		System.out.println("Invariants: " + violations.size() + " violation(s)");
+		for (String violation : violations.subList(0, Math.min(MAX_LISTED, violations.size()))) {
+			System.out.println("  " + violation);
+		}
+		return false;
+	}
+
+	// Creates an executor with a virtual thread per task where available (Java 21 and later),
+	// otherwise a platform thread per task. Looked up reflectively so the tool builds on Java 17.
+	private ExecutorService newExecutor() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			virtualThreads = true;
+			return (ExecutorService) factory.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			virtualThreads = false;
+			return Executors.newCachedThreadPool();
+		}
+	}
+
+	// One simulated user: registers and signs in, then runs random operations until the deadline.
+	private void runSession(String source, long deadline) {
+		Random random = ThreadLocalRandom.current();
+		AuthService auth = new AuthService(users, purger);
+		Account account = null;
+		while (System.nanoTime() < deadline) {
+			// Without an account, registering is the only way in.
+			Operation operation = account == null ? Operation.REGISTER : pick(random);
+			Stats operationStats = stats.get(operation);
+			running.set(operation);
+			long start = System.nanoTime();
+			try {
+				boolean accepted;
+				if (operation == Operation.REGISTER) {
+					Account next = register(auth, source);
+					accepted = next != null;
+					account = next != null ? next : account;
+				} else {
+					accepted = perform(operation, auth, source, account, random);
+				}
+				if (!accepted) {
+					operationStats.rejected.increment();
+				}
+			} catch (SQLException | ExecutionException | RuntimeException e) {
+				Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+				recordError(operation, cause.getClass().getSimpleName() + ": " + cause.getMessage());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} finally {
+				operationStats.latency.record(System.nanoTime() - start);
+				running.remove();
+			}
+			if (THINK_MILLIS > 0) {
+				try {
+					Thread.sleep(random.nextInt((int) THINK_MILLIS * 2 + 1));
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	// Picks an operation at random according to the weights of the mix.
+	private static Operation pick(Random random) {
+		int total = 0;
+		for (Operation operation : Operation.values()) {
+			total += operation.weight;
+		}
+		int ticket = random.nextInt(total);
+		for (Operation operation : Operation.values()) {
+			ticket -= operation.weight;
+			if (ticket < 0) {
+				return operation;
+			}
+		}
+		return Operation.BROWSE_MOVIES;
+	}
+
+	// Registers a new user and signs it in. Returns its account, or null if either step failed.
+	private Account register(AuthService auth, String source) {
+		int number = registered.incrementAndGet();
+		String email = emailPrefix + number + "@example.com";
+		String mobile = String.format("+1555%07d", number % 10_000_000);
+		if (!auth.register("Stress", "User" + number, email, mobile, "1990-01-01", PASSWORD, "Regular")) {
+			return null;
+		}
+		auth.logout();
+		if (!auth.login(email, PASSWORD, source)) {
+			return null;
+		}
+		Account account = new Account(auth.getCurrentUser().getId(), email);
+		accounts.add(account);
+		return account;
+	}
+
+	// Runs one operation of the mix as the given account. Returns false if the service rejected it.
+	private boolean perform(Operation operation, AuthService auth, String source, Account account, Random random)
+			throws SQLException, InterruptedException, ExecutionException {
+		switch (operation) {
+			case LOGIN:
+				auth.logout();
+				return auth.login(account.email, PASSWORD, source);
+			case BROWSE_MOVIES:
+				movieService.displayAllMovies();
+				return true;
+			case MOVIE_DETAILS:
+				movieService.displayMovieDetails(movieIds[random.nextInt(movieIds.length)]);
+				return true;
+			case MY_REVIEWS:
+				reviewService.displayUserReviews(account.id);
+				return true;
+			case SHARED_REVIEWS:
+				reviewService.displaySharedReviews(account.id);
+				return true;
+			case CREATE_REVIEW:
+				return createReview(account, random);
+			case EDIT_REVIEW:
+			case DELETE_REVIEW:
+			case SHARE_REVIEW:
+				return changeReview(operation, account, random);
+			default:
+				throw new IllegalStateException("Unhandled operation " + operation);
+		}
+	}
+
+	// Reviews a random movie, sometimes submitting the same review twice at once; at most one of
+	// the two may succeed.
+	private boolean createReview(Account account, Random random) throws InterruptedException, ExecutionException {
+		int movieId = movieIds[random.nextInt(movieIds.length)];
+		int rating = 1 + random.nextInt(5);
+		String text = reviewText(random);
+		Future<Boolean> twin = null;
+		if (random.nextDouble() < DOUBLE_SUBMIT_RATE) {
+			twin = executor.submit(() -> {
+				running.set(Operation.CREATE_REVIEW);
+				try {
+					return reviewService.createReview(account.id, movieId, text, rating);
+				} finally {
+					running.remove();
+				}
+			});
+		}
+		boolean created = reviewService.createReview(account.id, movieId, text, rating);
+		boolean twinCreated = twin != null && twin.get();
+		if ((created || twinCreated) && account.ratings.containsKey(movieId)) {
+			violations.add("Duplicate review: user " + account.id + " reviewed movie " + movieId + " again.");
+		}
+		if (created && twinCreated) {
+			violations.add("Duplicate review: a double submission by user " + account.id + " of movie " + movieId
+					+ " succeeded twice.");
+		}
+		if (created || twinCreated) {
+			account.ratings.put(movieId, rating);
+		}
+		return created || twinCreated;
+	}
+
+	// Lists the account's reviews, as the menu does, and edits, deletes or shares one of them.
+	private boolean changeReview(Operation operation, Account account, Random random) throws SQLException {
+		List<Review> own = reviews.findByUser(account.id);
+		if (own.isEmpty()) {
+			return true;
+		}
+		Review review = own.get(random.nextInt(own.size()));
+		switch (operation) {
+			case EDIT_REVIEW:
+				int rating = 1 + random.nextInt(5);
+				if (!reviewService.editReview(review.getId(), account.id, reviewText(random), rating)) {
+					return false;
+				}
+				account.ratings.put(review.getMovieId(), rating);
+				return true;
+			case DELETE_REVIEW:
+				if (!reviewService.deleteReview(review.getId(), account.id)) {
+					return false;
+				}
+				account.ratings.remove(review.getMovieId());
+				return true;
+			default:
+				Account recipient = accounts.get(random.nextInt(accounts.size()));
+				return reviewService.shareReview(review.getId(), account.id, recipient.email);
+		}
+	}
+
+	// Returns a random review text of two to six phrases.
+	private static String reviewText(Random random) {
+		StringBuilder text = new StringBuilder();
+		for (int i = 2 + random.nextInt(5); i > 0; i--) {
+			text.append(PHRASES[random.nextInt(PHRASES.length)]).append(' ');
+		}
+		return text.toString().trim();
+	}
+
+	// Counts a failure reported by the services or thrown at the tool.
+	private void recordError(Operation operation, String message) {
+		if (operation != null) {
+			stats.get(operation).errors.increment();
+		}
+		errorMessages.computeIfAbsent(message, key -> new LongAdder()).increment();
+	}
+
+	// Returns the number of operations completed so far.
+	private long totalOperations() {
+		long total = 0;
+		for (Stats operationStats : stats.values()) {
+			total += operationStats.latency.getCount();
+		}
+		return total;
+	}
+
+	// Prints throughput, and count, rejections, errors and latency percentiles per operation.
+	private void printReport(long elapsedNanos) {
+		double seconds = elapsedNanos / 1_000_000_000.0;
+		long total = totalOperations();
+		System.out.printf("%n%-15s %9s %9s %7s %9s %9s %9s %9s%n", "Operation", "Count", "Rejected", "Errors",
+				"p50 ms", "p95 ms", "p99 ms", "max ms");
+		for (Map.Entry<Operation, Stats> entry : stats.entrySet()) {
+			LatencyHistogram latency = entry.getValue().latency;
+			System.out.printf("%-15s %9d %9d %7d %9.2f %9.2f %9.2f %9.2f%n", entry.getKey(), latency.getCount(),
+					entry.getValue().rejected.sum(), entry.getValue().errors.sum(), millis(latency.getPercentile(50)),
+					millis(latency.getPercentile(95)), millis(latency.getPercentile(99)), millis(latency.getMax()));
+		}
+		System.out.printf("Total: %d operations in %.1f s (%.0f ops/s), %d users registered%n", total, seconds,
+				total / seconds, accounts.size());
+		if (!errorMessages.isEmpty()) {
+			System.out.println("Errors by message:");
+			List<Map.Entry<String, LongAdder>> sorted = new ArrayList<>(errorMessages.entrySet());
+			sorted.sort((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()));
+			for (Map.Entry<String, LongAdder> entry : sorted.subList(0, Math.min(MAX_LISTED, sorted.size()))) {
+				System.out.printf("  %6d  %s%n", entry.getValue().sum(), entry.getKey());
+			}
+		}
+	}
+
+	// Compares the stored reviews, shares and movie ratings with what the sessions wrote.
+	private void checkInvariants(Map<Integer, long[]> baseline) throws SQLException {
+		Set<Integer> stressUsers = new HashSet<>();
+		Set<Integer> liveReviews = new HashSet<>();
+		Map<Integer, long[]> expected = new HashMap<>();
+		for (Map.Entry<Integer, long[]> entry : baseline.entrySet()) {
+			expected.put(entry.getKey(), entry.getValue().clone());
+		}
+		for (Account account : accounts) {
+			stressUsers.add(account.id);
+			Map<Integer, Integer> stored = new HashMap<>();
+			for (Review review : reviews.findByUser(account.id)) {
+				liveReviews.add(review.getId());
+				if (stored.put(review.getMovieId(), review.getRating()) != null) {
+					violations.add("Duplicate review: user " + account.id + " has several reviews of movie "
+							+ review.getMovieId() + ".");
+				}
+			}
+			if (!stored.equals(account.ratings)) {
+				violations.add("Lost write: user " + account.id + " should have ratings " + account.ratings
+						+ " by movie but has " + stored + ".");
+			}
+			for (Map.Entry<Integer, Integer> rating : account.ratings.entrySet()) {
+				long[] totals = expected.computeIfAbsent(rating.getKey(), key -> new long[2]);
+				totals[0]++;
+				totals[1] += rating.getValue();
+			}
+		}
+		for (Account account : accounts) {
+			for (Review review : reviews.findSharedWith(account.id)) {
+				if (stressUsers.contains(review.getUserId()) && !liveReviews.contains(review.getId())) {
+					violations.add("Orphan share: review " + review.getId() + " is shared with user " + account.id
+							+ " but no longer exists.");
+				}
+			}
+		}
+		Map<Integer, long[]> actual = ratingTotals();
+		for (int movieId : movieIds) {
+			long[] want = expected.getOrDefault(movieId, new long[2]);
+			long[] got = actual.get(movieId);
+			if (want[0] != got[0] || want[1] != got[1]) {
+				violations.add(String.format("Wrong average: movie %d has %.3f over %d ratings, expected %.3f over %d.",
+						movieId, average(got), got[0], average(want), want[0]));
+			}
+		}
+	}
+
+	// Returns the number and sum of each movie's listed and archived ratings, as MovieService averages them.
+	private Map<Integer, long[]> ratingTotals() throws SQLException {
+		Map<Integer, long[]> totals = new HashMap<>();
+		for (int movieId : movieIds) {
+			ReviewRepository.RatingTotals archived = reviews.findArchivedRatings(movieId);
+			long[] movieTotals = { archived.getCount(), archived.getSum() };
+			for (Review review : reviews.findByMovie(movieId)) {
+				movieTotals[0]++;
+				movieTotals[1] += review.getRating();
+			}
+			totals.put(movieId, movieTotals);
+		}
+		return totals;
+	}
+
+	// Returns the average of a {count, sum} pair, or 0 without ratings.
+	private static double average(long[] totals) {
+		return totals[0] == 0 ? 0 : (double) totals[1] / totals[0];
+	}
+
+	// Converts nanoseconds to milliseconds for the report.
+	private static double millis(long nanos) {
+		return nanos / 1_000_000.0;
+	}
+
+	// Console replacement while sessions run: discards the services' output, but counts lines that
+	// report a failure (e.g. "Failed to create review: ...") as errors of the operation printing them.
+	private class FailureCapture extends PrintStream {
+		FailureCapture() {
+			super(OutputStream.nullOutputStream());
+		}
+
+		@Override
+		public void println(String line) {
+			if (line != null && FAILURE.matcher(line).find()) {
+				recordError(running.get(), line);
+			}
+		}
+	}
+}
@@ -0,0 +1,155 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Removes the reviews and shares of users marked deleted, in the background and in bounded
+// chunks, instead of one cascading DELETE that locks every row of a prolific user at once.
+// One worker thread purges users one after another: each chunk deletes at most
+// -Dmoviereviews.userPurge.chunkRows rows (default 500) in its own transaction, followed by a
+// pause of -Dmoviereviews.userPurge.pauseMillis (default 10) so other writers get the locks.
+// The user row itself is deleted last. Marked users are hidden from logins and listings
+// meanwhile, so rating averages never include a half-purged user. A purge interrupted by a
+// restart or an error is resumed by resumePending.
+public class UserPurger {
+	private static final int CHUNK_ROWS = Math.max(1, Integer.getInteger("moviereviews.userPurge.chunkRows", 500));
+	private static final long PAUSE_MILLIS = Math.max(0, Long.getLong("moviereviews.userPurge.pauseMillis", 10));
+	// Operational metrics: rows and users purged.
+	private static final Metrics.Counter ROWS_PURGED = Metrics.counter("users_purged_rows_total",
+			"Reviews and shares removed by background user deletion.");
+	private static final Metrics.Counter USERS_PURGED = Metrics.counter("users_purged_total",
+			"Users whose data was fully removed by background deletion.");
+
+	// State of one user's purge.
+	public enum Status {
+		QUEUED, PURGING, DONE, FAILED
+	}
+
+	// Progress of one user's purge; a new object replaces it after every chunk.
+	public static class Progress {
+		private final int userId;
+		private final Status status;
+		private final long rowsDeleted;
+		private final String error;
+
+		public Progress(int userId, Status status, long rowsDeleted, String error) {
+			this.userId = userId;
+			this.status = status;
+			this.rowsDeleted = rowsDeleted;
+			this.error = error;
+		}
+
+		// Returns the ID of the user being deleted.
+		public int getUserId() {
+			return userId;
+		}
+
+		// Returns the state of the purge.
+		public Status getStatus() {
+			return status;
+		}
+
+		// Returns the number of reviews and shares removed so far.
+		public long getRowsDeleted() {
+			return rowsDeleted;
+		}
+
+		// Returns the error that stopped a FAILED purge, or null.
+		public String getError() {
+			return error;
+		}
+	}
+
+	// Storage whose marked users are purged.
+	private final UserRepository users;
+	// Progress by user ID, in the order the deletions were requested.
+	private final Map<Integer, Progress> progress = new LinkedHashMap<>();
+	// Single worker, so only one user's rows are being deleted at a time.
+	private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "user-purger");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	// Creates a purger over the given user storage.
+	public UserPurger(UserRepository users) {
+		this.users = users;
+		Metrics.gauge("users_pending_deletion", "Users marked deleted whose data is still being removed.",
+				this::pendingCount);
+	}
+
+	// Queues the purge of a user already marked deleted, unless it is queued or running.
+	public void schedule(int userId) {
+		synchronized (this) {
+			Progress current = progress.get(userId);
+			if (current != null && (current.status == Status.QUEUED || current.status == Status.PURGING)) {
+				return;
+			}
+			progress.put(userId, new Progress(userId, Status.QUEUED, 0, null));
+		}
+		worker.execute(() -> purge(userId));
+	}
+
+	// Queues every user left marked deleted, e.g. by a restart during a purge or a failed purge.
+	// Returns the number of users found.
+	public int resumePending() throws SQLException {
+		List<Integer> pending = users.findPendingDeletions();
+		for (int userId : pending) {
+			schedule(userId);
+		}
+		return pending.size();
+	}
+
+	// Returns the progress of every purge requested since startup, oldest first.
+	public synchronized List<Progress> progress() {
+		return new ArrayList<>(progress.values());
+	}
+
+	// Deletes a marked user's rows chunk by chunk, then the user.
+	private void purge(int userId) {
+		long rows = 0;
+		try {
+			update(userId, Status.PURGING, rows, null);
+			int deleted;
+			while ((deleted = users.purgeActivity(userId, CHUNK_ROWS)) > 0) {
+				rows += deleted;
+				ROWS_PURGED.add(deleted);
+				update(userId, Status.PURGING, rows, null);
+				if (PAUSE_MILLIS > 0) {
+					Thread.sleep(PAUSE_MILLIS);
+				}
+			}
+			// Nothing cascades any more, so this is a single-row delete.
+			users.delete(userId);
+			USERS_PURGED.increment();
+			update(userId, Status.DONE, rows, null);
+		} catch (SQLException | RuntimeException e) {
+			// The user stays marked, so resumePending can continue where this stopped.
+			System.out.println("Failed to purge deleted user " + userId + ": " + e.getMessage());
+			update(userId, Status.FAILED, rows, e.getMessage());
+		} catch (InterruptedException e) {
+			update(userId, Status.FAILED, rows, "interrupted");
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	// Records the latest progress of a purge.
+	private synchronized void update(int userId, Status status, long rows, String error) {
+		progress.put(userId, new Progress(userId, status, rows, error));
+	}
+
+	// Returns the number of purges queued or running.
+	private synchronized double pendingCount() {
+		int count = 0;
+		for (Progress entry : progress.values()) {
+			if (entry.status == Status.QUEUED || entry.status == Status.PURGING) {
+				count++;
+			}
+		}
+		return count;
+	}
+}
@@ -0,0 +1,101 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// Data access for user accounts. Implemented by JdbcUserRepository (MySQL) and
+// MemoryUserRepository (embedded); see Repositories for how one is chosen at startup.
+// Emails are passed already trimmed and lower-cased.
+// Users can follow each other, so that a review can be shared with all of a user's followers.
+public interface UserRepository {
+	// A user together with the stored password, as needed to check a login.
+	class Credentials {
+		private final User user;
+		private final String password;
+
+		public Credentials(User user, String password) {
+			this.user = user;
+			this.password = password;
+		}
+
+		// Returns the user the credentials belong to.
+		public User getUser() {
+			return user;
+		}
+
+		// Returns the stored password.
+		public String getPassword() {
+			return password;
+		}
+	}
+
+	// Inserts a new user.
+	// Returns true if the user was stored, false if the email is already taken.
+	boolean insert(String firstName, String lastName, String email, String mobile, LocalDate birthDate,
+			String password, String accountType) throws SQLException;
+
+	// Returns the user and stored password for an email, or null if no user has it.
+	Credentials findCredentials(String email) throws SQLException;
+
+	// Returns the ID of the user with the email, or -1 if none.
+	int findIdByEmail(String email) throws SQLException;
+
+	// Returns the IDs of the users with the given emails, by email, in as few lookups as possible.
+	// Emails no user has are left out.
+	Map<String, Integer> findIdsByEmails(Collection<String> emails) throws SQLException;
+
+	// Returns true if any user has the email.
+	boolean emailExists(String email) throws SQLException;
+
+	// Returns true if a user other than the given one has the email.
+	boolean emailInUse(String email, int excludingUserId) throws SQLException;
+
+	// Returns the account type ("Admin" or "Regular") of a user, or null if the user does not exist.
+	String findAccountType(int userId) throws SQLException;
+
+	// Returns all users in ID order.
+	List<User> findAll() throws SQLException;
+
+	// Returns up to limit users with IDs above afterId, in ID order, so all users can be read in
+	// pages without holding them all.
+	List<User> findPage(int afterId, int limit) throws SQLException;
+
+	// Updates a user's profile fields.
+	// Returns true if the user exists and was updated.
+	boolean updateProfile(int userId, String firstName, String lastName, String email, String mobile,
+			LocalDate birthDate) throws SQLException;
+
+	// Replaces a user's password.
+	// Returns true if the user exists and was updated.
+	boolean updatePassword(int userId, String password) throws SQLException;
+
+	// Deletes a user together with their reviews and shares.
+	// Returns true if the user existed.
+	boolean delete(int userId) throws SQLException;
+
+	// Marks a user as deleted: from then on they cannot log in and they and their reviews are
+	// hidden from lookups and listings, while purgeActivity removes their data in the background.
+	// A backend that can delete cheaply may delete the user outright.
+	// Returns true if the user existed and was not already marked.
+	boolean markDeleted(int userId) throws SQLException;
+
+	// Deletes up to maxRows of a marked user's shares and reviews, each call in its own short
+	// transaction. Returns the number of rows deleted; 0 once nothing is left.
+	int purgeActivity(int userId, int maxRows) throws SQLException;
+
+	// Returns the IDs of users marked deleted but not yet removed, oldest first.
+	List<Integer> findPendingDeletions() throws SQLException;
+
+	// Makes one user follow another.
+	// Returns true if the follow is new, false if the follower already follows the user.
+	boolean follow(int followerId, int followeeId) throws SQLException;
+
+	// Stops one user following another.
+	// Returns true if the follower followed the user.
+	boolean unfollow(int followerId, int followeeId) throws SQLException;
+
+	// Returns the IDs of up to limit of the user's followers, in ID order.
+	List<Integer> findFollowerIds(int userId, int limit) throws SQLException;
+}
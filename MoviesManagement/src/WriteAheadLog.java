@@ -0,0 +1,224 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+// Sequential, group-committed log of mutation records, written to numbered segment files
+// (wal-<generation>.log) in one directory.
+// Writers append a record and then wait until it is on disk. A single writer thread takes
+// everything appended so far, writes it with one call and forces it to disk once, so concurrent
+// writers share the cost of each fsync (group commit). Each record is framed as its length,
+// a CRC32 of its payload and the payload; replay stops at a torn or corrupt tail.
+public class WriteAheadLog implements Closeable {
+	// Receives the payload of each replayed record.
+	public interface RecordHandler {
+		void handle(DataInputStream record) throws IOException;
+	}
+
+	private final Path directory;
+	// Segment currently written to, and its generation.
+	private FileChannel channel;
+	private long generation;
+	// Records appended but not yet handed to the writer thread.
+	private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+	// Count of records appended, and of records known to be on disk.
+	private long appended;
+	private long durable;
+	// Records appended to the current segment, used to decide when a snapshot is worthwhile.
+	private long segmentRecords;
+	// First write failure; once set, every append fails.
+	private IOException failure;
+	private boolean closed;
+	private final Thread writer;
+
+	// Opens a new, empty segment of the given generation and starts the writer thread.
+	public WriteAheadLog(Path directory, long generation) throws IOException {
+		this.directory = directory;
+		this.generation = generation;
+		this.channel = openSegment(generation);
+		writer = new Thread(this::writeLoop, "wal-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	// Returns the path of a segment of the given generation.
+	public static Path segmentPath(Path directory, long generation) {
+		return directory.resolve("wal-" + generation + ".log");
+	}
+
+	// Replays the records of a segment file in order, stopping quietly at a torn or corrupt tail
+	// (the records a crash interrupted, which were never acknowledged).
+	// Returns the number of records replayed.
+	public static long replay(Path segment, RecordHandler handler) throws IOException {
+		long records = 0;
+		try (InputStream file = Files.newInputStream(segment);
+				DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+			while (true) {
+				byte[] payload;
+				try {
+					int length = in.readInt();
+					int checksum = in.readInt();
+					if (length < 0) {
+						break;
+					}
+					payload = new byte[length];
+					in.readFully(payload);
+					if (checksum != crc(payload)) {
+						break;
+					}
+				} catch (EOFException e) {
+					break;
+				}
+				handler.handle(new DataInputStream(new ByteArrayInputStream(payload)));
+				records++;
+			}
+		}
+		return records;
+	}
+
+	// Queues a record and returns its sequence number, to be passed to awaitDurable.
+	// Callers append while holding the lock that orders their mutations, so the log order
+	// matches the order in which the mutations were applied.
+	public synchronized long append(byte[] record) throws IOException {
+		if (failure != null) {
+			throw new IOException("Write-ahead log failed earlier: " + failure.getMessage(), failure);
+		}
+		if (closed) {
+			throw new IOException("Write-ahead log is closed.");
+		}
+		byte[] header = ByteBuffer.allocate(8).putInt(record.length).putInt(crc(record)).array();
+		pending.write(header, 0, header.length);
+		pending.write(record, 0, record.length);
+		segmentRecords++;
+		appended++;
+		notifyAll();
+		return appended;
+	}
+
+	// Blocks until the record with the given sequence number is on disk.
+	public synchronized void awaitDurable(long sequence) throws IOException {
+		boolean interrupted = false;
+		while (durable < sequence && failure == null) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				// The record is already queued; finish waiting so the caller's result is accurate.
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		if (durable < sequence) {
+			throw new IOException("Write-ahead log failed: " + failure.getMessage(), failure);
+		}
+	}
+
+	// Returns the number of records in the current segment.
+	public synchronized long segmentRecords() {
+		return segmentRecords;
+	}
+
+	// Waits until everything appended is on disk, then continues in a new segment of the next
+	// generation. The caller must prevent appends meanwhile so the switch falls between records.
+	// Returns the new generation.
+	public synchronized long rotate() throws IOException {
+		awaitDurable(appended);
+		FileChannel next = openSegment(generation + 1);
+		channel.close();
+		channel = next;
+		generation++;
+		segmentRecords = 0;
+		return generation;
+	}
+
+	// Flushes outstanding records and stops the writer thread.
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			notifyAll();
+		}
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		synchronized (this) {
+			channel.close();
+			if (failure != null) {
+				throw new IOException("Write-ahead log failed: " + failure.getMessage(), failure);
+			}
+		}
+	}
+
+	// Writer thread: repeatedly takes all pending records, writes and forces them, then wakes
+	// the writers waiting for them.
+	private void writeLoop() {
+		while (true) {
+			byte[] batch;
+			long upTo;
+			FileChannel target;
+			synchronized (this) {
+				while (pending.size() == 0 && !closed) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						// Only close() stops the writer.
+					}
+				}
+				if (pending.size() == 0) {
+					return;
+				}
+				batch = pending.toByteArray();
+				pending.reset();
+				upTo = appended;
+				target = channel;
+			}
+			try {
+				ByteBuffer buffer = ByteBuffer.wrap(batch);
+				while (buffer.hasRemaining()) {
+					target.write(buffer);
+				}
+				target.force(false);
+			} catch (IOException e) {
+				synchronized (this) {
+					failure = e;
+					notifyAll();
+				}
+				return;
+			}
+			synchronized (this) {
+				durable = upTo;
+				notifyAll();
+			}
+		}
+	}
+
+	// Creates the segment file of a generation, replacing any leftover file of that name.
+	private FileChannel openSegment(long segmentGeneration) throws IOException {
+		return FileChannel.open(segmentPath(directory, segmentGeneration), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+	}
+
+	// Returns the CRC32 of a payload.
+	private static int crc(byte[] payload) {
+		CRC32 crc = new CRC32();
+		crc.update(payload, 0, payload.length);
+		return (int) crc.getValue();
+	}
+}
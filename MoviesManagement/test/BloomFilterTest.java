@@ -0,0 +1,77 @@
+// Copyright (c) 2025. Created By Yash Somani
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+// Tests that BloomFilter never forgets a key and keeps to its false positive rate.
+class BloomFilterTest {
+	// Every key added is reported as possibly present.
+	@Test
+	void hasNoFalseNegatives() {
+		BloomFilter filter = new BloomFilter(10_000, 0.01);
+		for (int i = 0; i < 10_000; i++) {
+			filter.put("user" + i + "@example.com");
+		}
+		for (int i = 0; i < 10_000; i++) {
+			assertTrue(filter.mightContain("user" + i + "@example.com"));
+		}
+	}
+
+	// At its capacity, keys never added are reported present at about the configured rate.
+	@Test
+	void keepsToFalsePositiveRate() {
+		BloomFilter filter = new BloomFilter(10_000, 0.01);
+		for (int i = 0; i < 10_000; i++) {
+			filter.put("user" + i + "@example.com");
+		}
+		int falsePositives = 0;
+		for (int i = 0; i < 100_000; i++) {
+			if (filter.mightContain("other" + i + "@example.com")) {
+				falsePositives++;
+			}
+		}
+		assertTrue(falsePositives < 2_000, falsePositives + " false positives in 100000");
+	}
+
+	// put reports whether a key was new, and only new keys are counted.
+	@Test
+	void countsNewKeysOnly() {
+		BloomFilter filter = new BloomFilter(100, 0.01);
+		assertFalse(filter.mightContain("ann@example.com"));
+		assertTrue(filter.put("ann@example.com"));
+		assertFalse(filter.put("ann@example.com"));
+		assertEquals(1, filter.getAdded());
+		assertEquals(100, filter.getCapacity());
+	}
+
+	// Keys added from several threads at once are all kept.
+	@Test
+	void concurrentPutsAreKept() throws InterruptedException {
+		BloomFilter filter = new BloomFilter(40_000, 0.01);
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			int thread = t;
+			threads.add(new Thread(() -> {
+				for (int i = 0; i < 10_000; i++) {
+					filter.put(thread + ":" + i);
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		for (int t = 0; t < 4; t++) {
+			for (int i = 0; i < 10_000; i++) {
+				assertTrue(filter.mightContain(t + ":" + i));
+			}
+		}
+	}
+}
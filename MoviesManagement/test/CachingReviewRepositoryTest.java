@@ -0,0 +1,108 @@
+// Copyright (c) 2025. Created By Yash Somani
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+// Tests that CachingReviewRepository serves listings from its cache and that writes through it
+// invalidate exactly the listings they change. Writes made directly on the in-memory repository
+// underneath stand for changes the cache cannot see.
+class CachingReviewRepositoryTest {
+	private MemoryReviewRepository store;
+	private CachingReviewRepository cache;
+
+	@BeforeEach
+	void createStore() throws SQLException {
+		MemoryStore memory = MemoryStore.inMemory();
+		for (String name : new String[] { "ann", "bob", "cat" }) {
+			memory.users().insert(name, "Test", name + "@example.com", "+12025550123", LocalDate.parse("1990-05-15"),
+					"secret", "user");
+		}
+		memory.movies().add("Inception", "2010-07-16", "Sci-Fi");
+		memory.movies().add("Heat", "1995-12-15", "Crime");
+		store = memory.reviews();
+		cache = new CachingReviewRepository(store);
+	}
+
+	// A listing is read once and then served from the cache.
+	@Test
+	void servesRepeatedListingsFromCache() throws SQLException {
+		store.create(1, 1, "Mind-bending.", 5, 0, null);
+		assertEquals(1, cache.findByUser(1).size());
+		store.create(1, 2, "Tense throughout.", 4, 0, null);
+		assertEquals(1, cache.findByUser(1).size());
+	}
+
+	// Creating, editing and deleting through the cache refresh the author's listing.
+	@Test
+	void authorWritesInvalidateOwnListing() throws SQLException {
+		assertEquals(0, cache.findByUser(1).size());
+		cache.create(1, 1, "Mind-bending.", 5, 0, null);
+		List<Review> reviews = cache.findByUser(1);
+		assertEquals(1, reviews.size());
+		int reviewId = reviews.get(0).getId();
+		cache.update(reviewId, 1, "Mind-bending, again.", 4, null);
+		assertEquals(4, cache.findByUser(1).get(0).getRating());
+		cache.delete(reviewId, 1);
+		assertTrue(cache.findByUser(1).isEmpty());
+	}
+
+	// A share refreshes the recipient's inbox only.
+	@Test
+	void shareInvalidatesRecipientInbox() throws SQLException {
+		store.create(1, 1, "Mind-bending.", 5, 0, null);
+		int reviewId = store.findByUser(1).get(0).getId();
+		assertTrue(cache.findSharedWith(2).isEmpty());
+		assertTrue(cache.findSharedWith(3).isEmpty());
+		store.share(reviewId, 3);
+		cache.share(reviewId, 2);
+		assertEquals(1, cache.findSharedWith(2).size());
+		// Bob's share went through the cache; Cat's did not, so her cached inbox stands.
+		assertTrue(cache.findSharedWith(3).isEmpty());
+	}
+
+	// Editing or deleting a review refreshes every cached inbox holding it, found through the index.
+	@Test
+	void reviewWritesInvalidateInboxesHoldingIt() throws SQLException {
+		store.create(1, 1, "Mind-bending.", 5, 0, null);
+		int reviewId = store.findByUser(1).get(0).getId();
+		store.share(reviewId, 2);
+		store.share(reviewId, 3);
+		assertEquals(5, cache.findSharedWith(2).get(0).getRating());
+		assertEquals(5, cache.findSharedWith(3).get(0).getRating());
+		cache.update(reviewId, 1, "Mind-bending, again.", 3, null);
+		assertEquals(3, cache.findSharedWith(2).get(0).getRating());
+		assertEquals(3, cache.findSharedWith(3).get(0).getRating());
+		cache.deleteAny(reviewId);
+		assertTrue(cache.findSharedWith(2).isEmpty());
+		assertTrue(cache.findSharedWith(3).isEmpty());
+		assertTrue(cache.findByUser(1).isEmpty());
+	}
+
+	// A restore, whose author and recipients are unknown, clears the whole cache.
+	@Test
+	void restoreClearsEverything() throws SQLException {
+		store.create(1, 1, "Mind-bending.", 5, 0, null);
+		int reviewId = store.findByUser(1).get(0).getId();
+		store.share(reviewId, 2);
+		store.deleteAny(reviewId);
+		assertTrue(cache.findByUser(1).isEmpty());
+		assertTrue(cache.findSharedWith(2).isEmpty());
+		assertEquals(ReviewRepository.Outcome.OK, cache.restore(reviewId, 600));
+		assertEquals(1, cache.findByUser(1).size());
+		assertEquals(1, cache.findSharedWith(2).size());
+	}
+
+	// Callers get copies: changing a returned listing does not change the cached one.
+	@Test
+	void listingsAreCopies() throws SQLException {
+		store.create(1, 1, "Mind-bending.", 5, 0, null);
+		cache.findByUser(1).clear();
+		assertEquals(1, cache.findByUser(1).size());
+	}
+}
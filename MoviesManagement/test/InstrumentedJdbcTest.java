@@ -0,0 +1,15 @@
+// Copyright (c) 2025. Created By Yash Somani
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+// Tests the caller tags InstrumentedJdbc groups statements under in QueryStats.
+class InstrumentedJdbcTest {
+	// Synthetic lambda methods map to the method they were written in; others keep their name.
+	@Test
+	void mapsLambdasToEnclosingMethod() {
+		assertEquals("create", InstrumentedJdbc.enclosingMethod("lambda$create$0"));
+		assertEquals("findFeed", InstrumentedJdbc.enclosingMethod("lambda$findFeed$12"));
+		assertEquals("create", InstrumentedJdbc.enclosingMethod("create"));
+	}
+}
@@ -0,0 +1,82 @@
+// Copyright (c) 2025. Created By Yash Somani
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+// Tests the bucket precision and totals of LatencyHistogram.
+class LatencyHistogramTest {
+	// An empty histogram reports zero everywhere.
+	@Test
+	void emptyHistogramReportsZero() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getPercentile(50));
+		assertEquals(0, histogram.getMean());
+	}
+
+	// Count, sum, mean and max are exact.
+	@Test
+	void totalsAreExact() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long value = 1; value <= 1000; value++) {
+			histogram.record(value);
+		}
+		assertEquals(1000, histogram.getCount());
+		assertEquals(500_500, histogram.getSum());
+		assertEquals(500.5, histogram.getMean());
+		assertEquals(1000, histogram.getMax());
+	}
+
+	// Percentiles are the upper bound of their bucket: never below the true value and within about 3%.
+	@Test
+	void percentilesAreWithinBucketPrecision() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long value = 1; value <= 100_000; value++) {
+			histogram.record(value * 1000);
+		}
+		for (double percentile : new double[] { 1, 50, 90, 99, 99.9 }) {
+			long exact = (long) Math.ceil(percentile * 1000) * 1000;
+			long reported = histogram.getPercentile(percentile);
+			assertTrue(reported >= exact, percentile + ": " + reported + " < " + exact);
+			assertTrue(reported <= exact * 1.04, percentile + ": " + reported + " > " + exact);
+		}
+		assertEquals(histogram.getMax(), histogram.getPercentile(100));
+	}
+
+	// Small values have buckets of their own.
+	@Test
+	void smallValuesAreExact() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(3);
+		histogram.record(7);
+		histogram.record(7);
+		assertEquals(3, histogram.getPercentile(30));
+		assertEquals(7, histogram.getPercentile(50));
+		assertEquals(1, histogram.countAtOrBelow(3));
+		assertEquals(3, histogram.countAtOrBelow(7));
+	}
+
+	// Negative values count as 0 and huge ones are clamped, not lost.
+	@Test
+	void outOfRangeValuesAreClamped() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(-5);
+		histogram.record(Long.MAX_VALUE);
+		assertEquals(2, histogram.getCount());
+		assertEquals(1, histogram.countAtOrBelow(0));
+		assertTrue(histogram.getMax() > 0 && histogram.getMax() < Long.MAX_VALUE);
+	}
+
+	// reset() clears every value and total.
+	@Test
+	void resetClearsEverything() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(42);
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getSum());
+		assertEquals(0, histogram.getMax());
+		assertEquals(0, histogram.countAtOrBelow(Long.MAX_VALUE));
+	}
+}
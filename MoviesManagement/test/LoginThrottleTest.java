@@ -0,0 +1,79 @@
+// Copyright (c) 2025. Created By Yash Somani
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+// Tests the token buckets (generic cell rate algorithm) of LoginThrottle.
+class LoginThrottleTest {
+	// A new key gets its burst at once; the next attempt waits for about one refill interval.
+	@Test
+	void allowsBurstThenThrottles() {
+		LoginThrottle throttle = new LoginThrottle("test", 60, 3, 100);
+		for (int i = 0; i < 3; i++) {
+			assertEquals(0, throttle.acquire("ann@example.com"));
+		}
+		long wait = throttle.acquire("ann@example.com");
+		assertTrue(wait > TimeUnit.MILLISECONDS.toNanos(900) && wait <= TimeUnit.SECONDS.toNanos(1), wait + " ns");
+	}
+
+	// Refused attempts take no token, so waiting out the interval is enough.
+	@Test
+	void refillsOverTime() throws InterruptedException {
+		// One token every millisecond.
+		LoginThrottle throttle = new LoginThrottle("test", 60_000, 2, 100);
+		assertEquals(0, throttle.acquire("ann@example.com"));
+		assertEquals(0, throttle.acquire("ann@example.com"));
+		assertTrue(throttle.acquire("ann@example.com") > 0);
+		assertTrue(throttle.acquire("ann@example.com") > 0);
+		Thread.sleep(5);
+		assertEquals(0, throttle.acquire("ann@example.com"));
+	}
+
+	// Each key has a bucket of its own.
+	@Test
+	void keysAreIndependent() {
+		LoginThrottle throttle = new LoginThrottle("test", 60, 1, 100);
+		assertEquals(0, throttle.acquire("ann@example.com"));
+		assertTrue(throttle.acquire("ann@example.com") > 0);
+		assertEquals(0, throttle.acquire("bob@example.com"));
+	}
+
+	// Concurrent attempts on one key never take more than the burst.
+	@Test
+	void concurrentAttemptsTakeExactlyTheBurst() throws InterruptedException {
+		LoginThrottle throttle = new LoginThrottle("test", 1, 50, 100);
+		AtomicInteger allowed = new AtomicInteger();
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 8; t++) {
+			threads.add(new Thread(() -> {
+				for (int i = 0; i < 100; i++) {
+					if (throttle.acquire("ann@example.com") == 0) {
+						allowed.incrementAndGet();
+					}
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(50, allowed.get());
+	}
+
+	// Past maxKeys, full buckets are dropped and new keys still start with a full burst.
+	@Test
+	void boundedTableKeepsAdmittingNewKeys() {
+		LoginThrottle throttle = new LoginThrottle("test", 60, 1, 10);
+		for (int i = 0; i < 1_000; i++) {
+			assertEquals(0, throttle.acquire("user" + i + "@example.com"));
+		}
+	}
+}
@@ -0,0 +1,206 @@
+// Copyright (c) 2025. Created By Yash Somani
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+// JDBC driver for tests (URLs starting with jdbc:recording:) whose connections keep no data: an
+// update only records its SQL, which becomes visible in committed() once its transaction commits.
+// Savepoints and rollbacks behave as in MySQL, so tests can check which writes a component
+// committed. Updates starting with FAIL throw an ordinary SQLException (the server rolls back just
+// that statement); ones starting with DEADLOCK throw SQLTransactionRollbackException after rolling
+// back the whole transaction. Registered through META-INF/services, like a real driver.
+public class RecordingDriver implements Driver {
+	// Updates committed on any connection, in commit order.
+	private static final List<String> COMMITTED = new ArrayList<>();
+	// Transactions committed on any connection.
+	private static int commits;
+
+	// Returns the updates committed so far.
+	public static synchronized List<String> committed() {
+		return new ArrayList<>(COMMITTED);
+	}
+
+	// Returns the number of transactions committed so far (autocommit updates count one each).
+	public static synchronized int commits() {
+		return commits;
+	}
+
+	// Forgets every committed update.
+	public static synchronized void reset() {
+		COMMITTED.clear();
+		commits = 0;
+	}
+
+	private static synchronized void commit(List<String> updates) {
+		COMMITTED.addAll(updates);
+		commits++;
+	}
+
+	@Override
+	public Connection connect(String url, Properties info) throws SQLException {
+		return acceptsURL(url) ? new Session().connection() : null;
+	}
+
+	@Override
+	public boolean acceptsURL(String url) {
+		return url.startsWith("jdbc:recording:");
+	}
+
+	@Override
+	public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+		return new DriverPropertyInfo[0];
+	}
+
+	@Override
+	public int getMajorVersion() {
+		return 1;
+	}
+
+	@Override
+	public int getMinorVersion() {
+		return 0;
+	}
+
+	@Override
+	public boolean jdbcCompliant() {
+		return false;
+	}
+
+	@Override
+	public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	// State of one connection.
+	private static class Session {
+		private final List<String> pending = new ArrayList<>();
+		private boolean autoCommit = true;
+		private boolean readOnly;
+		private int isolation = Connection.TRANSACTION_REPEATABLE_READ;
+		private String catalog = "test";
+		private boolean closed;
+
+		Connection connection() {
+			return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+					new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+						switch (method.getName()) {
+							case "createStatement":
+								return statement();
+							case "setAutoCommit":
+								if ((Boolean) args[0] && !autoCommit) {
+									finish();
+								}
+								autoCommit = (Boolean) args[0];
+								return null;
+							case "getAutoCommit":
+								return autoCommit;
+							case "setSavepoint":
+								return savepoint(pending.size());
+							case "rollback":
+								if (args == null) {
+									pending.clear();
+								} else {
+									pending.subList(((Savepoint) args[0]).getSavepointId(), pending.size()).clear();
+								}
+								return null;
+							case "commit":
+								finish();
+								return null;
+							case "isReadOnly":
+								return readOnly;
+							case "setReadOnly":
+								readOnly = (Boolean) args[0];
+								return null;
+							case "getTransactionIsolation":
+								return isolation;
+							case "setTransactionIsolation":
+								isolation = (Integer) args[0];
+								return null;
+							case "getCatalog":
+								return catalog;
+							case "setCatalog":
+								catalog = (String) args[0];
+								return null;
+							case "isValid":
+								return !closed;
+							case "isClosed":
+								return closed;
+							case "close":
+								closed = true;
+								return null;
+							case "clearWarnings":
+								return null;
+							case "hashCode":
+								return System.identityHashCode(proxy);
+							case "equals":
+								return proxy == args[0];
+							case "toString":
+								return "RecordingConnection";
+							default:
+								throw new SQLFeatureNotSupportedException(method.getName());
+						}
+					});
+		}
+
+		// Commits the pending updates, if any.
+		private void finish() {
+			if (!pending.isEmpty()) {
+				commit(new ArrayList<>(pending));
+				pending.clear();
+			}
+		}
+
+		private Statement statement() {
+			return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(),
+					new Class<?>[] { Statement.class }, (proxy, method, args) -> {
+						switch (method.getName()) {
+							case "executeUpdate":
+								return update((String) args[0]);
+							case "close":
+								return null;
+							case "hashCode":
+								return System.identityHashCode(proxy);
+							case "equals":
+								return proxy == args[0];
+							default:
+								throw new SQLFeatureNotSupportedException(method.getName());
+						}
+					});
+		}
+
+		private int update(String sql) throws SQLException {
+			if (sql.startsWith("FAIL")) {
+				throw new SQLException("Duplicate entry", "23000");
+			}
+			if (sql.startsWith("DEADLOCK")) {
+				pending.clear();
+				throw new SQLTransactionRollbackException("Deadlock found when trying to get lock", "40001");
+			}
+			pending.add(sql);
+			if (autoCommit) {
+				finish();
+			}
+			return 1;
+		}
+
+		private static Savepoint savepoint(int position) {
+			return (Savepoint) Proxy.newProxyInstance(Savepoint.class.getClassLoader(),
+					new Class<?>[] { Savepoint.class }, (proxy, method, args) -> {
+						if (method.getName().equals("getSavepointId")) {
+							return position;
+						}
+						throw new SQLFeatureNotSupportedException(method.getName());
+					});
+		}
+	}
+}
@@ -0,0 +1,128 @@
+// Copyright (c) 2025. Created By Yash Somani
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+// Tests the ReviewRanking scores and the cursor-paginated feed of the in-memory repository.
+class ReviewFeedTest {
+	private static final int REVIEWERS = 25;
+
+	private MemoryReviewRepository reviews;
+
+	@BeforeEach
+	void createStore() throws SQLException {
+		MemoryStore memory = MemoryStore.inMemory();
+		for (int i = 1; i <= REVIEWERS + 1; i++) {
+			memory.users().insert("user" + i, "Test", "user" + i + "@example.com", "+12025550123",
+					LocalDate.parse("1990-05-15"), "secret", "user");
+		}
+		memory.movies().add("Inception", "2010-07-16", "Sci-Fi");
+		memory.movies().add("Heat", "1995-12-15", "Crime");
+		reviews = memory.reviews();
+		for (int user = 1; user <= REVIEWERS; user++) {
+			reviews.create(user, 1, "Review number " + user + " ".repeat(user * 10) + "end.", 1 + user % 5, 0, null);
+		}
+	}
+
+	// Higher ratings, longer texts, more shares and later modification all raise the score.
+	@Test
+	void scoreRisesWithEachFactor() {
+		long now = System.currentTimeMillis();
+		double base = ReviewRanking.baseScore(3, "Good.", now);
+		assertTrue(ReviewRanking.baseScore(5, "Good.", now) > base);
+		assertTrue(ReviewRanking.baseScore(3, "Good. ".repeat(50), now) > base);
+		assertTrue(ReviewRanking.score(3, "Good.", now, 2) > base);
+		assertTrue(ReviewRanking.baseScore(3, "Good.", now + 86_400_000L) > base);
+		assertEquals(ReviewRanking.shareBoost(0), 0.0);
+	}
+
+	// Following the cursor page by page returns every review once, best score first.
+	@Test
+	void pagesCoverFeedInOrder() throws SQLException {
+		List<Review> feed = readFeed(1, 7);
+		assertEquals(REVIEWERS, feed.size());
+		Set<Integer> ids = new HashSet<>();
+		for (int i = 0; i < feed.size(); i++) {
+			assertTrue(ids.add(feed.get(i).getId()));
+			if (i > 0) {
+				Review previous = feed.get(i - 1);
+				Review current = feed.get(i);
+				assertTrue(previous.getFeedScore() > current.getFeedScore()
+						|| previous.getFeedScore() == current.getFeedScore() && previous.getId() > current.getId());
+			}
+		}
+		assertTrue(reviews.findFeed(2, null, 10).isEmpty());
+	}
+
+	// A shared review moves up the feed.
+	@Test
+	void sharingRaisesReview() throws SQLException {
+		List<Review> before = readFeed(1, 100);
+		Review last = before.get(before.size() - 1);
+		for (int recipient = 1; recipient <= REVIEWERS + 1; recipient++) {
+			reviews.share(last.getId(), recipient);
+		}
+		List<Review> after = readFeed(1, 100);
+		assertTrue(positionOf(after, last.getId()) < before.size() - 1);
+	}
+
+	// Reviews written while a reader pages through neither repeat nor push out the rest: the cursor
+	// is a position in score order, not an offset.
+	@Test
+	void writesBetweenPagesDoNotRepeatOrSkip() throws SQLException {
+		Set<Integer> original = new HashSet<>();
+		for (Review review : readFeed(1, 100)) {
+			original.add(review.getId());
+		}
+		List<Review> first = reviews.findFeed(1, null, 10);
+		reviews.create(REVIEWERS + 1, 1, "A late, long and enthusiastic review." + " ".repeat(500), 5, 0, null);
+		List<Review> rest = new ArrayList<>();
+		ReviewRepository.FeedCursor cursor = ReviewRepository.FeedCursor.after(first.get(first.size() - 1));
+		List<Review> page;
+		while (!(page = reviews.findFeed(1, cursor, 10)).isEmpty()) {
+			rest.addAll(page);
+			cursor = ReviewRepository.FeedCursor.after(page.get(page.size() - 1));
+		}
+		Set<Integer> ids = new HashSet<>();
+		for (Review review : first) {
+			ids.add(review.getId());
+		}
+		for (Review review : rest) {
+			assertTrue(ids.add(review.getId()), "review " + review.getId() + " repeated");
+		}
+		// Every original review was seen; the new one may sort before the cursor.
+		assertTrue(ids.containsAll(original));
+	}
+
+	// Reads a movie's whole feed with pages of the given size.
+	private List<Review> readFeed(int movieId, int pageSize) throws SQLException {
+		List<Review> feed = new ArrayList<>();
+		ReviewRepository.FeedCursor cursor = null;
+		List<Review> page;
+		while (!(page = reviews.findFeed(movieId, cursor, pageSize)).isEmpty()) {
+			assertTrue(page.size() <= pageSize);
+			feed.addAll(page);
+			cursor = ReviewRepository.FeedCursor.after(page.get(page.size() - 1));
+		}
+		return feed;
+	}
+
+	// Returns the position of a review in a feed.
+	private static int positionOf(List<Review> feed, int reviewId) {
+		for (int i = 0; i < feed.size(); i++) {
+			if (feed.get(i).getId() == reviewId) {
+				return i;
+			}
+		}
+		throw new AssertionError("review " + reviewId + " missing from the feed");
+	}
+}
@@ -0,0 +1,125 @@
+// Copyright (c) 2025. Created By Yash Somani
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Tests ReviewFingerprint word pairs, similarity and band keys, and the duplicate flags the
+// in-memory repository keeps for moderation.
+class ReviewFingerprintTest {
+	private static final String TEXT = "The story kept me on the edge of my seat until the very end";
+
+	@TempDir
+	Path directory;
+
+	// Case, punctuation and spacing do not change a text's word pairs.
+	@Test
+	void wordPairsIgnoreCaseAndPunctuation() {
+		assertArrayEquals(ReviewFingerprint.wordPairs("great movie truly great"),
+				ReviewFingerprint.wordPairs("  Great MOVIE, truly... great!"));
+		assertEquals(3, ReviewFingerprint.wordPairs("great movie truly great").length);
+		assertEquals(0, ReviewFingerprint.wordPairs("Wow!").length);
+	}
+
+	// Similarity is the Jaccard index of the word-pair sets.
+	@Test
+	void similarityIsJaccardOfWordPairs() {
+		long[] text = ReviewFingerprint.wordPairs("one two three four five six");
+		assertEquals(1.0, ReviewFingerprint.similarity(text, text));
+		// Four of the five pairs are shared, out of six distinct pairs in all.
+		assertEquals(4 / 6.0, ReviewFingerprint.similarity(text,
+				ReviewFingerprint.wordPairs("one two three four five seven")), 1e-9);
+		assertEquals(0.0, ReviewFingerprint.similarity(text, ReviewFingerprint.wordPairs("alpha beta gamma")));
+		assertEquals(0.0, ReviewFingerprint.similarity(text, new long[0]));
+	}
+
+	// Short texts have no fingerprint; longer ones have up to BANDS distinct band keys.
+	@Test
+	void shortTextsHaveNoBandKeys() {
+		assertNull(ReviewFingerprint.bandKeys("Great movie, loved it!"));
+		int[] keys = ReviewFingerprint.bandKeys(TEXT);
+		assertTrue(keys.length > 0 && keys.length <= ReviewFingerprint.BANDS);
+		assertEquals(keys.length, distinct(keys).size());
+	}
+
+	// Band keys are stored with reviews, so they must not change between versions or processes.
+	@Test
+	void bandKeysAreStable() {
+		assertArrayEquals(new int[] { -1050783195, -1203552611, 1049066360, -9870650, 1144936535, 1892263024,
+				411215144, -1949230581, 1436492108, 375595996 }, ReviewFingerprint.bandKeys(TEXT));
+	}
+
+	// A near-copy shares a band key with the original; an unrelated text does not.
+	@Test
+	void nearCopiesShareBandKeys() {
+		String original = "An absolute triumph of a film with stunning visuals, a haunting score and "
+				+ "performances that stay with you long after the credits roll";
+		String copy = original.replace("haunting", "memorable");
+		String unrelated = "The plot dragged in the middle and the dialogue felt wooden, though the final "
+				+ "chase scene through the harbour almost made up for it";
+		assertTrue(ReviewFingerprint.similarity(ReviewFingerprint.wordPairs(original),
+				ReviewFingerprint.wordPairs(copy)) > 0.8);
+		Set<Integer> keys = distinct(ReviewFingerprint.bandKeys(original));
+		assertFalse(intersect(keys, ReviewFingerprint.bandKeys(copy)).isEmpty());
+		assertTrue(intersect(keys, ReviewFingerprint.bandKeys(unrelated)).isEmpty());
+	}
+
+	// Duplicate flags are set on create, cleared by an edit without one, selected by moderation and
+	// kept across a restart of a durable store.
+	@Test
+	void duplicateFlagsAreKept() throws Exception {
+		MemoryStore memory = MemoryStore.open(directory);
+		for (String name : new String[] { "ann", "bob" }) {
+			memory.users().insert(name, "Test", name + "@example.com", "+12025550123", LocalDate.parse("1990-05-15"),
+					"secret", "user");
+		}
+		memory.movies().add("Inception", "2010-07-16", "Sci-Fi");
+		memory.movies().add("Heat", "1995-12-15", "Crime");
+		MemoryReviewRepository reviews = memory.reviews();
+		reviews.create(1, 1, TEXT, 5, 0, null);
+		reviews.create(2, 1, TEXT, 5, 0, 1);
+		reviews.create(2, 2, TEXT + " again", 4, 0, 1);
+		assertEquals(List.of(2, 3), flagged(reviews));
+		reviews.update(3, 2, "Something else entirely, written by myself this time.", 4, null);
+		assertEquals(List.of(2), flagged(reviews));
+		memory.close();
+
+		try (MemoryStore reopened = MemoryStore.open(directory)) {
+			assertEquals(List.of(2), flagged(reopened.reviews()));
+		}
+	}
+
+	// Returns the IDs of the live reviews flagged as near-duplicates.
+	private static List<Integer> flagged(ReviewRepository reviews) throws SQLException {
+		List<Integer> ids = new ArrayList<>();
+		reviews.findMatchingIds(new ReviewRepository.ModerationCriteria(null, null, null, null, null, true), 0, 100,
+				ids);
+		return ids;
+	}
+
+	private static Set<Integer> distinct(int[] keys) {
+		Set<Integer> set = new HashSet<>();
+		for (int key : keys) {
+			set.add(key);
+		}
+		return set;
+	}
+
+	private static Set<Integer> intersect(Set<Integer> keys, int[] others) {
+		Set<Integer> common = distinct(others);
+		common.retainAll(keys);
+		return common;
+	}
+}
@@ -0,0 +1,87 @@
+// Copyright (c) 2025. Created By Yash Somani
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+// Tests ReviewText encoding, decompression and previews. Only the built-in empty dictionary (ID 0)
+// is decompressed here: any other is read from the database.
+class ReviewTextTest {
+	private static final String LONG_TEXT = "The acting was superb and the story kept me on the edge of my seat. "
+			+ "The acting was superb, the music was superb, and the ending was worth the wait. "
+			+ "I would watch it again with friends and family.";
+
+	// A compressible text is stored compressed and decompresses to the same text.
+	@Test
+	void compressedTextRoundTrips() throws SQLException {
+		ReviewText.Encoded encoded = ReviewText.encode(LONG_TEXT, 0, new byte[0]);
+		assertNull(encoded.getText());
+		assertNotNull(encoded.getCompressed());
+		assertTrue(encoded.getCompressed().length < LONG_TEXT.length());
+		assertEquals(LONG_TEXT, ReviewText.decompress(encoded.getCompressed()));
+	}
+
+	// Multi-byte characters survive the round trip.
+	@Test
+	void unicodeRoundTrips() throws SQLException {
+		String text = "Très émouvant — 映画は素晴らしかった. ".repeat(8);
+		ReviewText.Encoded encoded = ReviewText.encode(text, 0, new byte[0]);
+		assertNotNull(encoded.getCompressed());
+		assertEquals(text, ReviewText.decompress(encoded.getCompressed()));
+	}
+
+	// Short and incompressible texts are stored as they are.
+	@Test
+	void shortTextIsStoredPlain() {
+		ReviewText.Encoded encoded = ReviewText.encode("Loved it!", 0, new byte[0]);
+		assertEquals("Loved it!", encoded.getText());
+		assertNull(encoded.getCompressed());
+	}
+
+	// A dictionary trained on similar reviews makes the stored value smaller, and records its ID.
+	@Test
+	void trainedDictionaryCompressesBetter() {
+		List<String> samples = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			samples.add("The acting was superb and the story kept me on the edge of my seat " + i);
+		}
+		byte[] dictionary = ReviewText.train(samples, 1024);
+		assertTrue(dictionary.length > 0 && dictionary.length <= 1024);
+		String text = "The acting was superb and the story kept me on the edge of my seat until the end.";
+		byte[] without = ReviewText.encode(text, 0, new byte[0]).getCompressed();
+		byte[] with = ReviewText.encode(text, 7, dictionary).getCompressed();
+		assertNotNull(with);
+		assertTrue(without == null || with.length < without.length);
+		assertArrayEquals(new byte[] { 0, 7 }, Arrays.copyOf(with, 2));
+	}
+
+	// Truncated or corrupt values fail with an SQLException rather than returning wrong text.
+	@Test
+	void damagedValuesAreRejected() throws SQLException {
+		byte[] compressed = ReviewText.encode(LONG_TEXT, 0, new byte[0]).getCompressed();
+		assertThrows(SQLException.class, () -> ReviewText.decompress(Arrays.copyOf(compressed, compressed.length / 2)));
+		byte[] corrupt = compressed.clone();
+		corrupt[2] = (byte) 0xFF;
+		assertThrows(SQLException.class, () -> ReviewText.decompress(corrupt));
+	}
+
+	// Previews collapse whitespace and cut long texts at a word boundary with an ellipsis.
+	@Test
+	void previewsAreShortened() {
+		assertEquals("Short and sweet.", ReviewText.preview("  Short \n and   sweet.  "));
+		String preview = ReviewText.preview(LONG_TEXT);
+		assertTrue(preview.length() <= ReviewText.PREVIEW_LENGTH);
+		assertTrue(preview.endsWith("..."));
+		assertTrue(LONG_TEXT.startsWith(preview.substring(0, preview.length() - 3)));
+		assertTrue(LONG_TEXT.charAt(preview.length() - 3) == ' ');
+	}
+}
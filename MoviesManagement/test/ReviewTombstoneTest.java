@@ -0,0 +1,89 @@
+// Copyright (c) 2025. Created By Yash Somani
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Tests that a review tombstone blocks its author's new review of the movie only while an admin's
+// deletion can still be undone, in the in-memory repository and across restarts of a durable store.
+class ReviewTombstoneTest {
+	// Undo window passed to create.
+	private static final int UNDO_SECONDS = 600;
+
+	@TempDir
+	Path directory;
+
+	// An author who deleted their own review can review the movie again at once.
+	@Test
+	void authorDeletionIsReplaced() throws SQLException {
+		MemoryReviewRepository reviews = createStore(MemoryStore.inMemory());
+		reviews.create(1, 1, "Mind-bending.", 5, UNDO_SECONDS, null);
+		assertEquals(ReviewRepository.Outcome.OK, reviews.delete(1, 1));
+		assertEquals(ReviewRepository.Outcome.OK, reviews.create(1, 1, "Better the second time.", 4, UNDO_SECONDS, null));
+		// The replaced tombstone can no longer be restored.
+		assertEquals(ReviewRepository.Outcome.REVIEW_NOT_FOUND, reviews.restore(1, UNDO_SECONDS));
+	}
+
+	// A review an admin deleted blocks a new one during the undo window, and is replaced after it.
+	@Test
+	void adminDeletionBlocksUntilUndoWindowEnds() throws SQLException {
+		MemoryReviewRepository reviews = createStore(MemoryStore.inMemory());
+		reviews.create(1, 1, "Mind-bending.", 5, UNDO_SECONDS, null);
+		reviews.create(1, 2, "Tense throughout.", 4, UNDO_SECONDS, null);
+		assertEquals(ReviewRepository.Outcome.OK, reviews.deleteAny(1));
+		assertEquals(1, reviews.deleteAll(List.of(2)).size());
+		assertEquals(ReviewRepository.Outcome.RESTORABLE, reviews.create(1, 1, "Again.", 5, UNDO_SECONDS, null));
+		assertEquals(ReviewRepository.Outcome.RESTORABLE, reviews.create(1, 2, "Again.", 5, UNDO_SECONDS, null));
+		assertEquals(ReviewRepository.Outcome.OK, reviews.create(1, 1, "Again.", 5, 0, null));
+	}
+
+	// A restored review can be deleted by its author and then replaced.
+	@Test
+	void restoredReviewForgetsAdminDeletion() throws SQLException {
+		MemoryReviewRepository reviews = createStore(MemoryStore.inMemory());
+		reviews.create(1, 1, "Mind-bending.", 5, UNDO_SECONDS, null);
+		reviews.deleteAny(1);
+		assertEquals(ReviewRepository.Outcome.OK, reviews.restore(1, UNDO_SECONDS));
+		reviews.delete(1, 1);
+		assertEquals(ReviewRepository.Outcome.OK, reviews.create(1, 1, "Again.", 5, UNDO_SECONDS, null));
+	}
+
+	// Who deleted a tombstone is kept by the log and by snapshots.
+	@Test
+	void deleterSurvivesRestart() throws Exception {
+		MemoryStore memory = MemoryStore.open(directory);
+		MemoryReviewRepository reviews = createStore(memory);
+		reviews.create(1, 1, "Mind-bending.", 5, UNDO_SECONDS, null);
+		reviews.create(2, 1, "Slow.", 2, UNDO_SECONDS, null);
+		reviews.delete(1, 1);
+		reviews.deleteAny(2);
+		memory.close();
+
+		// The first restart replays the log, the second loads the snapshot the first one wrote.
+		for (int restart = 0; restart < 2; restart++) {
+			try (MemoryStore reopened = MemoryStore.open(directory)) {
+				assertEquals(ReviewRepository.Outcome.RESTORABLE,
+						reopened.reviews().create(2, 1, "Again.", 5, UNDO_SECONDS, null));
+			}
+		}
+		try (MemoryStore reopened = MemoryStore.open(directory)) {
+			assertEquals(ReviewRepository.Outcome.OK, reopened.reviews().create(1, 1, "Again.", 5, UNDO_SECONDS, null));
+		}
+	}
+
+	// Adds two users and two movies to an empty store and returns its reviews.
+	private static MemoryReviewRepository createStore(MemoryStore memory) throws SQLException {
+		for (String name : new String[] { "ann", "bob" }) {
+			memory.users().insert(name, "Test", name + "@example.com", "+12025550123", LocalDate.parse("1990-05-15"),
+					"secret", "user");
+		}
+		memory.movies().add("Inception", "2010-07-16", "Sci-Fi");
+		memory.movies().add("Heat", "1995-12-15", "Crime");
+		return memory.reviews();
+	}
+}
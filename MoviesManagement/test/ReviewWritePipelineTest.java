@@ -0,0 +1,224 @@
+// Copyright (c) 2025. Created By Yash Somani
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+// Tests that ReviewWritePipeline commits queued mutations together and keeps each one atomic.
+// Writes go to RecordingDriver (the surefire configuration points the primary at it). To get a
+// known batch, a first mutation holds the writer thread while the others queue up behind it.
+class ReviewWritePipelineTest {
+	private ReviewWritePipeline pipeline;
+	private ExecutorService callers;
+	private CountDownLatch holding;
+	private CountDownLatch release;
+
+	@BeforeEach
+	void createPipeline() {
+		RecordingDriver.reset();
+		pipeline = new ReviewWritePipeline();
+		callers = Executors.newCachedThreadPool();
+		holding = new CountDownLatch(1);
+		release = new CountDownLatch(1);
+	}
+
+	@AfterEach
+	void stopCallers() {
+		release.countDown();
+		callers.shutdownNow();
+	}
+
+	// Mutations queued while the writer is busy share one commit.
+	@Test
+	void queuedMutationsShareOneCommit() throws Exception {
+		CompletableFuture<ReviewRepository.Outcome> held = holdWriter();
+		List<CompletableFuture<ReviewRepository.Outcome>> results = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			results.add(submit("INSERT " + i));
+		}
+		releaseWriter();
+		assertEquals(ReviewRepository.Outcome.OK, held.get(5, TimeUnit.SECONDS));
+		for (CompletableFuture<ReviewRepository.Outcome> result : results) {
+			assertEquals(ReviewRepository.Outcome.OK, result.get(5, TimeUnit.SECONDS));
+		}
+		assertEquals(9, RecordingDriver.committed().size());
+		assertEquals(2, RecordingDriver.commits());
+	}
+
+	// A failing mutation loses all of its statements; the rest of its batch still commits.
+	@Test
+	void failedMutationIsRolledBackAlone() throws Exception {
+		CompletableFuture<ReviewRepository.Outcome> held = holdWriter();
+		CompletableFuture<ReviewRepository.Outcome> first = submit("INSERT a", "INSERT b");
+		CompletableFuture<ReviewRepository.Outcome> failing = submit("INSERT c", "FAIL c");
+		CompletableFuture<ReviewRepository.Outcome> last = submit("INSERT d");
+		releaseWriter();
+		held.get(5, TimeUnit.SECONDS);
+		assertEquals(ReviewRepository.Outcome.OK, first.get(5, TimeUnit.SECONDS));
+		assertEquals(ReviewRepository.Outcome.OK, last.get(5, TimeUnit.SECONDS));
+		ExecutionException e = assertThrows(ExecutionException.class, () -> failing.get(5, TimeUnit.SECONDS));
+		assertTrue(e.getCause() instanceof SQLException);
+		List<String> committed = RecordingDriver.committed();
+		assertTrue(committed.containsAll(List.of("INSERT a", "INSERT b", "INSERT d")));
+		assertFalse(committed.contains("INSERT c"));
+		assertEquals(2, RecordingDriver.commits());
+	}
+
+	// A deadlock rolls back the whole batch, which is then rerun one mutation per transaction.
+	@Test
+	void deadlockedBatchIsRerunIndividually() throws Exception {
+		CompletableFuture<ReviewRepository.Outcome> held = holdWriter();
+		CompletableFuture<ReviewRepository.Outcome> first = submit("INSERT x");
+		AtomicBoolean deadlocked = new AtomicBoolean();
+		CompletableFuture<ReviewRepository.Outcome> second = submit(conn -> {
+			try (Statement statement = conn.createStatement()) {
+				statement.executeUpdate("INSERT y");
+				if (deadlocked.compareAndSet(false, true)) {
+					statement.executeUpdate("DEADLOCK");
+				}
+			}
+			return ReviewRepository.Outcome.OK;
+		});
+		releaseWriter();
+		held.get(5, TimeUnit.SECONDS);
+		assertEquals(ReviewRepository.Outcome.OK, first.get(5, TimeUnit.SECONDS));
+		assertEquals(ReviewRepository.Outcome.OK, second.get(5, TimeUnit.SECONDS));
+		assertEquals(List.of("INSERT held", "INSERT x", "INSERT y"), RecordingDriver.committed());
+		assertEquals(3, RecordingDriver.commits());
+	}
+
+	// A refused mutation keeps none of its statements, e.g. an unarchive before a failed ownership
+	// check, while the rest of its batch commits.
+	@Test
+	void refusedMutationIsRolledBack() throws Exception {
+		CompletableFuture<ReviewRepository.Outcome> held = holdWriter();
+		CompletableFuture<ReviewRepository.Outcome> refused = submit(conn -> {
+			try (Statement statement = conn.createStatement()) {
+				statement.executeUpdate("INSERT unarchived");
+			}
+			return ReviewRepository.Outcome.REVIEW_NOT_FOUND;
+		});
+		CompletableFuture<ReviewRepository.Outcome> accepted = submit("INSERT f");
+		releaseWriter();
+		held.get(5, TimeUnit.SECONDS);
+		assertEquals(ReviewRepository.Outcome.REVIEW_NOT_FOUND, refused.get(5, TimeUnit.SECONDS));
+		assertEquals(ReviewRepository.Outcome.OK, accepted.get(5, TimeUnit.SECONDS));
+		assertEquals(List.of("INSERT held", "INSERT f"), RecordingDriver.committed());
+	}
+
+	// A refused mutation rerun in its own transaction is rolled back too, e.g. a tombstone removed
+	// before a duplicate was found.
+	@Test
+	void refusedMutationIsRolledBackWhenRunAlone() throws Exception {
+		CompletableFuture<ReviewRepository.Outcome> held = holdWriter();
+		CompletableFuture<ReviewRepository.Outcome> refused = submit(conn -> {
+			try (Statement statement = conn.createStatement()) {
+				statement.executeUpdate("DELETE tombstone");
+			}
+			return ReviewRepository.Outcome.DUPLICATE;
+		});
+		CompletableFuture<ReviewRepository.Outcome> deadlocked = submit("INSERT g", "DEADLOCK");
+		releaseWriter();
+		held.get(5, TimeUnit.SECONDS);
+		assertEquals(ReviewRepository.Outcome.DUPLICATE, refused.get(5, TimeUnit.SECONDS));
+		assertThrows(ExecutionException.class, () -> deadlocked.get(5, TimeUnit.SECONDS));
+		assertEquals(List.of("INSERT held"), RecordingDriver.committed());
+	}
+
+	// A mutation that throws an unexpected exception fails only its own caller, and none of its
+	// statements are committed.
+	@Test
+	void bugInMutationFailsOnlyItsCaller() throws Exception {
+		CompletableFuture<ReviewRepository.Outcome> held = holdWriter();
+		CompletableFuture<ReviewRepository.Outcome> first = submit("INSERT h");
+		CompletableFuture<ReviewRepository.Outcome> broken = submit(conn -> {
+			try (Statement statement = conn.createStatement()) {
+				statement.executeUpdate("INSERT broken");
+			}
+			throw new IllegalStateException("bug");
+		});
+		releaseWriter();
+		held.get(5, TimeUnit.SECONDS);
+		assertEquals(ReviewRepository.Outcome.OK, first.get(5, TimeUnit.SECONDS));
+		ExecutionException e = assertThrows(ExecutionException.class, () -> broken.get(5, TimeUnit.SECONDS));
+		assertTrue(e.getCause().getCause() instanceof IllegalStateException);
+		assertEquals(List.of("INSERT held", "INSERT h"), RecordingDriver.committed());
+	}
+
+	// Each caller in a batch gets the outcome of its own mutation.
+	@Test
+	void eachCallerGetsItsOwnOutcome() throws Exception {
+		CompletableFuture<ReviewRepository.Outcome> held = holdWriter();
+		CompletableFuture<ReviewRepository.Outcome> created = submit("INSERT e");
+		CompletableFuture<ReviewRepository.Outcome> duplicate = submit(conn -> ReviewRepository.Outcome.DUPLICATE);
+		releaseWriter();
+		held.get(5, TimeUnit.SECONDS);
+		assertEquals(ReviewRepository.Outcome.OK, created.get(5, TimeUnit.SECONDS));
+		assertEquals(ReviewRepository.Outcome.DUPLICATE, duplicate.get(5, TimeUnit.SECONDS));
+	}
+
+	// Submits a mutation that blocks the writer thread until releaseWriter is called.
+	private CompletableFuture<ReviewRepository.Outcome> holdWriter() throws InterruptedException {
+		CompletableFuture<ReviewRepository.Outcome> held = submit(conn -> {
+			holding.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			try (Statement statement = conn.createStatement()) {
+				statement.executeUpdate("INSERT held");
+			}
+			return ReviewRepository.Outcome.OK;
+		});
+		assertTrue(holding.await(5, TimeUnit.SECONDS));
+		return held;
+	}
+
+	// Lets the held writer continue once the mutations submitted since are queued.
+	private void releaseWriter() throws InterruptedException {
+		Thread.sleep(200);
+		release.countDown();
+	}
+
+	// Submits a mutation that runs the given updates.
+	private CompletableFuture<ReviewRepository.Outcome> submit(String... updates) {
+		return submit(conn -> {
+			try (Statement statement = conn.createStatement()) {
+				for (String update : updates) {
+					statement.executeUpdate(update);
+				}
+			}
+			return ReviewRepository.Outcome.OK;
+		});
+	}
+
+	// Submits a mutation from its own caller thread.
+	private CompletableFuture<ReviewRepository.Outcome> submit(ReviewWritePipeline.Mutation mutation) {
+		CompletableFuture<ReviewRepository.Outcome> result = new CompletableFuture<>();
+		callers.execute(() -> {
+			try {
+				result.complete(pipeline.submit(0, mutation));
+			} catch (SQLException | RuntimeException e) {
+				result.completeExceptionally(e);
+			}
+		});
+		return result;
+	}
+}
@@ -0,0 +1,146 @@
+// Copyright (c) 2025. Created By Yash Somani
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Tests WriteAheadLog framing, replay and group commit, and MemoryStore recovery from its log.
+class WriteAheadLogTest {
+	@TempDir
+	Path directory;
+
+	// Records replay in the order they were appended.
+	@Test
+	void replaysRecordsInOrder() throws IOException {
+		writeRecords("a", "bb", "ccc");
+		assertEquals(List.of("a", "bb", "ccc"), replay(0));
+	}
+
+	// A record cut short by a crash, and everything after it, is skipped.
+	@Test
+	void stopsAtTornTail() throws IOException {
+		writeRecords("first", "second", "third");
+		Path segment = WriteAheadLog.segmentPath(directory, 0);
+		try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+			file.setLength(file.length() - 2);
+		}
+		assertEquals(List.of("first", "second"), replay(0));
+	}
+
+	// A record whose payload does not match its checksum ends the replay.
+	@Test
+	void stopsAtCorruptRecord() throws IOException {
+		writeRecords("first", "second", "third");
+		Path segment = WriteAheadLog.segmentPath(directory, 0);
+		try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+			// Second record: after the first record's header (8 bytes) and payload (5 bytes) and its own header.
+			file.seek(8 + 5 + 8);
+			file.write('S');
+		}
+		assertEquals(List.of("first"), replay(0));
+	}
+
+	// Records appended after a rotation go to the next generation's segment.
+	@Test
+	void rotateStartsNextSegment() throws IOException {
+		try (WriteAheadLog log = new WriteAheadLog(directory, 0)) {
+			log.awaitDurable(log.append(bytes("old")));
+			assertEquals(1, log.rotate());
+			assertEquals(0, log.segmentRecords());
+			log.awaitDurable(log.append(bytes("new")));
+		}
+		assertEquals(List.of("old"), replay(0));
+		assertEquals(List.of("new"), replay(1));
+	}
+
+	// Concurrent writers sharing fsyncs all find their records on disk once awaitDurable returns.
+	@Test
+	void concurrentAppendsAreAllDurable() throws Exception {
+		int threads = 8;
+		int perThread = 200;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try (WriteAheadLog log = new WriteAheadLog(directory, 0)) {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				int thread = t;
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < perThread; i++) {
+						long sequence;
+						synchronized (log) {
+							sequence = log.append(bytes(thread + ":" + i));
+						}
+						log.awaitDurable(sequence);
+					}
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(threads * perThread, replay(0).size());
+	}
+
+	// A store that was never closed (as after a crash) is recovered from its log, and one that was
+	// closed from its final snapshot.
+	@Test
+	void memoryStoreRecoversFromLogAndSnapshot() throws Exception {
+		MemoryStore crashed = MemoryStore.open(directory);
+		crashed.users().insert("Ann", "Lee", "ann@example.com", "+12025550123", LocalDate.parse("1990-05-15"),
+				"secret", "user");
+		crashed.movies().add("Inception", "2010-07-16", "Sci-Fi");
+		crashed.reviews().create(1, 1, "A film worth seeing twice.", 5, 0, null);
+		// Left open: only the log holds the changes.
+
+		MemoryStore recovered = MemoryStore.open(directory);
+		assertTrue(recovered.isRecovered());
+		assertEquals(1, recovered.users().findIdByEmail("ann@example.com"));
+		assertEquals(1, recovered.movies().findAll().size());
+		assertNotNull(recovered.reviews().findById(1));
+		recovered.close();
+
+		try (MemoryStore reopened = MemoryStore.open(directory)) {
+			assertEquals("A film worth seeing twice.", reopened.reviews().findById(1).getText());
+		}
+	}
+
+	// Appends the records to a new segment of generation 0 and closes it.
+	private void writeRecords(String... records) throws IOException {
+		try (WriteAheadLog log = new WriteAheadLog(directory, 0)) {
+			long sequence = 0;
+			for (String record : records) {
+				sequence = log.append(bytes(record));
+			}
+			log.awaitDurable(sequence);
+		}
+	}
+
+	// Returns the records of a segment as strings.
+	private List<String> replay(long generation) throws IOException {
+		List<String> records = new ArrayList<>();
+		Path segment = WriteAheadLog.segmentPath(directory, generation);
+		assertTrue(Files.exists(segment));
+		WriteAheadLog.replay(segment, in -> records.add(new String(in.readAllBytes(), StandardCharsets.UTF_8)));
+		return records;
+	}
+
+	private static byte[] bytes(String record) {
+		return record.getBytes(StandardCharsets.UTF_8);
+	}
+}